@@ -22,6 +22,7 @@ package org.keycloak.representations.idm;
  */
 public class AdminEventRepresentation {
 
+    private String id;
     private long time;
     private String realmId;
     private AuthDetailsRepresentation authDetails;
@@ -31,6 +32,14 @@ public class AdminEventRepresentation {
     private String representation;
     private String error;
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public long getTime() {
         return time;
     }
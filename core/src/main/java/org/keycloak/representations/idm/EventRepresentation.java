@@ -24,6 +24,7 @@ import java.util.Map;
  */
 public class EventRepresentation {
 
+    private String id;
     private long time;
     private String type;
     private String realmId;
@@ -34,6 +35,14 @@ public class EventRepresentation {
     private String error;
     private Map<String, String> details;
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public long getTime() {
         return time;
     }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.sessions.infinispan.changes;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the per-key locks of {@link SerializeExecutionsByKey} with the striped locks, both for the executions spread over many
+ * sessions, and for the executions which all target a few sessions, as with clients refreshing tokens of the same session in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class SerializeExecutionsByKeyBenchmark {
+
+    @Param({"0", "256", "4096"})
+    public int stripes;
+
+    @Param({"4", "100000"})
+    public int sessions;
+
+    @Param({"100"})
+    public int work;
+
+    private SerializeExecutionsByKey<String> serializer;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        serializer = stripes > 0 ? SerializeExecutionsByKey.striped(stripes) : new SerializeExecutionsByKey<>();
+        keys = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            keys[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @Benchmark
+    public void runSerialized() {
+        String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        serializer.runSerialized(key, () -> Blackhole.consumeCPU(work));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SerializeExecutionsByKeyBenchmark.class.getSimpleName()).build()).run();
+    }
+}
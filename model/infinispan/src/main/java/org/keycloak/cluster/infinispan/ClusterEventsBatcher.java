@@ -0,0 +1,174 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.cluster.infinispan;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jboss.logging.Logger;
+import org.keycloak.cluster.ClusterEvent;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.common.util.Time;
+
+/**
+ * Merges the cluster events sent to the same destination within a short window into a single message.
+ * <p>
+ * The first events sent to a destination open a batch, which is sent once the window elapses, or sooner if it reaches the maximum
+ * size. Equal events are sent only once per batch, in the order they were first added.
+ */
+class ClusterEventsBatcher {
+
+    private static final Logger logger = Logger.getLogger(ClusterEventsBatcher.class);
+
+    interface Sender {
+        void send(String taskKey, Collection<? extends ClusterEvent> events, boolean ignoreSender, ClusterProvider.DCNotify dcNotify);
+    }
+
+    private final Sender sender;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Map<Destination, Batch> batches = new HashMap<>();
+
+    private final LongAdder batchesSent = new LongAdder();
+    private final LongAdder eventsAdded = new LongAdder();
+    private final LongAdder eventsSent = new LongAdder();
+    private final LongAdder totalDelayMillis = new LongAdder();
+    private final AtomicLong maxSentBatchSize = new AtomicLong();
+
+    ClusterEventsBatcher(Sender sender, long windowMillis, int maxBatchSize) {
+        this.sender = sender;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(r);
+            thread.setName(ClusterEventsBatcher.class.getName() + "-" + thread.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void add(String taskKey, Collection<? extends ClusterEvent> events, boolean ignoreSender, ClusterProvider.DCNotify dcNotify) {
+        Destination destination = new Destination(taskKey, ignoreSender, dcNotify);
+        Batch full = null;
+
+        synchronized (batches) {
+            Batch batch = batches.get(destination);
+            if (batch == null) {
+                Batch created = new Batch(Time.currentTimeMillis());
+                batches.put(destination, created);
+                scheduler.schedule(() -> flush(destination, created), windowMillis, TimeUnit.MILLISECONDS);
+                batch = created;
+            }
+            batch.events.addAll(events);
+            if (batch.events.size() >= maxBatchSize) {
+                batches.remove(destination);
+                full = batch;
+            }
+        }
+        eventsAdded.add(events.size());
+
+        if (full != null) {
+            send(destination, full);
+        }
+    }
+
+    /**
+     * Sends all the pending batches right away and stops the batcher.
+     */
+    void close() {
+        List<Map.Entry<Destination, Batch>> pending;
+        synchronized (batches) {
+            pending = new ArrayList<>(batches.entrySet());
+            batches.clear();
+        }
+        scheduler.shutdownNow();
+        pending.forEach(entry -> send(entry.getKey(), entry.getValue()));
+    }
+
+    long getBatchesSent() {
+        return batchesSent.sum();
+    }
+
+    long getEventsAdded() {
+        return eventsAdded.sum();
+    }
+
+    long getEventsSent() {
+        return eventsSent.sum();
+    }
+
+    long getMaxBatchSize() {
+        return maxSentBatchSize.get();
+    }
+
+    long getAverageDelayMillis() {
+        long batches = batchesSent.sum();
+        return batches == 0 ? 0 : totalDelayMillis.sum() / batches;
+    }
+
+    private void flush(Destination destination, Batch batch) {
+        synchronized (batches) {
+            // the batch was already sent when it became full
+            if (!batches.remove(destination, batch)) {
+                return;
+            }
+        }
+        try {
+            send(destination, batch);
+        } catch (RuntimeException e) {
+            logger.warnf(e, "Failed to send %d events for key '%s'", batch.events.size(), destination.taskKey());
+        }
+    }
+
+    private void send(Destination destination, Batch batch) {
+        int size = batch.events.size();
+        long delay = Time.currentTimeMillis() - batch.createdAt;
+
+        sender.send(destination.taskKey(), new ArrayList<>(batch.events), destination.ignoreSender(), destination.dcNotify());
+
+        batchesSent.increment();
+        eventsSent.add(size);
+        totalDelayMillis.add(delay);
+        maxSentBatchSize.accumulateAndGet(size, Math::max);
+        logger.tracef("Sent batch of %d events for key '%s' after %d ms", (Object) size, destination.taskKey(), delay);
+    }
+
+    private record Destination(String taskKey, boolean ignoreSender, ClusterProvider.DCNotify dcNotify) {
+    }
+
+    private static class Batch {
+
+        private final Set<ClusterEvent> events = new LinkedHashSet<>();
+        private final long createdAt;
+
+        Batch(long createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import org.keycloak.cluster.ExecutionResult;
 import org.keycloak.common.util.Retry;
 import org.keycloak.common.util.Time;
 
+import java.util.Collection;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -130,6 +131,11 @@ public class InfinispanClusterProvider implements ClusterProvider {
         this.notificationsManager.notify(taskKey, event, ignoreSender, dcNotify);
     }
 
+    @Override
+    public void notify(String taskKey, Collection<? extends ClusterEvent> events, boolean ignoreSender, DCNotify dcNotify) {
+        this.notificationsManager.notify(taskKey, events, ignoreSender, dcNotify);
+    }
+
     private LockEntry createLockEntry() {
         LockEntry lock = new LockEntry();
         lock.setNode(myAddress);
@@ -37,9 +37,12 @@ import org.keycloak.connections.infinispan.InfinispanUtil;
 import org.keycloak.connections.infinispan.TopologyInfo;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -56,6 +59,12 @@ public class InfinispanClusterProviderFactory implements ClusterProviderFactory
 
     public static final String PROVIDER_ID = "infinispan";
 
+    public static final String CONFIG_NOTIFICATIONS_MULTIPLE_EVENTS = "notificationsMultipleEvents";
+    public static final String CONFIG_NOTIFICATIONS_BATCH_WINDOW = "notificationsBatchWindow";
+    public static final int DEFAULT_NOTIFICATIONS_BATCH_WINDOW = 0;
+    public static final String CONFIG_NOTIFICATIONS_MAX_BATCH_SIZE = "notificationsMaxBatchSize";
+    public static final int DEFAULT_NOTIFICATIONS_MAX_BATCH_SIZE = 1000;
+
     protected static final Logger logger = Logger.getLogger(InfinispanClusterProviderFactory.class);
 
     // Infinispan cache
@@ -69,6 +78,10 @@ public class InfinispanClusterProviderFactory implements ClusterProviderFactory
     // Just to extract notifications related stuff to separate class
     private InfinispanNotificationsManager notificationsManager;
 
+    private boolean notificationsMultipleEvents;
+    private int notificationsBatchWindow;
+    private int notificationsMaxBatchSize;
+
     private final ExecutorService localExecutor = Executors.newCachedThreadPool(r -> {
         Thread thread = Executors.defaultThreadFactory().newThread(r);
         thread.setName(this.getClass().getName() + "-" + thread.getName());
@@ -105,6 +118,12 @@ public class InfinispanClusterProviderFactory implements ClusterProviderFactory
                     String mySite = topologyInfo.getMySiteName();
 
                     notificationsManager = InfinispanNotificationsManager.create(session, workCache, myAddress, mySite, remoteStores);
+                    if (notificationsMultipleEvents) {
+                        notificationsManager.enableMultipleEventsPerMessage();
+                        if (notificationsBatchWindow > 0) {
+                            notificationsManager.enableBatching(notificationsBatchWindow, notificationsMaxBatchSize);
+                        }
+                    }
                 }
             }
         }
@@ -165,6 +184,12 @@ public class InfinispanClusterProviderFactory implements ClusterProviderFactory
 
     @Override
     public void init(Config.Scope config) {
+        notificationsMultipleEvents = config.getBoolean(CONFIG_NOTIFICATIONS_MULTIPLE_EVENTS, false);
+        notificationsBatchWindow = config.getInt(CONFIG_NOTIFICATIONS_BATCH_WINDOW, DEFAULT_NOTIFICATIONS_BATCH_WINDOW);
+        if (notificationsBatchWindow > 0 && !notificationsMultipleEvents) {
+            logger.warnf("The option '%s' has no effect unless '%s' is enabled", CONFIG_NOTIFICATIONS_BATCH_WINDOW, CONFIG_NOTIFICATIONS_MULTIPLE_EVENTS);
+        }
+        notificationsMaxBatchSize = config.getInt(CONFIG_NOTIFICATIONS_MAX_BATCH_SIZE, DEFAULT_NOTIFICATIONS_MAX_BATCH_SIZE);
     }
 
     @Override
@@ -180,6 +205,9 @@ public class InfinispanClusterProviderFactory implements ClusterProviderFactory
                 workCacheListener = null;
                 localExecutor.shutdown();
             }
+            if (notificationsManager != null) {
+                notificationsManager.close();
+            }
         }
     }
 
@@ -188,6 +216,32 @@ public class InfinispanClusterProviderFactory implements ClusterProviderFactory
         return PROVIDER_ID;
     }
 
+    @Override
+    public List<ProviderConfigProperty> getConfigMetadata() {
+        return ProviderConfigurationBuilder.create()
+                .property()
+                .name(CONFIG_NOTIFICATIONS_MULTIPLE_EVENTS)
+                .helpText("Send the cache invalidation events of a transaction to the cluster in a single message. " +
+                        "Enable it only once all nodes of the cluster are upgraded, as older nodes cannot read such messages.")
+                .type("boolean")
+                .defaultValue(false)
+                .add()
+                .property()
+                .name(CONFIG_NOTIFICATIONS_BATCH_WINDOW)
+                .helpText("Window in milliseconds in which the cache invalidation events sent to the cluster are merged into a single message. " +
+                        "If zero or negative, the events of each transaction are sent right away. Requires '" + CONFIG_NOTIFICATIONS_MULTIPLE_EVENTS + "'.")
+                .type("int")
+                .defaultValue(DEFAULT_NOTIFICATIONS_BATCH_WINDOW)
+                .add()
+                .property()
+                .name(CONFIG_NOTIFICATIONS_MAX_BATCH_SIZE)
+                .helpText("Maximum number of cache invalidation events merged into a single message, after which the message is sent before the window elapses.")
+                .type("int")
+                .defaultValue(DEFAULT_NOTIFICATIONS_MAX_BATCH_SIZE)
+                .add()
+                .build();
+    }
+
     @Listener
     public class ViewChangeListener {
 
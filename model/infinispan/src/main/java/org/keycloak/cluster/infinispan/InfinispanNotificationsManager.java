@@ -18,6 +18,8 @@
 package org.keycloak.cluster.infinispan;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -85,6 +87,10 @@ public class InfinispanNotificationsManager {
 
     private final ExecutorService listenersExecutor;
 
+    private volatile ClusterEventsBatcher batcher;
+
+    private volatile boolean multipleEventsPerMessage;
+
     protected InfinispanNotificationsManager(Cache<String, Serializable> workCache, RemoteCache<Object, Serializable> workRemoteCache, String myAddress, String mySite, ExecutorService listenersExecutor) {
         this.workCache = workCache;
         this.workRemoteCache = workRemoteCache;
@@ -93,6 +99,35 @@ public class InfinispanNotificationsManager {
         this.listenersExecutor = listenersExecutor;
     }
 
+    /**
+     * Enables sending the events passed to {@link #notify(String, Collection, boolean, ClusterProvider.DCNotify)} in a single message.
+     * Older nodes cannot read such messages, so it must only be enabled once all nodes of the cluster are upgraded.
+     */
+    void enableMultipleEventsPerMessage() {
+        multipleEventsPerMessage = true;
+    }
+
+    /**
+     * Enables merging of the events sent by {@link #notify(String, Collection, boolean, ClusterProvider.DCNotify)} to the same
+     * destination within the given window.
+     */
+    void enableBatching(long windowMillis, int maxBatchSize) {
+        batcher = new ClusterEventsBatcher(this::send, windowMillis, maxBatchSize);
+    }
+
+    ClusterEventsBatcher getBatcher() {
+        return batcher;
+    }
+
+    void close() {
+        ClusterEventsBatcher batcher = this.batcher;
+        if (batcher != null) {
+            batcher.close();
+            logger.debugf("Sent %d cluster events out of %d in %d batches, largest batch %d events, average delay %d ms",
+                    batcher.getEventsSent(), batcher.getEventsAdded(), batcher.getBatchesSent(), batcher.getMaxBatchSize(), batcher.getAverageDelayMillis());
+        }
+    }
+
 
     // Create and init manager including all listeners etc
     public static InfinispanNotificationsManager create(KeycloakSession session, Cache<String, Serializable> workCache, String myAddress, String mySite, Set<RemoteStore> remoteStores) {
@@ -141,9 +176,35 @@ public class InfinispanNotificationsManager {
 
 
     void notify(String taskKey, ClusterEvent event, boolean ignoreSender, ClusterProvider.DCNotify dcNotify) {
+        send(taskKey, Collections.singletonList(event), ignoreSender, dcNotify);
+    }
+
+
+    void notify(String taskKey, Collection<? extends ClusterEvent> events, boolean ignoreSender, ClusterProvider.DCNotify dcNotify) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        if (!multipleEventsPerMessage) {
+            for (ClusterEvent event : events) {
+                send(taskKey, Collections.singletonList(event), ignoreSender, dcNotify);
+            }
+            return;
+        }
+
+        ClusterEventsBatcher batcher = this.batcher;
+        if (batcher != null) {
+            batcher.add(taskKey, events, ignoreSender, dcNotify);
+        } else {
+            send(taskKey, events, ignoreSender, dcNotify);
+        }
+    }
+
+
+    private void send(String taskKey, Collection<? extends ClusterEvent> events, boolean ignoreSender, ClusterProvider.DCNotify dcNotify) {
         WrapperClusterEvent wrappedEvent = new WrapperClusterEvent();
         wrappedEvent.setEventKey(taskKey);
-        wrappedEvent.setDelegateEvent(event);
+        wrappedEvent.setDelegateEvents(events);
         wrappedEvent.setIgnoreSender(ignoreSender);
         wrappedEvent.setIgnoreSenderSite(dcNotify == ClusterProvider.DCNotify.ALL_BUT_LOCAL_DC);
         wrappedEvent.setSender(myAddress);
@@ -152,7 +213,7 @@ public class InfinispanNotificationsManager {
         String eventKey = UUID.randomUUID().toString();
 
         if (logger.isTraceEnabled()) {
-            logger.tracef("Sending event with key %s: %s", eventKey, event);
+            logger.tracef("Sending event with key %s: %s", eventKey, events);
         }
 
         if (dcNotify == ClusterProvider.DCNotify.LOCAL_DC_ONLY || workRemoteCache == null) {
@@ -295,12 +356,12 @@ public class InfinispanNotificationsManager {
             logger.tracef("Received event: %s", event);
         }
 
-        ClusterEvent wrappedEvent = event.getDelegateEvent();
-
         List<ClusterListener> myListeners = listeners.get(eventKey);
         if (myListeners != null) {
-            for (ClusterListener listener : myListeners) {
-                listener.eventReceived(wrappedEvent);
+            for (ClusterEvent wrappedEvent : event.getDelegateEvents()) {
+                for (ClusterListener listener : myListeners) {
+                    listener.eventReceived(wrappedEvent);
+                }
             }
         }
     }
@@ -21,6 +21,9 @@ import org.keycloak.cluster.ClusterEvent;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Objects;
 
 import org.infinispan.commons.marshall.Externalizer;
@@ -38,7 +41,7 @@ public class WrapperClusterEvent implements ClusterEvent {
     private String senderSite;
     private boolean ignoreSender;
     private boolean ignoreSenderSite;
-    private ClusterEvent delegateEvent;
+    private Collection<? extends ClusterEvent> delegateEvents;
 
     public String getEventKey() {
         return eventKey;
@@ -80,12 +83,12 @@ public class WrapperClusterEvent implements ClusterEvent {
         this.ignoreSenderSite = ignoreSenderSite;
     }
 
-    public ClusterEvent getDelegateEvent() {
-        return delegateEvent;
+    public Collection<? extends ClusterEvent> getDelegateEvents() {
+        return delegateEvents;
     }
 
-    public void setDelegateEvent(ClusterEvent delegateEvent) {
-        this.delegateEvent = delegateEvent;
+    public void setDelegateEvents(Collection<? extends ClusterEvent> delegateEvents) {
+        this.delegateEvents = delegateEvents;
     }
 
     @Override
@@ -93,26 +96,30 @@ public class WrapperClusterEvent implements ClusterEvent {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         WrapperClusterEvent that = (WrapperClusterEvent) o;
-        return ignoreSender == that.ignoreSender && ignoreSenderSite == that.ignoreSenderSite && Objects.equals(eventKey, that.eventKey) && Objects.equals(sender, that.sender) && Objects.equals(senderSite, that.senderSite) && Objects.equals(delegateEvent, that.delegateEvent);
+        return ignoreSender == that.ignoreSender && ignoreSenderSite == that.ignoreSenderSite && Objects.equals(eventKey, that.eventKey) && Objects.equals(sender, that.sender) && Objects.equals(senderSite, that.senderSite) && Objects.equals(delegateEvents, that.delegateEvents);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(eventKey, sender, senderSite, ignoreSender, ignoreSenderSite, delegateEvent);
+        return Objects.hash(eventKey, sender, senderSite, ignoreSender, ignoreSenderSite, delegateEvents);
     }
 
     @Override
     public String toString() {
-        return String.format("WrapperClusterEvent [ eventKey=%s, sender=%s, senderSite=%s, delegateEvent=%s ]", eventKey, sender, senderSite, delegateEvent.toString());
+        return String.format("WrapperClusterEvent [ eventKey=%s, sender=%s, senderSite=%s, delegateEvents=%s ]", eventKey, sender, senderSite, delegateEvents);
     }
 
     public static class ExternalizerImpl implements Externalizer<WrapperClusterEvent> {
 
         private static final int VERSION_1 = 1;
+        // multiple delegate events, which older nodes cannot read
+        private static final int VERSION_2 = 2;
 
         @Override
         public void writeObject(ObjectOutput output, WrapperClusterEvent obj) throws IOException {
-            output.writeByte(VERSION_1);
+            // a single event is written as VERSION_1, so that it is still readable by the nodes not upgraded yet
+            boolean singleEvent = obj.delegateEvents != null && obj.delegateEvents.size() == 1;
+            output.writeByte(singleEvent ? VERSION_1 : VERSION_2);
 
             MarshallUtil.marshallString(obj.eventKey, output);
             MarshallUtil.marshallString(obj.sender, output);
@@ -120,7 +127,11 @@ public class WrapperClusterEvent implements ClusterEvent {
             output.writeBoolean(obj.ignoreSender);
             output.writeBoolean(obj.ignoreSenderSite);
 
-            output.writeObject(obj.delegateEvent);
+            if (singleEvent) {
+                output.writeObject(obj.delegateEvents.iterator().next());
+            } else {
+                MarshallUtil.marshallCollection(obj.delegateEvents, output);
+            }
         }
 
         @Override
@@ -128,6 +139,8 @@ public class WrapperClusterEvent implements ClusterEvent {
             switch (input.readByte()) {
                 case VERSION_1:
                     return readObjectVersion1(input);
+                case VERSION_2:
+                    return readObjectVersion2(input);
                 default:
                     throw new IOException("Unknown version");
             }
@@ -142,7 +155,21 @@ public class WrapperClusterEvent implements ClusterEvent {
             res.ignoreSender = input.readBoolean();
             res.ignoreSenderSite = input.readBoolean();
 
-            res.delegateEvent = (ClusterEvent) input.readObject();
+            res.delegateEvents = Collections.singletonList((ClusterEvent) input.readObject());
+
+            return res;
+        }
+
+        public WrapperClusterEvent readObjectVersion2(ObjectInput input) throws IOException, ClassNotFoundException {
+            WrapperClusterEvent res = new WrapperClusterEvent();
+
+            res.eventKey = MarshallUtil.unmarshallString(input);
+            res.sender = MarshallUtil.unmarshallString(input);
+            res.senderSite = MarshallUtil.unmarshallString(input);
+            res.ignoreSender = input.readBoolean();
+            res.ignoreSenderSite = input.readBoolean();
+
+            res.delegateEvents = MarshallUtil.<ClusterEvent, Collection<ClusterEvent>>unmarshallCollection(input, ArrayList::new);
 
             return res;
         }
@@ -5,6 +5,7 @@ import org.jboss.logging.Logger;
 import org.keycloak.cluster.ClusterProvider;
 import org.keycloak.models.cache.infinispan.events.InvalidationEvent;
 import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.cache.infinispan.entities.InRealm;
 import org.keycloak.models.cache.infinispan.entities.Revisioned;
 
 import java.util.Collection;
@@ -12,7 +13,10 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 
 /**
@@ -49,6 +53,11 @@ import java.util.function.Predicate;
  5. Node 2 does a cache.remove(user) cache.remove(invalidation.key.userid)
  6. Node 1 receives invalidation event for invalidation.key.userid. Bumps the version counter for that user
  7. node 1 version check fails, it doesn't cache the user
+
+ The revisions cache is bounded, so the revision of an entry might be evicted while it is loaded. An entry without a revision is
+ therefore checked against the last revision bumped in its revision domain, which is the realm of the entry.  Invalidations of entries
+ whose domain is not known, for example entries not cached on this node, count for all the domains.  An invalidation in one realm
+ does not prevent caching the entries of the other realms loaded concurrently.
  *
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
@@ -58,6 +67,10 @@ public abstract class CacheManager {
     protected final Cache<String, Long> revisions;
     protected final Cache<String, Revisioned> cache;
     protected final UpdateCounter counter = new UpdateCounter();
+    private final ConcurrentMap<String, Long> domainRevisions = new ConcurrentHashMap<>();
+    private final AtomicLong unscopedRevision = new AtomicLong();
+    private volatile long negativeLookupLifespan;
+    private volatile CacheStatistics statistics = new CacheStatistics();
 
     public CacheManager(Cache<String, Revisioned> cache, Cache<String, Long> revisions) {
         this.cache = cache;
@@ -70,11 +83,52 @@ public abstract class CacheManager {
         return cache;
     }
 
+    /**
+     * Returns for how long in milliseconds a lookup which found nothing is cached, or {@code 0} if misses are not cached.
+     */
+    public long getNegativeLookupLifespan() {
+        return negativeLookupLifespan;
+    }
+
+    public void setNegativeLookupLifespan(long negativeLookupLifespan) {
+        this.negativeLookupLifespan = negativeLookupLifespan;
+    }
+
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(CacheStatistics statistics) {
+        this.statistics = statistics;
+    }
+
     public long getCurrentCounter() {
         return counter.current();
     }
 
+    /**
+     * Returns the revision domain of the entry, or {@code null} if not known. Each id must always map to the same domain.
+     */
+    protected String getRevisionDomain(Revisioned object) {
+        return object instanceof InRealm ? ((InRealm) object).getRealm() : null;
+    }
+
+    /**
+     * Returns the last revision bumped in the given revision domain, including the invalidations whose domain is not known.
+     */
+    public long getDomainRevision(String domain) {
+        long revision = unscopedRevision.get();
+        if (domain != null) {
+            Long domainRevision = domainRevisions.get(domain);
+            if (domainRevision != null && domainRevision > revision) {
+                return domainRevision;
+            }
+        }
+        return revision;
+    }
+
     public Long getCurrentRevision(String id) {
+        statistics.loadStarted(id);
         Long revision = revisions.get(id);
         if (revision == null) {
             revision = counter.current();
@@ -94,6 +148,7 @@ public abstract class CacheManager {
     public <T extends Revisioned> T get(String id, Class<T> type) {
         Revisioned o = (Revisioned)cache.get(id);
         if (o == null) {
+            statistics.miss(id, type);
             return null;
         }
         Long rev = revisions.get(id);
@@ -107,6 +162,7 @@ public abstract class CacheManager {
              ** this allows caching the current version again
              */
             cache.remove(id);
+            statistics.miss(id, type);
             return null;
         }
         long oRev = o.getRevision() == null ? -1L : o.getRevision().longValue();
@@ -116,9 +172,15 @@ public abstract class CacheManager {
             }
             // the object in this.cache is outdated => remove it
             cache.remove(id);
+            statistics.miss(id, type);
+            return null;
+        }
+        if (!type.isInstance(o)) {
+            statistics.miss(id, type);
             return null;
         }
-        return o != null && type.isInstance(o) ? type.cast(o) : null;
+        statistics.hit(type);
+        return type.cast(o);
     }
 
     public Object invalidateObject(String id) {
@@ -128,12 +190,20 @@ public abstract class CacheManager {
             getLogger().tracef("Removed key='%s', value='%s' from cache", id, removed);
         }
 
-        bumpVersion(id);
+        bumpVersion(id, removed);
+        statistics.invalidated(removed);
         return removed;
     }
 
-    protected void bumpVersion(String id) {
+    protected void bumpVersion(String id, Revisioned removed) {
         long next = counter.next();
+        // recorded before the revision of the entry, which might be evicted right away
+        String domain = removed == null ? null : getRevisionDomain(removed);
+        if (domain == null) {
+            unscopedRevision.accumulateAndGet(next, Math::max);
+        } else {
+            domainRevisions.merge(domain, next, Math::max);
+        }
         revisions.put(id, next);
     }
 
@@ -144,11 +214,12 @@ public abstract class CacheManager {
     public void addRevisioned(Revisioned object, long startupRevision, long lifespan) {
         //startRevisionBatch();
         String id = object.getId();
+        statistics.loaded(object);
         try {
             //revisions.getAdvancedCache().lock(id);
             Long rev = revisions.get(id);
             if (rev == null) {
-                rev = counter.current();
+                rev = getDomainRevision(getRevisionDomain(object));
                 revisions.put(id, rev);
             }
             revisions.startBatch();
@@ -189,6 +260,9 @@ public abstract class CacheManager {
     public void clear() {
         cache.clear();
         revisions.clear();
+        // the revisions cleared might be higher than any domain revision
+        unscopedRevision.accumulateAndGet(counter.current(), Math::max);
+        domainRevisions.clear();
     }
 
     public void addInvalidations(Predicate<Map.Entry<String, Revisioned>> predicate, Set<String> invalidations) {
@@ -207,12 +281,13 @@ public abstract class CacheManager {
 
 
     public void sendInvalidationEvents(KeycloakSession session, Collection<InvalidationEvent> invalidationEvents, String eventKey) {
-        ClusterProvider clusterProvider = session.getProvider(ClusterProvider.class);
-
-        // Maybe add InvalidationEvent, which will be collection of all invalidationEvents? That will reduce cluster traffic even more.
-        for (InvalidationEvent event : invalidationEvents) {
-            clusterProvider.notify(eventKey, event, true, ClusterProvider.DCNotify.ALL_DCS);
+        if (invalidationEvents.isEmpty()) {
+            return;
         }
+
+        // All the events of the transaction are sent as a single message
+        ClusterProvider clusterProvider = session.getProvider(ClusterProvider.class);
+        clusterProvider.notify(eventKey, invalidationEvents, true, ClusterProvider.DCNotify.ALL_DCS);
     }
 
 
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.cache.infinispan;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import org.keycloak.models.cache.infinispan.entities.Revisioned;
+
+/**
+ * Counts the hits, misses, loads and invalidations of a {@link CacheManager} per type of the cached entries, like {@code CachedRealm}
+ * or {@code CachedUser}. Nothing is counted until the statistics are enabled.
+ * <p>
+ * The entries are counted under the type they are looked up with, so a load or an invalidation of a {@code CachedRealmRole} is counted
+ * under {@code CachedRole}, along with the misses which caused the load. The time of a load is measured from reading the current
+ * revision of the entry until the loaded entry is added to the cache.
+ */
+public class CacheStatistics {
+
+    private static final int MAX_PENDING_LOADS = 64;
+
+    private final ConcurrentMap<String, EntityTypeStatistics> types = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, EntityTypeStatistics>> listeners = new CopyOnWriteArrayList<>();
+    // the type looked up by the class of the loaded entries, when they differ
+    private final ConcurrentMap<Class<?>, Class<?>> lookupTypes = new ConcurrentHashMap<>();
+    private final ThreadLocal<Map<String, PendingLoad>> pendingLoads = ThreadLocal.withInitial(() -> new LinkedHashMap<String, PendingLoad>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PendingLoad> eldest) {
+            // loads of entries which were not found are never completed
+            return size() > MAX_PENDING_LOADS;
+        }
+    });
+    private volatile boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the statistics collected so far, by the simple class name of the cached entries.
+     */
+    public Map<String, EntityTypeStatistics> getStatistics() {
+        return Collections.unmodifiableMap(types);
+    }
+
+    /**
+     * Adds a listener called for each type of cached entries, including the types seen later on.
+     */
+    public void addListener(BiConsumer<String, EntityTypeStatistics> listener) {
+        listeners.add(listener);
+        types.forEach(listener);
+    }
+
+    void hit(Class<? extends Revisioned> type) {
+        if (enabled) {
+            getStatistics(type).hits.increment();
+        }
+    }
+
+    void miss(String id, Class<? extends Revisioned> type) {
+        if (enabled) {
+            getStatistics(type).misses.increment();
+            // the entry is usually loaded next
+            pendingLoads.get().put(id, new PendingLoad(type));
+        }
+    }
+
+    void loadStarted(String id) {
+        if (enabled) {
+            pendingLoads.get().computeIfAbsent(id, k -> new PendingLoad(null)).start = System.nanoTime();
+        }
+    }
+
+    void loaded(Revisioned object) {
+        if (enabled) {
+            PendingLoad load = pendingLoads.get().remove(object.getId());
+            Class<?> type = object.getClass();
+            if (load != null && load.type != null) {
+                if (load.type != type) {
+                    lookupTypes.putIfAbsent(type, load.type);
+                }
+                type = load.type;
+            }
+            EntityTypeStatistics statistics = getStatistics(type);
+            statistics.loads.increment();
+            if (load != null && load.start != 0) {
+                statistics.loadTime.add(System.nanoTime() - load.start);
+            }
+        }
+    }
+
+    void invalidated(Revisioned object) {
+        if (enabled && object != null) {
+            getStatistics(lookupTypes.getOrDefault(object.getClass(), object.getClass())).invalidations.increment();
+        }
+    }
+
+    private EntityTypeStatistics getStatistics(Class<?> type) {
+        String name = type.getSimpleName();
+        EntityTypeStatistics statistics = types.get(name);
+        if (statistics == null) {
+            statistics = new EntityTypeStatistics();
+            EntityTypeStatistics existing = types.putIfAbsent(name, statistics);
+            if (existing != null) {
+                return existing;
+            }
+            for (BiConsumer<String, EntityTypeStatistics> listener : listeners) {
+                listener.accept(name, statistics);
+            }
+        }
+        return statistics;
+    }
+
+    private static class PendingLoad {
+
+        private final Class<?> type;
+        private long start;
+
+        PendingLoad(Class<?> type) {
+            this.type = type;
+        }
+    }
+
+    public static class EntityTypeStatistics {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder loads = new LongAdder();
+        private final LongAdder loadTime = new LongAdder();
+        private final LongAdder invalidations = new LongAdder();
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        public long getLoads() {
+            return loads.sum();
+        }
+
+        /**
+         * Returns the total time spent loading the entries, in nanoseconds.
+         */
+        public long getLoadTime() {
+            return loadTime.sum();
+        }
+
+        public long getInvalidations() {
+            return invalidations.sum();
+        }
+    }
+}
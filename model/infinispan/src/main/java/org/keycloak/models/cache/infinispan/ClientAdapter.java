@@ -389,6 +389,8 @@ public class ClientAdapter implements ClientModel, CachedObject {
     public void setClientId(String clientId) {
         getDelegateForUpdate();
         updated.setClientId(clientId);
+        // the lookup by the new client id may have been cached as a miss
+        cacheSession.registerClientInvalidation(cached.getId(), clientId, cachedRealm.getId());
     }
 
     @Override
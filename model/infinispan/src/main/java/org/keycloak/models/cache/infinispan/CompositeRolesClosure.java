@@ -0,0 +1,129 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.cache.infinispan;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.keycloak.models.RoleModel;
+
+/**
+ * Transitive closures of the composite roles of a realm, as bit sets over an index of the role ids of the realm.
+ * <p>
+ * The closure of a role holds the role itself and all the roles it contains, directly or through other composite roles. Closures
+ * are computed lazily the first time a role is expanded, so that only the roles actually used in tokens get indexed. The instance
+ * is valid only for the revision of the realm it was created for, see {@link RealmCacheManager#getCompositeRolesClosure}.
+ */
+class CompositeRolesClosure {
+
+    private final long revision;
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+    private final Map<String, BitSet> closures = new ConcurrentHashMap<>();
+
+    // guarded by this
+    private String[] roleIds = new String[64];
+    private int size;
+
+    CompositeRolesClosure(long revision) {
+        this.revision = revision;
+    }
+
+    long getRevision() {
+        return revision;
+    }
+
+    int indexOf(String roleId) {
+        Integer index = indexes.get(roleId);
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            index = indexes.get(roleId);
+            if (index == null) {
+                if (size == roleIds.length) {
+                    roleIds = Arrays.copyOf(roleIds, size * 2);
+                }
+                index = size++;
+                roleIds[index] = roleId;
+                indexes.put(roleId, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Returns the role ids indexed so far, position in the array being the index of the role.
+     */
+    synchronized String[] getRoleIds() {
+        return Arrays.copyOf(roleIds, size);
+    }
+
+    /**
+     * Returns {@code true} if the target role is the role itself or one of the roles it contains. The target role is not indexed:
+     * all the roles of the closure are indexed once it is computed, so a role without index is not part of it.
+     */
+    boolean contains(RoleModel role, RoleModel targetRole) {
+        BitSet closure = getClosure(role);
+        Integer index = indexes.get(targetRole.getId());
+        return index != null && closure.get(index);
+    }
+
+    /**
+     * Returns the closure of the role. The returned bit set is shared and must not be modified.
+     */
+    BitSet getClosure(RoleModel role) {
+        BitSet closure = closures.get(role.getId());
+        if (closure != null) {
+            return closure;
+        }
+
+        BitSet computed = new BitSet();
+        computed.set(indexOf(role.getId()));
+        Deque<RoleModel> stack = new ArrayDeque<>();
+        stack.push(role);
+
+        while (!stack.isEmpty()) {
+            RoleModel current = stack.pop();
+            if (!current.isComposite()) {
+                continue;
+            }
+            current.getCompositesStream().forEach(child -> {
+                int index = indexOf(child.getId());
+                if (computed.get(index)) {
+                    return;
+                }
+                // closures of the roles expanded before are complete, so their roles need not be walked again
+                BitSet childClosure = closures.get(child.getId());
+                if (childClosure != null) {
+                    computed.or(childClosure);
+                } else {
+                    computed.set(index);
+                    stack.push(child);
+                }
+            });
+        }
+
+        // the walk does not separate the closures of the roles reached on the way, so only the closure of the expanded role is stored
+        BitSet existing = closures.putIfAbsent(role.getId(), computed);
+        return existing != null ? existing : computed;
+    }
+}
@@ -44,4 +44,9 @@ public class DefaultLazyLoader<S, D> implements LazyLoader<S, D> {
         }
         return data;
     }
+
+    @Override
+    public D getIfLoaded() {
+        return data;
+    }
 }
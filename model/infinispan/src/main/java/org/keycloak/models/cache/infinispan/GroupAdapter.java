@@ -26,6 +26,7 @@ import org.keycloak.models.cache.infinispan.entities.CachedGroup;
 import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.models.utils.RoleUtils;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -221,6 +222,26 @@ public class GroupAdapter implements GroupModel {
         return cached.getParentId();
     }
 
+    @Override
+    public Stream<GroupModel> getAncestorsStream() {
+        if (isUpdated()) return updated.getAncestorsStream();
+        // the cached parents are served from memory, the remaining ancestors are loaded from the storage at once
+        List<GroupModel> ancestors = new ArrayList<>();
+        GroupModel group = this;
+        String parentId = cached.getParentId();
+        while (parentId != null) {
+            if (!cacheSession.isGroupCached(parentId)) {
+                GroupModel delegate = cacheSession.getGroupDelegate().getGroupById(realm, group.getId());
+                return delegate == null ? ancestors.stream() : Stream.concat(ancestors.stream(), delegate.getAncestorsStream());
+            }
+            group = keycloakSession.groups().getGroupById(realm, parentId);
+            if (group == null) break;
+            ancestors.add(group);
+            parentId = group.getParentId();
+        }
+        return ancestors.stream();
+    }
+
     @Override
     public Stream<GroupModel> getSubGroupsStream() {
         if (isUpdated()) return updated.getSubGroupsStream();
@@ -29,6 +29,14 @@ import org.keycloak.models.cache.CacheRealmProvider;
 import org.keycloak.models.cache.CacheRealmProviderFactory;
 import org.keycloak.models.cache.infinispan.entities.Revisioned;
 import org.keycloak.models.cache.infinispan.events.InvalidationEvent;
+import org.keycloak.models.utils.PostMigrationEvent;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
@@ -41,6 +49,12 @@ public class InfinispanCacheRealmProviderFactory implements CacheRealmProviderFa
     public static final String REALM_INVALIDATION_EVENTS = "REALM_INVALIDATION_EVENTS";
 
     protected volatile RealmCacheManager realmCache;
+    private final CacheStatistics statistics = new CacheStatistics();
+    private int snapshotMaxEntries;
+    private long negativeLookupLifespan;
+    private List<String> warmUpRealms;
+    private int warmUpThreads;
+    private volatile boolean warmUpComplete = true;
 
     @Override
     public CacheRealmProvider create(KeycloakSession session) {
@@ -55,6 +69,9 @@ public class InfinispanCacheRealmProviderFactory implements CacheRealmProviderFa
                     Cache<String, Revisioned> cache = session.getProvider(InfinispanConnectionProvider.class).getCache(InfinispanConnectionProvider.REALM_CACHE_NAME);
                     Cache<String, Long> revisions = session.getProvider(InfinispanConnectionProvider.class).getCache(InfinispanConnectionProvider.REALM_REVISIONS_CACHE_NAME);
                     realmCache = new RealmCacheManager(cache, revisions);
+                    realmCache.setStatistics(statistics);
+                    realmCache.setSnapshotMaxEntries(snapshotMaxEntries);
+                    realmCache.setNegativeLookupLifespan(negativeLookupLifespan);
 
                     ClusterProvider cluster = session.getProvider(ClusterProvider.class);
                     cluster.registerListener(REALM_INVALIDATION_EVENTS, (ClusterEvent event) -> {
@@ -78,11 +95,36 @@ public class InfinispanCacheRealmProviderFactory implements CacheRealmProviderFa
 
     @Override
     public void init(Config.Scope config) {
+        snapshotMaxEntries = config.getInt("snapshotMaxEntries", 0);
+        negativeLookupLifespan = TimeUnit.SECONDS.toMillis(config.getInt("negativeLookupLifespan", 0));
+        String[] realms = config.getArray("warmUpRealms");
+        warmUpRealms = realms == null ? Collections.emptyList() : Arrays.asList(realms);
+        warmUpThreads = config.getInt("warmUpThreads", 4);
     }
 
     @Override
     public void postInit(KeycloakSessionFactory factory) {
+        if (warmUpRealms.isEmpty()) {
+            return;
+        }
+        warmUpComplete = false;
+        factory.register(event -> {
+            if (event instanceof PostMigrationEvent) {
+                try {
+                    new RealmCacheWarmUp(factory, warmUpRealms, warmUpThreads).start()
+                            .whenComplete((result, error) -> warmUpComplete = true);
+                } catch (RuntimeException e) {
+                    // do not keep the node not ready forever
+                    warmUpComplete = true;
+                    log.error("Failed to start the realm cache warm-up", e);
+                }
+            }
+        });
+    }
 
+    @Override
+    public boolean isWarmUpComplete() {
+        return warmUpComplete;
     }
 
     @Override
@@ -94,4 +136,45 @@ public class InfinispanCacheRealmProviderFactory implements CacheRealmProviderFa
         return "default";
     }
 
+    /**
+     * Returns the statistics of the realm cache, which are collected once enabled.
+     */
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public List<ProviderConfigProperty> getConfigMetadata() {
+        return ProviderConfigurationBuilder.create()
+                .property()
+                .name("snapshotMaxEntries")
+                .type("int")
+                .helpText("Maximum number of realm, client, client scope and role entries held by the node-local read snapshot, " +
+                        "which serves the entries validated for the current cache revision without going through the cache. " +
+                        "The snapshot is dropped on every invalidation. Set to 0 to disable.")
+                .defaultValue(0)
+                .add()
+                .property()
+                .name("negativeLookupLifespan")
+                .type("int")
+                .helpText("Number of seconds a lookup of a client by an unknown client id is cached, so repeated lookups do not hit " +
+                        "the database. The entry is invalidated when a client with that client id is created. " +
+                        "Not applied in realms with client storage providers. Set to 0 to disable.")
+                .defaultValue(0)
+                .add()
+                .property()
+                .name("warmUpRealms")
+                .type("string")
+                .helpText("Comma-separated names of the realms to preload into the cache on startup, or '*' for all the realms. " +
+                        "The node reports not ready until the warm-up finished.")
+                .add()
+                .property()
+                .name("warmUpThreads")
+                .type("int")
+                .helpText("Number of realms preloaded in parallel on startup.")
+                .defaultValue(4)
+                .add()
+                .build();
+    }
+
 }
@@ -30,6 +30,11 @@ import org.keycloak.models.cache.UserCacheProviderFactory;
 import org.keycloak.models.cache.infinispan.entities.Revisioned;
 import org.keycloak.models.cache.infinispan.events.InvalidationEvent;
 import org.keycloak.provider.InvalidationHandler;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
@@ -41,8 +46,9 @@ public class InfinispanUserCacheProviderFactory implements UserCacheProviderFact
     public static final String USER_INVALIDATION_EVENTS = "USER_INVALIDATION_EVENTS";
 
     protected volatile UserCacheManager userCache;
-
-
+    private final CacheStatistics statistics = new CacheStatistics();
+    private long negativeLookupLifespan;
+    private long maxRealmWeight;
 
     @Override
     public UserCache create(KeycloakSession session) {
@@ -57,6 +63,9 @@ public class InfinispanUserCacheProviderFactory implements UserCacheProviderFact
                     Cache<String, Revisioned> cache = session.getProvider(InfinispanConnectionProvider.class).getCache(InfinispanConnectionProvider.USER_CACHE_NAME);
                     Cache<String, Long> revisions = session.getProvider(InfinispanConnectionProvider.class).getCache(InfinispanConnectionProvider.USER_REVISIONS_CACHE_NAME);
                     userCache = new UserCacheManager(cache, revisions);
+                    userCache.setStatistics(statistics);
+                    userCache.setNegativeLookupLifespan(negativeLookupLifespan);
+                    userCache.setMaxRealmWeight(maxRealmWeight);
 
                     ClusterProvider cluster = session.getProvider(ClusterProvider.class);
 
@@ -90,6 +99,8 @@ public class InfinispanUserCacheProviderFactory implements UserCacheProviderFact
 
     @Override
     public void init(Config.Scope config) {
+        negativeLookupLifespan = TimeUnit.SECONDS.toMillis(config.getInt("negativeLookupLifespan", 0));
+        maxRealmWeight = config.getLong("maxRealmWeight", 0L);
     }
 
     @Override
@@ -105,4 +116,34 @@ public class InfinispanUserCacheProviderFactory implements UserCacheProviderFact
     public String getId() {
         return "default";
     }
+
+    /**
+     * Returns the statistics of the user cache, which are collected once enabled.
+     */
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public List<ProviderConfigProperty> getConfigMetadata() {
+        return ProviderConfigurationBuilder.create()
+                .property()
+                .name("negativeLookupLifespan")
+                .type("int")
+                .helpText("Number of seconds a lookup of a user by an unknown username or email is cached, so repeated lookups do not hit " +
+                        "the database. The entry is invalidated when a user with that username or email is created or updated. " +
+                        "Not applied in realms with user storage providers. Set to 0 to disable.")
+                .defaultValue(0)
+                .add()
+                .property()
+                .name("maxRealmWeight")
+                .type("long")
+                .helpText("Maximum estimated size in bytes of the users cached for a single realm. Once reached, further users of " +
+                        "the realm are not cached until some of its users are evicted or invalidated. The size of a user is estimated " +
+                        "when it is cached, from the data already loaded at that time, so the attributes, role mappings and groups " +
+                        "loaded later are not counted. Set to 0 to disable.")
+                .defaultValue(0L)
+                .add()
+                .build();
+    }
 }
@@ -37,4 +37,13 @@ public interface LazyLoader<S, D> {
      * @return the data from source
      */
     D get(Supplier<S> source);
+
+    /**
+     * Returns the data if already fetched from the source, without fetching it.
+     *
+     * @return the data, or {@code null} if not fetched yet
+     */
+    default D getIfLoaded() {
+        return null;
+    }
 }
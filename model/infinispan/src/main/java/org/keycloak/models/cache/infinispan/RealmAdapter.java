@@ -24,6 +24,7 @@ import org.keycloak.models.*;
 import org.keycloak.models.cache.CachedRealmModel;
 import org.keycloak.models.cache.UserCache;
 import org.keycloak.models.cache.infinispan.entities.CachedRealm;
+import org.keycloak.models.cache.infinispan.entities.CachedRealmIdentityProviders;
 import org.keycloak.storage.UserStorageProvider;
 import org.keycloak.storage.UserStorageUtil;
 import org.keycloak.storage.client.ClientStorageProvider;
@@ -41,6 +42,10 @@ public class RealmAdapter implements CachedRealmModel {
     protected CachedRealm cached;
     protected RealmCacheSession cacheSession;
     protected volatile RealmModel updated;
+    protected volatile RealmModel identityProvidersUpdated;
+    // read from when the identity providers are not cached, without invalidating them
+    private volatile RealmModel identityProvidersDelegate;
+    protected volatile CachedRealmIdentityProviders cachedIdentityProviders;
     protected KeycloakSession session;
     private final Supplier<RealmModel> modelSupplier;
 
@@ -858,15 +863,49 @@ public class RealmAdapter implements CachedRealmModel {
     }
 
 
+    /**
+     * Identity providers are cached and invalidated separately from the rest of the realm, so updating them does not
+     * invalidate the whole realm.
+     */
+    private RealmModel getIdentityProvidersDelegateForUpdate() {
+        if (updated != null) return updated;
+        if (identityProvidersUpdated == null) {
+            cacheSession.registerRealmIdentityProvidersInvalidation(cached.getId());
+            identityProvidersUpdated = identityProvidersDelegate != null ? identityProvidersDelegate : modelSupplier.get();
+            if (identityProvidersUpdated == null) throw new IllegalStateException("Not found in database");
+        }
+        return identityProvidersUpdated;
+    }
+
+    /**
+     * @return the delegate to read the identity providers from, or {@code null} when they can be read from {@link #cachedIdentityProviders}
+     */
+    private RealmModel getIdentityProvidersDelegate() {
+        if (isUpdated()) return updated;
+        if (identityProvidersUpdated != null) return identityProvidersUpdated;
+        if (identityProvidersDelegate != null) return identityProvidersDelegate;
+        if (cachedIdentityProviders == null) {
+            cachedIdentityProviders = cacheSession.getCachedIdentityProviders(cached.getId());
+            if (cachedIdentityProviders == null) {
+                identityProvidersDelegate = modelSupplier.get();
+                if (identityProvidersDelegate == null) throw new IllegalStateException("Not found in database");
+                return identityProvidersDelegate;
+            }
+        }
+        return null;
+    }
+
     @Override
     public Stream<IdentityProviderModel> getIdentityProvidersStream() {
-        if (isUpdated()) return updated.getIdentityProvidersStream();
-        return cached.getIdentityProviders().stream();
+        RealmModel delegate = getIdentityProvidersDelegate();
+        if (delegate != null) return delegate.getIdentityProvidersStream();
+        return cachedIdentityProviders.getIdentityProviders().stream();
     }
 
     @Override
     public IdentityProviderModel getIdentityProviderByAlias(String alias) {
-        if (isUpdated()) return updated.getIdentityProviderByAlias(alias);
+        RealmModel delegate = getIdentityProvidersDelegate();
+        if (delegate != null) return delegate.getIdentityProviderByAlias(alias);
         return getIdentityProvidersStream()
                 .filter(model -> Objects.equals(model.getAlias(), alias))
                 .findFirst()
@@ -875,20 +914,17 @@ public class RealmAdapter implements CachedRealmModel {
 
     @Override
     public void addIdentityProvider(IdentityProviderModel identityProvider) {
-        getDelegateForUpdate();
-        updated.addIdentityProvider(identityProvider);
+        getIdentityProvidersDelegateForUpdate().addIdentityProvider(identityProvider);
     }
 
     @Override
     public void updateIdentityProvider(IdentityProviderModel identityProvider) {
-        getDelegateForUpdate();
-        updated.updateIdentityProvider(identityProvider);
+        getIdentityProvidersDelegateForUpdate().updateIdentityProvider(identityProvider);
     }
 
     @Override
     public void removeIdentityProviderByAlias(String alias) {
-        getDelegateForUpdate();
-        updated.removeIdentityProviderByAlias(alias);
+        getIdentityProvidersDelegateForUpdate().removeIdentityProviderByAlias(alias);
     }
 
     @Override
@@ -1084,8 +1120,9 @@ public class RealmAdapter implements CachedRealmModel {
 
     @Override
     public boolean isIdentityFederationEnabled() {
-        if (isUpdated()) return updated.isIdentityFederationEnabled();
-        return cached.isIdentityFederationEnabled();
+        RealmModel delegate = getIdentityProvidersDelegate();
+        if (delegate != null) return delegate.isIdentityFederationEnabled();
+        return !cachedIdentityProviders.getIdentityProviders().isEmpty();
     }
 
 
@@ -1140,39 +1177,39 @@ public class RealmAdapter implements CachedRealmModel {
 
     @Override
     public Stream<IdentityProviderMapperModel> getIdentityProviderMappersStream() {
-        if (isUpdated()) return updated.getIdentityProviderMappersStream();
-        return cached.getIdentityProviderMapperSet().stream();
+        RealmModel delegate = getIdentityProvidersDelegate();
+        if (delegate != null) return delegate.getIdentityProviderMappersStream();
+        return cachedIdentityProviders.getIdentityProviderMapperSet().stream();
     }
 
     @Override
     public Stream<IdentityProviderMapperModel> getIdentityProviderMappersByAliasStream(String brokerAlias) {
-        if (isUpdated()) return updated.getIdentityProviderMappersByAliasStream(brokerAlias);
-        Set<IdentityProviderMapperModel> mappings = new HashSet<>(cached.getIdentityProviderMappers().getList(brokerAlias));
+        RealmModel delegate = getIdentityProvidersDelegate();
+        if (delegate != null) return delegate.getIdentityProviderMappersByAliasStream(brokerAlias);
+        Set<IdentityProviderMapperModel> mappings = new HashSet<>(cachedIdentityProviders.getIdentityProviderMappers().getList(brokerAlias));
         return mappings.stream();
     }
 
     @Override
     public IdentityProviderMapperModel addIdentityProviderMapper(IdentityProviderMapperModel model) {
-        getDelegateForUpdate();
-        return updated.addIdentityProviderMapper(model);
+        return getIdentityProvidersDelegateForUpdate().addIdentityProviderMapper(model);
     }
 
     @Override
     public void removeIdentityProviderMapper(IdentityProviderMapperModel mapping) {
-        getDelegateForUpdate();
-        updated.removeIdentityProviderMapper(mapping);
+        getIdentityProvidersDelegateForUpdate().removeIdentityProviderMapper(mapping);
     }
 
     @Override
     public void updateIdentityProviderMapper(IdentityProviderMapperModel mapping) {
-        getDelegateForUpdate();
-        updated.updateIdentityProviderMapper(mapping);
+        getIdentityProvidersDelegateForUpdate().updateIdentityProviderMapper(mapping);
     }
 
     @Override
     public IdentityProviderMapperModel getIdentityProviderMapperById(String id) {
-        if (isUpdated()) return updated.getIdentityProviderMapperById(id);
-        for (List<IdentityProviderMapperModel> models : cached.getIdentityProviderMappers().values()) {
+        RealmModel delegate = getIdentityProvidersDelegate();
+        if (delegate != null) return delegate.getIdentityProviderMapperById(id);
+        for (List<IdentityProviderMapperModel> models : cachedIdentityProviders.getIdentityProviderMappers().values()) {
             for (IdentityProviderMapperModel model : models) {
                 if (model.getId().equals(id)) return model;
             }
@@ -1182,8 +1219,9 @@ public class RealmAdapter implements CachedRealmModel {
 
     @Override
     public IdentityProviderMapperModel getIdentityProviderMapperByName(String alias, String name) {
-        if (isUpdated()) return updated.getIdentityProviderMapperByName(alias, name);
-        List<IdentityProviderMapperModel> models = cached.getIdentityProviderMappers().getList(alias);
+        RealmModel delegate = getIdentityProvidersDelegate();
+        if (delegate != null) return delegate.getIdentityProviderMapperByName(alias, name);
+        List<IdentityProviderMapperModel> models = cachedIdentityProviders.getIdentityProviderMappers().getList(alias);
         if (models == null) return null;
         for (IdentityProviderMapperModel model : models) {
             if (model.getName().equals(name)) return model;
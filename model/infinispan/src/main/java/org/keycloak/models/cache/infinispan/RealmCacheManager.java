@@ -18,9 +18,12 @@
 package org.keycloak.models.cache.infinispan;
 
 import org.infinispan.Cache;
+import org.infinispan.container.entries.CacheEntry;
 import org.jboss.logging.Logger;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.cache.infinispan.events.InvalidationEvent;
+import org.keycloak.models.cache.infinispan.entities.CachedRealm;
+import org.keycloak.models.cache.infinispan.entities.ClientListQuery;
 import org.keycloak.models.cache.infinispan.entities.Revisioned;
 import org.keycloak.models.cache.infinispan.events.RealmCacheInvalidationEvent;
 import org.keycloak.models.cache.infinispan.stream.GroupListPredicate;
@@ -42,6 +45,10 @@ public class RealmCacheManager extends CacheManager {
     private static final Logger logger = Logger.getLogger(RealmCacheManager.class);
 
     private final ConcurrentHashMap<String, ReentrantLock> cacheInteractions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompositeRolesClosure> compositeRolesClosures = new ConcurrentHashMap<>();
+
+    private volatile int snapshotMaxEntries;
+    private volatile Snapshot snapshot;
 
     @Override
     protected Logger getLogger() {
@@ -56,10 +63,17 @@ public class RealmCacheManager extends CacheManager {
     public void realmUpdated(String id, String name, Set<String> invalidations) {
         invalidations.add(id);
         invalidations.add(RealmCacheSession.getRealmByNameCacheKey(name));
+        // the identity providers might have been changed through the realm delegate
+        realmIdentityProvidersUpdated(id, invalidations);
+    }
+
+    public void realmIdentityProvidersUpdated(String id, Set<String> invalidations) {
+        invalidations.add(RealmCacheSession.getRealmIdentityProvidersCacheKey(id));
     }
 
     public void realmRemoval(String id, String name, Set<String> invalidations) {
         realmUpdated(id, name, invalidations);
+        compositeRolesClosures.remove(id);
 
         addInvalidations(InRealmPredicate.create().realm(id), invalidations);
     }
@@ -102,8 +116,10 @@ public class RealmCacheManager extends CacheManager {
         addInvalidations(InGroupPredicate.create().group(groupId), invalidations);
     }
 
-    public void clientAdded(String realmId, Set<String> invalidations) {
+    public void clientAdded(String realmId, String clientId, Set<String> invalidations) {
         invalidations.add(RealmCacheSession.getRealmClientsQueryCacheKey(realmId));
+        // the lookup by the client id may have been cached as a miss
+        invalidations.add(RealmCacheSession.getClientByClientIdCacheKey(clientId, realmId));
     }
 
     public void clientUpdated(String realmId, String clientUuid, String clientId, Set<String> invalidations) {
@@ -120,6 +136,103 @@ public class RealmCacheManager extends CacheManager {
         addInvalidations(InClientPredicate.create().client(clientUUID), invalidations);
     }
 
+    @Override
+    public void clear() {
+        super.clear();
+        compositeRolesClosures.clear();
+        snapshot = null;
+    }
+
+    /**
+     * Sets the maximum number of entries held by the read snapshot, or disables the snapshot if not positive.
+     */
+    void setSnapshotMaxEntries(int snapshotMaxEntries) {
+        this.snapshotMaxEntries = snapshotMaxEntries;
+        this.snapshot = null;
+    }
+
+    /**
+     * Same as {@link #get(String, Class)}, but serves the entries from a read snapshot when enabled.
+     * <p>
+     * The snapshot holds the entries already validated against the revisions cache, along with the revision of their domain, so
+     * repeated reads of the same entries are plain map lookups. An invalidation in the realm of an entry bumps the revision of the
+     * domain, which drops the entry from the snapshot, and it gets added again by the next read. Invalidations whose domain is not
+     * known drop the whole snapshot. Entries cached with a lifespan, like the ones of storage providers, are never held by the snapshot.
+     * Once the snapshot is full, the entries invalidated since it was last full are dropped, so that it gets refilled even if those
+     * entries are not read anymore.
+     */
+    public <T extends Revisioned> T getFromSnapshot(String id, Class<T> type) {
+        int maxEntries = snapshotMaxEntries;
+        if (maxEntries <= 0) {
+            return get(id, type);
+        }
+
+        long revision = getDomainRevision(null);
+        Snapshot current = snapshot;
+        if (current == null || current.revision != revision) {
+            current = new Snapshot(revision);
+            snapshot = current;
+        }
+
+        SnapshotEntry entry = current.entries.get(id);
+        if (entry != null) {
+            if (entry.revision == getDomainRevision(getRevisionDomain(entry.object))) {
+                if (!type.isInstance(entry.object)) {
+                    getStatistics().miss(id, type);
+                    return null;
+                }
+                getStatistics().hit(type);
+                return type.cast(entry.object);
+            }
+            current.entries.remove(id, entry);
+        }
+
+        T loaded = get(id, type);
+        // cached misses are not added, as those expire
+        if (loaded != null && !isNegativeLookup(loaded) && hasRoom(current, maxEntries)) {
+            long domainRevision = getDomainRevision(getRevisionDomain(loaded));
+            CacheEntry<String, Revisioned> cached = cache.getAdvancedCache().getCacheEntry(id);
+            // not added if invalidated meanwhile, as the entry is removed from the cache before the revision of its domain is bumped,
+            // nor if it has a lifespan, as the snapshot would keep it past its expiration
+            if (cached != null && cached.getValue() == loaded && cached.getLifespan() < 0) {
+                current.entries.put(id, new SnapshotEntry(loaded, domainRevision));
+            }
+        }
+        return loaded;
+    }
+
+    private boolean hasRoom(Snapshot snapshot, int maxEntries) {
+        if (snapshot.entries.size() < maxEntries) {
+            return true;
+        }
+        // only scanned again once something was invalidated
+        long revision = counter.current();
+        if (snapshot.purgedRevision >= revision) {
+            return false;
+        }
+        snapshot.purgedRevision = revision;
+        snapshot.entries.values().removeIf(entry -> entry.revision != getDomainRevision(getRevisionDomain(entry.object)));
+        return snapshot.entries.size() < maxEntries;
+    }
+
+    /**
+     * Returns the composite roles closures of the realm for a transaction started at the given revision, or {@code null} if anything
+     * was invalidated in the realm since the transaction started. Any invalidation in the realm makes its closures stale, and they
+     * get recomputed under the new revision of the realm on the next use.
+     */
+    CompositeRolesClosure getCompositeRolesClosure(String realmId, long startupRevision) {
+        long revision = getDomainRevision(realmId);
+        if (revision > startupRevision) {
+            return null;
+        }
+        CompositeRolesClosure closure = compositeRolesClosures.get(realmId);
+        if (closure == null || closure.getRevision() != revision) {
+            closure = new CompositeRolesClosure(revision);
+            compositeRolesClosures.put(realmId, closure);
+        }
+        return closure;
+    }
+
     @Override
     protected void addInvalidationsFromEvent(InvalidationEvent event, Set<String> invalidations) {
         invalidations.add(event.getId());
@@ -152,4 +265,35 @@ public class RealmCacheManager extends CacheManager {
             cacheInteractions.remove(id, lock);
         }
     }
+
+    private static boolean isNegativeLookup(Revisioned o) {
+        return o instanceof ClientListQuery && ((ClientListQuery) o).getClients().isEmpty();
+    }
+
+    @Override
+    protected String getRevisionDomain(Revisioned object) {
+        return object instanceof CachedRealm ? object.getId() : super.getRevisionDomain(object);
+    }
+
+    private static class Snapshot {
+
+        private final long revision;
+        private final ConcurrentHashMap<String, SnapshotEntry> entries = new ConcurrentHashMap<>();
+        private volatile long purgedRevision = -1;
+
+        Snapshot(long revision) {
+            this.revision = revision;
+        }
+    }
+
+    private static class SnapshotEntry {
+
+        private final Revisioned object;
+        private final long revision;
+
+        SnapshotEntry(Revisioned object, long revision) {
+            this.object = object;
+            this.revision = revision;
+        }
+    }
 }
@@ -28,9 +28,12 @@ import org.keycloak.models.cache.CachedRealmModel;
 import org.keycloak.models.cache.infinispan.entities.*;
 import org.keycloak.models.cache.infinispan.events.*;
 import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.models.utils.RoleUtils;
+import org.keycloak.provider.Provider;
 import org.keycloak.storage.DatastoreProvider;
 import org.keycloak.storage.StoreManagers;
 import org.keycloak.storage.StorageId;
+import org.keycloak.storage.client.ClientStorageProvider;
 import org.keycloak.storage.client.ClientStorageProviderModel;
 
 import java.util.*;
@@ -181,6 +184,11 @@ public class RealmCacheSession implements CacheRealmProvider {
         invalidationEvents.add(RealmUpdatedEvent.create(id, name));
     }
 
+    public void registerRealmIdentityProvidersInvalidation(String id) {
+        cache.realmIdentityProvidersUpdated(id, invalidations);
+        invalidationEvents.add(RealmIdentityProvidersUpdatedEvent.create(id));
+    }
+
     @Override
     public void registerClientInvalidation(String id, String clientId, String realmId) {
         invalidateClient(id);
@@ -402,7 +410,7 @@ public class RealmCacheSession implements CacheRealmProvider {
         } else if (managedRealms.containsKey(id)) {
             return managedRealms.get(id);
         }
-        CachedRealm cached = cache.get(id, CachedRealm.class);
+        CachedRealm cached = cache.getFromSnapshot(id, CachedRealm.class);
         RealmAdapter adapter;
         if (cached != null) {
             logger.tracev("by id cache hit: {0}", cached.getName());
@@ -454,7 +462,7 @@ public class RealmCacheSession implements CacheRealmProvider {
         if (invalidations.contains(cacheKey)) {
             return getRealmDelegate().getRealmByName(name);
         }
-        RealmListQuery query = cache.get(cacheKey, RealmListQuery.class);
+        RealmListQuery query = cache.getFromSnapshot(cacheKey, RealmListQuery.class);
         if (query != null) {
             logger.tracev("realm by name cache hit: {0}", name);
             String realmId = query.getRealms().iterator().next();
@@ -485,6 +493,32 @@ public class RealmCacheSession implements CacheRealmProvider {
         return "realm.query.by.name." + name;
     }
 
+    public static String getRealmIdentityProvidersCacheKey(String realm) {
+        return realm + ".identityProviders";
+    }
+
+    /**
+     * Returns the cached identity providers of the realm, loading them when not cached yet.
+     * @return the cached identity providers, or {@code null} when they were invalidated in this transaction
+     */
+    CachedRealmIdentityProviders getCachedIdentityProviders(String realmId) {
+        String cacheKey = getRealmIdentityProvidersCacheKey(realmId);
+        if (invalidations.contains(cacheKey)) {
+            return null;
+        }
+        CachedRealmIdentityProviders cached = cache.get(cacheKey, CachedRealmIdentityProviders.class);
+        if (cached == null) {
+            Long loaded = cache.getCurrentRevision(cacheKey);
+            RealmModel model = getRealmDelegate().getRealm(realmId);
+            if (model == null) {
+                return null;
+            }
+            cached = new CachedRealmIdentityProviders(loaded, cacheKey, model);
+            cache.addRevisioned(cached, startupRevision);
+        }
+        return cached;
+    }
+
     @Override
     public Stream<RealmModel> getRealmsWithProviderTypeStream(Class<?> type) {
         // Retrieve realms from backend
@@ -539,7 +573,7 @@ public class RealmCacheSession implements CacheRealmProvider {
         listInvalidations.add(realm.getId());
 
         invalidationEvents.add(ClientAddedEvent.create(client.getId(), client.getClientId(), realm.getId()));
-        cache.clientAdded(realm.getId(), invalidations);
+        cache.clientAdded(realm.getId(), client.getClientId(), invalidations);
         return client;
     }
 
@@ -851,7 +885,7 @@ public class RealmCacheSession implements CacheRealmProvider {
 
     @Override
     public RoleModel getRoleById(RealmModel realm, String id) {
-        CachedRole cached = cache.get(id, CachedRole.class);
+        CachedRole cached = cache.getFromSnapshot(id, CachedRole.class);
         if (cached != null && !cached.getRealm().equals(realm.getId())) {
             cached = null;
         }
@@ -878,6 +912,45 @@ public class RealmCacheSession implements CacheRealmProvider {
         return adapter;
     }
 
+    @Override
+    public Set<RoleModel> expandCompositeRoles(RealmModel realm, Set<RoleModel> roles) {
+        CompositeRolesClosure closure = getCompositeRolesClosure(realm);
+        if (closure == null) {
+            return RoleUtils.expandCompositeRoles(roles);
+        }
+
+        BitSet expanded = new BitSet();
+        for (RoleModel role : roles) {
+            expanded.or(closure.getClosure(role));
+        }
+
+        Set<RoleModel> result = new HashSet<>(roles);
+        String[] roleIds = closure.getRoleIds();
+        expanded.stream().forEach(index -> {
+            RoleModel role = getRoleById(realm, roleIds[index]);
+            if (role != null) {
+                result.add(role);
+            }
+        });
+        return result;
+    }
+
+    boolean hasRole(RealmModel realm, RoleModel role, RoleModel targetRole) {
+        CompositeRolesClosure closure = getCompositeRolesClosure(realm);
+        if (closure == null) {
+            return role.equals(targetRole) || KeycloakModelUtils.searchFor(targetRole, role, new HashSet<>());
+        }
+        return closure.contains(role, targetRole);
+    }
+
+    // the closures are shared by the transactions on this node, so they are not used once this transaction changed anything
+    private CompositeRolesClosure getCompositeRolesClosure(RealmModel realm) {
+        if (realm == null || !invalidations.isEmpty()) {
+            return null;
+        }
+        return cache.getCompositeRolesClosure(realm.getId(), startupRevision);
+    }
+
     @Override
     public GroupModel getGroupById(RealmModel realm, String id) {
         CachedGroup cached = cache.get(id, CachedGroup.class);
@@ -903,6 +976,13 @@ public class RealmCacheSession implements CacheRealmProvider {
         return adapter;
     }
 
+    /**
+     * Returns {@code true} if the group can be served from the cache without loading it.
+     */
+    boolean isGroupCached(String id) {
+        return !invalidations.contains(id) && (managedGroups.containsKey(id) || cache.get(id, CachedGroup.class) != null);
+    }
+
     @Override
     public GroupModel getGroupByName(RealmModel realm, GroupModel parent, String name) {
         String cacheKey = getGroupByNameCacheKey(realm.getId(), parent != null? parent.getId(): null, name);
@@ -1143,7 +1223,7 @@ public class RealmCacheSession implements CacheRealmProvider {
         } else if (managedApplications.containsKey(id)) {
             return managedApplications.get(id);
         }
-        CachedClient cached = cache.get(id, CachedClient.class);
+        CachedClient cached = cache.getFromSnapshot(id, CachedClient.class);
         if (cached != null && !cached.getRealm().equals(realm.getId())) {
             cached = null;
         }
@@ -1271,9 +1351,12 @@ public class RealmCacheSession implements CacheRealmProvider {
         if (invalidations.contains(cacheKey) || listInvalidations.contains(realm.getId())) {
             return getClientDelegate().getClientByClientId(realm, clientId);
         }
-        ClientListQuery query = cache.get(cacheKey, ClientListQuery.class);
+        ClientListQuery query = cache.getFromSnapshot(cacheKey, ClientListQuery.class);
         if (query != null) {
             logger.tracev("client by name cache hit: {0}", clientId);
+            if (query.getClients().isEmpty()) {
+                return isNegativeLookupCached(realm, ClientStorageProvider.class) ? null : getClientDelegate().getClientByClientId(realm, clientId);
+            }
             String id = query.getClients().iterator().next();
             return getClientById(realm, id);
         } else {
@@ -1288,6 +1371,10 @@ public class RealmCacheSession implements CacheRealmProvider {
             Long loaded = cache.getCurrentRevision(cacheKey);
             ClientModel model = getClientDelegate().getClientByClientId(realm, clientId);
             if (model == null) {
+                if (isNegativeLookupCached(realm, ClientStorageProvider.class)) {
+                    logger.tracev("adding client by name negative cache entry: {0}", clientId);
+                    cache.addRevisioned(new ClientListQuery(loaded, cacheKey, realm, Collections.emptySet()), startupRevision, cache.getNegativeLookupLifespan());
+                }
                 return null;
             }
             id = model.getId();
@@ -1297,19 +1384,26 @@ public class RealmCacheSession implements CacheRealmProvider {
             if (invalidations.contains(model.getId())) {
                 return model;
             }
+        } else if (query.getClients().isEmpty()) {
+            return isNegativeLookupCached(realm, ClientStorageProvider.class) ? null : getClientDelegate().getClientByClientId(realm, clientId);
         } else {
             id = query.getClients().iterator().next();
         }
         return getClientById(realm, id);
     }
 
+    // misses are not cached with storage providers configured, as those may start returning the entity any time
+    private boolean isNegativeLookupCached(RealmModel realm, Class<? extends Provider> storageProviderClass) {
+        return cache.getNegativeLookupLifespan() > 0 && realm.getStorageProviders(storageProviderClass).findAny().isEmpty();
+    }
+
     static String getClientByClientIdCacheKey(String clientId, String realmId) {
         return realmId + ".client.query.by.clientId." + clientId;
     }
 
     @Override
     public ClientScopeModel getClientScopeById(RealmModel realm, String id) {
-        CachedClientScope cached = cache.get(id, CachedClientScope.class);
+        CachedClientScope cached = cache.getFromSnapshot(id, CachedClientScope.class);
         if (cached != null && !cached.getRealm().equals(realm.getId())) {
             cached = null;
         }
@@ -1429,7 +1523,7 @@ public class RealmCacheSession implements CacheRealmProvider {
         if (queryDB) {
             return getClientDelegate().getClientScopes(realm, client, defaultScopes);
         }
-        ClientScopeListQuery query = cache.get(cacheKey, ClientScopeListQuery.class);
+        ClientScopeListQuery query = cache.getFromSnapshot(cacheKey, ClientScopeListQuery.class);
 
         if (query == null) {
             Long loaded = cache.getCurrentRevision(cacheKey);
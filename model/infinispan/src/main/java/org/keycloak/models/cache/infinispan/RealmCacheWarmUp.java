@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.cache.infinispan;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.jboss.logging.Logger;
+import org.keycloak.common.util.Time;
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RoleModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+/**
+ * Preloads realms into the realm cache on startup, so the first requests after a restart do not all load the same realms from the
+ * database in parallel.
+ * <p>
+ * Each realm is loaded in its own transaction, touching the clients, roles, client scopes, authentication flows, identity
+ * providers and keys, which caches them the same way the requests would.
+ */
+class RealmCacheWarmUp {
+
+    static final String ALL_REALMS = "*";
+
+    private static final Logger logger = Logger.getLogger(RealmCacheWarmUp.class);
+
+    private final KeycloakSessionFactory factory;
+    private final List<String> realmNames;
+    private final int threads;
+
+    RealmCacheWarmUp(KeycloakSessionFactory factory, List<String> realmNames, int threads) {
+        this.factory = factory;
+        this.realmNames = realmNames;
+        this.threads = threads;
+    }
+
+    /**
+     * Starts loading the realms in the background.
+     * @return future completed once all the realms were loaded, or failed to load
+     */
+    CompletableFuture<Void> start() {
+        List<String> names = realmNames.contains(ALL_REALMS)
+                ? KeycloakModelUtils.runJobInTransactionWithResult(factory, session -> session.realms().getRealmsStream().map(RealmModel::getName).collect(Collectors.toList()))
+                : realmNames;
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, names.size())), r -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(r);
+            thread.setName(RealmCacheWarmUp.class.getName() + "-" + thread.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = Time.currentTimeMillis();
+        logger.infof("Warming up the realm cache for %d realms", names.size());
+        return CompletableFuture.allOf(names.stream()
+                        .map(name -> CompletableFuture.runAsync(() -> warmUp(name), executor))
+                        .toArray(CompletableFuture[]::new))
+                .whenComplete((result, error) -> {
+                    executor.shutdown();
+                    logger.infof("Realm cache warm-up finished in %d ms", Time.currentTimeMillis() - start);
+                });
+    }
+
+    private void warmUp(String realmName) {
+        try {
+            KeycloakModelUtils.runJobInTransaction(factory, (KeycloakSession session) -> {
+                RealmModel realm = session.realms().getRealmByName(realmName);
+                if (realm == null) {
+                    logger.warnf("Realm '%s' configured for the cache warm-up not found", realmName);
+                    return;
+                }
+                session.getContext().setRealm(realm);
+
+                realm.getRolesStream().forEach(RealmCacheWarmUp::warmUp);
+                realm.getClientsStream().forEach(RealmCacheWarmUp::warmUp);
+                realm.getClientScopesStream().forEach(clientScope -> clientScope.getScopeMappingsStream().count());
+                realm.getAuthenticationFlowsStream().forEach(flow -> realm.getAuthenticationExecutionsStream(flow.getId()).count());
+                realm.getIdentityProvidersStream().count();
+                session.keys().getKeysStream(realm).count();
+            });
+            logger.debugf("Realm '%s' loaded into the cache", realmName);
+        } catch (RuntimeException e) {
+            logger.warnf(e, "Failed to warm up the cache for realm '%s'", realmName);
+        }
+    }
+
+    private static void warmUp(ClientModel client) {
+        client.getRolesStream().forEach(RealmCacheWarmUp::warmUp);
+        client.getClientScopes(true);
+        client.getClientScopes(false);
+        client.getScopeMappingsStream().count();
+    }
+
+    private static void warmUp(RoleModel role) {
+        if (role.isComposite()) {
+            role.getCompositesStream().count();
+        }
+    }
+}
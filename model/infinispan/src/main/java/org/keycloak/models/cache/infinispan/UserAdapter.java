@@ -178,6 +178,9 @@ public class UserAdapter implements CachedUserModel {
             value = KeycloakModelUtils.toLowerCaseSafe(value);
         }
         updated.setSingleAttribute(name, value);
+        if (UserModel.USERNAME.equals(name) || UserModel.EMAIL.equals(name)) {
+            userProviderCache.registerUserLookupInvalidation(cached.getRealm(), updated);
+        }
     }
 
     @Override
@@ -188,6 +191,9 @@ public class UserAdapter implements CachedUserModel {
             if (lowerCasedFirstValue != null) values = Collections.singletonList(lowerCasedFirstValue);
         }
         updated.setAttribute(name, values);
+        if (UserModel.USERNAME.equals(name) || UserModel.EMAIL.equals(name)) {
+            userProviderCache.registerUserLookupInvalidation(cached.getRealm(), updated);
+        }
     }
 
     @Override
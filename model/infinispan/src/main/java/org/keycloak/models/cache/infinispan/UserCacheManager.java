@@ -19,6 +19,8 @@ package org.keycloak.models.cache.infinispan;
 
 import org.infinispan.Cache;
 import org.jboss.logging.Logger;
+import org.keycloak.common.util.Time;
+import org.keycloak.models.cache.infinispan.entities.CachedUser;
 import org.keycloak.models.cache.infinispan.events.InvalidationEvent;
 import org.keycloak.models.cache.infinispan.entities.Revisioned;
 import org.keycloak.models.cache.infinispan.events.UserCacheInvalidationEvent;
@@ -26,6 +28,9 @@ import org.keycloak.models.cache.infinispan.stream.InRealmPredicate;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
@@ -33,11 +38,56 @@ import java.util.Set;
 public class UserCacheManager extends CacheManager {
 
     private static final Logger logger = Logger.getLogger(UserCacheManager.class);
+    private static final long RECLAIM_INTERVAL = 1000;
+
+    private final ConcurrentMap<String, RealmWeight> realmWeights = new ConcurrentHashMap<>();
+    private volatile long maxRealmWeight;
 
     public UserCacheManager(Cache<String, Revisioned> cache, Cache<String, Long> revisions) {
         super(cache, revisions);
     }
 
+    /**
+     * Returns the maximum estimated size in bytes of the users cached for a single realm, or {@code 0} if not limited.
+     */
+    public long getMaxRealmWeight() {
+        return maxRealmWeight;
+    }
+
+    public void setMaxRealmWeight(long maxRealmWeight) {
+        this.maxRealmWeight = maxRealmWeight;
+    }
+
+    /**
+     * Adds the user to the cache unless the users already cached for its realm reached the maximum weight, so that a realm
+     * with a large user base cannot evict the users of all the other realms.
+     */
+    public void addUser(CachedUser user, long startupRevision, long lifespan) {
+        long maxWeight = maxRealmWeight;
+        if (maxWeight > 0) {
+            RealmWeight realmWeight = realmWeights.computeIfAbsent(user.getRealm(), realm -> new RealmWeight());
+            if (!realmWeight.reserve(user.getId(), user.estimateWeight(), maxWeight)) {
+                if (logger.isTraceEnabled()) {
+                    logger.tracev("Skipped cache. Maximum weight of realm {0} reached", user.getRealm());
+                }
+                return;
+            }
+        }
+        addRevisioned(user, startupRevision, lifespan);
+    }
+
+    @Override
+    public Object invalidateObject(String id) {
+        Object removed = super.invalidateObject(id);
+        if (removed instanceof CachedUser) {
+            RealmWeight realmWeight = realmWeights.get(((CachedUser) removed).getRealm());
+            if (realmWeight != null) {
+                realmWeight.release(id);
+            }
+        }
+        return removed;
+    }
+
     @Override
     protected Logger getLogger() {
         return logger;
@@ -45,8 +95,8 @@ public class UserCacheManager extends CacheManager {
 
     @Override
     public void clear() {
-        cache.clear();
-        revisions.clear();
+        super.clear();
+        realmWeights.clear();
     }
 
 
@@ -104,4 +154,61 @@ public class UserCacheManager extends CacheManager {
     private InRealmPredicate getInRealmPredicate(String realmId) {
         return InRealmPredicate.create().realm(realmId);
     }
+
+    /**
+     * Estimated weight of the users cached for a realm. Entries evicted or expired by the cache are not reported, so they are
+     * reclaimed by checking which entries are still cached once the maximum weight is reached.
+     */
+    private class RealmWeight {
+
+        private final ConcurrentMap<String, Integer> entries = new ConcurrentHashMap<>();
+        private final AtomicLong total = new AtomicLong();
+        private volatile long lastReclaim;
+
+        boolean reserve(String id, int weight, long maxWeight) {
+            if (tryReserve(id, weight, maxWeight)) {
+                return true;
+            }
+            reclaim();
+            return tryReserve(id, weight, maxWeight);
+        }
+
+        private boolean tryReserve(String id, int weight, long maxWeight) {
+            boolean[] reserved = new boolean[1];
+            // concurrent reservations of the same user are serialized by the map, the ones of other users by the compare-and-set
+            entries.compute(id, (key, previous) -> {
+                long delta = weight - (previous == null ? 0 : previous);
+                long current;
+                do {
+                    current = total.get();
+                    if (delta > 0 && current + delta > maxWeight) {
+                        return previous;
+                    }
+                } while (!total.compareAndSet(current, current + delta));
+                reserved[0] = true;
+                return weight;
+            });
+            return reserved[0];
+        }
+
+        void release(String id) {
+            Integer weight = entries.remove(id);
+            if (weight != null) {
+                total.addAndGet(-weight);
+            }
+        }
+
+        private void reclaim() {
+            long now = Time.currentTimeMillis();
+            if (now - lastReclaim < RECLAIM_INTERVAL) {
+                return;
+            }
+            lastReclaim = now;
+            for (String id : entries.keySet()) {
+                if (!cache.containsKey(id)) {
+                    release(id);
+                }
+            }
+        }
+    }
 }
@@ -66,6 +66,7 @@ import org.keycloak.storage.StorageId;
 import org.keycloak.storage.UserStorageProvider;
 import org.keycloak.storage.UserStorageProviderModel;
 import org.keycloak.storage.client.ClientStorageProvider;
+import org.keycloak.storage.user.UserSearchPage;
 import org.keycloak.userprofile.AttributeMetadata;
 import org.keycloak.userprofile.UserProfileDecorator;
 import org.keycloak.userprofile.UserProfileMetadata;
@@ -128,6 +129,14 @@ public class UserCacheSession implements UserCache, OnCreateComponent, OnUpdateC
         invalidationEvents.add(UserUpdatedEvent.create(user.getId(), user.getUsername(), user.getEmail(), user.getRealm()));
     }
 
+    /**
+     * Invalidates the lookups by the new username or email of the user, which may have been cached as misses.
+     */
+    public void registerUserLookupInvalidation(String realmId, UserModel user) {
+        cache.userUpdatedInvalidations(user.getId(), user.getUsername(), user.getEmail(), realmId, invalidations);
+        invalidationEvents.add(UserUpdatedEvent.create(user.getId(), user.getUsername(), user.getEmail(), realmId));
+    }
+
     @Override
     public void evict(RealmModel realm, UserModel user) {
         if (!transactionActive) throw new IllegalStateException("Cannot call evict() without a transaction");
@@ -274,6 +283,7 @@ public class UserCacheSession implements UserCache, OnCreateComponent, OnUpdateC
             UserModel model = getDelegate().getUserByUsername(realm, username);
             if (model == null) {
                 logger.tracev("model from delegate null");
+                addNegativeLookup(realm, cacheKey, loaded);
                 return null;
             }
             userId = model.getId();
@@ -290,6 +300,9 @@ public class UserCacheSession implements UserCache, OnCreateComponent, OnUpdateC
             }
             managedUsers.put(userId, adapter);
             return adapter;
+        } else if (query.getUsers().isEmpty()) {
+            logger.tracev("negative cache hit");
+            return isNegativeLookupCached(realm) ? null : getDelegate().getUserByUsername(realm, username);
         } else {
             userId = query.getUsers().iterator().next();
             if (invalidations.contains(userId)) {
@@ -379,16 +392,12 @@ public class UserCacheSession implements UserCache, OnCreateComponent, OnUpdateC
             onCache(realm, adapter, delegate);
 
             long lifespan = model.getLifespan();
-            if (lifespan > 0) {
-                cache.addRevisioned(cached, startupRevision, lifespan);
-            } else {
-                cache.addRevisioned(cached, startupRevision);
-            }
+            cache.addUser(cached, startupRevision, lifespan > 0 ? lifespan : -1);
         } else {
             cached = new CachedUser(revision, realm, delegate, notBefore);
             adapter = new UserAdapter(cached, this, session, realm);
             onCache(realm, adapter, delegate);
-            cache.addRevisioned(cached, startupRevision);
+            cache.addUser(cached, startupRevision, -1);
         }
 
         return adapter;
@@ -415,7 +424,10 @@ public class UserCacheSession implements UserCache, OnCreateComponent, OnUpdateC
         if (query == null) {
             Long loaded = cache.getCurrentRevision(cacheKey);
             UserModel model = getDelegate().getUserByEmail(realm, email);
-            if (model == null) return null;
+            if (model == null) {
+                addNegativeLookup(realm, cacheKey, loaded);
+                return null;
+            }
             userId = model.getId();
             if (invalidations.contains(userId)) return model;
             if (managedUsers.containsKey(userId)) return managedUsers.get(userId);
@@ -427,6 +439,8 @@ public class UserCacheSession implements UserCache, OnCreateComponent, OnUpdateC
             }
             managedUsers.put(userId, adapter);
             return adapter;
+        } else if (query.getUsers().isEmpty()) {
+            return isNegativeLookupCached(realm) ? null : getDelegate().getUserByEmail(realm, email);
         } else {
             userId = query.getUsers().iterator().next();
             if (invalidations.contains(userId)) {
@@ -437,6 +451,18 @@ public class UserCacheSession implements UserCache, OnCreateComponent, OnUpdateC
         }
     }
 
+    // caches a lookup which found no user, so that repeated lookups of unknown usernames or emails do not hit the database
+    private void addNegativeLookup(RealmModel realm, String cacheKey, Long loaded) {
+        if (isNegativeLookupCached(realm)) {
+            cache.addRevisioned(new UserListQuery(loaded, cacheKey, realm, Collections.emptySet()), startupRevision, cache.getNegativeLookupLifespan());
+        }
+    }
+
+    // misses are not cached with user storage providers configured, as those may start returning the user any time
+    private boolean isNegativeLookupCached(RealmModel realm) {
+        return cache.getNegativeLookupLifespan() > 0 && realm.getStorageProviders(UserStorageProvider.class).findAny().isEmpty();
+    }
+
     @Override
     public void close() {
         if (delegate != null) delegate.close();
@@ -626,6 +652,11 @@ public class UserCacheSession implements UserCache, OnCreateComponent, OnUpdateC
         return getDelegate().searchForUserStream(realm, attributes, firstResult, maxResults);
     }
 
+    @Override
+    public UserSearchPage searchForUserPage(RealmModel realm, Map<String, String> attributes, String continuationToken, int maxResults) {
+        return getDelegate().searchForUserPage(realm, attributes, continuationToken, maxResults);
+    }
+
     @Override
     public Stream<UserModel> searchForUserByUserAttributeStream(RealmModel realm, String attrName, String attrValue) {
         return getDelegate().searchForUserByUserAttributeStream(realm, attrName, attrValue);
@@ -30,6 +30,7 @@ import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.cache.authorization.CachedStoreFactoryProvider;
 import org.keycloak.models.cache.authorization.CachedStoreProviderFactory;
+import org.keycloak.models.cache.infinispan.CacheStatistics;
 import org.keycloak.models.cache.infinispan.entities.Revisioned;
 import org.keycloak.models.cache.infinispan.events.InvalidationEvent;
 
@@ -44,6 +45,7 @@ public class InfinispanCacheStoreFactoryProviderFactory implements CachedStorePr
     public static final String AUTHORIZATION_INVALIDATION_EVENTS = "AUTHORIZATION_INVALIDATION_EVENTS";
 
     protected volatile StoreFactoryCacheManager storeCache;
+    private final CacheStatistics statistics = new CacheStatistics();
 
     @Override
     public CachedStoreFactoryProvider create(KeycloakSession session) {
@@ -58,6 +60,7 @@ public class InfinispanCacheStoreFactoryProviderFactory implements CachedStorePr
                     Cache<String, Revisioned> cache = session.getProvider(InfinispanConnectionProvider.class).getCache(InfinispanConnectionProvider.AUTHORIZATION_CACHE_NAME);
                     Cache<String, Long> revisions = session.getProvider(InfinispanConnectionProvider.class).getCache(InfinispanConnectionProvider.AUTHORIZATION_REVISIONS_CACHE_NAME);
                     storeCache = new StoreFactoryCacheManager(cache, revisions);
+                    storeCache.setStatistics(statistics);
                     ClusterProvider cluster = session.getProvider(ClusterProvider.class);
 
                     cluster.registerListener(AUTHORIZATION_INVALIDATION_EVENTS, (ClusterEvent event) -> {
@@ -94,4 +97,11 @@ public class InfinispanCacheStoreFactoryProviderFactory implements CachedStorePr
         return "default";
     }
 
+    /**
+     * Returns the statistics of the authorization cache, which are collected once enabled.
+     */
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
 }
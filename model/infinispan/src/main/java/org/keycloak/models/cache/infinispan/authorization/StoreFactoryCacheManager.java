@@ -20,6 +20,8 @@ import org.infinispan.Cache;
 import org.jboss.logging.Logger;
 import org.keycloak.models.cache.infinispan.CacheManager;
 import org.keycloak.models.cache.infinispan.RealmCacheManager;
+import org.keycloak.models.cache.infinispan.authorization.entities.CachedResourceServer;
+import org.keycloak.models.cache.infinispan.authorization.entities.InResourceServer;
 import org.keycloak.models.cache.infinispan.authorization.events.AuthorizationCacheInvalidationEvent;
 import org.keycloak.models.cache.infinispan.authorization.stream.InResourcePredicate;
 import org.keycloak.models.cache.infinispan.authorization.stream.InResourceServerPredicate;
@@ -45,6 +47,15 @@ public class StoreFactoryCacheManager extends CacheManager {
         return logger;
     }
 
+    @Override
+    protected String getRevisionDomain(Revisioned object) {
+        // the entries of the authorization cache are scoped by resource server rather than by realm
+        if (object instanceof CachedResourceServer) {
+            return object.getId();
+        }
+        return object instanceof InResourceServer ? ((InResourceServer) object).getResourceServerId() : null;
+    }
+
     @Override
     protected void addInvalidationsFromEvent(InvalidationEvent event, Set<String> invalidations) {
         if (event instanceof AuthorizationCacheInvalidationEvent) {
@@ -99,6 +110,9 @@ public class StoreFactoryCacheManager extends CacheManager {
             }
         }
 
+        // the URIs of the resource before the update are not known here, so the whole index is rebuilt
+        invalidations.add(StoreFactoryCacheSession.getResourceUriIndexCacheKey(serverId));
+
         if (scopes != null) {
             for (String scope : scopes) {
                 invalidations.add(StoreFactoryCacheSession.getResourceByScopeCacheKey(scope, serverId));
@@ -19,6 +19,7 @@ package org.keycloak.models.cache.infinispan.authorization;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -64,6 +65,7 @@ import org.keycloak.models.cache.infinispan.authorization.entities.PolicyScopeLi
 import org.keycloak.models.cache.infinispan.authorization.entities.ResourceListQuery;
 import org.keycloak.models.cache.infinispan.authorization.entities.ResourceQuery;
 import org.keycloak.models.cache.infinispan.authorization.entities.ResourceScopeListQuery;
+import org.keycloak.models.cache.infinispan.authorization.entities.ResourceUriIndex;
 import org.keycloak.models.cache.infinispan.authorization.entities.ScopeListQuery;
 import org.keycloak.models.cache.infinispan.authorization.events.PermissionTicketRemovedEvent;
 import org.keycloak.models.cache.infinispan.authorization.events.PermissionTicketUpdatedEvent;
@@ -363,6 +365,10 @@ public class StoreFactoryCacheSession implements CachedStoreFactoryProvider {
         return "resource.uri." + uri + "." + serverId;
     }
 
+    public static String getResourceUriIndexCacheKey(String serverId) {
+        return "resource.uri.index." + serverId;
+    }
+
     public static String getResourceByScopeCacheKey(String scopeId, String serverId) {
         return "resource.scope." + scopeId + "." + serverId;
     }
@@ -690,6 +696,30 @@ public class StoreFactoryCacheSession implements CachedStoreFactoryProvider {
             return getResourceStoreDelegate().find(resourceServer, attributes, firstResult, maxResults);
         }
 
+        @Override
+        public Resource findByMatchingUri(ResourceServer resourceServer, String uri) {
+            String cacheKey = getResourceUriIndexCacheKey(resourceServer.getId());
+            ResourceUriIndex index = cache.get(cacheKey, ResourceUriIndex.class);
+            if (index != null) {
+                logger.tracev("cache hit for key: {0}", cacheKey);
+            }
+            if (index == null) {
+                Long loaded = cache.getCurrentRevision(cacheKey);
+                if (invalidations.contains(cacheKey)) {
+                    return getResourceStoreDelegate().findByMatchingUri(resourceServer, uri);
+                }
+                Map<Resource.FilterOption, String[]> search = new EnumMap<>(Resource.FilterOption.class);
+                search.put(Resource.FilterOption.URI_NOT_NULL, new String[] {"true"});
+                search.put(Resource.FilterOption.OWNER, new String[] {resourceServer.getClientId()});
+                index = new ResourceUriIndex(loaded, cacheKey, resourceServer.getId(), getResourceStoreDelegate().find(resourceServer, search, -1, -1));
+                cache.addRevisioned(index, startupRevision);
+            } else if (index.isInvalid(invalidations)) {
+                return getResourceStoreDelegate().findByMatchingUri(resourceServer, uri);
+            }
+            String resourceId = index.findByMatchingUri(uri);
+            return resourceId == null ? null : findById(resourceServer, resourceId);
+        }
+
         @Override
         public List<Resource> findByScopes(ResourceServer resourceServer, Set<Scope> scopes) {
             if (scopes == null) return null;
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.cache.infinispan.authorization.entities;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.keycloak.authorization.model.Resource;
+import org.keycloak.common.util.PathMatcher;
+import org.keycloak.models.cache.infinispan.entities.AbstractRevisioned;
+
+/**
+ * Index of the URIs of the resources owned by a resource server, resolving a URI to the best matching resource as defined by
+ * {@link PathMatcher}.
+ * <p>
+ * The URIs with wildcards or path parameters are kept in a trie by the path segments preceding the first wildcard or parameter, so
+ * walking the segments of a URI collects the few URIs it can possibly match, which are then evaluated by the {@link PathMatcher}.
+ * URIs without wildcards or parameters only match themselves, while the URIs with a suffix pattern, like {@code /*.html}, match
+ * any URI with that suffix and are always evaluated.
+ */
+public class ResourceUriIndex extends AbstractRevisioned implements InResourceServer {
+
+    private final String serverId;
+    private final Map<String, String> uris = new HashMap<>();
+    private final Map<String, String> suffixUris = new HashMap<>();
+    private final Node root = new Node();
+
+    public ResourceUriIndex(Long revision, String id, String serverId, List<Resource> resources) {
+        super(revision, id);
+        this.serverId = serverId;
+        for (Resource resource : resources) {
+            for (String uri : resource.getUris()) {
+                add(uri, resource.getId());
+            }
+        }
+    }
+
+    @Override
+    public String getResourceServerId() {
+        return serverId;
+    }
+
+    public boolean isInvalid(Set<String> invalidations) {
+        return invalidations.contains(getId()) || invalidations.contains(getResourceServerId());
+    }
+
+    /**
+     * Returns the identifier of the resource with the URI best matching the given {@code uri}, or {@code null} if none matches.
+     */
+    public String findByMatchingUri(String uri) {
+        Map<String, String> candidates = new HashMap<>(suffixUris);
+        String resourceId = uris.get(uri);
+
+        if (resourceId != null) {
+            candidates.put(uri, resourceId);
+        }
+
+        Node node = root;
+
+        for (String segment : uri.split("/", -1)) {
+            candidates.putAll(node.uris);
+            node = node.children.get(segment);
+            if (node == null) {
+                break;
+            }
+        }
+
+        if (node != null) {
+            candidates.putAll(node.uris);
+        }
+
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        Map.Entry<String, String> matches = new PathMatcher<Map.Entry<String, String>>() {
+            @Override
+            protected String getPath(Map.Entry<String, String> entry) {
+                return entry.getKey();
+            }
+
+            @Override
+            protected Collection<Map.Entry<String, String>> getPaths() {
+                return candidates.entrySet();
+            }
+        }.matches(uri);
+
+        return matches == null ? null : matches.getValue();
+    }
+
+    private void add(String uri, String resourceId) {
+        if (uri.contains("/*.")) {
+            suffixUris.put(uri, resourceId);
+            return;
+        }
+
+        int patternIndex = indexOfPattern(uri);
+
+        if (patternIndex == -1) {
+            uris.put(uri, resourceId);
+            return;
+        }
+
+        // a pattern matches only the URIs starting with the segments before it, or the parent path for a trailing wildcard
+        int prefixEnd = uri.lastIndexOf('/', patternIndex - 1);
+        Node node = root;
+
+        if (prefixEnd != -1) {
+            for (String segment : uri.substring(0, prefixEnd).split("/", -1)) {
+                node = node.children.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+
+        node.uris.put(uri, resourceId);
+    }
+
+    private static int indexOfPattern(String uri) {
+        for (int i = 0; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c == '*' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private final Map<String, String> uris = new HashMap<>();
+    }
+}
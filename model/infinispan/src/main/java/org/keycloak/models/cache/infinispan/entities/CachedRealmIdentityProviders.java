@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.cache.infinispan.entities;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.keycloak.common.util.MultivaluedHashMap;
+import org.keycloak.models.IdentityProviderMapperModel;
+import org.keycloak.models.IdentityProviderModel;
+import org.keycloak.models.RealmModel;
+
+/**
+ * Identity providers and identity provider mappers of a realm, cached separately from the {@link CachedRealm}, so that changes
+ * of the identity providers do not reload the whole realm with its authentication flows, components and required actions.
+ */
+public class CachedRealmIdentityProviders extends AbstractRevisioned implements InRealm {
+
+    private final String realm;
+    private final List<IdentityProviderModel> identityProviders;
+    private final Set<IdentityProviderMapperModel> identityProviderMapperSet;
+    private final MultivaluedHashMap<String, IdentityProviderMapperModel> identityProviderMappers = new MultivaluedHashMap<>();
+
+    public CachedRealmIdentityProviders(Long revision, String id, RealmModel model) {
+        super(revision, id);
+        this.realm = model.getId();
+        this.identityProviders = Collections.unmodifiableList(model.getIdentityProvidersStream().map(IdentityProviderModel::new)
+                .collect(Collectors.toList()));
+        this.identityProviderMapperSet = model.getIdentityProviderMappersStream().collect(Collectors.toSet());
+        for (IdentityProviderMapperModel mapper : identityProviderMapperSet) {
+            identityProviderMappers.add(mapper.getIdentityProviderAlias(), mapper);
+        }
+    }
+
+    @Override
+    public String getRealm() {
+        return realm;
+    }
+
+    public List<IdentityProviderModel> getIdentityProviders() {
+        return identityProviders;
+    }
+
+    public Set<IdentityProviderMapperModel> getIdentityProviderMapperSet() {
+        return identityProviderMapperSet;
+    }
+
+    public MultivaluedHashMap<String, IdentityProviderMapperModel> getIdentityProviderMappers() {
+        return identityProviderMappers;
+    }
+}
@@ -26,10 +26,12 @@ import org.keycloak.models.UserModel;
 import org.keycloak.models.cache.infinispan.DefaultLazyLoader;
 import org.keycloak.models.cache.infinispan.LazyLoader;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -40,6 +42,10 @@ import java.util.stream.Collectors;
  */
 public class CachedUser extends AbstractExtendableRevisioned implements InRealm  {
 
+    private static final int ENTRY_WEIGHT = 512;
+    private static final int REFERENCE_WEIGHT = 32;
+    private static final int STRING_WEIGHT = 40;
+
     private final String realm;
     private final Long createdTimestamp;
     private final boolean emailVerified;
@@ -139,4 +145,44 @@ public class CachedUser extends AbstractExtendableRevisioned implements InRealm
         return storedCredentials.get(userModel).stream().map(CredentialModel::shallowClone).collect(Collectors.toList());
     }
 
+    /**
+     * Estimates the memory held by this entry in bytes. The attributes, required actions, role mappings and groups not loaded yet
+     * are not weighed, so that estimating does not query the storage.
+     */
+    public int estimateWeight() {
+        int weight = ENTRY_WEIGHT;
+        weight += estimateWeight(eagerLoadedAttributes);
+        weight += estimateWeight(lazyLoadedAttributes.getIfLoaded());
+        weight += estimateWeight(requiredActions.getIfLoaded());
+        weight += estimateWeight(roleMappings.getIfLoaded());
+        weight += estimateWeight(groups.getIfLoaded());
+        return weight;
+    }
+
+    private static int estimateWeight(MultivaluedHashMap<String, String> attributes) {
+        if (attributes == null) {
+            return 0;
+        }
+        int weight = 0;
+        for (Map.Entry<String, List<String>> attribute : attributes.entrySet()) {
+            weight += estimateWeight(attribute.getKey()) + estimateWeight(attribute.getValue());
+        }
+        return weight;
+    }
+
+    private static int estimateWeight(Collection<String> values) {
+        if (values == null) {
+            return 0;
+        }
+        int weight = 0;
+        for (String value : values) {
+            weight += estimateWeight(value);
+        }
+        return weight;
+    }
+
+    private static int estimateWeight(String value) {
+        return value == null ? REFERENCE_WEIGHT : REFERENCE_WEIGHT + STRING_WEIGHT + 2 * value.length();
+    }
+
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.cache.infinispan.events;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Objects;
+import java.util.Set;
+
+import org.infinispan.commons.marshall.Externalizer;
+import org.infinispan.commons.marshall.MarshallUtil;
+import org.infinispan.commons.marshall.SerializeWith;
+import org.keycloak.models.cache.infinispan.RealmCacheManager;
+import org.keycloak.models.cache.infinispan.RealmCacheSession;
+
+/**
+ * Invalidates the identity providers and identity provider mappers cached for a realm, without invalidating the realm itself.
+ */
+@SerializeWith(RealmIdentityProvidersUpdatedEvent.ExternalizerImpl.class)
+public class RealmIdentityProvidersUpdatedEvent extends InvalidationEvent implements RealmCacheInvalidationEvent {
+
+    private String realmId;
+
+    public static RealmIdentityProvidersUpdatedEvent create(String realmId) {
+        RealmIdentityProvidersUpdatedEvent event = new RealmIdentityProvidersUpdatedEvent();
+        event.realmId = realmId;
+        return event;
+    }
+
+    @Override
+    public String getId() {
+        return RealmCacheSession.getRealmIdentityProvidersCacheKey(realmId);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RealmIdentityProvidersUpdatedEvent [ realmId=%s ]", realmId);
+    }
+
+    @Override
+    public void addInvalidations(RealmCacheManager realmCache, Set<String> invalidations) {
+        realmCache.realmIdentityProvidersUpdated(realmId, invalidations);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        RealmIdentityProvidersUpdatedEvent that = (RealmIdentityProvidersUpdatedEvent) o;
+        return Objects.equals(realmId, that.realmId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), realmId);
+    }
+
+    public static class ExternalizerImpl implements Externalizer<RealmIdentityProvidersUpdatedEvent> {
+
+        private static final int VERSION_1 = 1;
+
+        @Override
+        public void writeObject(ObjectOutput output, RealmIdentityProvidersUpdatedEvent obj) throws IOException {
+            output.writeByte(VERSION_1);
+
+            MarshallUtil.marshallString(obj.realmId, output);
+        }
+
+        @Override
+        public RealmIdentityProvidersUpdatedEvent readObject(ObjectInput input) throws IOException, ClassNotFoundException {
+            switch (input.readByte()) {
+                case VERSION_1:
+                    return readObjectVersion1(input);
+                default:
+                    throw new IOException("Unknown version");
+            }
+        }
+
+        public RealmIdentityProvidersUpdatedEvent readObjectVersion1(ObjectInput input) throws IOException, ClassNotFoundException {
+            RealmIdentityProvidersUpdatedEvent res = new RealmIdentityProvidersUpdatedEvent();
+            res.realmId = MarshallUtil.unmarshallString(input);
+
+            return res;
+        }
+    }
+}
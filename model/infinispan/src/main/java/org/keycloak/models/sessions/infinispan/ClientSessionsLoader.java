@@ -0,0 +1,32 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.keycloak.models.sessions.infinispan;
+
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.UserSessionModel;
+
+import java.util.Map;
+import java.util.UUID;
+
+public interface ClientSessionsLoader {
+
+    /**
+     * Returns the client sessions of the given clients in the user session, keyed by the client UUID. Client sessions
+     * which need to be loaded from the persister are all loaded with a single query.
+     */
+    Map<String, AuthenticatedClientSessionAdapter> getClientSessions(UserSessionModel userSession, Map<ClientModel, UUID> clientSessionIds, boolean offline);
+}
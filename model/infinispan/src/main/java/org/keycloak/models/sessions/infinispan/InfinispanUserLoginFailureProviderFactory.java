@@ -177,9 +177,15 @@ public class InfinispanUserLoginFailureProviderFactory implements UserLoginFailu
         return config.getInt("sessionsPerSegment", 64);
     }
 
+    // Count of workers loading the sessions in parallel, each of them from a different part of the remote cache. More than one
+    // worker multiplies the load on the remote store at startup, so it needs to be enabled explicitly
+    private int getSessionsPreloadWorkers() {
+        return config.getInt("sessionsPreloadWorkers", 1);
+    }
+
     private void loadLoginFailuresFromRemoteCaches(KeycloakSession session) {
         for (String cacheName : remoteCacheInvoker.getRemoteCacheNames()) {
-            loadLoginFailuresFromRemoteCaches(session.getKeycloakSessionFactory(), cacheName, getSessionsPerSegment(), getMaxErrors());
+            loadLoginFailuresFromRemoteCaches(session.getKeycloakSessionFactory(), cacheName, getSessionsPerSegment(), getSessionsPreloadWorkers(), getMaxErrors());
         }
     }
 
@@ -187,7 +193,7 @@ public class InfinispanUserLoginFailureProviderFactory implements UserLoginFailu
          return config.getInt("stalledTimeoutInSeconds", defaultTimeout);
     }
 
-    private void loadLoginFailuresFromRemoteCaches(final KeycloakSessionFactory sessionFactory, String cacheName, final int sessionsPerSegment, final int maxErrors) {
+    private void loadLoginFailuresFromRemoteCaches(final KeycloakSessionFactory sessionFactory, String cacheName, final int sessionsPerSegment, final int workersCount, final int maxErrors) {
         log.debugf("Check pre-loading sessions from remote cache '%s'", cacheName);
 
         KeycloakModelUtils.runJobInTransaction(sessionFactory, new KeycloakSessionTask() {
@@ -200,8 +206,8 @@ public class InfinispanUserLoginFailureProviderFactory implements UserLoginFailu
                   .getCacheConfiguration().clustering().stateTransfer().timeout() / 1000);
 
                 InfinispanCacheInitializer initializer = new InfinispanCacheInitializer(sessionFactory, workCache,
-                        new RemoteCacheSessionsLoader(cacheName, sessionsPerSegment), "remoteCacheLoad::" + cacheName, maxErrors,
-                        getStalledTimeoutInSeconds(defaultStateTransferTimeout));
+                        new RemoteCacheSessionsLoader(cacheName, sessionsPerSegment, workersCount), "remoteCacheLoad::" + cacheName, maxErrors,
+                        getStalledTimeoutInSeconds(defaultStateTransferTimeout), workersCount);
                 initializer.loadSessions();
             }
         });
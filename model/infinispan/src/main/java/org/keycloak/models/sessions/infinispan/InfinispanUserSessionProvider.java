@@ -57,6 +57,7 @@ import org.keycloak.models.sessions.infinispan.events.RemoveUserSessionsEvent;
 import org.keycloak.models.sessions.infinispan.events.SessionEventsSenderTransaction;
 import org.keycloak.models.sessions.infinispan.stream.Mappers;
 import org.keycloak.models.sessions.infinispan.stream.SessionPredicate;
+import org.keycloak.models.sessions.infinispan.index.UserSessionsIndex;
 import org.keycloak.models.sessions.infinispan.stream.UserSessionPredicate;
 import org.keycloak.models.sessions.infinispan.util.FuturesHelper;
 import org.keycloak.models.sessions.infinispan.util.InfinispanKeyGenerator;
@@ -65,11 +66,14 @@ import org.keycloak.models.light.LightweightUserAdapter;
 import org.keycloak.models.sessions.infinispan.util.SessionTimeouts;
 
 import java.io.Serializable;
+import java.util.AbstractMap;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -91,7 +95,7 @@ import static org.keycloak.utils.StreamsUtil.paginatedStream;
 /**
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
  */
-public class InfinispanUserSessionProvider implements UserSessionProvider, SessionRefreshStore {
+public class InfinispanUserSessionProvider implements UserSessionProvider, SessionRefreshStore, ClientSessionsLoader {
 
     private static final Logger log = Logger.getLogger(InfinispanUserSessionProvider.class);
 
@@ -119,6 +123,10 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
 
     protected final SessionFunction offlineClientSessionCacheEntryLifespanAdjuster;
 
+    protected final UserSessionsIndex userSessionsIndex;
+
+    protected final boolean compactSessionNotes;
+
     public InfinispanUserSessionProvider(KeycloakSession session,
                                          RemoteCacheInvoker remoteCacheInvoker,
                                          CrossDCLastSessionRefreshStore lastSessionRefreshStore,
@@ -134,7 +142,9 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
                                          SerializeExecutionsByKey<String> serializerSession,
                                          SerializeExecutionsByKey<String> serializerOfflineSession,
                                          SerializeExecutionsByKey<UUID> serializerClientSession,
-                                         SerializeExecutionsByKey<UUID> serializerOfflineClientSession) {
+                                         SerializeExecutionsByKey<UUID> serializerOfflineClientSession,
+                                         UserSessionsIndex userSessionsIndex,
+                                         boolean compactSessionNotes) {
         this.session = session;
 
         this.sessionCache = sessionCache;
@@ -155,6 +165,8 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
         this.keyGenerator = keyGenerator;
         this.offlineSessionCacheEntryLifespanAdjuster = offlineSessionCacheEntryLifespanAdjuster;
         this.offlineClientSessionCacheEntryLifespanAdjuster = offlineClientSessionCacheEntryLifespanAdjuster;
+        this.userSessionsIndex = userSessionsIndex;
+        this.compactSessionNotes = compactSessionNotes;
 
         session.getTransactionManager().enlistAfterCompletion(clusterEventsSenderTx);
         session.getTransactionManager().enlistAfterCompletion(sessionTx);
@@ -203,6 +215,7 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
     public AuthenticatedClientSessionModel createClientSession(RealmModel realm, ClientModel client, UserSessionModel userSession) {
         final UUID clientSessionId = keyGenerator.generateKeyUUID(session, clientSessionCache);
         AuthenticatedClientSessionEntity entity = new AuthenticatedClientSessionEntity(clientSessionId);
+        entity.setCompactNotes(compactSessionNotes);
         entity.setRealmId(realm.getId());
         entity.setClientId(client.getId());
         entity.setTimestamp(Time.currentTime());
@@ -237,6 +250,8 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
         }
 
         UserSessionEntity entity = new UserSessionEntity(id);
+
+        entity.setCompactNotes(compactSessionNotes);
         updateSessionEntity(entity, realm, user, loginUsername, ipAddress, authMethod, rememberMe, brokerSessionId, brokerUserId);
 
         SessionUpdateTask<UserSessionEntity> createSessionTask = Tasks.addIfAbsentSync();
@@ -297,14 +312,15 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
 
         log.debugf("Offline user-session not found in infinispan, attempting UserSessionPersisterProvider lookup for sessionId=%s", sessionId);
         UserSessionPersisterProvider persister = session.getProvider(UserSessionPersisterProvider.class);
-        UserSessionModel persistentUserSession = persister.loadUserSession(realm, sessionId, offline);
+        // Client sessions are loaded one by one when accessed, see getClientSession
+        UserSessionModel persistentUserSession = persister.loadUserSessionWithLazyClientSessions(realm, sessionId, offline);
 
         if (persistentUserSession == null) {
             log.debugf("Offline user-session not found in UserSessionPersisterProvider for sessionId=%s", sessionId);
             return null;
         }
 
-        UserSessionEntity sessionEntity = importUserSession(realm, offline, persistentUserSession);
+        UserSessionEntity sessionEntity = importUserSession(realm, offline, persistentUserSession, false);
         if (sessionEntity == null) {
             persister.removeUserSession(sessionId, offline);
         }
@@ -320,15 +336,15 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
             return userSessionEntity;
         }
 
-        return importUserSession(realm, offline, persistentUserSession);
+        return importUserSession(realm, offline, persistentUserSession, true);
     }
 
-    private UserSessionEntity importUserSession(RealmModel realm, boolean offline, UserSessionModel persistentUserSession) {
+    private UserSessionEntity importUserSession(RealmModel realm, boolean offline, UserSessionModel persistentUserSession, boolean importClientSessions) {
 
         String sessionId = persistentUserSession.getId();
 
         log.debugf("Attempting to import user-session for sessionId=%s offline=%s", sessionId, offline);
-        session.sessions().importUserSessions(Collections.singleton(persistentUserSession), offline);
+        importUserSessions(Collections.singleton(persistentUserSession), offline, importClientSessions);
         log.debugf("user-session imported, trying another lookup for sessionId=%s offline=%s", sessionId, offline);
 
         UserSessionEntity ispnUserSessionEntity = getUserSessionEntity(realm, sessionId, offline);
@@ -396,6 +412,13 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
             throw new ModelException("For offline sessions, only lookup by userId and brokerUserId is supported");
         }
 
+        Stream<UserSessionEntity> indexedEntities = getUserSessionEntitiesFromIndex(predicate);
+        if (indexedEntities != null) {
+            return indexedEntities
+                    .map(entity -> this.wrap(realm, entity, offline))
+                    .filter(Objects::nonNull).map(Function.identity());
+        }
+
         Cache<String, SessionEntityWrapper<UserSessionEntity>> cache = getCache(offline);
         cache = CacheDecorators.skipCacheLoadersIfRemoteStoreIsEnabled(cache);
 
@@ -407,6 +430,30 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
                 .filter(Objects::nonNull).map(Function.identity());
     }
 
+    /**
+     * Looks up the online user sessions matching the predicate by the {@link UserSessionsIndex}.
+     *
+     * @return the matching sessions, or {@code null} if the index can't be used for the predicate and the cache needs to be iterated.
+     */
+    private Stream<UserSessionEntity> getUserSessionEntitiesFromIndex(UserSessionPredicate predicate) {
+        if (userSessionsIndex == null) {
+            return null;
+        }
+
+        Collection<String> sessionIds = userSessionsIndex.getCandidateSessionIds(predicate);
+        if (sessionIds == null) {
+            return null;
+        }
+
+        // the index might be stale, so the sessions are always checked against the predicate
+        InfinispanChangelogBasedTransaction<String, UserSessionEntity> tx = getTransaction(false);
+        return sessionIds.stream()
+                .map(tx::get)
+                .filter(Objects::nonNull)
+                .filter(wrapper -> predicate.test(new AbstractMap.SimpleImmutableEntry<>(wrapper.getEntity().getId(), wrapper)))
+                .map(SessionEntityWrapper::getEntity);
+    }
+
     @Override
     public AuthenticatedClientSessionAdapter getClientSession(UserSessionModel userSession, ClientModel client, String clientSessionId, boolean offline) {
         if (clientSessionId == null) {
@@ -427,6 +474,39 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
         return null;
     }
 
+    @Override
+    public Map<String, AuthenticatedClientSessionAdapter> getClientSessions(UserSessionModel userSession, Map<ClientModel, UUID> clientSessionIds, boolean offline) {
+        Map<String, AuthenticatedClientSessionAdapter> result = new HashMap<>();
+        List<ClientModel> missing = new LinkedList<>();
+
+        clientSessionIds.forEach((client, clientSessionId) -> {
+            AuthenticatedClientSessionEntity clientSessionEntityFromCache = getClientSessionEntity(clientSessionId, offline);
+            if (clientSessionEntityFromCache != null) {
+                result.put(client.getId(), wrap(userSession, client, clientSessionEntityFromCache, offline));
+            } else {
+                missing.add(client);
+            }
+        });
+
+        // offline client session lookup in the persister, all of them with a single query
+        if (offline && !missing.isEmpty()) {
+            log.debugf("%d offline client sessions are not found in cache, try to load from db, userSession [%s]", missing.size(), userSession.getId());
+            UserSessionPersisterProvider persister = session.getProvider(UserSessionPersisterProvider.class);
+            persister.loadClientSessionsStream(userSession.getRealm(), missing, userSession, true).forEach(clientSession -> {
+                AuthenticatedClientSessionAdapter clientAdapter = importClientSession((UserSessionAdapter) userSession, clientSession, getTransaction(true),
+                        getClientSessionTransaction(true), true, true);
+
+                if (clientAdapter == null) {
+                    persister.removeClientSession(userSession.getId(), clientSession.getClient().getId(), true);
+                } else {
+                    result.put(clientAdapter.getClient().getId(), clientAdapter);
+                }
+            });
+        }
+
+        return result;
+    }
+
     private AuthenticatedClientSessionAdapter getClientSessionEntityFromPersistenceProvider(UserSessionModel userSession, ClientModel client, boolean offline) {
         UserSessionPersisterProvider persister = session.getProvider(UserSessionPersisterProvider.class);
         AuthenticatedClientSessionModel clientSession = persister.loadClientSession(session.getContext().getRealm(), client, userSession, offline);
@@ -607,11 +687,18 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
     }
 
     protected void removeUserSessions(RealmModel realm, UserModel user, boolean offline) {
-        Cache<String, SessionEntityWrapper<UserSessionEntity>> cache = getCache(offline);
+        UserSessionPredicate predicate = UserSessionPredicate.create(realm.getId()).user(user.getId());
+        Stream<UserSessionEntity> entities = offline ? null : getUserSessionEntitiesFromIndex(predicate);
 
-        cache = CacheDecorators.skipCacheLoadersIfRemoteStoreIsEnabled(cache);
+        if (entities == null) {
+            Cache<String, SessionEntityWrapper<UserSessionEntity>> cache = getCache(offline);
 
-        Iterator<UserSessionEntity> itr = cache.entrySet().stream().filter(UserSessionPredicate.create(realm.getId()).user(user.getId())).map(Mappers.userSessionEntity()).iterator();
+            cache = CacheDecorators.skipCacheLoadersIfRemoteStoreIsEnabled(cache);
+
+            entities = cache.entrySet().stream().filter(predicate).map(Mappers.userSessionEntity());
+        }
+
+        Iterator<UserSessionEntity> itr = entities.iterator();
 
         while (itr.hasNext()) {
             UserSessionEntity userSessionEntity = itr.next();
@@ -868,6 +955,14 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
 
     @Override
     public void importUserSessions(Collection<UserSessionModel> persistentUserSessions, boolean offline) {
+        importUserSessions(persistentUserSessions, offline, true);
+    }
+
+    /**
+     * @param importClientSessions if {@code false}, the client sessions are only registered in the user session, and are loaded from
+     *                             the persister when accessed. Applicable to offline sessions only.
+     */
+    private void importUserSessions(Collection<UserSessionModel> persistentUserSessions, boolean offline, boolean importClientSessions) {
         if (persistentUserSessions == null || persistentUserSessions.isEmpty()) {
             return;
         }
@@ -879,6 +974,15 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
 
                     UserSessionEntity userSessionEntityToImport = createUserSessionEntityInstance(persistentUserSession);
 
+                    if (!importClientSessions) {
+                        // Register client session IDs which are not present in the cache, so the client sessions are loaded from the persister on first access
+                        AuthenticatedClientSessionStore clientSessions = userSessionEntityToImport.getAuthenticatedClientSessions();
+                        for (String clientUUID : persistentUserSession.getAuthenticatedClientSessions().keySet()) {
+                            clientSessions.put(clientUUID, keyGenerator.generateKeyUUID(session, getClientSessionCache(offline)));
+                        }
+                        return userSessionEntityToImport;
+                    }
+
                     for (Map.Entry<String, AuthenticatedClientSessionModel> entry : persistentUserSession.getAuthenticatedClientSessions().entrySet()) {
                         String clientUUID = entry.getKey();
                         AuthenticatedClientSessionModel clientSession = entry.getValue();
@@ -1042,6 +1146,7 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
 
     private UserSessionEntity createUserSessionEntityInstance(UserSessionModel userSession) {
         UserSessionEntity entity = new UserSessionEntity(userSession.getId());
+        entity.setCompactNotes(compactSessionNotes);
         entity.setRealmId(userSession.getRealm().getId());
 
         entity.setAuthMethod(userSession.getAuthMethod());
@@ -1112,6 +1217,7 @@ public class InfinispanUserSessionProvider implements UserSessionProvider, Sessi
                                                                                       String realmId, String clientId, boolean offline) {
         final UUID clientSessionId = keyGenerator.generateKeyUUID(session, getClientSessionCache(offline));
         AuthenticatedClientSessionEntity entity = new AuthenticatedClientSessionEntity(clientSessionId);
+        entity.setCompactNotes(compactSessionNotes);
         entity.setRealmId(realmId);
         entity.setClientId(clientId);
 
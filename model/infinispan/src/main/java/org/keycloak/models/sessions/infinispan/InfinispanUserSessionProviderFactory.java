@@ -50,6 +50,7 @@ import org.keycloak.models.sessions.infinispan.entities.UserSessionEntity;
 import org.keycloak.models.sessions.infinispan.events.AbstractUserSessionClusterListener;
 import org.keycloak.models.sessions.infinispan.events.RealmRemovedSessionEvent;
 import org.keycloak.models.sessions.infinispan.events.RemoveUserSessionsEvent;
+import org.keycloak.models.sessions.infinispan.index.UserSessionsIndex;
 import org.keycloak.models.sessions.infinispan.initializer.InfinispanCacheInitializer;
 import org.keycloak.models.sessions.infinispan.remotestore.RemoteCacheSessionListener;
 import org.keycloak.models.sessions.infinispan.remotestore.RemoteCacheSessionsLoader;
@@ -89,6 +90,9 @@ public class InfinispanUserSessionProviderFactory implements UserSessionProvider
     public static final String CONFIG_OFFLINE_CLIENT_SESSION_CACHE_ENTRY_LIFESPAN_OVERRIDE = "offlineClientSessionCacheEntryLifespanOverride";
     public static final String CONFIG_MAX_BATCH_SIZE = "maxBatchSize";
     public static final int DEFAULT_MAX_BATCH_SIZE = Math.max(Runtime.getRuntime().availableProcessors(), 2);
+    public static final String CONFIG_USER_SESSIONS_INDEX = "userSessionsIndex";
+    public static final String CONFIG_SERIALIZATION_STRIPES = "serializationStripes";
+    public static final String CONFIG_COMPACT_SESSION_NOTES = "compactSessionNotes";
 
     private long offlineSessionCacheEntryLifespanOverride;
 
@@ -101,13 +105,17 @@ public class InfinispanUserSessionProviderFactory implements UserSessionProvider
     private CrossDCLastSessionRefreshStore offlineLastSessionRefreshStore;
     private PersisterLastSessionRefreshStore persisterLastSessionRefreshStore;
     private InfinispanKeyGenerator keyGenerator;
-    SerializeExecutionsByKey<String> serializerSession = new SerializeExecutionsByKey<>();
-    SerializeExecutionsByKey<String> serializerOfflineSession = new SerializeExecutionsByKey<>();
-    SerializeExecutionsByKey<UUID> serializerClientSession = new SerializeExecutionsByKey<>();
-    SerializeExecutionsByKey<UUID> serializerOfflineClientSession = new SerializeExecutionsByKey<>();
+    SerializeExecutionsByKey<String> serializerSession;
+    SerializeExecutionsByKey<String> serializerOfflineSession;
+    SerializeExecutionsByKey<UUID> serializerClientSession;
+    SerializeExecutionsByKey<UUID> serializerOfflineClientSession;
+    private int serializationStripes;
     ArrayBlockingQueue<PersistentUpdate> asyncQueuePersistentUpdate = new ArrayBlockingQueue<>(1000);
     private PersistentSessionsWorker persistentSessionsWorker;
     private int maxBatchSize;
+    private boolean userSessionsIndexEnabled;
+    private volatile UserSessionsIndex userSessionsIndex;
+    private boolean compactSessionNotes;
 
     @Override
     public UserSessionProvider create(KeycloakSession session) {
@@ -132,7 +140,8 @@ public class InfinispanUserSessionProviderFactory implements UserSessionProvider
                     serializerSession,
                     serializerOfflineSession,
                     serializerClientSession,
-                    serializerOfflineClientSession
+                    serializerOfflineClientSession,
+                    compactSessionNotes
             );
         }
         return new InfinispanUserSessionProvider(
@@ -151,7 +160,9 @@ public class InfinispanUserSessionProviderFactory implements UserSessionProvider
                 serializerSession,
                 serializerOfflineSession,
                 serializerClientSession,
-                serializerOfflineClientSession
+                serializerOfflineClientSession,
+                userSessionsIndex,
+                compactSessionNotes
         );
     }
 
@@ -161,6 +172,17 @@ public class InfinispanUserSessionProviderFactory implements UserSessionProvider
         offlineSessionCacheEntryLifespanOverride = config.getInt(CONFIG_OFFLINE_SESSION_CACHE_ENTRY_LIFESPAN_OVERRIDE, -1);
         offlineClientSessionCacheEntryLifespanOverride = config.getInt(CONFIG_OFFLINE_CLIENT_SESSION_CACHE_ENTRY_LIFESPAN_OVERRIDE, -1);
         maxBatchSize = config.getInt(CONFIG_MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_SIZE);
+        userSessionsIndexEnabled = config.getBoolean(CONFIG_USER_SESSIONS_INDEX, false);
+        serializationStripes = config.getInt(CONFIG_SERIALIZATION_STRIPES, 0);
+        compactSessionNotes = config.getBoolean(CONFIG_COMPACT_SESSION_NOTES, false);
+        serializerSession = createSerializer(serializationStripes);
+        serializerOfflineSession = createSerializer(serializationStripes);
+        serializerClientSession = createSerializer(serializationStripes);
+        serializerOfflineClientSession = createSerializer(serializationStripes);
+    }
+
+    private static <K> SerializeExecutionsByKey<K> createSerializer(int stripes) {
+        return stripes > 0 ? SerializeExecutionsByKey.striped(stripes) : new SerializeExecutionsByKey<>();
     }
 
     @Override
@@ -182,6 +204,9 @@ public class InfinispanUserSessionProviderFactory implements UserSessionProvider
                             initializeLastSessionRefreshStore(factory);
                         }
                         registerClusterListeners(session);
+                        if (!Profile.isFeatureEnabled(Profile.Feature.PERSISTENT_USER_SESSIONS) && userSessionsIndexEnabled) {
+                            initializeUserSessionsIndex(session);
+                        }
                         loadSessionsFromRemoteCaches(session);
 
                     }, preloadTransactionTimeout);
@@ -227,6 +252,12 @@ public class InfinispanUserSessionProviderFactory implements UserSessionProvider
         return config.getInt("sessionsPerSegment", 64);
     }
 
+    // Count of workers loading the sessions in parallel, each of them from a different part of the remote cache. More than one
+    // worker multiplies the load on the remote store at startup, so it needs to be enabled explicitly
+    private int getSessionsPreloadWorkers() {
+        return config.getInt("sessionsPreloadWorkers", 1);
+    }
+
     private int getTimeoutForPreloadingSessionsSeconds() {
         Integer timeout = config.getInt("sessionsPreloadTimeoutInSeconds", null);
         return timeout != null ? timeout : Environment.getServerStartupTimeout();
@@ -248,6 +279,15 @@ public class InfinispanUserSessionProviderFactory implements UserSessionProvider
     }
 
 
+    protected void initializeUserSessionsIndex(KeycloakSession session) {
+        InfinispanConnectionProvider connections = session.getProvider(InfinispanConnectionProvider.class);
+        Cache<String, SessionEntityWrapper<UserSessionEntity>> sessionsCache = connections.getCache(InfinispanConnectionProvider.USER_SESSION_CACHE_NAME);
+
+        UserSessionsIndex index = new UserSessionsIndex();
+        index.register(sessionsCache);
+        userSessionsIndex = index;
+    }
+
     protected void registerClusterListeners(KeycloakSession session) {
         KeycloakSessionFactory sessionFactory = session.getKeycloakSessionFactory();
         ClusterProvider cluster = session.getProvider(ClusterProvider.class);
@@ -383,12 +423,12 @@ public class InfinispanUserSessionProviderFactory implements UserSessionProvider
 
     private void loadSessionsFromRemoteCaches(KeycloakSession session) {
         for (String cacheName : remoteCacheInvoker.getRemoteCacheNames()) {
-            loadSessionsFromRemoteCache(session.getKeycloakSessionFactory(), cacheName, getSessionsPerSegment(), getMaxErrors());
+            loadSessionsFromRemoteCache(session.getKeycloakSessionFactory(), cacheName, getSessionsPerSegment(), getSessionsPreloadWorkers(), getMaxErrors());
         }
     }
 
 
-    private void loadSessionsFromRemoteCache(final KeycloakSessionFactory sessionFactory, String cacheName, final int sessionsPerSegment, final int maxErrors) {
+    private void loadSessionsFromRemoteCache(final KeycloakSessionFactory sessionFactory, String cacheName, final int sessionsPerSegment, final int workersCount, final int maxErrors) {
         log.debugf("Check pre-loading sessions from remote cache '%s'", cacheName);
 
         KeycloakModelUtils.runJobInTransaction(sessionFactory, new KeycloakSessionTask() {
@@ -401,8 +441,8 @@ public class InfinispanUserSessionProviderFactory implements UserSessionProvider
                   .getCacheConfiguration().clustering().stateTransfer().timeout() / 1000);
 
                 InfinispanCacheInitializer initializer = new InfinispanCacheInitializer(sessionFactory, workCache,
-                        new RemoteCacheSessionsLoader(cacheName, sessionsPerSegment), "remoteCacheLoad::" + cacheName, maxErrors,
-                        getStalledTimeoutInSeconds(defaultStateTransferTimeout));
+                        new RemoteCacheSessionsLoader(cacheName, sessionsPerSegment, workersCount), "remoteCacheLoad::" + cacheName, maxErrors,
+                        getStalledTimeoutInSeconds(defaultStateTransferTimeout), workersCount);
                 initializer.loadSessions();
             }
         });
@@ -413,6 +453,9 @@ public class InfinispanUserSessionProviderFactory implements UserSessionProvider
     @Override
     public void close() {
         persistentSessionsWorker.stop();
+        if (userSessionsIndex != null) {
+            userSessionsIndex.unregister();
+        }
     }
 
     @Override
@@ -431,6 +474,9 @@ public class InfinispanUserSessionProviderFactory implements UserSessionProvider
         info.put(CONFIG_OFFLINE_SESSION_CACHE_ENTRY_LIFESPAN_OVERRIDE, Long.toString(offlineSessionCacheEntryLifespanOverride));
         info.put(CONFIG_OFFLINE_CLIENT_SESSION_CACHE_ENTRY_LIFESPAN_OVERRIDE, Long.toString(offlineClientSessionCacheEntryLifespanOverride));
         info.put(CONFIG_MAX_BATCH_SIZE, Integer.toString(maxBatchSize));
+        info.put(CONFIG_USER_SESSIONS_INDEX, Boolean.toString(userSessionsIndexEnabled));
+        info.put(CONFIG_SERIALIZATION_STRIPES, Integer.toString(serializationStripes));
+        info.put(CONFIG_COMPACT_SESSION_NOTES, Boolean.toString(compactSessionNotes));
         return info;
     }
 
@@ -445,6 +491,27 @@ public class InfinispanUserSessionProviderFactory implements UserSessionProvider
                 .defaultValue(DEFAULT_MAX_BATCH_SIZE)
                 .add();
 
+        builder.property()
+                .name(CONFIG_USER_SESSIONS_INDEX)
+                .type("boolean")
+                .helpText("Maintain an index from user and broker IDs to the user sessions, so the sessions of a user can be looked up without iterating the whole sessions cache (not applicable to persistent sessions). Each node indexes its own sessions, and the index is only used while the node holds all the sessions, e.g. when the number of owners of the sessions cache is at least the number of nodes")
+                .defaultValue(false)
+                .add();
+
+        builder.property()
+                .name(CONFIG_SERIALIZATION_STRIPES)
+                .type("int")
+                .helpText("Number of locks used to serialize the concurrent updates of the same session. If zero or negative, a lock is created for each session while it is being updated")
+                .defaultValue(0)
+                .add();
+
+        builder.property()
+                .name(CONFIG_COMPACT_SESSION_NOTES)
+                .type("boolean")
+                .helpText("Marshall the notes of the user and client sessions in a compact format. Enable it only once all nodes of the cluster are upgraded, as older nodes and the entries already in remote stores use the previous format")
+                .defaultValue(false)
+                .add();
+
         builder.property()
                 .name(CONFIG_OFFLINE_CLIENT_SESSION_CACHE_ENTRY_LIFESPAN_OVERRIDE)
                 .type("int")
@@ -89,7 +89,7 @@ import static org.keycloak.utils.StreamsUtil.paginatedStream;
 /**
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
  */
-public class PersistentUserSessionProvider implements UserSessionProvider, SessionRefreshStore {
+public class PersistentUserSessionProvider implements UserSessionProvider, SessionRefreshStore, ClientSessionsLoader {
 
     private static final Logger log = Logger.getLogger(PersistentUserSessionProvider.class);
 
@@ -110,6 +110,8 @@ public class PersistentUserSessionProvider implements UserSessionProvider, Sessi
 
     protected final InfinispanKeyGenerator keyGenerator;
 
+    protected final boolean compactSessionNotes;
+
     public PersistentUserSessionProvider(KeycloakSession session,
                                          RemoteCacheInvoker remoteCacheInvoker,
                                          CrossDCLastSessionRefreshStore lastSessionRefreshStore,
@@ -123,7 +125,8 @@ public class PersistentUserSessionProvider implements UserSessionProvider, Sessi
                                          SerializeExecutionsByKey<String> serializerSession,
                                          SerializeExecutionsByKey<String> serializerOfflineSession,
                                          SerializeExecutionsByKey<UUID> serializerClientSession,
-                                         SerializeExecutionsByKey<UUID> serializerOfflineClientSession) {
+                                         SerializeExecutionsByKey<UUID> serializerOfflineClientSession,
+                                         boolean compactSessionNotes) {
         if (!Profile.isFeatureEnabled(Profile.Feature.PERSISTENT_USER_SESSIONS)) {
             throw new IllegalStateException("Persistent user sessions are not enabled");
         }
@@ -152,13 +155,15 @@ public class PersistentUserSessionProvider implements UserSessionProvider, Sessi
                 sessionTx,
                 asyncQueuePersistentUpdate,
                 serializerClientSession,
-                serializerOfflineClientSession);
+                serializerOfflineClientSession,
+                compactSessionNotes);
 
         this.clusterEventsSenderTx = new SessionEventsSenderTransaction(session);
 
         this.lastSessionRefreshStore = lastSessionRefreshStore;
         this.offlineLastSessionRefreshStore = offlineLastSessionRefreshStore;
         this.keyGenerator = keyGenerator;
+        this.compactSessionNotes = compactSessionNotes;
 
         session.getTransactionManager().enlistAfterCompletion(clusterEventsSenderTx);
         session.getTransactionManager().enlistAfterCompletion(sessionTx);
@@ -197,6 +202,7 @@ public class PersistentUserSessionProvider implements UserSessionProvider, Sessi
     public AuthenticatedClientSessionModel createClientSession(RealmModel realm, ClientModel client, UserSessionModel userSession) {
         final UUID clientSessionId = PersistentUserSessionProvider.createClientSessionUUID(userSession.getId(), client.getId());
         AuthenticatedClientSessionEntity entity = new AuthenticatedClientSessionEntity(clientSessionId);
+        entity.setCompactNotes(compactSessionNotes);
         entity.setRealmId(realm.getId());
         entity.setClientId(client.getId());
         entity.setUserSessionId(userSession.getId());
@@ -238,6 +244,8 @@ public class PersistentUserSessionProvider implements UserSessionProvider, Sessi
         }
 
         UserSessionEntity entity = new UserSessionEntity(id);
+
+        entity.setCompactNotes(compactSessionNotes);
         updateSessionEntity(entity, realm, user, loginUsername, ipAddress, authMethod, rememberMe, brokerSessionId, brokerUserId);
 
         SessionUpdateTask<UserSessionEntity> createSessionTask = Tasks.addIfAbsentSync();
@@ -366,6 +374,15 @@ public class PersistentUserSessionProvider implements UserSessionProvider, Sessi
         return null;
     }
 
+    @Override
+    public Map<String, AuthenticatedClientSessionAdapter> getClientSessions(UserSessionModel userSession, Map<ClientModel, UUID> clientSessionIds, boolean offline) {
+        Map<String, ClientModel> clients = clientSessionIds.keySet().stream().collect(Collectors.toMap(ClientModel::getId, Function.identity()));
+        Map<String, AuthenticatedClientSessionAdapter> result = new HashMap<>();
+        clientSessionTx.getAll(userSession.getRealm(), userSession, clientSessionIds, offline).forEach((clientUuid, clientSessionEntity) ->
+                result.put(clientUuid, new AuthenticatedClientSessionAdapter(session, this, clientSessionEntity.getEntity(), clients.get(clientUuid), userSession, clientSessionTx, offline)));
+        return result;
+    }
+
     @Override
     public Stream<UserSessionModel> getUserSessionsStream(final RealmModel realm, UserModel user) {
         return getUserSessionsStream(realm, UserSessionPredicate.create(realm.getId()).user(user.getId()), false);
@@ -737,25 +754,41 @@ public class PersistentUserSessionProvider implements UserSessionProvider, Sessi
     }
 
     public SessionEntityWrapper<UserSessionEntity> importUserSession(UserSessionModel persistentUserSession, boolean offline) {
+        return importUserSession(persistentUserSession, offline, true);
+    }
+
+    /**
+     * @param importClientSessions if {@code false}, the client sessions are only registered in the user session, and are loaded from
+     *                             the persister when accessed
+     */
+    public SessionEntityWrapper<UserSessionEntity> importUserSession(UserSessionModel persistentUserSession, boolean offline, boolean importClientSessions) {
         Map<UUID, SessionEntityWrapper<AuthenticatedClientSessionEntity>> clientSessionsById = new HashMap<>();
 
         UserSessionEntity userSessionEntityToImport = createUserSessionEntityInstance(persistentUserSession);
 
-        for (Map.Entry<String, AuthenticatedClientSessionModel> entry : persistentUserSession.getAuthenticatedClientSessions().entrySet()) {
-            String clientUUID = entry.getKey();
-            AuthenticatedClientSessionModel clientSession = entry.getValue();
-            AuthenticatedClientSessionEntity clientSessionToImport = createAuthenticatedClientSessionInstance(userSessionEntityToImport.getId(), clientSession,
-                    userSessionEntityToImport.getRealmId(), clientUUID, offline);
-            clientSessionToImport.setUserSessionId(userSessionEntityToImport.getId());
+        if (importClientSessions) {
+            for (Map.Entry<String, AuthenticatedClientSessionModel> entry : persistentUserSession.getAuthenticatedClientSessions().entrySet()) {
+                String clientUUID = entry.getKey();
+                AuthenticatedClientSessionModel clientSession = entry.getValue();
+                AuthenticatedClientSessionEntity clientSessionToImport = createAuthenticatedClientSessionInstance(userSessionEntityToImport.getId(), clientSession,
+                        userSessionEntityToImport.getRealmId(), clientUUID, offline);
+                clientSessionToImport.setUserSessionId(userSessionEntityToImport.getId());
 
-            // Update timestamp to same value as userSession. LastSessionRefresh of userSession from DB will have correct value
-            clientSessionToImport.setTimestamp(userSessionEntityToImport.getLastSessionRefresh());
+                // Update timestamp to same value as userSession. LastSessionRefresh of userSession from DB will have correct value
+                clientSessionToImport.setTimestamp(userSessionEntityToImport.getLastSessionRefresh());
 
-            clientSessionsById.put(clientSessionToImport.getId(), new SessionEntityWrapper<>(clientSessionToImport));
+                clientSessionsById.put(clientSessionToImport.getId(), new SessionEntityWrapper<>(clientSessionToImport));
 
-            // Update userSession entity with the clientSession
+                // Update userSession entity with the clientSession
+                AuthenticatedClientSessionStore clientSessions = userSessionEntityToImport.getAuthenticatedClientSessions();
+                clientSessions.put(clientUUID, clientSessionToImport.getId());
+            }
+        } else {
+            // The IDs of client sessions are derived from the user session and client, so they are found once loaded from the persister
             AuthenticatedClientSessionStore clientSessions = userSessionEntityToImport.getAuthenticatedClientSessions();
-            clientSessions.put(clientUUID, clientSessionToImport.getId());
+            for (String clientUUID : persistentUserSession.getAuthenticatedClientSessions().keySet()) {
+                clientSessions.put(clientUUID, createClientSessionUUID(userSessionEntityToImport.getId(), clientUUID));
+            }
         }
 
         SessionEntityWrapper<UserSessionEntity>  wrappedUserSessionEntity = new SessionEntityWrapper<>(userSessionEntityToImport);
@@ -850,6 +883,7 @@ public class PersistentUserSessionProvider implements UserSessionProvider, Sessi
 
     private UserSessionEntity createUserSessionEntityInstance(UserSessionModel userSession) {
         UserSessionEntity entity = new UserSessionEntity(userSession.getId());
+        entity.setCompactNotes(compactSessionNotes);
         entity.setRealmId(userSession.getRealm().getId());
 
         entity.setAuthMethod(userSession.getAuthMethod());
@@ -908,6 +942,7 @@ public class PersistentUserSessionProvider implements UserSessionProvider, Sessi
                                                                                       String realmId, String clientId, boolean offline) {
         final UUID clientSessionId = PersistentUserSessionProvider.createClientSessionUUID(userSessionId, clientId);
         AuthenticatedClientSessionEntity entity = new AuthenticatedClientSessionEntity(clientSessionId);
+        entity.setCompactNotes(compactSessionNotes);
         entity.setRealmId(realmId);
 
         entity.setAction(clientSession.getAction());
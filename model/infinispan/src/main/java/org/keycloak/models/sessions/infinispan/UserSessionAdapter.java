@@ -48,7 +48,7 @@ import java.util.stream.Collectors;
 /**
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
  */
-public class UserSessionAdapter<T extends SessionRefreshStore & UserSessionProvider> implements UserSessionModel {
+public class UserSessionAdapter<T extends SessionRefreshStore & UserSessionProvider & ClientSessionsLoader> implements UserSessionModel {
 
     private final KeycloakSession session;
 
@@ -85,8 +85,7 @@ public class UserSessionAdapter<T extends SessionRefreshStore & UserSessionProvi
     @Override
     public Map<String, AuthenticatedClientSessionModel> getAuthenticatedClientSessions() {
         AuthenticatedClientSessionStore clientSessionEntities = entity.getAuthenticatedClientSessions();
-        Map<String, AuthenticatedClientSessionModel> result = new HashMap<>();
-
+        Map<ClientModel, UUID> clientSessionIds = new HashMap<>();
         List<String> removedClientUUIDS = new LinkedList<>();
 
         if (clientSessionEntities != null) {
@@ -94,16 +93,16 @@ public class UserSessionAdapter<T extends SessionRefreshStore & UserSessionProvi
                 // Check if client still exists
                 ClientModel client = realm.getClientById(key);
                 if (client != null) {
-                    final AuthenticatedClientSessionModel clientSession = provider.getClientSession(this, client, value.toString(), offline);
-                    if (clientSession != null) {
-                        result.put(key, clientSession);
-                    }
+                    clientSessionIds.put(client, value);
                 } else {
                     removedClientUUIDS.add(key);
                 }
             });
         }
 
+        // the client sessions missing from the cache are loaded all at once
+        Map<String, AuthenticatedClientSessionModel> result = new HashMap<>(provider.getClientSessions(this, clientSessionIds, offline));
+
         removeAuthenticatedClientSessions(removedClientUUIDS);
 
         return Collections.unmodifiableMap(result);
@@ -34,6 +34,8 @@ import org.keycloak.models.sessions.infinispan.entities.UserSessionEntity;
 import org.keycloak.models.sessions.infinispan.remotestore.RemoteCacheInvoker;
 import org.keycloak.models.sessions.infinispan.util.SessionTimeouts;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
@@ -42,6 +44,7 @@ public class ClientSessionPersistentChangelogBasedTransaction extends Persistent
 
     private static final Logger LOG = Logger.getLogger(ClientSessionPersistentChangelogBasedTransaction.class);
     private final UserSessionPersistentChangelogBasedTransaction userSessionTx;
+    private final boolean compactSessionNotes;
 
     public ClientSessionPersistentChangelogBasedTransaction(KeycloakSession session,
                                                             Cache<UUID, SessionEntityWrapper<AuthenticatedClientSessionEntity>> cache,
@@ -54,53 +57,111 @@ public class ClientSessionPersistentChangelogBasedTransaction extends Persistent
                                                             UserSessionPersistentChangelogBasedTransaction userSessionTx,
                                                             ArrayBlockingQueue<PersistentUpdate> batchingQueue,
                                                             SerializeExecutionsByKey<UUID> serializerOnline,
-                                                            SerializeExecutionsByKey<UUID> serializerOffline) {
+                                                            SerializeExecutionsByKey<UUID> serializerOffline,
+                                                            boolean compactSessionNotes) {
         super(session, cache, offlineCache, remoteCacheInvoker, lifespanMsLoader, maxIdleTimeMsLoader, offlineLifespanMsLoader, offlineMaxIdleTimeMsLoader, batchingQueue, serializerOnline, serializerOffline);
         this.userSessionTx = userSessionTx;
+        this.compactSessionNotes = compactSessionNotes;
     }
 
     public SessionEntityWrapper<AuthenticatedClientSessionEntity> get(RealmModel realm, ClientModel client, UserSessionModel userSession, UUID key, boolean offline) {
         SessionUpdatesList<AuthenticatedClientSessionEntity> myUpdates = getUpdates(offline).get(key);
-        if (myUpdates == null) {
-            SessionEntityWrapper<AuthenticatedClientSessionEntity> wrappedEntity = null;
-            wrappedEntity = getCache(offline).get(key);
+        if (myUpdates != null) {
+            return getIfNotScheduledForRemove(myUpdates);
+        }
 
-            if (wrappedEntity == null) {
-                LOG.debugf("client-session not found in cache for sessionId=%s, offline=%s, loading from persister", key, offline);
-                wrappedEntity = getSessionEntityFromPersister(realm, client, userSession, offline);
+        SessionEntityWrapper<AuthenticatedClientSessionEntity> wrappedEntity = getCache(offline).get(key);
+
+        if (wrappedEntity == null) {
+            LOG.debugf("client-session not found in cache for sessionId=%s, offline=%s, loading from persister", key, offline);
+            wrappedEntity = getSessionEntityFromPersister(realm, client, userSession, offline);
+        } else {
+            LOG.debugf("client-session found in cache for sessionId=%s, offline=%s", key, offline);
+        }
+
+        if (wrappedEntity == null) {
+            LOG.debugf("client-session not found in persister for sessionId=%s, offline=%s", key, offline);
+            return null;
+        }
+
+        return track(realm, key, wrappedEntity, offline);
+    }
+
+    /**
+     * Returns the client sessions of the given clients in the user session, keyed by the client UUID. Client sessions
+     * missing from the cache are all loaded from the persister with a single query.
+     */
+    public Map<String, SessionEntityWrapper<AuthenticatedClientSessionEntity>> getAll(RealmModel realm, UserSessionModel userSession, Map<ClientModel, UUID> keys, boolean offline) {
+        Map<String, SessionEntityWrapper<AuthenticatedClientSessionEntity>> result = new HashMap<>();
+        Map<String, ClientModel> missing = new HashMap<>();
+
+        keys.forEach((client, key) -> {
+            SessionUpdatesList<AuthenticatedClientSessionEntity> myUpdates = getUpdates(offline).get(key);
+            SessionEntityWrapper<AuthenticatedClientSessionEntity> wrappedEntity;
+            if (myUpdates != null) {
+                wrappedEntity = getIfNotScheduledForRemove(myUpdates);
             } else {
-                LOG.debugf("client-session found in cache for sessionId=%s, offline=%s", key, offline);
+                wrappedEntity = getCache(offline).get(key);
+                if (wrappedEntity == null) {
+                    missing.put(client.getId(), client);
+                    return;
+                }
+                wrappedEntity = track(realm, key, wrappedEntity, offline);
+            }
+            if (wrappedEntity != null) {
+                result.put(client.getId(), wrappedEntity);
             }
+        });
+
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        LOG.debugf("client-sessions of user-session %s not found in cache, offline=%s, loading %d of them from persister", userSession.getId(), offline, missing.size());
 
+        UserSessionPersisterProvider persister = kcSession.getProvider(UserSessionPersisterProvider.class);
+        persister.loadClientSessionsStream(realm, missing.values(), userSession, offline).forEach(clientSession -> {
+            ClientModel client = missing.get(clientSession.getClient().getId());
+            SessionEntityWrapper<AuthenticatedClientSessionEntity> wrappedEntity = importClientSession(realm, client, userSession, clientSession);
             if (wrappedEntity == null) {
-                LOG.debugf("client-session not found in persister for sessionId=%s, offline=%s", key, offline);
-                return null;
+                LOG.debugf("client-session not imported from persister for sessionId=%s, offline=%s, removing from persister.", clientSession.getId(), offline);
+                persister.removeClientSession(userSession.getId(), client.getId(), offline);
+                return;
+            }
+            wrappedEntity = track(realm, wrappedEntity.getEntity().getId(), wrappedEntity, offline);
+            if (wrappedEntity != null) {
+                result.put(client.getId(), wrappedEntity);
             }
+        });
 
-            // Cache does not contain the offline flag value so adding it
-            wrappedEntity.getEntity().setOffline(offline);
+        return result;
+    }
 
-            RealmModel realmFromSession = kcSession.realms().getRealm(wrappedEntity.getEntity().getRealmId());
-            if (!realmFromSession.getId().equals(realm.getId())) {
-                LOG.warnf("Realm mismatch for session %s. Expected realm %s, but found realm %s", wrappedEntity.getEntity(), realm.getId(), realmFromSession.getId());
-                return null;
-            }
+    private SessionEntityWrapper<AuthenticatedClientSessionEntity> track(RealmModel realm, UUID key, SessionEntityWrapper<AuthenticatedClientSessionEntity> wrappedEntity, boolean offline) {
+        // Cache does not contain the offline flag value so adding it
+        wrappedEntity.getEntity().setOffline(offline);
 
-            myUpdates = new SessionUpdatesList<>(realm, wrappedEntity);
-            getUpdates(offline).put(key, myUpdates);
+        RealmModel realmFromSession = kcSession.realms().getRealm(wrappedEntity.getEntity().getRealmId());
+        if (!realmFromSession.getId().equals(realm.getId())) {
+            LOG.warnf("Realm mismatch for session %s. Expected realm %s, but found realm %s", wrappedEntity.getEntity(), realm.getId(), realmFromSession.getId());
+            return null;
+        }
 
-            return wrappedEntity;
-        } else {
+        SessionUpdatesList<AuthenticatedClientSessionEntity> myUpdates = new SessionUpdatesList<>(realm, wrappedEntity);
+        getUpdates(offline).put(key, myUpdates);
+
+        return wrappedEntity;
+    }
 
-            // If entity is scheduled for remove, we don't return it.
-            boolean scheduledForRemove = myUpdates.getUpdateTasks().stream().filter((SessionUpdateTask task) -> {
+    private static SessionEntityWrapper<AuthenticatedClientSessionEntity> getIfNotScheduledForRemove(SessionUpdatesList<AuthenticatedClientSessionEntity> myUpdates) {
+        // If entity is scheduled for remove, we don't return it.
+        boolean scheduledForRemove = myUpdates.getUpdateTasks().stream().filter((SessionUpdateTask task) -> {
 
-                return task.getOperation() == SessionUpdateTask.CacheOperation.REMOVE;
+            return task.getOperation() == SessionUpdateTask.CacheOperation.REMOVE;
 
-            }).findFirst().isPresent();
+        }).findFirst().isPresent();
 
-            return scheduledForRemove ? null : myUpdates.getEntityWrapper();
-        }
+        return scheduledForRemove ? null : myUpdates.getEntityWrapper();
     }
 
     private SessionEntityWrapper<AuthenticatedClientSessionEntity> getSessionEntityFromPersister(RealmModel realm, ClientModel client, UserSessionModel userSession, boolean offline) {
@@ -125,6 +186,8 @@ public class ClientSessionPersistentChangelogBasedTransaction extends Persistent
         UUID clientSessionId = PersistentUserSessionProvider.createClientSessionUUID(userSessionId, clientId);
 
         AuthenticatedClientSessionEntity entity = new AuthenticatedClientSessionEntity(clientSessionId);
+
+        entity.setCompactNotes(compactSessionNotes);
         entity.setRealmId(realmId);
 
         entity.setAction(clientSession.getAction());
@@ -37,6 +37,7 @@ import org.keycloak.models.utils.RealmModelDelegate;
 import org.keycloak.models.utils.UserModelDelegate;
 import org.keycloak.models.utils.UserSessionModelDelegate;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -69,7 +70,59 @@ public class JpaChangesPerformer<K, V extends SessionEntity> implements SessionC
 
     @Override
     public void registerChange(Map.Entry<K, SessionUpdatesList<V>> entry, MergedUpdate<V> merged) {
-        changes.add(new PersistentUpdate(innerSession -> processor.accept(innerSession, entry, merged)));
+        if (merged.getOperation() == SessionUpdateTask.CacheOperation.REPLACE) {
+            changes.add(new ReplaceUpdate(entry, merged));
+        } else {
+            changes.add(new PersistentUpdate(innerSession -> processor.accept(innerSession, entry, merged), entityKey(entry.getKey())));
+        }
+    }
+
+    private Object entityKey(K key) {
+        return Map.entry(cacheName, key);
+    }
+
+    /**
+     * Update of an existing session, which loads the session from the database and applies the update tasks to it.
+     * Later updates of the same session in the same batch are merged into it, so their update tasks are applied in the order
+     * of the updates (for example, the latest refresh timestamp wins and all note changes are applied) while the session is
+     * loaded and written only once.
+     */
+    private class ReplaceUpdate extends PersistentUpdate {
+        private final Map.Entry<K, SessionUpdatesList<V>> entry;
+        private final MergedUpdate<V> merged;
+        private SessionUpdatesList<V> coalescedUpdates;
+
+        private ReplaceUpdate(Map.Entry<K, SessionUpdatesList<V>> entry, MergedUpdate<V> merged) {
+            super(null, entityKey(entry.getKey()));
+            this.entry = entry;
+            this.merged = merged;
+        }
+
+        @Override
+        public void perform(KeycloakSession session) {
+            if (coalescedUpdates == null) {
+                processor.accept(session, entry, merged);
+            } else {
+                processor.accept(session, new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), coalescedUpdates), merged);
+            }
+        }
+
+        @Override
+        public boolean coalesce(PersistentUpdate later) {
+            if (!(later instanceof JpaChangesPerformer.ReplaceUpdate)) {
+                return false;
+            }
+            ReplaceUpdate laterUpdate = (ReplaceUpdate) later;
+            if (!getEntityKey().equals(laterUpdate.getEntityKey())) {
+                return false;
+            }
+            if (coalescedUpdates == null) {
+                coalescedUpdates = entry.getValue().copy();
+            }
+            coalescedUpdates.getUpdateTasks().addAll(laterUpdate.entry.getValue().getUpdateTasks());
+            addCoalesced(later);
+            return true;
+        }
     }
 
     private TriConsumer<KeycloakSession, Map.Entry<K, SessionUpdatesList<V>>, MergedUpdate<V>> processor() {
@@ -19,13 +19,16 @@ package org.keycloak.models.sessions.infinispan.changes;
 
 import org.jboss.logging.Logger;
 import org.keycloak.common.util.Retry;
+import org.keycloak.models.Constants;
 import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.models.utils.KeycloakModelUtils;
 
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -75,18 +78,22 @@ public class PersistentSessionsWorker {
         }
 
         private void process(ArrayBlockingQueue<PersistentUpdate> queue) throws InterruptedException {
-            ArrayList<PersistentUpdate> batch = new ArrayList<>();
+            ArrayList<PersistentUpdate> polledUpdates = new ArrayList<>();
             PersistentUpdate polled = queue.poll(100, TimeUnit.MILLISECONDS);
             if (polled != null) {
-                batch.add(polled);
-                queue.drainTo(batch, maxBatchSize - 1);
+                polledUpdates.add(polled);
+                queue.drainTo(polledUpdates, maxBatchSize - 1);
+                List<PersistentUpdate> batch = coalesce(polledUpdates);
                 try {
-                    LOG.debugf("Processing %d deferred session updates.", batch.size());
+                    LOG.debugf("Processing %d deferred session updates, coalesced from %d updates.", batch.size(), polledUpdates.size());
                     Retry.executeWithBackoff(iteration -> {
                                 if (iteration < 2) {
-                                    // attempt to write whole batch in the first two attempts
+                                    // attempt to write whole batch in the first two attempts, and let the database send the writes as JDBC batches
                                     KeycloakModelUtils.runJobInTransaction(factory,
-                                            innerSession -> batch.forEach(c -> c.perform(innerSession)));
+                                            innerSession -> {
+                                                innerSession.setAttribute(Constants.STORAGE_JDBC_BATCH_SIZE, maxBatchSize);
+                                                batch.forEach(c -> c.perform(innerSession));
+                                            });
                                     batch.forEach(PersistentUpdate::complete);
                                 } else {
                                     LOG.warnf("Running single changes in iteration %d for %d entries", iteration, batch.size());
@@ -119,6 +126,31 @@ public class PersistentSessionsWorker {
         }
     }
 
+    /**
+     * Merges the updates of the same session entity in the batch, so each entity is loaded and written only once.
+     * A later update is merged into an earlier one only if there is no other non-mergeable update of the same entity
+     * (like creating or removing it) between them, so the result is the same as performing the updates in the original order.
+     */
+    static List<PersistentUpdate> coalesce(List<PersistentUpdate> updates) {
+        List<PersistentUpdate> result = new ArrayList<>(updates.size());
+        Map<Object, PersistentUpdate> lastUpdateOfEntity = new HashMap<>();
+        for (PersistentUpdate update : updates) {
+            Object entityKey = update.getEntityKey();
+            if (entityKey == null) {
+                // the update can't be related to a single entity, so nothing can be merged across it
+                lastUpdateOfEntity.clear();
+            } else {
+                PersistentUpdate previous = lastUpdateOfEntity.get(entityKey);
+                if (previous != null && previous.coalesce(update)) {
+                    continue;
+                }
+                lastUpdateOfEntity.put(entityKey, update);
+            }
+            result.add(update);
+        }
+        return result;
+    }
+
     public void stop() {
         stop = true;
         threads.forEach(Thread::interrupt);
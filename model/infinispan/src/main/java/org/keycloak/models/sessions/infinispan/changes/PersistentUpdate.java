@@ -19,6 +19,8 @@ package org.keycloak.models.sessions.infinispan.changes;
 
 import org.keycloak.models.KeycloakSession;
 
+import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
@@ -30,22 +32,55 @@ import java.util.function.Consumer;
 public class PersistentUpdate {
 
     private final Consumer<KeycloakSession> task;
+    private final Object entityKey;
     private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private final List<PersistentUpdate> coalesced = new LinkedList<>();
 
     public PersistentUpdate(Consumer<KeycloakSession> task) {
+        this(task, null);
+    }
+
+    public PersistentUpdate(Consumer<KeycloakSession> task, Object entityKey) {
         this.task = task;
+        this.entityKey = entityKey;
     }
 
     public void perform(KeycloakSession session) {
         task.accept(session);
     }
 
+    /**
+     * Identifies the session entity changed by this update.
+     *
+     * @return the key of the entity, or {@code null} if the update can't be related to a single entity.
+     */
+    public Object getEntityKey() {
+        return entityKey;
+    }
+
+    /**
+     * Merges an update of the same entity, which has been queued later than this one, into this update.
+     * Performing this update then has the same effect as performing both updates one after the other.
+     * The later update is completed or failed together with this update.
+     *
+     * @return {@code true} if the update was merged and must not be performed on its own.
+     */
+    public boolean coalesce(PersistentUpdate later) {
+        return false;
+    }
+
+    protected void addCoalesced(PersistentUpdate later) {
+        coalesced.add(later);
+    }
+
     public void complete() {
         future.complete(null);
+        coalesced.forEach(PersistentUpdate::complete);
     }
 
     public void fail(Throwable throwable) {
         future.completeExceptionally(throwable);
+        coalesced.forEach(update -> update.fail(throwable));
     }
 
     public CompletableFuture<Void> future() {
@@ -26,14 +26,51 @@ import java.util.concurrent.locks.ReentrantLock;
  * Adding an in-JVM lock to prevent a best-effort concurrent executions for the same ID.
  * This should prevent a burst of requests by letting only the first request pass, and then the others will follow one-by-one.
  * Use this when the code wrapped by runSerialized is known to produce conflicts when run concurrently with the same ID.
+ * <p>
+ * By default, a lock is created for each key while there are executions for it. Alternatively, see {@link #striped(int)}, the keys
+ * are mapped onto a fixed number of fair locks, which bounds the memory and avoids allocations on each execution, at the price of
+ * serializing also the executions of unrelated keys which share the same stripe.
  *
  * @author Alexander Schwartz
  */
 public class SerializeExecutionsByKey<K> {
     private static final Logger LOG = Logger.getLogger(SerializeExecutionsByKey.class);
     private final ConcurrentHashMap<K, ReentrantLock> cacheInteractions = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+
+    public SerializeExecutionsByKey() {
+        this.stripes = null;
+    }
+
+    private SerializeExecutionsByKey(ReentrantLock[] stripes) {
+        this.stripes = stripes;
+    }
+
+    /**
+     * Creates an instance which serializes the executions using the given number of locks, rounded up to a power of two.
+     */
+    public static <K> SerializeExecutionsByKey<K> striped(int stripesCount) {
+        if (stripesCount <= 0) {
+            throw new IllegalArgumentException("Number of stripes must be positive: " + stripesCount);
+        }
+        int size = Integer.highestOneBit(Math.min(stripesCount, 1 << 30));
+        if (size < stripesCount) {
+            size <<= 1;
+        }
+        ReentrantLock[] stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            // fair, so that a burst of executions for the same key proceeds in the order of arrival
+            stripes[i] = new ReentrantLock(true);
+        }
+        return new SerializeExecutionsByKey<>(stripes);
+    }
 
     public void runSerialized(K key, Runnable task) {
+        if (stripes != null) {
+            runStriped(key, task);
+            return;
+        }
+
         // this locking is only to ensure that if there is a computation for the same id in the "synchronized" block below,
         // it will have the same object instance to lock the current execution until the other is finished.
         ReentrantLock lock = cacheInteractions.computeIfAbsent(key, s -> new ReentrantLock());
@@ -50,4 +87,17 @@ public class SerializeExecutionsByKey<K> {
             cacheInteractions.remove(key, lock);
         }
     }
+
+    private void runStriped(K key, Runnable task) {
+        int hash = key.hashCode();
+        // spread the higher bits, as for the keys with poorly distributed lower bits
+        hash ^= (hash >>> 16);
+        ReentrantLock lock = stripes[hash & (stripes.length - 1)];
+        lock.lock();
+        try {
+            task.run();
+        } finally {
+            lock.unlock();
+        }
+    }
 }
@@ -53,6 +53,21 @@ class SessionUpdatesList<S extends SessionEntity> {
         this.client = entityWrapper.getClientIfNeeded(realm);
     }
 
+    private SessionUpdatesList(SessionUpdatesList<S> other) {
+        this.realm = other.realm;
+        this.client = other.client;
+        this.entityWrapper = other.entityWrapper;
+        this.persistenceState = other.persistenceState;
+        this.updateTasks = new LinkedList<>(other.updateTasks);
+    }
+
+    /**
+     * Creates a copy of this list with its own list of update tasks, so more tasks can be added without changing this list.
+     */
+    public SessionUpdatesList<S> copy() {
+        return new SessionUpdatesList<>(this);
+    }
+
     public RealmModel getRealm() {
         return realm;
     }
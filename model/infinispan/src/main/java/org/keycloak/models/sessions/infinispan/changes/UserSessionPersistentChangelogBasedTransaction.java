@@ -93,7 +93,8 @@ public class UserSessionPersistentChangelogBasedTransaction extends PersistentSe
 
     private SessionEntityWrapper<UserSessionEntity> getSessionEntityFromPersister(RealmModel realm, String key, boolean offline) {
         UserSessionPersisterProvider persister = kcSession.getProvider(UserSessionPersisterProvider.class);
-        UserSessionModel persistentUserSession = persister.loadUserSession(realm, key, offline);
+        // Client sessions are loaded one by one when accessed, see ClientSessionPersistentChangelogBasedTransaction
+        UserSessionModel persistentUserSession = persister.loadUserSessionWithLazyClientSessions(realm, key, offline);
 
         if (persistentUserSession == null) {
             return null;
@@ -111,7 +112,7 @@ public class UserSessionPersistentChangelogBasedTransaction extends PersistentSe
         }
 
         LOG.debugf("Attempting to import user-session for sessionId=%s offline=%s", sessionId, offline);
-        SessionEntityWrapper<UserSessionEntity> ispnUserSessionEntity = ((PersistentUserSessionProvider) kcSession.getProvider(UserSessionProvider.class)).importUserSession(persistentUserSession, offline);
+        SessionEntityWrapper<UserSessionEntity> ispnUserSessionEntity = ((PersistentUserSessionProvider) kcSession.getProvider(UserSessionProvider.class)).importUserSession(persistentUserSession, offline, false);
 
         if (ispnUserSessionEntity != null) {
             LOG.debugf("user-session found after import for sessionId=%s offline=%s", sessionId, offline);
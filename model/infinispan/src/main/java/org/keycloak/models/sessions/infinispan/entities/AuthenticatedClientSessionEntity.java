@@ -30,6 +30,7 @@ import org.jboss.logging.Logger;
 import org.keycloak.models.AuthenticatedClientSessionModel;
 import org.keycloak.models.sessions.infinispan.changes.SessionEntityWrapper;
 import org.keycloak.models.sessions.infinispan.util.KeycloakMarshallUtil;
+import org.keycloak.models.sessions.infinispan.util.SessionNotesMarshallUtil;
 import java.util.UUID;
 
 /**
@@ -59,6 +60,9 @@ public class AuthenticatedClientSessionEntity extends SessionEntity {
 
     private transient String userSessionId;
 
+    // Format of the notes when marshalled, carried in the stream as the version of the entity
+    private transient boolean compactNotes;
+
     public AuthenticatedClientSessionEntity(UUID id) {
         this.id = id;
     }
@@ -200,10 +204,29 @@ public class AuthenticatedClientSessionEntity extends SessionEntity {
         this.userSessionId = userSessionId;
     }
 
+    public boolean isCompactNotes() {
+        return compactNotes;
+    }
+
+    /**
+     * Marshalls the notes in the compact format, which must only be enabled once all nodes of the cluster are able to read it.
+     */
+    public void setCompactNotes(boolean compactNotes) {
+        this.compactNotes = compactNotes;
+    }
+
     public static class ExternalizerImpl implements Externalizer<AuthenticatedClientSessionEntity> {
 
+        // The previous format starts with the id and has no version. The compact notes format is marked by this value written in
+        // place of the most significant bits of the id, which can't be mistaken for them, as its UUID version (bits 12-15) is 0,
+        // while the ids are always generated as UUIDs of version 3 or 4.
+        static final long VERSION_2_MARKER = 0x4B43_5345_5353_0002L;
+
         @Override
         public void writeObject(ObjectOutput output, AuthenticatedClientSessionEntity session) throws IOException {
+            if (session.isCompactNotes()) {
+                output.writeLong(VERSION_2_MARKER);
+            }
             MarshallUtil.marshallUUID(session.id, output, false);
             MarshallUtil.marshallString(session.getRealmId(), output);
             MarshallUtil.marshallString(session.getAuthMethod(), output);
@@ -211,8 +234,7 @@ public class AuthenticatedClientSessionEntity extends SessionEntity {
             KeycloakMarshallUtil.marshall(session.getTimestamp(), output);
             MarshallUtil.marshallString(session.getAction(), output);
 
-            Map<String, String> notes = session.getNotes();
-            KeycloakMarshallUtil.writeMap(notes, KeycloakMarshallUtil.STRING_EXT, KeycloakMarshallUtil.STRING_EXT, output);
+            SessionNotesMarshallUtil.writeNotes(session.getNotes(), session.isCompactNotes(), output);
 
             MarshallUtil.marshallString(session.getCurrentRefreshToken(), output);
             KeycloakMarshallUtil.marshall(session.getCurrentRefreshTokenUseCount(), output);
@@ -221,7 +243,13 @@ public class AuthenticatedClientSessionEntity extends SessionEntity {
 
         @Override
         public AuthenticatedClientSessionEntity readObject(ObjectInput input) throws IOException, ClassNotFoundException {
-            AuthenticatedClientSessionEntity sessionEntity = new AuthenticatedClientSessionEntity(MarshallUtil.unmarshallUUID(input, false));
+            long mostSigBits = input.readLong();
+            boolean compactNotes = mostSigBits == VERSION_2_MARKER;
+            if (compactNotes) {
+                mostSigBits = input.readLong();
+            }
+            AuthenticatedClientSessionEntity sessionEntity = new AuthenticatedClientSessionEntity(new UUID(mostSigBits, input.readLong()));
+            sessionEntity.setCompactNotes(compactNotes);
 
             sessionEntity.setRealmId(MarshallUtil.unmarshallString(input));
 
@@ -230,9 +258,8 @@ public class AuthenticatedClientSessionEntity extends SessionEntity {
             sessionEntity.setTimestamp(KeycloakMarshallUtil.unmarshallInteger(input));
             sessionEntity.setAction(MarshallUtil.unmarshallString(input));
 
-            Map<String, String> notes = KeycloakMarshallUtil.readMap(input, KeycloakMarshallUtil.STRING_EXT, KeycloakMarshallUtil.STRING_EXT,
-                    new KeycloakMarshallUtil.ConcurrentHashMapBuilder<>());
-            sessionEntity.setNotes(notes);
+            // Notes written by the previous format with KeycloakMarshallUtil.writeMap are still readable here
+            sessionEntity.setNotes(SessionNotesMarshallUtil.readNotes(input));
 
             sessionEntity.setCurrentRefreshToken(MarshallUtil.unmarshallString(input));
             sessionEntity.setCurrentRefreshTokenUseCount(KeycloakMarshallUtil.unmarshallInteger(input));
@@ -25,6 +25,7 @@ import org.keycloak.models.UserSessionModel;
 import org.keycloak.models.UserSessionModel.State;
 import org.keycloak.models.sessions.infinispan.changes.SessionEntityWrapper;
 import org.keycloak.models.sessions.infinispan.util.KeycloakMarshallUtil;
+import org.keycloak.models.sessions.infinispan.util.SessionNotesMarshallUtil;
 
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -68,6 +69,9 @@ public class UserSessionEntity extends SessionEntity {
 
     private UserSessionModel.State state;
 
+    // Format of the notes when marshalled, carried in the stream as the version of the entity
+    private transient boolean compactNotes;
+
     public UserSessionEntity(String id) {
         this.id = id;
     }
@@ -199,6 +203,17 @@ public class UserSessionEntity extends SessionEntity {
           new TreeSet(this.authenticatedClientSessions.keySet()));
     }
 
+    public boolean isCompactNotes() {
+        return compactNotes;
+    }
+
+    /**
+     * Marshalls the notes in the compact format, which must only be enabled once all nodes of the cluster are able to read it.
+     */
+    public void setCompactNotes(boolean compactNotes) {
+        this.compactNotes = compactNotes;
+    }
+
     @Override
     public SessionEntityWrapper mergeRemoteEntityWithLocalEntity(SessionEntityWrapper localEntityWrapper) {
         int lsrRemote = getLastSessionRefresh();
@@ -228,6 +243,8 @@ public class UserSessionEntity extends SessionEntity {
     public static class ExternalizerImpl implements Externalizer<UserSessionEntity> {
 
         private static final int VERSION_1 = 1;
+        // same layout as VERSION_1, with the notes in the compact format which older nodes cannot read
+        private static final int VERSION_2 = 2;
 
         private static final EnumMap<UserSessionModel.State, Integer> STATE_TO_ID = new EnumMap<>(UserSessionModel.State.class);
         private static final Map<Integer, UserSessionModel.State> ID_TO_STATE = new HashMap<>();
@@ -243,7 +260,7 @@ public class UserSessionEntity extends SessionEntity {
 
         @Override
         public void writeObject(ObjectOutput output, UserSessionEntity session) throws IOException {
-            output.writeByte(VERSION_1);
+            output.writeByte(session.isCompactNotes() ? VERSION_2 : VERSION_1);
 
             MarshallUtil.marshallString(session.getAuthMethod(), output);
             MarshallUtil.marshallString(session.getBrokerSessionId(), output);
@@ -261,8 +278,7 @@ public class UserSessionEntity extends SessionEntity {
             int state = session.getState() == null ? 0 : STATE_TO_ID.get(session.getState());
             output.writeInt(state);
 
-            Map<String, String> notes = session.getNotes();
-            KeycloakMarshallUtil.writeMap(notes, KeycloakMarshallUtil.STRING_EXT, KeycloakMarshallUtil.STRING_EXT, output);
+            SessionNotesMarshallUtil.writeNotes(session.getNotes(), session.isCompactNotes(), output);
 
             output.writeObject(session.getAuthenticatedClientSessions());
         }
@@ -273,6 +289,10 @@ public class UserSessionEntity extends SessionEntity {
             switch (input.readByte()) {
                 case VERSION_1:
                     return readObjectVersion1(input);
+                case VERSION_2:
+                    UserSessionEntity sessionEntity = readObjectVersion1(input);
+                    sessionEntity.setCompactNotes(true);
+                    return sessionEntity;
                 default:
                     throw new IOException("Unknown version");
             }
@@ -297,9 +317,8 @@ public class UserSessionEntity extends SessionEntity {
 
             sessionEntity.setState(ID_TO_STATE.get(input.readInt()));
 
-            Map<String, String> notes = KeycloakMarshallUtil.readMap(input, KeycloakMarshallUtil.STRING_EXT, KeycloakMarshallUtil.STRING_EXT,
-                    new KeycloakMarshallUtil.ConcurrentHashMapBuilder<>());
-            sessionEntity.setNotes(notes);
+            // Notes written by the previous format with KeycloakMarshallUtil.writeMap are still readable here
+            sessionEntity.setNotes(SessionNotesMarshallUtil.readNotes(input));
 
             AuthenticatedClientSessionStore authSessions = (AuthenticatedClientSessionStore) input.readObject();
             sessionEntity.setAuthenticatedClientSessions(authSessions);
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.sessions.infinispan.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.Cache;
+import org.infinispan.commons.util.CloseableIterator;
+import org.infinispan.context.Flag;
+import org.infinispan.distribution.DistributionManager;
+import org.infinispan.distribution.LocalizedCacheTopology;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryExpired;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.annotation.DataRehashed;
+import org.infinispan.notifications.cachelistener.annotation.TopologyChanged;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryExpiredEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
+import org.infinispan.notifications.cachelistener.event.Event;
+import org.jboss.logging.Logger;
+import org.keycloak.models.sessions.infinispan.changes.SessionEntityWrapper;
+import org.keycloak.models.sessions.infinispan.entities.UserSessionEntity;
+import org.keycloak.models.sessions.infinispan.stream.UserSessionPredicate;
+
+/**
+ * Index of the user sessions cache, which maps the user ID, broker session ID and broker user ID to the IDs of the user sessions.
+ * It allows to look up the sessions of a single user without iterating over the whole sessions cache.
+ * <p>
+ * Each node only indexes the sessions stored locally, as they are written by a local (non-clustered) listener, so indexing
+ * never adds a remote call to the creation or removal of a session. The index is rebuilt from the local data when the topology
+ * of the cache changes. As the user and broker IDs of a session never change after it was created, modifications of the sessions
+ * are not observed.
+ * <p>
+ * Lookups never leave the node either: the index is only used while the node holds all the segments of the cache, which is the
+ * case for a local or replicated cache, or when the number of owners is at least the number of members. Otherwise the sessions of
+ * a user might be stored on other nodes, and the cache needs to be iterated instead.
+ * <p>
+ * The index only narrows down the candidates. Callers are expected to load the sessions from the cache and apply the
+ * {@link UserSessionPredicate} to them, so a stale entry in the index never leads to a wrong result.
+ */
+public class UserSessionsIndex {
+
+    private static final Logger log = Logger.getLogger(UserSessionsIndex.class);
+
+    private static final byte BY_USER = 1;
+    private static final byte BY_BROKER_SESSION_ID = 2;
+    private static final byte BY_BROKER_USER_ID = 3;
+
+    private final ConcurrentHashMap<String, IndexedSession> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> sessionsByBrokerSessionId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> sessionsByBrokerUserId = new ConcurrentHashMap<>();
+    private final AtomicInteger rebuilding = new AtomicInteger();
+
+    private final CacheListener cacheListener = new CacheListener();
+    private final TopologyListener topologyListener = new TopologyListener();
+
+    private Cache<String, SessionEntityWrapper<UserSessionEntity>> cache;
+    private volatile boolean registered;
+
+    /**
+     * Registers the index as a local listener of the given cache. The sessions stored locally are added to the index before
+     * this method returns.
+     */
+    public void register(Cache<String, SessionEntityWrapper<UserSessionEntity>> cache) {
+        this.cache = cache;
+        cache.addListener(cacheListener);
+        cache.addListener(topologyListener);
+        rebuild();
+        registered = true;
+        log.debugf("Registered index of user sessions for cache '%s' with %d local sessions", cache.getName(), sessions.size());
+    }
+
+    public void unregister() {
+        if (cache == null) {
+            return;
+        }
+        registered = false;
+        cache.removeListener(cacheListener);
+        cache.removeListener(topologyListener);
+    }
+
+    public boolean isReady() {
+        return registered && rebuilding.get() == 0;
+    }
+
+    /**
+     * Returns the IDs of the candidate sessions matching the given predicate, or {@code null} when the predicate
+     * doesn't contain any of the indexed fields (or the index is not ready, or the node does not hold all the sessions) and the cache
+     * needs to be iterated instead.
+     */
+    public Collection<String> getCandidateSessionIds(UserSessionPredicate predicate) {
+        if (!isReady()) {
+            return null;
+        }
+
+        byte type;
+        String key;
+        if (predicate.getBrokerSessionId() != null) {
+            type = BY_BROKER_SESSION_ID;
+            key = predicate.getBrokerSessionId();
+        } else if (predicate.getUserId() != null) {
+            type = BY_USER;
+            key = predicate.getUserId();
+        } else if (predicate.getBrokerUserId() != null) {
+            type = BY_BROKER_USER_ID;
+            key = predicate.getBrokerUserId();
+        } else {
+            return null;
+        }
+
+        if (!holdsAllSegments()) {
+            return null;
+        }
+        return getLocalCandidateSessionIds(type, key);
+    }
+
+    private boolean holdsAllSegments() {
+        DistributionManager distribution = cache.getAdvancedCache().getDistributionManager();
+        if (distribution == null) {
+            return true;
+        }
+        LocalizedCacheTopology topology = distribution.getCacheTopology();
+        return topology.getLocalReadSegments().size() == topology.getNumSegments();
+    }
+
+    private Collection<String> getLocalCandidateSessionIds(byte type, String key) {
+        switch (type) {
+            case BY_USER:
+                return lookup(sessionsByUser, key);
+            case BY_BROKER_SESSION_ID:
+                return lookup(sessionsByBrokerSessionId, key);
+            case BY_BROKER_USER_ID:
+                return lookup(sessionsByBrokerUserId, key);
+            default:
+                return null;
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Adds the sessions stored locally to the index, and removes the sessions which are not stored locally anymore.
+     */
+    void rebuild() {
+        rebuilding.incrementAndGet();
+        try {
+            AdvancedCache<String, SessionEntityWrapper<UserSessionEntity>> localCache = cache.getAdvancedCache()
+                    .withFlags(Flag.CACHE_MODE_LOCAL, Flag.SKIP_CACHE_LOAD);
+            try (CloseableIterator<Map.Entry<String, SessionEntityWrapper<UserSessionEntity>>> it = localCache.entrySet().iterator()) {
+                while (it.hasNext()) {
+                    SessionEntityWrapper<UserSessionEntity> wrapper = it.next().getValue();
+                    if (wrapper != null && wrapper.getEntity() != null) {
+                        add(wrapper.getEntity());
+                    }
+                }
+            }
+            // sessions created meanwhile are stored locally, so only the sessions moved to other nodes are removed
+            for (String sessionId : new ArrayList<>(sessions.keySet())) {
+                if (!localCache.containsKey(sessionId)) {
+                    remove(sessionId);
+                }
+            }
+        } finally {
+            rebuilding.decrementAndGet();
+        }
+    }
+
+    void add(UserSessionEntity entity) {
+        String sessionId = entity.getId();
+        IndexedSession indexed = new IndexedSession(entity.getUser(), entity.getBrokerSessionId(), entity.getBrokerUserId());
+        // Update the secondary indexes while holding the entry of the session, so concurrent add and remove can't leak IDs
+        sessions.compute(sessionId, (id, previous) -> {
+            if (previous != null) {
+                removeFromIndexes(id, previous);
+            }
+            addToIndex(sessionsByUser, indexed.userId, id);
+            addToIndex(sessionsByBrokerSessionId, indexed.brokerSessionId, id);
+            addToIndex(sessionsByBrokerUserId, indexed.brokerUserId, id);
+            return indexed;
+        });
+    }
+
+    void remove(String sessionId) {
+        sessions.computeIfPresent(sessionId, (id, indexed) -> {
+            removeFromIndexes(id, indexed);
+            return null;
+        });
+    }
+
+    private void removeFromIndexes(String sessionId, IndexedSession indexed) {
+        removeFromIndex(sessionsByUser, indexed.userId, sessionId);
+        removeFromIndex(sessionsByBrokerSessionId, indexed.brokerSessionId, sessionId);
+        removeFromIndex(sessionsByBrokerUserId, indexed.brokerUserId, sessionId);
+    }
+
+    private static Collection<String> lookup(ConcurrentHashMap<String, Set<String>> index, String key) {
+        Set<String> ids = index.get(key);
+        // Copy, as the set can be updated concurrently while the caller iterates over it
+        return ids == null ? Collections.emptyList() : new ArrayList<>(ids);
+    }
+
+    private static void addToIndex(ConcurrentHashMap<String, Set<String>> index, String key, String sessionId) {
+        if (key == null) {
+            return;
+        }
+        index.compute(key, (k, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet(1);
+            }
+            ids.add(sessionId);
+            return ids;
+        });
+    }
+
+    private static void removeFromIndex(ConcurrentHashMap<String, Set<String>> index, String key, String sessionId) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(sessionId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static class IndexedSession {
+        private final String userId;
+        private final String brokerSessionId;
+        private final String brokerUserId;
+
+        private IndexedSession(String userId, String brokerSessionId, String brokerUserId) {
+            this.userId = userId;
+            this.brokerSessionId = brokerSessionId;
+            this.brokerUserId = brokerUserId;
+        }
+    }
+
+    @Listener(observation = Listener.Observation.POST)
+    public class CacheListener {
+
+        @CacheEntryCreated
+        public void created(CacheEntryCreatedEvent<String, SessionEntityWrapper<UserSessionEntity>> event) {
+            SessionEntityWrapper<UserSessionEntity> wrapper = event.getValue();
+            if (wrapper != null && wrapper.getEntity() != null) {
+                add(wrapper.getEntity());
+            }
+        }
+
+        @CacheEntryRemoved
+        public void removed(CacheEntryRemovedEvent<String, SessionEntityWrapper<UserSessionEntity>> event) {
+            remove(event.getKey());
+        }
+
+        @CacheEntryExpired
+        public void expired(CacheEntryExpiredEvent<String, SessionEntityWrapper<UserSessionEntity>> event) {
+            remove(event.getKey());
+        }
+    }
+
+    /**
+     * Rebuilds the index when the sessions stored locally change with the topology, without blocking the topology change.
+     */
+    @Listener(sync = false)
+    public class TopologyListener {
+
+        @TopologyChanged
+        @DataRehashed
+        public void topologyChanged(Event<String, SessionEntityWrapper<UserSessionEntity>> event) {
+            if (!event.isPre()) {
+                rebuild();
+            }
+        }
+    }
+}
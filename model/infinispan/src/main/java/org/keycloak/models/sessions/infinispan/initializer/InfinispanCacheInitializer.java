@@ -25,9 +25,14 @@ import org.keycloak.models.KeycloakSessionTask;
 import org.keycloak.models.utils.KeycloakModelUtils;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Startup initialization for reading persistent userSessions to be filled into infinispan/memory.
@@ -45,10 +50,18 @@ public class InfinispanCacheInitializer extends BaseCacheInitializer {
     // Effectively no timeout
     private final int stalledTimeoutInSeconds;
 
+    // Count of segments loaded in parallel
+    private final int workersCount;
+
     public InfinispanCacheInitializer(KeycloakSessionFactory sessionFactory, Cache<String, Serializable> workCache, SessionLoader sessionLoader, String stateKeySuffix, int maxErrors, int stalledTimeoutInSeconds) {
+        this(sessionFactory, workCache, sessionLoader, stateKeySuffix, maxErrors, stalledTimeoutInSeconds, 1);
+    }
+
+    public InfinispanCacheInitializer(KeycloakSessionFactory sessionFactory, Cache<String, Serializable> workCache, SessionLoader sessionLoader, String stateKeySuffix, int maxErrors, int stalledTimeoutInSeconds, int workersCount) {
         super(sessionFactory, workCache, sessionLoader, stateKeySuffix);
         this.maxErrors = maxErrors;
         this.stalledTimeoutInSeconds = stalledTimeoutInSeconds;
+        this.workersCount = Math.max(1, workersCount);
     }
 
 
@@ -61,7 +74,7 @@ public class InfinispanCacheInitializer extends BaseCacheInitializer {
             KeycloakModelUtils.runJobInTransaction(sessionFactory, new KeycloakSessionTask() {
                 @Override
                 public void run(KeycloakSession session) {
-                    ctx[0] = sessionLoader.computeLoaderContext();
+                    ctx[0] = sessionLoader.computeLoaderContext(session);
                 }
 
             });
@@ -71,10 +84,16 @@ public class InfinispanCacheInitializer extends BaseCacheInitializer {
             KeycloakModelUtils.runJobInTransaction(sessionFactory, new KeycloakSessionTask() {
                 @Override
                 public void run(KeycloakSession session) {
-                    ctx[0] = sessionLoader.computeLoaderContext();
+                    ctx[0] = sessionLoader.computeLoaderContext(session);
                 }
 
             });
+
+            if (state.getSegmentsCount() != ctx[0].getSegmentsCount()) {
+                // The segments were split differently by the previous coordinator, so its progress can't be reused
+                log.debugf("Count of segments changed from %d to %d, loading from the beginning", state.getSegmentsCount(), ctx[0].getSegmentsCount());
+                state = new InitializerState(ctx[0].getSegmentsCount());
+            }
         }
 
         log.debugf("Start loading with loader: '%s', ctx: '%s' , state: %s",
@@ -92,57 +111,58 @@ public class InfinispanCacheInitializer extends BaseCacheInitializer {
         final int errors = 0;
         int segmentToLoad = 0;
 
-        int distributedWorkersCount = 1;
+        int distributedWorkersCount = Math.min(workersCount, state.getSegmentsCount());
 
-        while (segmentToLoad < state.getSegmentsCount()) {
+        ExecutorService executor = distributedWorkersCount > 1 ? Executors.newFixedThreadPool(distributedWorkersCount, new LoaderThreadFactory(stateKey)) : null;
+        try {
+            while (segmentToLoad < state.getSegmentsCount()) {
 
-            log.debugf("Starting next iteration with %d workers", distributedWorkersCount);
+                log.debugf("Starting next iteration with %d workers", distributedWorkersCount);
 
-            List<Integer> segments = state.getSegmentsToLoad(segmentToLoad, distributedWorkersCount);
+                List<Integer> segments = state.getSegmentsToLoad(segmentToLoad, distributedWorkersCount);
 
-            if (log.isTraceEnabled()) {
-                log.trace("unfinished segments for this iteration: " + segments);
-            }
-
-            Queue<SessionLoader.WorkerResult> results = new ConcurrentLinkedQueue<>();
+                if (log.isTraceEnabled()) {
+                    log.trace("unfinished segments for this iteration: " + segments);
+                }
 
-            for (Integer segment : segments) {
-                SessionLoader.WorkerContext workerCtx = sessionLoader.computeWorkerContext(segment);
+                List<SessionLoader.WorkerResult> results = executor == null ? loadSegments(segments, loaderCtx) : loadSegments(segments, loaderCtx, executor);
 
-                SessionInitializerWorker worker = new SessionInitializerWorker();
-                worker.setWorkerEnvironment(loaderCtx, workerCtx, sessionLoader);
+                boolean anyFailure = false;
 
-                results.add(worker.apply(sessionFactory));
-            }
+                // Check the results
+                for (SessionLoader.WorkerResult result : results) {
+                    if (result.success()) {
+                        state.markSegmentFinished(result.segment());
+                    } else {
+                        if (log.isTraceEnabled()) {
+                            log.tracef("Segment %d failed to compute", result.segment());
+                        }
+                        anyFailure = true;
+                    }
+                }
 
-            boolean anyFailure = false;
+                if (errors >= maxErrors) {
+                    throw new RuntimeException("Maximum count of worker errors occurred. Limit was " + maxErrors + ". See server.log for details");
+                }
 
-            // Check the results
-            for (SessionLoader.WorkerResult result : results) {
-                if (result.success()) {
-                    state.markSegmentFinished(result.segment());
-                    if (result.segment() == segmentToLoad + distributedWorkersCount - 1) {
-                        // last result for next iteration when complete
-                    }
-                } else {
+                if (!anyFailure) {
+                    // everything is OK, prepare the new row
+                    segmentToLoad += distributedWorkersCount;
                     if (log.isTraceEnabled()) {
-                        log.tracef("Segment %d failed to compute", result.segment());
+                        log.debugf("New initializer state is: %s", state);
                     }
-                    anyFailure = true;
                 }
-            }
 
-            if (errors >= maxErrors) {
-                throw new RuntimeException("Maximum count of worker errors occurred. Limit was " + maxErrors + ". See server.log for details");
-            }
-
-            if (!anyFailure) {
-                // everything is OK, prepare the new row
-                segmentToLoad += distributedWorkersCount;
-                if (log.isTraceEnabled()) {
-                    log.debugf("New initializer state is: %s", state);
+                if (segmentToLoad < state.getSegmentsCount()) {
+                    // Share the progress, so the other nodes see the loading is not stalled and a new coordinator can continue from here
+                    saveStateToCache(state);
+                    log.debugf("Loading with loader '%s' in progress: %s", sessionLoader, state);
                 }
             }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
         }
 
         // Push the state after computation is finished
@@ -152,4 +172,60 @@ public class InfinispanCacheInitializer extends BaseCacheInitializer {
         this.sessionLoader.afterAllSessionsLoaded();
 
     }
+
+    private List<SessionLoader.WorkerResult> loadSegments(List<Integer> segments, SessionLoader.LoaderContext loaderCtx) {
+        List<SessionLoader.WorkerResult> results = new ArrayList<>(segments.size());
+        for (Integer segment : segments) {
+            results.add(createWorker(segment, loaderCtx).apply(sessionFactory));
+        }
+        return results;
+    }
+
+    private List<SessionLoader.WorkerResult> loadSegments(List<Integer> segments, SessionLoader.LoaderContext loaderCtx, ExecutorService executor) {
+        List<CompletableFuture<SessionLoader.WorkerResult>> futures = new ArrayList<>(segments.size());
+        for (Integer segment : segments) {
+            SessionInitializerWorker worker = createWorker(segment, loaderCtx);
+            futures.add(CompletableFuture.supplyAsync(() -> worker.apply(sessionFactory), executor));
+        }
+
+        List<SessionLoader.WorkerResult> results = new ArrayList<>(segments.size());
+        for (CompletableFuture<SessionLoader.WorkerResult> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                // Propagate the failure the same way as if the worker was executed by the current thread
+                futures.forEach(f -> f.cancel(true));
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    private SessionInitializerWorker createWorker(int segment, SessionLoader.LoaderContext loaderCtx) {
+        SessionLoader.WorkerContext workerCtx = sessionLoader.computeWorkerContext(segment);
+
+        SessionInitializerWorker worker = new SessionInitializerWorker();
+        worker.setWorkerEnvironment(loaderCtx, workerCtx, sessionLoader);
+        return worker;
+    }
+
+    private static class LoaderThreadFactory implements ThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        LoaderThreadFactory(String stateKey) {
+            this.namePrefix = "session-loader-" + stateKey + "-";
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
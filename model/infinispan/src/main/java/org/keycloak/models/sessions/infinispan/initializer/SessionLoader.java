@@ -41,6 +41,17 @@ public interface SessionLoader<LOADER_CONTEXT extends SessionLoader.LoaderContex
     LOADER_CONTEXT computeLoaderContext();
 
 
+    /**
+     * Same as {@link #computeLoaderContext()}, for the loaders which need the session to compute the context.
+     *
+     * @param session
+     * @return
+     */
+    default LOADER_CONTEXT computeLoaderContext(KeycloakSession session) {
+        return computeLoaderContext();
+    }
+
+
     /**
      * Compute the worker context for current iteration
      *
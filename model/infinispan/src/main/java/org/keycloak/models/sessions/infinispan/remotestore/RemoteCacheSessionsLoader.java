@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.infinispan.Cache;
+import org.infinispan.client.hotrod.CacheTopologyInfo;
 import org.infinispan.client.hotrod.MetadataValue;
 import org.infinispan.client.hotrod.RemoteCache;
 import org.infinispan.commons.util.CloseableIterator;
@@ -43,17 +44,40 @@ public class RemoteCacheSessionsLoader implements SessionLoader<RemoteCacheSessi
 
     private final String cacheName;
     private final int sessionsPerSegment;
+    private final int workersCount;
 
     public RemoteCacheSessionsLoader(String cacheName, int sessionsPerSegment) {
+        this(cacheName, sessionsPerSegment, 1);
+    }
+
+    public RemoteCacheSessionsLoader(String cacheName, int sessionsPerSegment, int workersCount) {
         this.cacheName = cacheName;
         this.sessionsPerSegment = sessionsPerSegment;
+        this.workersCount = workersCount;
     }
 
 
     @Override
     public RemoteCacheSessionsLoaderContext computeLoaderContext() {
         return new RemoteCacheSessionsLoaderContext(sessionsPerSegment);
+    }
+
+    @Override
+    public RemoteCacheSessionsLoaderContext computeLoaderContext(KeycloakSession session) {
+        if (workersCount <= 1) {
+            return computeLoaderContext();
+        }
+
+        // Split the segments of the remote cache among the workers, so each of them iterates only over its own part of the keyspace
+        Integer remoteSegmentsCount = null;
+        try {
+            CacheTopologyInfo topology = getRemoteCache(session).getCacheTopologyInfo();
+            remoteSegmentsCount = topology == null ? null : topology.getNumSegments();
+        } catch (RuntimeException e) {
+            log.debugf(e, "Unable to read the topology of the remote cache '%s', sessions will be loaded by a single worker", cacheName);
+        }
 
+        return new RemoteCacheSessionsLoaderContext(sessionsPerSegment, workersCount, remoteSegmentsCount == null ? 0 : remoteSegmentsCount);
     }
 
     @Override
@@ -69,7 +93,7 @@ public class RemoteCacheSessionsLoader implements SessionLoader<RemoteCacheSessi
         RemoteCache<?, ?> remoteCache = getRemoteCache(session);
 
         int countLoaded = 0;
-        try (CloseableIterator<Map.Entry<Object, MetadataValue<Object>>> it = remoteCache.retrieveEntriesWithMetadata(null, loaderContext.getSessionsPerSegment())) {
+        try (CloseableIterator<Map.Entry<Object, MetadataValue<Object>>> it = remoteCache.retrieveEntriesWithMetadata(loaderContext.getRemoteSegments(ctx.segment()), loaderContext.getSessionsPerSegment())) {
             Map<Object, Object> toInsertExpiring = new HashMap<>(loaderContext.getSessionsPerSegment());
             Map<Object, Object> toInsertImmortal = new HashMap<>(loaderContext.getSessionsPerSegment());
             int count = 0;
@@ -180,6 +204,7 @@ public class RemoteCacheSessionsLoader implements SessionLoader<RemoteCacheSessi
         return new StringBuilder("RemoteCacheSessionsLoader [ ")
                 .append("cacheName: ").append(cacheName)
                 .append(", sessionsPerSegment: ").append(sessionsPerSegment)
+                .append(", workersCount: ").append(workersCount)
                 .append(" ]")
                 .toString();
     }
@@ -17,6 +17,9 @@
 
 package org.keycloak.models.sessions.infinispan.remotestore;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import org.keycloak.models.sessions.infinispan.initializer.SessionLoader;
 
 /**
@@ -26,10 +29,21 @@ import org.keycloak.models.sessions.infinispan.initializer.SessionLoader;
 public class RemoteCacheSessionsLoaderContext extends SessionLoader.LoaderContext {
 
     private final int sessionsPerSegment;
+    private final int remoteSegmentsCount;
 
     public RemoteCacheSessionsLoaderContext(int sessionsPerSegment) {
-        super(1);
+        this(sessionsPerSegment, 1, 0);
+    }
+
+    /**
+     * @param sessionsPerSegment count of entries fetched from the remote cache in one batch
+     * @param segmentsCount count of segments loaded independently of each other
+     * @param remoteSegmentsCount count of segments of the remote cache, which are split among the segments. If not positive, the remote cache is loaded as a whole
+     */
+    public RemoteCacheSessionsLoaderContext(int sessionsPerSegment, int segmentsCount, int remoteSegmentsCount) {
+        super(remoteSegmentsCount > 0 ? Math.max(1, Math.min(segmentsCount, remoteSegmentsCount)) : 1);
         this.sessionsPerSegment = sessionsPerSegment;
+        this.remoteSegmentsCount = remoteSegmentsCount;
     }
 
 
@@ -37,11 +51,32 @@ public class RemoteCacheSessionsLoaderContext extends SessionLoader.LoaderContex
         return sessionsPerSegment;
     }
 
+    public int getRemoteSegmentsCount() {
+        return remoteSegmentsCount;
+    }
+
+    /**
+     * Returns the segments of the remote cache, which are loaded as part of the given segment, or {@code null} if the whole
+     * remote cache is loaded in a single segment.
+     */
+    public Set<Integer> getRemoteSegments(int segment) {
+        int segmentsCount = getSegmentsCount();
+        if (segmentsCount == 1) {
+            return null;
+        }
+        Set<Integer> remoteSegments = new HashSet<>();
+        for (int remoteSegment = segment; remoteSegment < remoteSegmentsCount; remoteSegment += segmentsCount) {
+            remoteSegments.add(remoteSegment);
+        }
+        return remoteSegments;
+    }
+
     @Override
     public String toString() {
         return new StringBuilder("RemoteCacheSessionsLoaderContext [ ")
                 .append("segmentsCount: ").append(getSegmentsCount())
                 .append(", sessionsPerSegment: ").append(sessionsPerSegment)
+                .append(", remoteSegmentsCount: ").append(remoteSegmentsCount)
                 .append(" ]")
                 .toString();
     }
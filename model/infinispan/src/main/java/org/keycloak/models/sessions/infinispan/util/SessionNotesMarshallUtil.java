@@ -0,0 +1,262 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.sessions.infinispan.util;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.infinispan.commons.marshall.MarshallUtil;
+import org.keycloak.events.Details;
+import org.keycloak.models.AuthenticatedClientSessionModel;
+import org.keycloak.models.Constants;
+import org.keycloak.models.sessions.infinispan.entities.AuthenticatedClientSessionEntity;
+
+/**
+ * Compact marshalling of user and client session notes.
+ * <p>
+ * Most sessions carry the same small set of note names (and often the same handful of values). Those are replaced on the wire by
+ * a one-byte index into a shared dictionary, and on unmarshalling the canonical {@link String} instance from the dictionary is
+ * used as the map key/value, so millions of sessions in the cache share a single copy of each well-known note name instead of
+ * each holding its own. Numeric values (timestamps) are written as a plain {@code int}.
+ * <p>
+ * The format is self-describing, so the notes written by {@link KeycloakMarshallUtil#writeMap} are still readable by
+ * {@link #readNotes(ObjectInput)}, which allows a rolling migration of entries marshalled in the previous format.
+ * Older nodes and the entries already in remote stores cannot read the compact format though, so the callers pass the format to
+ * write explicitly, and record it in the version of the entity they marshall, so that older nodes fail with an unknown version.
+ */
+public class SessionNotesMarshallUtil {
+
+    // Markers of the notes map. NULL_MAP and LEGACY_MAP are the same as written by KeycloakMarshallUtil.writeMap
+    private static final byte NULL_MAP = 0;
+    private static final byte LEGACY_MAP = 1;
+    private static final byte COMPACT_MAP = 2;
+
+    // Markers of individual keys/values in the compact format. Dictionary entries are written as (index + DICTIONARY_OFFSET)
+    private static final byte NULL_VALUE = 0;
+    private static final byte LITERAL = 1;
+    private static final byte INT_VALUE = 2;
+    private static final int DICTIONARY_OFFSET = 3;
+
+    // Order of the entries must never change, new entries can only be appended to the end
+    private static final String[] DICTIONARY = {
+            // user session notes
+            "AUTH_TIME",
+            "SSO_AUTH",
+            "KC_DEVICE_NOTE",
+            "IMPERSONATOR_ID",
+            "IMPERSONATOR_USERNAME",
+            Details.IDENTITY_PROVIDER,
+            Details.IDENTITY_PROVIDER_USERNAME,
+            Constants.AUTHENTICATORS_COMPLETED,
+            Constants.LEVEL_OF_AUTHENTICATION,
+            Constants.LOA_MAP,
+            Constants.REQUESTED_LEVEL_OF_AUTHENTICATION,
+            Constants.FORCE_LEVEL_OF_AUTHENTICATION,
+            Constants.ACR_LOA_MAP,
+            // client session notes
+            AuthenticatedClientSessionEntity.CLIENT_ID_NOTE,
+            AuthenticatedClientSessionModel.STARTED_AT_NOTE,
+            AuthenticatedClientSessionModel.USER_SESSION_STARTED_AT_NOTE,
+            AuthenticatedClientSessionModel.USER_SESSION_REMEMBER_ME_NOTE,
+            "iss",
+            "scope",
+            "state",
+            "nonce",
+            "response_type",
+            "response_mode",
+            "redirect_uri",
+            "code_challenge",
+            "code_challenge_method",
+            "prompt",
+            "login_hint",
+            "max_age",
+            "acr_values",
+            "claims",
+            "ui_locales",
+            "kc_idp_hint",
+            // frequent values
+            "true",
+            "false",
+            "0",
+            "1",
+            "openid",
+            "code",
+            "query",
+            "fragment",
+            "form_post",
+            "S256",
+            "plain",
+            "{}",
+            "openid-connect",
+            "saml",
+    };
+
+    private static final Map<String, Integer> DICTIONARY_INDEX = new HashMap<>();
+    static {
+        if (DICTIONARY.length + DICTIONARY_OFFSET > 255) {
+            throw new IllegalStateException("Dictionary of session notes does not fit into single byte");
+        }
+        for (int i = 0; i < DICTIONARY.length; i++) {
+            DICTIONARY_INDEX.putIfAbsent(DICTIONARY[i], i);
+        }
+    }
+
+    /**
+     * Returns the shared instance of the given string if it is a well-known note name or value, otherwise returns the string itself.
+     */
+    public static String intern(String str) {
+        if (str == null) return null;
+        Integer index = DICTIONARY_INDEX.get(str);
+        return index == null ? str : DICTIONARY[index];
+    }
+
+    /**
+     * Writes the notes in the compact format if {@code compact} is set, otherwise in the format of {@link KeycloakMarshallUtil#writeMap}.
+     * The compact format must only be written once all nodes of the cluster are able to read it.
+     */
+    public static void writeNotes(Map<String, String> notes, boolean compact, ObjectOutput output) throws IOException {
+        if (!compact) {
+            KeycloakMarshallUtil.writeMap(notes, KeycloakMarshallUtil.STRING_EXT, KeycloakMarshallUtil.STRING_EXT, output);
+            return;
+        }
+
+        if (notes == null) {
+            output.writeByte(NULL_MAP);
+            return;
+        }
+
+        output.writeByte(COMPACT_MAP);
+
+        // Copy the map as it can be updated concurrently
+        Map<String, String> copy = new HashMap<>(notes);
+        MarshallUtil.marshallSize(output, copy.size());
+
+        for (Map.Entry<String, String> entry : copy.entrySet()) {
+            writeString(entry.getKey(), false, output);
+            writeString(entry.getValue(), true, output);
+        }
+    }
+
+    public static ConcurrentHashMap<String, String> readNotes(ObjectInput input) throws IOException, ClassNotFoundException {
+        byte marker = input.readByte();
+        switch (marker) {
+            case NULL_MAP:
+                return null;
+            case LEGACY_MAP:
+                return readLegacyNotes(input);
+            case COMPACT_MAP:
+                return readCompactNotes(input);
+            default:
+                throw new IOException("Unknown notes format: " + marker);
+        }
+    }
+
+    private static ConcurrentHashMap<String, String> readLegacyNotes(ObjectInput input) throws IOException, ClassNotFoundException {
+        int size = input.readInt();
+        ConcurrentHashMap<String, String> notes = new ConcurrentHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            String key = intern(KeycloakMarshallUtil.STRING_EXT.readObject(input));
+            String value = intern(KeycloakMarshallUtil.STRING_EXT.readObject(input));
+            notes.put(key, value);
+        }
+        return notes;
+    }
+
+    private static ConcurrentHashMap<String, String> readCompactNotes(ObjectInput input) throws IOException {
+        int size = MarshallUtil.unmarshallSize(input);
+        ConcurrentHashMap<String, String> notes = new ConcurrentHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            String key = readString(input);
+            String value = readString(input);
+            // ConcurrentHashMap does not support null keys or values
+            if (key != null && value != null) {
+                notes.put(key, value);
+            }
+        }
+        return notes;
+    }
+
+    private static void writeString(String str, boolean allowInt, ObjectOutput output) throws IOException {
+        if (str == null) {
+            output.writeByte(NULL_VALUE);
+            return;
+        }
+
+        Integer index = DICTIONARY_INDEX.get(str);
+        if (index != null) {
+            output.writeByte(index + DICTIONARY_OFFSET);
+            return;
+        }
+
+        if (allowInt && isCanonicalInt(str)) {
+            output.writeByte(INT_VALUE);
+            output.writeInt(Integer.parseInt(str));
+            return;
+        }
+
+        output.writeByte(LITERAL);
+        MarshallUtil.marshallString(str, output);
+    }
+
+    private static String readString(ObjectInput input) throws IOException {
+        int marker = input.readUnsignedByte();
+        switch (marker) {
+            case NULL_VALUE:
+                return null;
+            case LITERAL:
+                return MarshallUtil.unmarshallString(input);
+            case INT_VALUE:
+                return Integer.toString(input.readInt());
+            default:
+                int index = marker - DICTIONARY_OFFSET;
+                if (index >= DICTIONARY.length) {
+                    throw new IOException("Unknown entry in the dictionary of session notes: " + index);
+                }
+                return DICTIONARY[index];
+        }
+    }
+
+    /**
+     * Checks that the string is the same as {@link Integer#toString(int)} would produce for its value, so that it survives the round trip.
+     */
+    private static boolean isCanonicalInt(String str) {
+        int length = str.length();
+        if (length == 0 || length > 11) return false;
+
+        int start = str.charAt(0) == '-' ? 1 : 0;
+        if (start == length) return false;
+        // no leading zeros and no "-0"
+        if (str.charAt(start) == '0' && (length > 1)) return false;
+
+        for (int i = start; i < length; i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+
+        try {
+            Integer.parseInt(str);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.cluster.infinispan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.cluster.ClusterEvent;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.models.cache.infinispan.events.RealmUpdatedEvent;
+
+public class ClusterEventsBatcherTest {
+
+    private final BlockingQueue<List<ClusterEvent>> sent = new LinkedBlockingQueue<>();
+
+    private void send(String taskKey, Collection<? extends ClusterEvent> events, boolean ignoreSender, ClusterProvider.DCNotify dcNotify) {
+        sent.add(new ArrayList<>(events));
+    }
+
+    @Test
+    public void testEventsMergedWithinWindow() throws Exception {
+        ClusterEventsBatcher batcher = new ClusterEventsBatcher(this::send, 50, 100);
+        try {
+            batcher.add("key", Arrays.asList(RealmUpdatedEvent.create("r1", "realm1"), RealmUpdatedEvent.create("r2", "realm2")), true, ClusterProvider.DCNotify.ALL_DCS);
+            batcher.add("key", Arrays.asList(RealmUpdatedEvent.create("r2", "realm2"), RealmUpdatedEvent.create("r3", "realm3")), true, ClusterProvider.DCNotify.ALL_DCS);
+
+            List<ClusterEvent> batch = sent.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(batch);
+            Assert.assertEquals(Arrays.asList(RealmUpdatedEvent.create("r1", "realm1"), RealmUpdatedEvent.create("r2", "realm2"),
+                    RealmUpdatedEvent.create("r3", "realm3")), batch);
+            Assert.assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+
+            Assert.assertEquals(1, batcher.getBatchesSent());
+            Assert.assertEquals(4, batcher.getEventsAdded());
+            Assert.assertEquals(3, batcher.getEventsSent());
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testFullBatchSentBeforeWindow() throws Exception {
+        ClusterEventsBatcher batcher = new ClusterEventsBatcher(this::send, TimeUnit.MINUTES.toMillis(1), 2);
+        try {
+            batcher.add("key", Arrays.asList(RealmUpdatedEvent.create("r1", "realm1")), true, ClusterProvider.DCNotify.ALL_DCS);
+            batcher.add("other", Arrays.asList(RealmUpdatedEvent.create("r2", "realm2")), true, ClusterProvider.DCNotify.ALL_DCS);
+            Assert.assertTrue(sent.isEmpty());
+
+            batcher.add("key", Arrays.asList(RealmUpdatedEvent.create("r3", "realm3")), true, ClusterProvider.DCNotify.ALL_DCS);
+            Assert.assertEquals(2, sent.poll().size());
+        } finally {
+            batcher.close();
+        }
+        // pending batch of the other destination is sent on close
+        Assert.assertEquals(1, sent.poll().size());
+    }
+}
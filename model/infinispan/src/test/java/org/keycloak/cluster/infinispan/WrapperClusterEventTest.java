@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.cluster.infinispan;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.cluster.ClusterEvent;
+import org.keycloak.models.cache.infinispan.events.RealmUpdatedEvent;
+
+public class WrapperClusterEventTest {
+
+    private final WrapperClusterEvent.ExternalizerImpl externalizer = new WrapperClusterEvent.ExternalizerImpl();
+
+    @Test
+    public void testSingleEventWrittenInVersion1() throws Exception {
+        WrapperClusterEvent event = wrap(Collections.singletonList(RealmUpdatedEvent.create("r1", "realm1")));
+
+        byte[] bytes = write(event);
+
+        // readable by the nodes which only know VERSION_1
+        Assert.assertEquals(1, version(bytes));
+        Assert.assertEquals(event, read(bytes));
+    }
+
+    @Test
+    public void testMultipleEventsWrittenInVersion2() throws Exception {
+        WrapperClusterEvent event = wrap(Arrays.asList(RealmUpdatedEvent.create("r1", "realm1"), RealmUpdatedEvent.create("r2", "realm2")));
+
+        byte[] bytes = write(event);
+
+        Assert.assertEquals(2, version(bytes));
+        Assert.assertEquals(event, read(bytes));
+    }
+
+    private static WrapperClusterEvent wrap(Collection<? extends ClusterEvent> events) {
+        WrapperClusterEvent event = new WrapperClusterEvent();
+        event.setEventKey("key");
+        event.setSender("node1");
+        event.setSenderSite("site1");
+        event.setIgnoreSender(true);
+        event.setDelegateEvents(events);
+        return event;
+    }
+
+    private byte[] write(WrapperClusterEvent event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            externalizer.writeObject(output, event);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int version(byte[] bytes) throws IOException {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return input.readByte();
+        }
+    }
+
+    private WrapperClusterEvent read(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return externalizer.readObject(input);
+        }
+    }
+}
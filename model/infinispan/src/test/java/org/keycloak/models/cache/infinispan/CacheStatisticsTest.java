@@ -0,0 +1,108 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.cache.infinispan;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.transaction.LockingMode;
+import org.infinispan.transaction.TransactionMode;
+import org.infinispan.transaction.lookup.EmbeddedTransactionManagerLookup;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.models.cache.infinispan.entities.RealmListQuery;
+
+public class CacheStatisticsTest {
+
+    private DefaultCacheManager cacheManager;
+    private RealmCacheManager realmCache;
+
+    @Before
+    public void before() {
+        cacheManager = new DefaultCacheManager(new GlobalConfigurationBuilder().nonClusteredDefault().build());
+        cacheManager.defineConfiguration("realms", new ConfigurationBuilder().build());
+        ConfigurationBuilder revisions = new ConfigurationBuilder();
+        revisions.invocationBatching().enable().transaction().transactionMode(TransactionMode.TRANSACTIONAL)
+                .transactionManagerLookup(new EmbeddedTransactionManagerLookup()).lockingMode(LockingMode.PESSIMISTIC);
+        cacheManager.defineConfiguration("revisions", revisions.build());
+        realmCache = new RealmCacheManager(cacheManager.getCache("realms"), cacheManager.getCache("revisions"));
+    }
+
+    @After
+    public void after() {
+        cacheManager.stop();
+    }
+
+    @Test
+    public void testStatistics() {
+        CacheStatistics statistics = realmCache.getStatistics();
+        Set<String> types = new HashSet<>();
+        statistics.addListener((type, entityStatistics) -> types.add(type));
+
+        // nothing is counted until enabled
+        Assert.assertNull(realmCache.get("query", RealmListQuery.class));
+        Assert.assertTrue(statistics.getStatistics().isEmpty());
+
+        statistics.setEnabled(true);
+        Assert.assertNull(realmCache.get("query", RealmListQuery.class));
+        Long revision = realmCache.getCurrentRevision("query");
+        realmCache.addRevisioned(new RealmListQuery(revision, "query", "realm"), realmCache.getCurrentCounter());
+        Assert.assertNotNull(realmCache.get("query", RealmListQuery.class));
+        realmCache.invalidateObject("query");
+
+        CacheStatistics.EntityTypeStatistics queries = statistics.getStatistics().get("RealmListQuery");
+        Assert.assertEquals(1, queries.getHits());
+        Assert.assertEquals(1, queries.getMisses());
+        Assert.assertEquals(1, queries.getLoads());
+        Assert.assertEquals(1, queries.getInvalidations());
+        Assert.assertTrue(queries.getLoadTime() > 0);
+        Assert.assertEquals(Set.of("RealmListQuery"), types);
+    }
+
+    @Test
+    public void testStatisticsOfSubclass() {
+        CacheStatistics statistics = realmCache.getStatistics();
+        statistics.setEnabled(true);
+
+        // as a CachedRealmRole looked up as a CachedRole
+        Assert.assertNull(realmCache.get("query", RealmListQuery.class));
+        Long revision = realmCache.getCurrentRevision("query");
+        realmCache.addRevisioned(new SubclassQuery(revision, "query", "realm"), realmCache.getCurrentCounter());
+        Assert.assertNotNull(realmCache.get("query", RealmListQuery.class));
+        realmCache.invalidateObject("query");
+
+        CacheStatistics.EntityTypeStatistics queries = statistics.getStatistics().get("RealmListQuery");
+        Assert.assertEquals(1, queries.getHits());
+        Assert.assertEquals(1, queries.getMisses());
+        Assert.assertEquals(1, queries.getLoads());
+        Assert.assertEquals(1, queries.getInvalidations());
+        Assert.assertEquals(Set.of("RealmListQuery"), statistics.getStatistics().keySet());
+    }
+
+    private static class SubclassQuery extends RealmListQuery {
+
+        SubclassQuery(Long revision, String id, String realm) {
+            super(revision, id, realm);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.cache.infinispan;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.models.RoleModel;
+
+public class CompositeRolesClosureTest {
+
+    @Test
+    public void testClosure() {
+        List<RoleModel> leaf = new ArrayList<>();
+        List<RoleModel> middle = new ArrayList<>();
+        List<RoleModel> top = new ArrayList<>();
+        RoleModel a = role("a", leaf);
+        RoleModel b = role("b", middle);
+        RoleModel c = role("c", top);
+        RoleModel d = role("d", new ArrayList<>());
+        middle.add(a);
+        top.add(b);
+        top.add(d);
+
+        CompositeRolesClosure closure = new CompositeRolesClosure(0);
+        // the closure of b is reused when computing the closure of c
+        Assert.assertEquals(ids("a", "b"), ids(closure, closure.getClosure(b)));
+        Assert.assertEquals(ids("a", "b", "c", "d"), ids(closure, closure.getClosure(c)));
+        Assert.assertEquals(ids("a"), ids(closure, closure.getClosure(a)));
+
+        Assert.assertTrue(closure.contains(c, a));
+        Assert.assertTrue(closure.contains(a, a));
+        Assert.assertFalse(closure.contains(b, c));
+    }
+
+    @Test
+    public void testContainsRoleNotIndexed() {
+        List<RoleModel> composites = new ArrayList<>();
+        RoleModel a = role("a", composites);
+        composites.add(role("b", new ArrayList<>()));
+
+        CompositeRolesClosure closure = new CompositeRolesClosure(0);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertFalse(closure.contains(a, role("other-" + i, new ArrayList<>())));
+        }
+
+        // checking roles outside of the closure does not index them
+        Assert.assertEquals(ids("a", "b"), new HashSet<>(Arrays.asList(closure.getRoleIds())));
+    }
+
+    @Test
+    public void testCycle() {
+        List<RoleModel> first = new ArrayList<>();
+        List<RoleModel> second = new ArrayList<>();
+        RoleModel a = role("a", first);
+        RoleModel b = role("b", second);
+        first.add(b);
+        second.add(a);
+
+        CompositeRolesClosure closure = new CompositeRolesClosure(0);
+        Assert.assertEquals(ids("a", "b"), ids(closure, closure.getClosure(a)));
+        Assert.assertEquals(ids("a", "b"), ids(closure, closure.getClosure(b)));
+    }
+
+    private static Set<String> ids(String... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    private static Set<String> ids(CompositeRolesClosure closure, BitSet bits) {
+        String[] roleIds = closure.getRoleIds();
+        Set<String> ids = new HashSet<>();
+        bits.stream().forEach(index -> ids.add(roleIds[index]));
+        return ids;
+    }
+
+    private static RoleModel role(String id, List<RoleModel> composites) {
+        return (RoleModel) Proxy.newProxyInstance(RoleModel.class.getClassLoader(), new Class<?>[] { RoleModel.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getId":
+                    return id;
+                case "isComposite":
+                    return !composites.isEmpty();
+                case "getCompositesStream":
+                    return composites.stream();
+                case "hashCode":
+                    return id.hashCode();
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.cache.infinispan;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.cache.infinispan.entities.ClientListQuery;
+import org.keycloak.models.cache.infinispan.entities.RealmListQuery;
+import org.keycloak.models.cache.infinispan.entities.Revisioned;
+
+public class RealmCacheManagerSnapshotTest {
+
+    private DefaultCacheManager cacheManager;
+    private Cache<String, Revisioned> cache;
+    private Cache<String, Long> revisions;
+    private RealmCacheManager realmCache;
+
+    @Before
+    public void before() {
+        cacheManager = new DefaultCacheManager(new GlobalConfigurationBuilder().nonClusteredDefault().build());
+        cacheManager.defineConfiguration("realms", new ConfigurationBuilder().build());
+        cacheManager.defineConfiguration("revisions", new ConfigurationBuilder().build());
+        cache = cacheManager.getCache("realms");
+        revisions = cacheManager.getCache("revisions");
+        realmCache = new RealmCacheManager(cache, revisions);
+        realmCache.setSnapshotMaxEntries(10);
+    }
+
+    @After
+    public void after() {
+        cacheManager.stop();
+    }
+
+    @Test
+    public void testSnapshotDroppedOnInvalidation() {
+        cache.put("query", new RealmListQuery(0L, "query", "realm"));
+        revisions.put("query", 0L);
+        Assert.assertNotNull(realmCache.getFromSnapshot("query", RealmListQuery.class));
+
+        // entries validated for the current revision are served without the cache
+        cache.remove("query");
+        Assert.assertNotNull(realmCache.getFromSnapshot("query", RealmListQuery.class));
+        Assert.assertNull(realmCache.get("query", RealmListQuery.class));
+
+        realmCache.invalidateObject("query");
+        Assert.assertNull(realmCache.getFromSnapshot("query", RealmListQuery.class));
+    }
+
+    @Test
+    public void testSnapshotDroppedOnClear() {
+        cache.put("query", new RealmListQuery(0L, "query", "realm"));
+        revisions.put("query", 0L);
+        Assert.assertNotNull(realmCache.getFromSnapshot("query", RealmListQuery.class));
+
+        realmCache.clear();
+        Assert.assertNull(realmCache.getFromSnapshot("query", RealmListQuery.class));
+    }
+
+    @Test
+    public void testFullSnapshotRefilledAfterInvalidation() {
+        realmCache.setSnapshotMaxEntries(2);
+        RealmModel realm1 = createRealm("realm1");
+        RealmModel realm2 = createRealm("realm2");
+        for (String id : new String[] { "a", "b", "c" }) {
+            cache.put(id, new ClientListQuery(0L, id, id.equals("a") ? realm1 : realm2, "client"));
+            revisions.put(id, 0L);
+        }
+        Assert.assertNotNull(realmCache.getFromSnapshot("a", ClientListQuery.class));
+        Assert.assertNotNull(realmCache.getFromSnapshot("b", ClientListQuery.class));
+
+        // not added to the full snapshot
+        Assert.assertNotNull(realmCache.getFromSnapshot("c", ClientListQuery.class));
+        Revisioned c = cache.remove("c");
+        Assert.assertNull(realmCache.getFromSnapshot("c", ClientListQuery.class));
+        cache.put("c", c);
+
+        // the invalidated entry is dropped even though it is not read anymore
+        realmCache.invalidateObject("a");
+        Assert.assertNotNull(realmCache.getFromSnapshot("c", ClientListQuery.class));
+        cache.remove("c");
+        Assert.assertNotNull(realmCache.getFromSnapshot("c", ClientListQuery.class));
+        // the entries of other realms are kept
+        cache.remove("b");
+        Assert.assertNotNull(realmCache.getFromSnapshot("b", ClientListQuery.class));
+    }
+
+    @Test
+    public void testNegativeLookupNotRetained() {
+        RealmModel realm = createRealm("realm");
+        cache.put("query", new ClientListQuery(0L, "query", realm, Collections.emptySet()));
+        revisions.put("query", 0L);
+        Assert.assertNotNull(realmCache.getFromSnapshot("query", ClientListQuery.class));
+
+        // as if the entry expired
+        cache.remove("query");
+        Assert.assertNull(realmCache.getFromSnapshot("query", ClientListQuery.class));
+    }
+
+    @Test
+    public void testEntryWithLifespanNotRetained() {
+        cache.put("query", new RealmListQuery(0L, "query", "realm"), 1, TimeUnit.HOURS);
+        revisions.put("query", 0L);
+        Assert.assertNotNull(realmCache.getFromSnapshot("query", RealmListQuery.class));
+
+        // as if the entry expired
+        cache.remove("query");
+        Assert.assertNull(realmCache.getFromSnapshot("query", RealmListQuery.class));
+    }
+
+    private static RealmModel createRealm(String id) {
+        return (RealmModel) Proxy.newProxyInstance(RealmModel.class.getClassLoader(), new Class<?>[] { RealmModel.class },
+                (proxy, method, args) -> id);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.cache.infinispan;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.Config;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.utils.PostMigrationEvent;
+import org.keycloak.provider.ProviderEventListener;
+
+public class RealmCacheWarmUpTest {
+
+    @Test
+    public void testReadyWhenWarmUpFailsToStart() {
+        Config.Scope config = (Config.Scope) Proxy.newProxyInstance(Config.Scope.class.getClassLoader(), new Class<?>[] { Config.Scope.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getArray":
+                            return new String[] { RealmCacheWarmUp.ALL_REALMS };
+                        case "getInt":
+                            return args.length > 1 ? args[1] : null;
+                        default:
+                            return null;
+                    }
+                });
+
+        List<ProviderEventListener> listeners = new ArrayList<>();
+        // listing the realms fails right away, as no session can be created
+        KeycloakSessionFactory sessionFactory = (KeycloakSessionFactory) Proxy.newProxyInstance(KeycloakSessionFactory.class.getClassLoader(),
+                new Class<?>[] { KeycloakSessionFactory.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("register")) {
+                        listeners.add((ProviderEventListener) args[0]);
+                        return null;
+                    }
+                    throw new IllegalStateException("database not available");
+                });
+
+        InfinispanCacheRealmProviderFactory factory = new InfinispanCacheRealmProviderFactory();
+        factory.init(config);
+        factory.postInit(sessionFactory);
+        Assert.assertFalse(factory.isWarmUpComplete());
+
+        listeners.forEach(listener -> listener.onEvent(new PostMigrationEvent(sessionFactory)));
+        Assert.assertTrue(factory.isWarmUpComplete());
+    }
+}
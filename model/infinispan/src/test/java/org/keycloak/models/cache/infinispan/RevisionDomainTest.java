@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.cache.infinispan;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.transaction.LockingMode;
+import org.infinispan.transaction.TransactionMode;
+import org.infinispan.transaction.lookup.EmbeddedTransactionManagerLookup;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.cache.infinispan.entities.RoleListQuery;
+
+public class RevisionDomainTest {
+
+    private DefaultCacheManager cacheManager;
+    private RealmCacheManager realmCache;
+
+    @Before
+    public void before() {
+        cacheManager = new DefaultCacheManager(new GlobalConfigurationBuilder().nonClusteredDefault().build());
+        cacheManager.defineConfiguration("realms", new ConfigurationBuilder().build());
+        ConfigurationBuilder revisions = new ConfigurationBuilder();
+        revisions.invocationBatching().enable().transaction().transactionMode(TransactionMode.TRANSACTIONAL)
+                .transactionManagerLookup(new EmbeddedTransactionManagerLookup()).lockingMode(LockingMode.PESSIMISTIC);
+        cacheManager.defineConfiguration("revisions", revisions.build());
+        realmCache = new RealmCacheManager(cacheManager.getCache("realms"), cacheManager.getCache("revisions"));
+    }
+
+    @After
+    public void after() {
+        cacheManager.stop();
+    }
+
+    @Test
+    public void testInvalidationsConfinedToRealm() {
+        add("a-roles", "a", realmCache.getCurrentCounter());
+        long startupRevision = realmCache.getCurrentCounter();
+        realmCache.invalidateObject("a-roles");
+
+        // loaded by a transaction started before the invalidation
+        add("b-roles", "b", startupRevision);
+        Assert.assertNotNull(realmCache.get("b-roles", RoleListQuery.class));
+        add("a-other", "a", startupRevision);
+        Assert.assertNull(realmCache.get("a-other", RoleListQuery.class));
+
+        // the realm of entries not cached is not known
+        realmCache.invalidateObject("not-cached");
+        add("b-other", "b", startupRevision);
+        Assert.assertNull(realmCache.get("b-other", RoleListQuery.class));
+    }
+
+    private void add(String id, String realmId, long startupRevision) {
+        RealmModel realm = (RealmModel) Proxy.newProxyInstance(RealmModel.class.getClassLoader(), new Class<?>[] { RealmModel.class },
+                (proxy, method, args) -> "getId".equals(method.getName()) ? realmId : null);
+        Long revision = realmCache.getCurrentRevision(id);
+        realmCache.addRevisioned(new RoleListQuery(revision, id, realm, Collections.emptySet()), startupRevision);
+    }
+}
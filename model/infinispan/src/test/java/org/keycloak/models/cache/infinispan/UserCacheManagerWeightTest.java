@@ -0,0 +1,162 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.cache.infinispan;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.transaction.LockingMode;
+import org.infinispan.transaction.TransactionMode;
+import org.infinispan.transaction.lookup.EmbeddedTransactionManagerLookup;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.cache.infinispan.entities.CachedUser;
+
+public class UserCacheManagerWeightTest {
+
+    private DefaultCacheManager cacheManager;
+    private UserCacheManager userCache;
+
+    @Before
+    public void before() {
+        cacheManager = new DefaultCacheManager(new GlobalConfigurationBuilder().nonClusteredDefault().build());
+        cacheManager.defineConfiguration("users", new ConfigurationBuilder().build());
+        ConfigurationBuilder revisions = new ConfigurationBuilder();
+        revisions.invocationBatching().enable().transaction().transactionMode(TransactionMode.TRANSACTIONAL)
+                .transactionManagerLookup(new EmbeddedTransactionManagerLookup()).lockingMode(LockingMode.PESSIMISTIC);
+        cacheManager.defineConfiguration("revisions", revisions.build());
+        userCache = new UserCacheManager(cacheManager.getCache("users"), cacheManager.getCache("revisions"));
+    }
+
+    @After
+    public void after() {
+        cacheManager.stop();
+    }
+
+    @Test
+    public void testMaxRealmWeight() {
+        UserModel first = user("user-1");
+        UserModel second = user("user-2");
+        UserModel other = user("user-3");
+        CachedUser cachedFirst = new CachedUser(0L, realm("realm"), first, 0);
+        userCache.setMaxRealmWeight(cachedFirst.estimateWeight() + 1);
+
+        userCache.addUser(cachedFirst, 0, -1);
+        userCache.addUser(new CachedUser(0L, realm("realm"), second, 0), 0, -1);
+        userCache.addUser(new CachedUser(0L, realm("other"), other, 0), 0, -1);
+        Assert.assertNotNull(userCache.get("user-1", CachedUser.class));
+        Assert.assertNull(userCache.get("user-2", CachedUser.class));
+        // the weight is limited per realm
+        Assert.assertNotNull(userCache.get("user-3", CachedUser.class));
+
+        userCache.invalidateObject("user-1");
+        long revision = userCache.getCurrentRevision("user-2");
+        userCache.addUser(new CachedUser(revision, realm("realm"), second, 0), userCache.getCurrentCounter(), -1);
+        Assert.assertNotNull(userCache.get("user-2", CachedUser.class));
+    }
+
+    @Test
+    public void testEstimateWithoutLoading() {
+        AtomicInteger loads = new AtomicInteger();
+        UserModel user = user("user-1", loads);
+        CachedUser cached = new CachedUser(0L, realm("realm"), user, 0);
+
+        int weight = cached.estimateWeight();
+        Assert.assertEquals(0, loads.get());
+
+        // the attributes are weighed once loaded
+        cached.getAttributes(() -> user);
+        Assert.assertEquals(1, loads.get());
+        Assert.assertTrue(cached.estimateWeight() > weight);
+    }
+
+    @Test
+    public void testConcurrentReservations() throws Exception {
+        int weight = new CachedUser(0L, realm("realm"), user("user-0000"), 0).estimateWeight();
+        userCache.setMaxRealmWeight(10L * weight);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int offset = thread * 100;
+                futures.add(executor.submit(() -> {
+                    for (int i = offset; i < offset + 100; i++) {
+                        // same length of the ids, so all the users weigh the same
+                        String id = String.format("user-%04d", i);
+                        userCache.addUser(new CachedUser(0L, realm("realm"), user(id), 0), 0, -1);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(10, cacheManager.getCache("users").size());
+    }
+
+    private static RealmModel realm(String id) {
+        return (RealmModel) Proxy.newProxyInstance(RealmModel.class.getClassLoader(), new Class<?>[] { RealmModel.class },
+                (proxy, method, args) -> "getId".equals(method.getName()) ? id : null);
+    }
+
+    private static UserModel user(String id) {
+        return user(id, new AtomicInteger());
+    }
+
+    private static UserModel user(String id, AtomicInteger loads) {
+        return (UserModel) Proxy.newProxyInstance(UserModel.class.getClassLoader(), new Class<?>[] { UserModel.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getId":
+                case "getUsername":
+                    return id;
+                case "isEnabled":
+                case "isEmailVerified":
+                    return true;
+                case "getAttributes":
+                    loads.incrementAndGet();
+                    return Collections.singletonMap("department", Collections.singletonList("engineering"));
+                case "getRequiredActionsStream":
+                case "getRoleMappingsStream":
+                case "getGroupsStream":
+                    loads.incrementAndGet();
+                    return Stream.empty();
+                default:
+                    return null;
+            }
+        });
+    }
+}
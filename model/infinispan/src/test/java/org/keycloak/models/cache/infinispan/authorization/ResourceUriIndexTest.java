@@ -0,0 +1,106 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.cache.infinispan.authorization;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.authorization.model.Resource;
+import org.keycloak.common.util.PathMatcher;
+import org.keycloak.models.cache.infinispan.authorization.entities.ResourceUriIndex;
+
+public class ResourceUriIndexTest {
+
+    private static final String[] URIS = {
+            "/",
+            "/api",
+            "/api/*",
+            "/api/users/{id}",
+            "/api/users/{id}/groups/*",
+            "/api/orders/{orderId}/items/{itemId}",
+            "/static/*.css",
+            "/reports*",
+            "/admin/{realm}/console",
+            "*"
+    };
+
+    private static final String[] TARGETS = {
+            "/",
+            "/api",
+            "/api/other",
+            "/api/users/1",
+            "/api/users/1/groups/2/members",
+            "/api/orders/1/items/2",
+            "/api/orders/1/items",
+            "/static/theme/main.css",
+            "/reports",
+            "/reportsmonthly",
+            "/admin/master/console",
+            "/admin/master/other",
+            "/unknown/path",
+            "relative"
+    };
+
+    @Test
+    public void testSameMatchesAsPathMatcher() {
+        List<Resource> resources = new ArrayList<>();
+        Map<String, String> uris = new HashMap<>();
+        for (int i = 0; i < URIS.length; i++) {
+            resources.add(resource("resource-" + i, URIS[i]));
+            uris.put(URIS[i], "resource-" + i);
+        }
+        ResourceUriIndex index = new ResourceUriIndex(0L, "index", "server", resources);
+
+        PathMatcher<Map.Entry<String, String>> matcher = new PathMatcher<Map.Entry<String, String>>() {
+            @Override
+            protected String getPath(Map.Entry<String, String> entry) {
+                return entry.getKey();
+            }
+
+            @Override
+            protected Collection<Map.Entry<String, String>> getPaths() {
+                return uris.entrySet();
+            }
+        };
+
+        for (String target : TARGETS) {
+            Map.Entry<String, String> expected = matcher.matches(target);
+            Assert.assertEquals(target, expected == null ? null : expected.getValue(), index.findByMatchingUri(target));
+        }
+    }
+
+    private static Resource resource(String id, String uri) {
+        return (Resource) Proxy.newProxyInstance(Resource.class.getClassLoader(), new Class<?>[] { Resource.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getId":
+                    return id;
+                case "getUris":
+                    return Collections.singleton(uri);
+                default:
+                    return null;
+            }
+        });
+    }
+}
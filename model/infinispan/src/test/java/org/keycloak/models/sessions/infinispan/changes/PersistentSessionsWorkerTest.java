@@ -0,0 +1,96 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.sessions.infinispan.changes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.models.KeycloakSession;
+
+public class PersistentSessionsWorkerTest {
+
+    @Test
+    public void testCoalesceUpdatesOfSameEntity() {
+        List<String> performed = new ArrayList<>();
+        TestUpdate a1 = new TestUpdate("a", "a1", true, performed);
+        TestUpdate b1 = new TestUpdate("b", "b1", true, performed);
+        TestUpdate a2 = new TestUpdate("a", "a2", true, performed);
+        TestUpdate a3 = new TestUpdate("a", "a3", true, performed);
+
+        List<PersistentUpdate> batch = PersistentSessionsWorker.coalesce(Arrays.asList(a1, b1, a2, a3));
+        Assert.assertEquals(Arrays.asList(a1, b1), batch);
+
+        batch.forEach(update -> update.perform(null));
+        Assert.assertEquals(Arrays.asList("a1", "a2", "a3", "b1"), performed);
+
+        batch.forEach(PersistentUpdate::complete);
+        Assert.assertTrue(a2.future().isDone());
+        Assert.assertTrue(a3.future().isDone());
+    }
+
+    @Test
+    public void testNonMergeableUpdateIsBarrier() {
+        List<String> performed = new ArrayList<>();
+        TestUpdate a1 = new TestUpdate("a", "a1", true, performed);
+        TestUpdate removeA = new TestUpdate("a", "removeA", false, performed);
+        TestUpdate a2 = new TestUpdate("a", "a2", true, performed);
+        TestUpdate unknown = new TestUpdate(null, "unknown", false, performed);
+        TestUpdate a3 = new TestUpdate("a", "a3", true, performed);
+        TestUpdate a4 = new TestUpdate("a", "a4", true, performed);
+
+        List<PersistentUpdate> batch = PersistentSessionsWorker.coalesce(Arrays.asList(a1, removeA, a2, unknown, a3, a4));
+        Assert.assertEquals(Arrays.asList(a1, removeA, a2, unknown, a3), batch);
+
+        RuntimeException ex = new RuntimeException();
+        batch.forEach(update -> update.fail(ex));
+        Assert.assertTrue(a4.future().isCompletedExceptionally());
+    }
+
+    private static class TestUpdate extends PersistentUpdate {
+        private final boolean mergeable;
+        private final List<TestUpdate> merged = new ArrayList<>();
+
+        private TestUpdate(String entityKey, String name, boolean mergeable, List<String> performed) {
+            super(session -> performed.add(name), entityKey);
+            this.mergeable = mergeable;
+            merged.add(this);
+        }
+
+        @Override
+        public void perform(KeycloakSession session) {
+            merged.forEach(update -> update.performSingle(session));
+        }
+
+        private void performSingle(KeycloakSession session) {
+            super.perform(session);
+        }
+
+        @Override
+        public boolean coalesce(PersistentUpdate later) {
+            if (!mergeable || !(later instanceof TestUpdate) || !((TestUpdate) later).mergeable) {
+                return false;
+            }
+            merged.add((TestUpdate) later);
+            addCoalesced(later);
+            return true;
+        }
+    }
+}
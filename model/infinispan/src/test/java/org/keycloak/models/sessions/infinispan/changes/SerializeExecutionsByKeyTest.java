@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.sessions.infinispan.changes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SerializeExecutionsByKeyTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 10000;
+
+    @Test
+    public void testPerKeyLocks() throws Exception {
+        assertSerialized(new SerializeExecutionsByKey<>());
+    }
+
+    @Test
+    public void testStripedLocks() throws Exception {
+        assertSerialized(SerializeExecutionsByKey.striped(3));
+    }
+
+    private void assertSerialized(SerializeExecutionsByKey<String> serializer) throws Exception {
+        int[] counters = new int[2];
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        int index = i % 2;
+                        // not atomic, so lost updates would show if the executions for the same key overlapped
+                        serializer.runSerialized("key-" + index, () -> counters[index]++);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(THREADS * ITERATIONS / 2, counters[0]);
+        Assert.assertEquals(THREADS * ITERATIONS / 2, counters[1]);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.sessions.infinispan.index;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.jboss.marshalling.core.JBossUserMarshaller;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.models.sessions.infinispan.changes.SessionEntityWrapper;
+import org.keycloak.models.sessions.infinispan.entities.UserSessionEntity;
+import org.keycloak.models.sessions.infinispan.stream.UserSessionPredicate;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+public class UserSessionsIndexTest {
+
+    private DefaultCacheManager cacheManager;
+    private Cache<String, SessionEntityWrapper<UserSessionEntity>> cache;
+
+    @Before
+    public void before() {
+        cacheManager = new DefaultCacheManager();
+        cacheManager.defineConfiguration("sessions", new ConfigurationBuilder().build());
+        cache = cacheManager.getCache("sessions");
+    }
+
+    @After
+    public void after() {
+        cacheManager.stop();
+    }
+
+    @Test
+    public void testIndex() {
+        cache.put("s1", new SessionEntityWrapper<>(createSession("s1", "user1", "idp.b1")));
+
+        UserSessionsIndex index = new UserSessionsIndex();
+        Assert.assertNull(index.getCandidateSessionIds(UserSessionPredicate.create("realm").user("user1")));
+
+        // existing sessions are added on registration
+        index.register(cache);
+        assertIds(index.getCandidateSessionIds(UserSessionPredicate.create("realm").user("user1")), "s1");
+
+        cache.put("s2", new SessionEntityWrapper<>(createSession("s2", "user1", "idp.b2")));
+        cache.put("s3", new SessionEntityWrapper<>(createSession("s3", "user2", null)));
+
+        assertIds(index.getCandidateSessionIds(UserSessionPredicate.create("realm").user("user1")), "s1", "s2");
+        assertIds(index.getCandidateSessionIds(UserSessionPredicate.create("realm").user("user2")), "s3");
+        assertIds(index.getCandidateSessionIds(UserSessionPredicate.create("realm").brokerSessionId("idp.b2")), "s2");
+        Assert.assertNull(index.getCandidateSessionIds(UserSessionPredicate.create("realm").client("client")));
+
+        cache.remove("s1");
+        assertIds(index.getCandidateSessionIds(UserSessionPredicate.create("realm").user("user1")), "s2");
+        assertIds(index.getCandidateSessionIds(UserSessionPredicate.create("realm").brokerSessionId("idp.b1")));
+
+        cache.clear();
+        Assert.assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testClusteredIndex() {
+        DefaultCacheManager node1 = createClusteredManager(2);
+        DefaultCacheManager node2 = createClusteredManager(2);
+        try {
+            Cache<String, SessionEntityWrapper<UserSessionEntity>> cache1 = node1.getCache("sessions");
+            Cache<String, SessionEntityWrapper<UserSessionEntity>> cache2 = node2.getCache("sessions");
+            UserSessionsIndex index1 = new UserSessionsIndex();
+            index1.register(cache1);
+            UserSessionsIndex index2 = new UserSessionsIndex();
+            index2.register(cache2);
+
+            for (int i = 0; i < 20; i++) {
+                cache1.put("s" + i, new SessionEntityWrapper<>(createSession("s" + i, "user1", null)));
+            }
+
+            // each node holds all the sessions, so each index finds them locally
+            Assert.assertEquals(20, index1.getCandidateSessionIds(UserSessionPredicate.create("realm").user("user1")).size());
+            Assert.assertEquals(20, index2.getCandidateSessionIds(UserSessionPredicate.create("realm").user("user1")).size());
+        } finally {
+            node2.stop();
+            node1.stop();
+        }
+    }
+
+    @Test
+    public void testDistributedIndexNotUsed() {
+        DefaultCacheManager node1 = createClusteredManager(1);
+        DefaultCacheManager node2 = createClusteredManager(1);
+        try {
+            Cache<String, SessionEntityWrapper<UserSessionEntity>> cache1 = node1.getCache("sessions");
+            Cache<String, SessionEntityWrapper<UserSessionEntity>> cache2 = node2.getCache("sessions");
+            UserSessionsIndex index1 = new UserSessionsIndex();
+            index1.register(cache1);
+            UserSessionsIndex index2 = new UserSessionsIndex();
+            index2.register(cache2);
+
+            for (int i = 0; i < 20; i++) {
+                cache1.put("s" + i, new SessionEntityWrapper<>(createSession("s" + i, "user1", null)));
+            }
+
+            // each node only indexes the sessions it owns
+            Assert.assertEquals(20, index1.size() + index2.size());
+            Assert.assertTrue(index1.size() > 0 && index2.size() > 0);
+
+            // other nodes hold some of the sessions, so the cache needs to be iterated
+            Assert.assertNull(index1.getCandidateSessionIds(UserSessionPredicate.create("realm").user("user1")));
+            Assert.assertNull(index2.getCandidateSessionIds(UserSessionPredicate.create("realm").user("user1")));
+        } finally {
+            node2.stop();
+            node1.stop();
+        }
+    }
+
+    private static DefaultCacheManager createClusteredManager(int numOwners) {
+        System.setProperty("java.net.preferIPv4Stack", "true");
+        GlobalConfigurationBuilder gcb = new GlobalConfigurationBuilder().clusteredDefault();
+        gcb.transport().clusterName("test-user-sessions-index")
+                .addProperty("configurationFile", "default-configs/default-jgroups-tcp.xml");
+        gcb.serialization().marshaller(new JBossUserMarshaller());
+        DefaultCacheManager manager = new DefaultCacheManager(gcb.build());
+        manager.defineConfiguration("sessions", new ConfigurationBuilder().clustering().cacheMode(CacheMode.DIST_SYNC).hash().numOwners(numOwners).build());
+        return manager;
+    }
+
+    private static UserSessionEntity createSession(String id, String userId, String brokerSessionId) {
+        UserSessionEntity entity = new UserSessionEntity(id);
+        entity.setRealmId("realm");
+        entity.setUser(userId);
+        entity.setBrokerSessionId(brokerSessionId);
+        return entity;
+    }
+
+    private static void assertIds(Collection<String> actual, String... expected) {
+        Set<String> expectedIds = new HashSet<>();
+        for (String id : expected) {
+            expectedIds.add(id);
+        }
+        Assert.assertEquals(expectedIds, new HashSet<>(actual));
+    }
+}
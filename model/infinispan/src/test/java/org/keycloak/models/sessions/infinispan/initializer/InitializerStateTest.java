@@ -25,7 +25,9 @@ import org.keycloak.storage.CacheableStorageProviderModel;
 import java.text.DateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
@@ -53,6 +55,31 @@ public class InitializerStateTest {
         assertSegmentsForRemoteLoader(64, 1);
     }
 
+    @Test
+    public void testParallelRemoteLoaderContext() {
+        // remote segments split among the workers
+        RemoteCacheSessionsLoaderContext ctx = new RemoteCacheSessionsLoaderContext(64, 4, 10);
+        Assert.assertEquals(4, ctx.getSegmentsCount());
+        Set<Integer> remoteSegments = new HashSet<>();
+        for (int segment = 0; segment < ctx.getSegmentsCount(); segment++) {
+            Set<Integer> segmentRemoteSegments = ctx.getRemoteSegments(segment);
+            Assert.assertFalse(segmentRemoteSegments.isEmpty());
+            for (Integer remoteSegment : segmentRemoteSegments) {
+                Assert.assertTrue(remoteSegments.add(remoteSegment));
+            }
+        }
+        Assert.assertEquals(10, remoteSegments.size());
+
+        // never more workers than remote segments
+        ctx = new RemoteCacheSessionsLoaderContext(64, 16, 3);
+        Assert.assertEquals(3, ctx.getSegmentsCount());
+
+        // remote topology unknown, so the whole cache is loaded at once
+        ctx = new RemoteCacheSessionsLoaderContext(64, 4, 0);
+        Assert.assertEquals(1, ctx.getSegmentsCount());
+        Assert.assertNull(ctx.getRemoteSegments(0));
+    }
+
     private void assertSegmentsForRemoteLoader(int sessionsPerSegment, int expectedSegments) {
         RemoteCacheSessionsLoaderContext ctx = new RemoteCacheSessionsLoaderContext(sessionsPerSegment);
         Assert.assertEquals(expectedSegments, ctx.getSegmentsCount());
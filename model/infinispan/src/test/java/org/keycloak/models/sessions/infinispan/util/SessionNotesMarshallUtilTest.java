@@ -0,0 +1,158 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.sessions.infinispan.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.models.sessions.infinispan.entities.AuthenticatedClientSessionEntity;
+
+public class SessionNotesMarshallUtilTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Map<String, String> notes = new HashMap<>();
+        notes.put("AUTH_TIME", "1712345678");
+        notes.put("userSessionRememberMe", "true");
+        notes.put("custom-note", "custom-value");
+        notes.put("negative", "-42");
+        notes.put("leadingZero", "0042");
+        notes.put("overflow", "99999999999");
+        notes.put("empty", "");
+
+        Map<String, String> read = readNotes(write(out -> SessionNotesMarshallUtil.writeNotes(notes, true, out)));
+
+        Assert.assertEquals(notes, read);
+        // well-known names and values are shared instances
+        read.forEach((key, value) -> {
+            if (key.equals("AUTH_TIME")) {
+                Assert.assertSame(SessionNotesMarshallUtil.intern(new String("AUTH_TIME")), key);
+            }
+            if (key.equals("userSessionRememberMe")) {
+                Assert.assertSame(SessionNotesMarshallUtil.intern(new String("true")), value);
+            }
+        });
+    }
+
+    @Test
+    public void testNullNotes() throws Exception {
+        Assert.assertNull(readNotes(write(out -> SessionNotesMarshallUtil.writeNotes(null, true, out))));
+    }
+
+    @Test
+    public void testReadLegacyFormat() throws Exception {
+        Map<String, String> notes = new HashMap<>();
+        notes.put("AUTH_TIME", "1712345678");
+        notes.put("custom-note", "custom-value");
+
+        byte[] legacy = write(out -> KeycloakMarshallUtil.writeMap(notes, KeycloakMarshallUtil.STRING_EXT, KeycloakMarshallUtil.STRING_EXT, out));
+
+        Assert.assertEquals(notes, readNotes(legacy));
+    }
+
+    @Test
+    public void testLegacyFormatUntilEnabled() throws Exception {
+        Map<String, String> notes = new HashMap<>();
+        notes.put("AUTH_TIME", "1712345678");
+
+        byte[] written = write(out -> SessionNotesMarshallUtil.writeNotes(notes, false, out));
+
+        // readable by the nodes which only know the previous format
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(written))) {
+            Assert.assertEquals(notes, KeycloakMarshallUtil.readMap(in, KeycloakMarshallUtil.STRING_EXT, KeycloakMarshallUtil.STRING_EXT,
+                    new KeycloakMarshallUtil.ConcurrentHashMapBuilder<>()));
+        }
+    }
+
+    @Test
+    public void testCompactFormatIsSmaller() throws Exception {
+        Map<String, String> notes = new HashMap<>();
+        notes.put("AUTH_TIME", "1712345678");
+        notes.put("level-of-authentication", "1");
+        notes.put("startedAt", "1712345678");
+        notes.put("clientId", "account-console");
+
+        byte[] legacy = write(out -> KeycloakMarshallUtil.writeMap(notes, KeycloakMarshallUtil.STRING_EXT, KeycloakMarshallUtil.STRING_EXT, out));
+        byte[] compact = write(out -> SessionNotesMarshallUtil.writeNotes(notes, true, out));
+
+        Assert.assertTrue(compact.length < legacy.length / 2);
+    }
+
+    @Test
+    public void testClientSessionFormatRoundTrip() throws Exception {
+        for (boolean compact : new boolean[] { false, true }) {
+            AuthenticatedClientSessionEntity entity = new AuthenticatedClientSessionEntity(UUID.randomUUID());
+            entity.setRealmId("realm");
+            entity.setTimestamp(1712345678);
+            entity.getNotes().put("AUTH_TIME", "1712345678");
+            entity.setCompactNotes(compact);
+
+            AuthenticatedClientSessionEntity.ExternalizerImpl externalizer = new AuthenticatedClientSessionEntity.ExternalizerImpl();
+            byte[] bytes = write(out -> externalizer.writeObject(out, entity));
+
+            AuthenticatedClientSessionEntity read;
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                read = externalizer.readObject(in);
+            }
+
+            Assert.assertEquals(entity.getId(), read.getId());
+            Assert.assertEquals(entity.getNotes(), read.getNotes());
+            // the format is kept when the entity is marshalled again
+            Assert.assertEquals(compact, read.isCompactNotes());
+        }
+    }
+
+    @Test
+    public void testClientSessionPreviousFormatHasNoVersion() throws Exception {
+        UUID id = UUID.randomUUID();
+        AuthenticatedClientSessionEntity entity = new AuthenticatedClientSessionEntity(id);
+
+        byte[] bytes = write(out -> new AuthenticatedClientSessionEntity.ExternalizerImpl().writeObject(out, entity));
+
+        // same layout as written by the nodes which only know the previous format
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            Assert.assertEquals(id, new UUID(in.readLong(), in.readLong()));
+        }
+    }
+
+    private interface Writer {
+        void write(ObjectOutputStream out) throws IOException;
+    }
+
+    private static byte[] write(Writer writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            writer.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, String> readNotes(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return SessionNotesMarshallUtil.readNotes(in);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.connections.jpa.updater.liquibase.custom;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import liquibase.exception.CustomChangeException;
+import liquibase.statement.core.InsertStatement;
+import liquibase.structure.core.Table;
+
+/**
+ * Fills the GROUP_CLOSURE table from the parents of the existing groups.
+ */
+public class JpaUpdate25_0_0_GroupClosure extends CustomKeycloakTask {
+
+    @Override
+    protected void generateStatementsImpl() throws CustomChangeException {
+        String groupTableName = database.correctObjectName("KEYCLOAK_GROUP", Table.class);
+        String groupClosureTableName = database.correctObjectName("GROUP_CLOSURE", Table.class);
+
+        Map<String, String> parents = new HashMap<>();
+        Map<String, String> realms = new HashMap<>();
+
+        try (PreparedStatement statement = jdbcConnection.prepareStatement("SELECT ID, PARENT_GROUP, REALM_ID FROM " + groupTableName);
+          ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                String parentId = rs.getString(2);
+                parents.put(rs.getString(1), parentId == null || parentId.trim().isEmpty() ? null : parentId);
+                realms.put(rs.getString(1), rs.getString(3));
+            }
+
+            for (Map.Entry<String, String> group : realms.entrySet()) {
+                String groupId = group.getKey();
+                String ancestorId = groupId;
+                Set<String> ancestors = new HashSet<>();
+                // stop at cycles which the model does not prevent
+                for (int depth = 0; ancestorId != null && ancestors.add(ancestorId); depth++) {
+                    statements.add(
+                      new InsertStatement(null, null, groupClosureTableName)
+                        .addColumnValue("ANCESTOR_ID", ancestorId)
+                        .addColumnValue("DESCENDANT_ID", groupId)
+                        .addColumnValue("DEPTH", depth)
+                        .addColumnValue("REALM_ID", group.getValue())
+                    );
+                    ancestorId = parents.get(ancestorId);
+                }
+            }
+
+            confirmationMessage.append("Added " + statements.size() + " records to GROUP_CLOSURE table");
+        } catch (Exception e) {
+            throw new CustomChangeException(getTaskId() + ": Exception when updating data from previous version", e);
+        }
+    }
+
+    @Override
+    protected String getTaskId() {
+        return "Update 25.0.0 (Group closure)";
+    }
+}
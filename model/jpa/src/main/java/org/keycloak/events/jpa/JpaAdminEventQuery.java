@@ -17,6 +17,7 @@
 
 package org.keycloak.events.jpa;
 
+import org.hibernate.jpa.HibernateHints;
 import org.keycloak.events.admin.AdminEvent;
 import org.keycloak.events.admin.AdminEventQuery;
 import org.keycloak.events.admin.OperationType;
@@ -43,6 +44,8 @@ import static org.keycloak.utils.StreamsUtil.closing;
  */
 public class JpaAdminEventQuery implements AdminEventQuery {
     
+    private static final int STREAM_FETCH_SIZE = 100;
+
     private final EntityManager em;
     private final CriteriaBuilder cb;
     private final CriteriaQuery<AdminEventEntity> cq;
@@ -51,6 +54,7 @@ public class JpaAdminEventQuery implements AdminEventQuery {
     private Integer firstResult;
     private Integer maxResults;
     private boolean orderByDescTime = true;
+    private boolean afterEvent;
 
     public JpaAdminEventQuery(EntityManager em) {
         this.em = em;
@@ -156,13 +160,27 @@ public class JpaAdminEventQuery implements AdminEventQuery {
         return this;
     }
 
+    @Override
+    public AdminEventQuery afterEvent(long time, String id) {
+        if (id == null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.<Long>get("time"), time));
+        } else {
+            predicates.add(cb.or(cb.greaterThan(root.<Long>get("time"), time),
+                    cb.and(cb.equal(root.<Long>get("time"), time), cb.greaterThan(root.<String>get("id"), id))));
+        }
+        afterEvent = true;
+        return this;
+    }
+
     @Override
     public Stream<AdminEvent> getResultStream() {
         if (!predicates.isEmpty()) {
             cq.where(cb.and(predicates.toArray(new Predicate[predicates.size()])));
         }
 
-        if (orderByDescTime) {
+        if (afterEvent) {
+            cq.orderBy(cb.asc(root.get("time")), cb.asc(root.get("id")));
+        } else if (orderByDescTime) {
             cq.orderBy(cb.desc(root.get("time")));
         } else {
             cq.orderBy(cb.asc(root.get("time")));
@@ -170,6 +188,17 @@ public class JpaAdminEventQuery implements AdminEventQuery {
 
         TypedQuery<AdminEventEntity> query = em.createQuery(cq);
 
+        if (afterEvent) {
+            // the events are detached once converted, so that reading all events since the given one does not need a large
+            // persistence context; they are read from a cursor when the JDBC driver honors the fetch size, which MySQL
+            // Connector/J only does with useCursorFetch enabled, otherwise the driver reads the whole result at once
+            query.setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE).setHint(HibernateHints.HINT_READ_ONLY, true);
+            return closing(paginateQuery(query, firstResult, maxResults).getResultStream().map(entity -> {
+                em.detach(entity);
+                return JpaEventStoreProvider.convertAdminEvent(entity);
+            }));
+        }
+
         return closing(paginateQuery(query, firstResult, maxResults).getResultStream().map(JpaEventStoreProvider::convertAdminEvent));
     }
     
@@ -17,6 +17,7 @@
 
 package org.keycloak.events.jpa;
 
+import org.hibernate.jpa.HibernateHints;
 import org.keycloak.events.Event;
 import org.keycloak.events.EventQuery;
 import org.keycloak.events.EventType;
@@ -41,6 +42,8 @@ import static org.keycloak.utils.StreamsUtil.closing;
  */
 public class JpaEventQuery implements EventQuery {
 
+    private static final int STREAM_FETCH_SIZE = 100;
+
     private final EntityManager em;
     private final CriteriaBuilder cb;
     private final CriteriaQuery<EventEntity> cq;
@@ -49,6 +52,7 @@ public class JpaEventQuery implements EventQuery {
     private Integer firstResult;
     private Integer maxResults;
     private boolean orderByDescTime = true;
+    private boolean afterEvent;
 
     public JpaEventQuery(EntityManager em) {
         this.em = em;
@@ -129,13 +133,27 @@ public class JpaEventQuery implements EventQuery {
         return this;
     }
 
+    @Override
+    public EventQuery afterEvent(long time, String id) {
+        if (id == null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.<Long>get("time"), time));
+        } else {
+            predicates.add(cb.or(cb.greaterThan(root.<Long>get("time"), time),
+                    cb.and(cb.equal(root.<Long>get("time"), time), cb.greaterThan(root.<String>get("id"), id))));
+        }
+        afterEvent = true;
+        return this;
+    }
+
     @Override
     public Stream<Event> getResultStream() {
         if (!predicates.isEmpty()) {
             cq.where(cb.and(predicates.toArray(new Predicate[predicates.size()])));
         }
 
-        if(orderByDescTime) {
+        if (afterEvent) {
+            cq.orderBy(cb.asc(root.get("time")), cb.asc(root.get("id")));
+        } else if (orderByDescTime) {
             cq.orderBy(cb.desc(root.get("time")));
         } else {
             cq.orderBy(cb.asc(root.get("time")));
@@ -143,6 +161,17 @@ public class JpaEventQuery implements EventQuery {
 
         TypedQuery<EventEntity> query = em.createQuery(cq);
 
+        if (afterEvent) {
+            // the events are detached once converted, so that reading all events since the given one does not need a large
+            // persistence context; they are read from a cursor when the JDBC driver honors the fetch size, which MySQL
+            // Connector/J only does with useCursorFetch enabled, otherwise the driver reads the whole result at once
+            query.setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE).setHint(HibernateHints.HINT_READ_ONLY, true);
+            return closing(paginateQuery(query, firstResult, maxResults).getResultStream().map(entity -> {
+                em.detach(entity);
+                return JpaEventStoreProvider.convertEvent(entity);
+            }));
+        }
+
         return closing(paginateQuery(query, firstResult, maxResults).getResultStream().map(JpaEventStoreProvider::convertEvent));
     }
 
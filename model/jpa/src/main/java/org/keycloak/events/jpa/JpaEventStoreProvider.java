@@ -21,6 +21,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.jboss.logging.Logger;
 import org.keycloak.common.util.Time;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
 import org.keycloak.events.Event;
 import org.keycloak.events.EventQuery;
 import org.keycloak.events.EventStoreProvider;
@@ -29,15 +30,18 @@ import org.keycloak.events.admin.AdminEvent;
 import org.keycloak.events.admin.AdminEventQuery;
 import org.keycloak.events.admin.AuthDetails;
 import org.keycloak.events.admin.OperationType;
+import org.keycloak.models.AbstractKeycloakTransaction;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.jpa.entities.RealmAttributeEntity;
 import org.keycloak.models.jpa.entities.RealmAttributes;
 import org.keycloak.models.jpa.entities.RealmEntity;
+import org.keycloak.models.utils.KeycloakModelUtils;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -55,10 +59,21 @@ public class JpaEventStoreProvider implements EventStoreProvider {
 
     private final KeycloakSession session;
     private final EntityManager em;
+    private final JpaEventWriter writer;
+    private final int expirationChunkSize;
+    private final long expirationChunkPauseMillis;
+    private List<EventEntity> pendingEvents;
 
     public JpaEventStoreProvider(KeycloakSession session, EntityManager em) {
+        this(session, em, null, 0, 0);
+    }
+
+    JpaEventStoreProvider(KeycloakSession session, EntityManager em, JpaEventWriter writer, int expirationChunkSize, long expirationChunkPauseMillis) {
         this.session = session;
         this.em = em;
+        this.writer = writer;
+        this.expirationChunkSize = expirationChunkSize;
+        this.expirationChunkPauseMillis = expirationChunkPauseMillis;
     }
 
     @Override
@@ -92,10 +107,7 @@ public class JpaEventStoreProvider implements EventStoreProvider {
             List<String> realmIds = em.createQuery("select realm.id from RealmEntity realm where realm.eventsExpiration = :expiration")
                     .setParameter("expiration", expiration)
                     .getResultList();
-            int currentNumDeleted = em.createQuery("delete from EventEntity where realmId in :realmIds and time < :eventTime")
-                    .setParameter("realmIds", realmIds)
-                    .setParameter("eventTime", currentTimeMillis - (expiration * 1000))
-                    .executeUpdate();
+            int currentNumDeleted = clearExpired("EventEntity", realmIds, currentTimeMillis - (expiration * 1000));
             logger.tracef("Deleted %d events for the expiration %d", currentNumDeleted, expiration);
             numDeleted += currentNumDeleted;
         }
@@ -104,7 +116,30 @@ public class JpaEventStoreProvider implements EventStoreProvider {
 
     @Override
     public void onEvent(Event event) {
-        em.persist(convertEvent(event));
+        if (writer == null) {
+            em.persist(convertEvent(event));
+        } else if (!session.getTransactionManager().isActive()) {
+            writer.enqueue(List.of(convertEvent(event)));
+        } else {
+            if (pendingEvents == null) {
+                // the events are handed over to the writer only once the transaction is committed
+                List<EventEntity> events = new ArrayList<>();
+                session.getTransactionManager().enlistAfterCompletion(new AbstractKeycloakTransaction() {
+                    @Override
+                    protected void commitImpl() {
+                        pendingEvents = null;
+                        writer.enqueue(events);
+                    }
+
+                    @Override
+                    protected void rollbackImpl() {
+                        pendingEvents = null;
+                    }
+                });
+                pendingEvents = events;
+            }
+            pendingEvents.add(convertEvent(event));
+        }
     }
 
     @Override
@@ -136,7 +171,7 @@ public class JpaEventStoreProvider implements EventStoreProvider {
     public void close() {
     }
 
-    private EventEntity convertEvent(Event event) {
+    static EventEntity convertEvent(Event event) {
         EventEntity eventEntity = new EventEntity();
         eventEntity.setId(event.getId() == null ? UUID.randomUUID().toString() : event.getId());
         eventEntity.setTime(event.getTime());
@@ -255,11 +290,68 @@ public class JpaEventStoreProvider implements EventStoreProvider {
         long current = Time.currentTimeMillis();
         realms.forEach((key, value) -> {
             List<String> realmIds = value.stream().map(RealmAttributeEntity::getRealm).map(RealmEntity::getId).collect(Collectors.toList());
-            int currentNumDeleted = em.createQuery("delete from AdminEventEntity where realmId in :realmIds and time < :eventTime")
-                    .setParameter("realmIds", realmIds)
-                    .setParameter("eventTime", current - (key * 1000))
-                    .executeUpdate();
+            int currentNumDeleted = clearExpired("AdminEventEntity", realmIds, current - (key * 1000));
             logger.tracef("Deleted %d admin events for the expiration %d", currentNumDeleted, key);
         });
     }
+
+    private int clearExpired(String entityName, List<String> realmIds, long eventTime) {
+        if (expirationChunkSize <= 0) {
+            return em.createQuery("delete from " + entityName + " where realmId in :realmIds and time < :eventTime")
+                    .setParameter("realmIds", realmIds)
+                    .setParameter("eventTime", eventTime)
+                    .executeUpdate();
+        }
+
+        int numDeleted = 0;
+        for (String realmId : realmIds) {
+            numDeleted += clearExpiredInChunks(entityName, realmId, eventTime);
+        }
+        return numDeleted;
+    }
+
+    /**
+     * Removes the events of the realm older than the given time in chunks of at most {@link #expirationChunkSize} events, each of them
+     * in its own transaction, so the database never needs to lock or log a large part of the events table at once.
+     * The oldest events are removed first, walking the index on the realm and the time of the events.
+     */
+    private int clearExpiredInChunks(String entityName, String realmId, long eventTime) {
+        int numDeleted = 0;
+        while (true) {
+            int[] removed = { 0, 0 };
+            KeycloakModelUtils.runJobInTransaction(session.getKeycloakSessionFactory(), chunkSession -> {
+                EntityManager chunkEm = chunkSession.getProvider(JpaConnectionProvider.class).getEntityManager();
+                List<String> ids = chunkEm.createQuery("select e.id from " + entityName + " e where e.realmId = :realmId and e.time < :eventTime order by e.time", String.class)
+                        .setParameter("realmId", realmId)
+                        .setParameter("eventTime", eventTime)
+                        .setMaxResults(expirationChunkSize)
+                        .getResultList();
+                if (ids.isEmpty()) {
+                    return;
+                }
+                removed[0] = ids.size();
+                removed[1] = chunkEm.createQuery("delete from " + entityName + " where id in :ids")
+                        .setParameter("ids", ids)
+                        .executeUpdate();
+            });
+            numDeleted += removed[1];
+            // stop if the chunk was not full, or if none of its events could be removed to avoid looping over the same events
+            if (removed[0] < expirationChunkSize || removed[1] == 0) {
+                break;
+            }
+            pauseBetweenChunks();
+        }
+        return numDeleted;
+    }
+
+    private void pauseBetweenChunks() {
+        if (expirationChunkPauseMillis > 0) {
+            try {
+                Thread.sleep(expirationChunkPauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
 }
@@ -17,6 +17,7 @@
 
 package org.keycloak.events.jpa;
 
+import org.jboss.logging.Logger;
 import org.keycloak.Config;
 import org.keycloak.connections.jpa.JpaConnectionProvider;
 import org.keycloak.events.EventStoreProvider;
@@ -24,32 +25,89 @@ import org.keycloak.events.EventStoreProviderFactory;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.provider.InvalidationHandler;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
 import org.keycloak.storage.datastore.PeriodicEventInvalidation;
 
+import java.nio.file.Paths;
+import java.util.List;
+
 /**
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
  */
 public class JpaEventStoreProviderFactory implements EventStoreProviderFactory, InvalidationHandler {
 
+    private static final Logger logger = Logger.getLogger(JpaEventStoreProviderFactory.class);
+
     public static final String ID = "jpa";
 
+    public static final String CONFIG_ASYNC_WRITES = "asyncWrites";
+    public static final String CONFIG_ASYNC_QUEUE_SIZE = "asyncQueueSize";
+    public static final int DEFAULT_ASYNC_QUEUE_SIZE = 10000;
+    public static final String CONFIG_ASYNC_MAX_BATCH_SIZE = "asyncMaxBatchSize";
+    public static final int DEFAULT_ASYNC_MAX_BATCH_SIZE = 100;
+    public static final String CONFIG_ASYNC_OVERFLOW = "asyncOverflow";
+    public static final String DEFAULT_ASYNC_OVERFLOW = "block";
+    public static final String CONFIG_ASYNC_SPILL_DIRECTORY = "asyncSpillDirectory";
+    public static final String CONFIG_EXPIRATION_CHUNK_SIZE = "expirationChunkSize";
+    public static final int DEFAULT_EXPIRATION_CHUNK_SIZE = 1000;
+    // the IDs of a chunk are passed as an IN list, which is limited to 1000 items on Oracle
+    public static final int MAX_EXPIRATION_CHUNK_SIZE = 1000;
+    public static final String CONFIG_EXPIRATION_CHUNK_PAUSE = "expirationChunkPause";
+    public static final int DEFAULT_EXPIRATION_CHUNK_PAUSE = 0;
+
+    private Config.Scope config;
+    private JpaEventWriter writer;
+    private int expirationChunkSize;
+    private long expirationChunkPause;
+
     @Override
     public EventStoreProvider create(KeycloakSession session) {
         JpaConnectionProvider connection = session.getProvider(JpaConnectionProvider.class);
-        return new JpaEventStoreProvider(session, connection.getEntityManager());
+        return new JpaEventStoreProvider(session, connection.getEntityManager(), writer, expirationChunkSize, expirationChunkPause);
     }
 
     @Override
     public void init(Config.Scope config) {
+        this.config = config;
+        expirationChunkSize = config.getInt(CONFIG_EXPIRATION_CHUNK_SIZE, DEFAULT_EXPIRATION_CHUNK_SIZE);
+        if (expirationChunkSize > MAX_EXPIRATION_CHUNK_SIZE) {
+            logger.warnf("The option '%s' is limited to %d, using %d instead of %d", CONFIG_EXPIRATION_CHUNK_SIZE, MAX_EXPIRATION_CHUNK_SIZE,
+                    MAX_EXPIRATION_CHUNK_SIZE, expirationChunkSize);
+            expirationChunkSize = MAX_EXPIRATION_CHUNK_SIZE;
+        }
+        expirationChunkPause = config.getInt(CONFIG_EXPIRATION_CHUNK_PAUSE, DEFAULT_EXPIRATION_CHUNK_PAUSE);
     }
 
     @Override
     public void postInit(KeycloakSessionFactory factory) {
-
+        if (config.getBoolean(CONFIG_ASYNC_WRITES, false)) {
+            JpaEventWriter.Overflow overflow = JpaEventWriter.Overflow.of(config.get(CONFIG_ASYNC_OVERFLOW, DEFAULT_ASYNC_OVERFLOW));
+            String spillDirectory = config.get(CONFIG_ASYNC_SPILL_DIRECTORY);
+            if (overflow == JpaEventWriter.Overflow.SPILL && spillDirectory == null) {
+                throw new IllegalStateException("The option '" + CONFIG_ASYNC_SPILL_DIRECTORY + "' is required to spill the events to disk");
+            }
+            writer = new JpaEventWriter(factory,
+                    config.getInt(CONFIG_ASYNC_QUEUE_SIZE, DEFAULT_ASYNC_QUEUE_SIZE),
+                    config.getInt(CONFIG_ASYNC_MAX_BATCH_SIZE, DEFAULT_ASYNC_MAX_BATCH_SIZE),
+                    overflow,
+                    spillDirectory == null ? null : Paths.get(spillDirectory));
+            writer.start();
+        }
     }
 
     @Override
     public void close() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    /**
+     * Returns the writer of the events when they are written asynchronously, or {@code null}.
+     */
+    public JpaEventWriter getWriter() {
+        return writer;
     }
 
     @Override
@@ -57,6 +115,54 @@ public class JpaEventStoreProviderFactory implements EventStoreProviderFactory,
         return ID;
     }
 
+    @Override
+    public List<ProviderConfigProperty> getConfigMetadata() {
+        return ProviderConfigurationBuilder.create()
+                .property()
+                .name(CONFIG_ASYNC_WRITES)
+                .helpText("If true, the events are written to the database by a background thread once the transaction which created them is committed, instead of as part of the transaction.")
+                .type("boolean")
+                .defaultValue(false)
+                .add()
+                .property()
+                .name(CONFIG_ASYNC_QUEUE_SIZE)
+                .helpText("Maximum number of events waiting to be written when the events are written asynchronously.")
+                .type("int")
+                .defaultValue(DEFAULT_ASYNC_QUEUE_SIZE)
+                .add()
+                .property()
+                .name(CONFIG_ASYNC_MAX_BATCH_SIZE)
+                .helpText("Maximum number of events written in a single transaction and JDBC batch when the events are written asynchronously.")
+                .type("int")
+                .defaultValue(DEFAULT_ASYNC_MAX_BATCH_SIZE)
+                .add()
+                .property()
+                .name(CONFIG_ASYNC_OVERFLOW)
+                .helpText("What to do with an event when the queue of events waiting to be written is full: wait until there is space in the queue, drop the event, or append it to a file from which it is written later.")
+                .type("string")
+                .options("block", "drop", "spill")
+                .defaultValue(DEFAULT_ASYNC_OVERFLOW)
+                .add()
+                .property()
+                .name(CONFIG_ASYNC_SPILL_DIRECTORY)
+                .helpText("Directory of the file holding the events which did not fit into the queue, required when they are spilled. It must not be shared with other nodes.")
+                .type("string")
+                .add()
+                .property()
+                .name(CONFIG_EXPIRATION_CHUNK_SIZE)
+                .helpText("Maximum number of expired events removed in a single transaction, at most 1000. If zero or negative, all expired events of the realms with the same expiration are removed at once.")
+                .type("int")
+                .defaultValue(DEFAULT_EXPIRATION_CHUNK_SIZE)
+                .add()
+                .property()
+                .name(CONFIG_EXPIRATION_CHUNK_PAUSE)
+                .helpText("Pause in milliseconds between the removal of two chunks of expired events.")
+                .type("int")
+                .defaultValue(DEFAULT_EXPIRATION_CHUNK_PAUSE)
+                .add()
+                .build();
+    }
+
     @Override
     public void invalidate(KeycloakSession session, InvalidableObjectType type, Object... params) {
         if(type == PeriodicEventInvalidation.JPA_EVENT_STORE) {
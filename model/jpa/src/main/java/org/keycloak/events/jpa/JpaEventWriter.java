@@ -0,0 +1,395 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.events.jpa;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.jboss.logging.Logger;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.events.Event;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.util.JsonSerialization;
+
+/**
+ * Writes the events stored by the {@link JpaEventStoreProvider} in the background: the events of committed transactions are put into
+ * a bounded queue, and a single thread writes them in their own transactions, sending up to the maximum batch size of events as one
+ * JDBC batch.
+ * <p>
+ * When the queue is full, the events are either dropped, or the request waits until there is space in the queue, or they are
+ * appended to a file which is written to the database once the queue is empty again.
+ * <p>
+ * When a batch fails to be written, its events are written one by one, so that a single event which cannot be written does not
+ * take the other events of the batch with it. Events which are already in the database, like the events of a spill file which was
+ * not deleted after being written, are skipped. An event which still fails to be written while the database is available is
+ * dropped after {@value #MAX_WRITE_ATTEMPTS} attempts.
+ */
+public class JpaEventWriter {
+
+    private static final Logger logger = Logger.getLogger(JpaEventWriter.class);
+
+    private static final String SPILL_FILE = "events.spill";
+    private static final String DRAINING_FILE = "events.draining";
+    static final int MAX_WRITE_ATTEMPTS = 3;
+
+    public enum Overflow {
+        BLOCK, DROP, SPILL;
+
+        public static Overflow of(String value) {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Writes the events to the database.
+     */
+    interface Storage {
+
+        /**
+         * Writes the events in one transaction.
+         */
+        void insert(List<EventEntity> events);
+
+        /**
+         * Returns the ids of the given events which are already written.
+         */
+        Set<String> getWrittenIds(List<String> ids);
+    }
+
+    private final Storage storage;
+    private final BlockingQueue<EventEntity> queue;
+    private final int maxBatchSize;
+    private final Overflow overflow;
+    private final Path spillDirectory;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    // only used by the writer thread
+    private final Map<String, Integer> failedAttempts = new HashMap<>();
+    private Thread thread;
+    private volatile boolean stop;
+
+    public JpaEventWriter(KeycloakSessionFactory factory, int queueSize, int maxBatchSize, Overflow overflow, Path spillDirectory) {
+        this(new JpaStorage(factory, maxBatchSize), queueSize, maxBatchSize, overflow, spillDirectory);
+    }
+
+    JpaEventWriter(Storage storage, int queueSize, int maxBatchSize, Overflow overflow, Path spillDirectory) {
+        this.storage = storage;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.maxBatchSize = maxBatchSize;
+        this.overflow = overflow;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public void start() {
+        if (overflow == Overflow.SPILL) {
+            try {
+                Files.createDirectories(spillDirectory);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to create the directory for events " + spillDirectory, e);
+            }
+        }
+        thread = new Thread(this::run, "keycloak-jpa-event-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the writer once the events in the queue are written.
+     */
+    public void stop() {
+        stop = true;
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (thread.isAlive()) {
+                logger.warnf("Stopped writing events with %d events left in the queue", queue.size());
+                thread.interrupt();
+            }
+        }
+    }
+
+    void enqueue(List<EventEntity> events) {
+        for (EventEntity event : events) {
+            if (queue.offer(event)) {
+                continue;
+            }
+            switch (overflow) {
+                case BLOCK:
+                    try {
+                        queue.put(event);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        dropped.increment();
+                    }
+                    break;
+                case SPILL:
+                    spill(List.of(event));
+                    break;
+                default:
+                    dropped.increment();
+                    logger.debugf("Dropped event %s as the queue of events is full", event.getId());
+            }
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getSpilledCount() {
+        return spilled.sum();
+    }
+
+    private void run() {
+        while (!stop || !queue.isEmpty()) {
+            try {
+                EventEntity polled = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (polled != null) {
+                    List<EventEntity> batch = new ArrayList<>(maxBatchSize);
+                    batch.add(polled);
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    write(batch);
+                } else if (overflow == Overflow.SPILL && !stop) {
+                    writeSpilled();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                logger.warn("Unexpected error while writing events", e);
+            }
+        }
+    }
+
+    private void write(List<EventEntity> batch) {
+        try {
+            storage.insert(batch);
+            written.add(batch.size());
+            batch.forEach(event -> failedAttempts.remove(event.getId()));
+            return;
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                failed(batch, e);
+                return;
+            }
+            logger.debugf(e, "Unable to write %d events at once, writing them one by one", batch.size());
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            EventEntity event = batch.get(i);
+            try {
+                storage.insert(List.of(event));
+                written.increment();
+                failedAttempts.remove(event.getId());
+            } catch (RuntimeException e) {
+                if (!failed(batch.subList(i, batch.size()), e)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles the failure to write the first of the given events. When the database is not available, none of the events are
+     * tried anymore: they are kept for later or dropped, and {@code false} is returned.
+     */
+    private boolean failed(List<EventEntity> events, RuntimeException error) {
+        EventEntity event = events.get(0);
+        Set<String> writtenIds;
+        try {
+            writtenIds = storage.getWrittenIds(List.of(event.getId()));
+        } catch (RuntimeException e) {
+            if (overflow == Overflow.SPILL) {
+                logger.warnf(error, "Unable to write %d events, keeping them for later", events.size());
+                spill(events);
+            } else {
+                logger.warnf(error, "Unable to write %d events", events.size());
+                dropped.add(events.size());
+            }
+            return false;
+        }
+
+        if (writtenIds.contains(event.getId())) {
+            logger.debugf("Skipping event %s which is already written", event.getId());
+            failedAttempts.remove(event.getId());
+            return true;
+        }
+
+        int attempts = failedAttempts.merge(event.getId(), 1, Integer::sum);
+        if (overflow == Overflow.SPILL && attempts < MAX_WRITE_ATTEMPTS) {
+            logger.debugf(error, "Unable to write event %s, keeping it for later", event.getId());
+            spill(List.of(event));
+        } else {
+            failedAttempts.remove(event.getId());
+            logger.warnf(error, "Unable to write event %s, dropping it", event.getId());
+            dropped.increment();
+        }
+        return true;
+    }
+
+    private synchronized void spill(List<EventEntity> events) {
+        try (Writer writer = Files.newBufferedWriter(spillDirectory.resolve(SPILL_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (EventEntity event : events) {
+                writer.write(JsonSerialization.writeValueAsString(JpaEventStoreProvider.convertEvent(event)));
+                writer.write('\n');
+            }
+            spilled.add(events.size());
+        } catch (IOException e) {
+            logger.warnf(e, "Unable to keep %d events for later, dropping them", events.size());
+            dropped.add(events.size());
+        }
+    }
+
+    /**
+     * Writes the events kept in the spill file. A file left over from a previous run, which was not written completely, is written
+     * first, and its events which are already in the database are skipped. Events which fail to be written are spilled again. When
+     * the database is not available, the file is kept to be written later.
+     */
+    private void writeSpilled() {
+        Path draining = spillDirectory.resolve(DRAINING_FILE);
+        if (!Files.exists(draining)) {
+            synchronized (this) {
+                Path spill = spillDirectory.resolve(SPILL_FILE);
+                if (!Files.exists(spill)) {
+                    return;
+                }
+                try {
+                    Files.move(spill, draining, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    logger.warnf(e, "Unable to read the events kept in %s", spill);
+                    return;
+                }
+            }
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(draining, StandardCharsets.UTF_8)) {
+            List<EventEntity> batch = new ArrayList<>(maxBatchSize);
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    batch.add(JpaEventStoreProvider.convertEvent(JsonSerialization.readValue(line, Event.class)));
+                } catch (IOException e) {
+                    logger.warnf(e, "Skipping an unreadable event kept in %s", draining);
+                    continue;
+                }
+                if (batch.size() == maxBatchSize) {
+                    if (!writeUnwritten(batch)) {
+                        return;
+                    }
+                    batch = new ArrayList<>(maxBatchSize);
+                }
+            }
+            if (!batch.isEmpty() && !writeUnwritten(batch)) {
+                return;
+            }
+        } catch (IOException e) {
+            logger.warnf(e, "Unable to read the events kept in %s", draining);
+            return;
+        }
+
+        try {
+            Files.delete(draining);
+        } catch (IOException e) {
+            logger.warnf(e, "Unable to delete %s", draining);
+        }
+    }
+
+    /**
+     * Writes the events of the batch which are not written yet, and returns {@code false} if the database is not available.
+     */
+    private boolean writeUnwritten(List<EventEntity> batch) {
+        Set<String> writtenIds;
+        try {
+            writtenIds = storage.getWrittenIds(batch.stream().map(EventEntity::getId).collect(Collectors.toList()));
+        } catch (RuntimeException e) {
+            logger.debugf(e, "Unable to write the events kept in %s, keeping them for later", spillDirectory.resolve(DRAINING_FILE));
+            return false;
+        }
+        List<EventEntity> unwritten = batch.stream().filter(event -> !writtenIds.contains(event.getId())).collect(Collectors.toList());
+        if (!unwritten.isEmpty()) {
+            write(unwritten);
+        }
+        return true;
+    }
+
+    private static class JpaStorage implements Storage {
+
+        private final KeycloakSessionFactory factory;
+        private final int maxBatchSize;
+
+        JpaStorage(KeycloakSessionFactory factory, int maxBatchSize) {
+            this.factory = factory;
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        @Override
+        public void insert(List<EventEntity> events) {
+            KeycloakModelUtils.runJobInTransaction(factory, session -> {
+                EntityManager em = session.getProvider(JpaConnectionProvider.class).getEntityManager();
+                em.unwrap(Session.class).setJdbcBatchSize(maxBatchSize);
+                events.forEach(em::persist);
+            });
+        }
+
+        @Override
+        public Set<String> getWrittenIds(List<String> ids) {
+            return KeycloakModelUtils.runJobInTransactionWithResult(factory, session -> {
+                EntityManager em = session.getProvider(JpaConnectionProvider.class).getEntityManager();
+                return new HashSet<>(em.createQuery("select event.id from EventEntity event where event.id in :ids", String.class)
+                        .setParameter("ids", ids)
+                        .getResultList());
+            });
+        }
+    }
+}
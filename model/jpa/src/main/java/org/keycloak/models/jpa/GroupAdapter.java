@@ -86,6 +86,13 @@ public class GroupAdapter implements GroupModel , JpaModel<GroupEntity> {
         return parentId == null? null : realm.getGroupById(parentId);
     }
 
+    @Override
+    public Stream<GroupModel> getAncestorsStream() {
+        // all the ancestors at once from the closure of the hierarchy, instead of a query per parent
+        return GroupClosureIndex.getAncestors(em, getId()).stream()
+                .map(entity -> new GroupAdapter(session, realm, em, entity));
+    }
+
     @Override
     public String getParentId() {
         return GroupEntity.TOP_PARENT_ID.equals(group.getParentId())? null : group.getParentId();
@@ -100,12 +107,16 @@ public class GroupAdapter implements GroupModel , JpaModel<GroupEntity> {
 
     @Override
     public void setParent(GroupModel parent) {
+        String previousParentId = group.getParentId();
         if (parent == null) {
             group.setParentId(GroupEntity.TOP_PARENT_ID);
         } else if (!parent.getId().equals(getId())) {
             GroupEntity parentEntity = toEntity(parent, em);
             group.setParentId(parentEntity.getId());
         }
+        if (!Objects.equals(previousParentId, group.getParentId())) {
+            GroupClosureIndex.parentChanged(em, getId(), previousParentId, group.getParentId());
+        }
         fireGroupUpdatedEvent();
     }
 
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.jpa;
+
+import java.util.List;
+
+import jakarta.persistence.EntityManager;
+import org.keycloak.models.ModelException;
+import org.keycloak.models.jpa.entities.GroupClosureEntity;
+import org.keycloak.models.jpa.entities.GroupEntity;
+
+/**
+ * Keeps the {@link GroupClosureEntity} rows in line with the parents of the groups, so that the ancestors and the descendants of a
+ * group are available with a single query regardless of the depth of the hierarchy.
+ */
+final class GroupClosureIndex {
+
+    private static final int DELETE_BATCH_SIZE = 100;
+
+    private GroupClosureIndex() {
+    }
+
+    static void groupCreated(EntityManager em, GroupEntity group) {
+        em.persist(new GroupClosureEntity(group.getId(), group.getId(), 0, group.getRealm()));
+        // the pending row is flushed by the update query
+        if (!GroupEntity.TOP_PARENT_ID.equals(group.getParentId())) {
+            link(em, group.getId(), group.getParentId());
+        }
+    }
+
+    static void parentChanged(EntityManager em, String groupId, String previousParentId, String parentId) {
+        if (!GroupEntity.TOP_PARENT_ID.equals(parentId) && getDescendantIds(em, groupId).contains(parentId)) {
+            throw new ModelException("Cannot move a group to one of its subgroups");
+        }
+        if (!GroupEntity.TOP_PARENT_ID.equals(previousParentId)) {
+            unlink(em, groupId);
+        }
+        if (!GroupEntity.TOP_PARENT_ID.equals(parentId)) {
+            link(em, groupId, parentId);
+        }
+    }
+
+    static void groupRemoved(EntityManager em, String groupId) {
+        em.createNamedQuery("deleteGroupClosureByGroup")
+                .setParameter("groupId", groupId)
+                .executeUpdate();
+    }
+
+    /**
+     * Returns the ancestors of the group, starting with its parent.
+     */
+    static List<GroupEntity> getAncestors(EntityManager em, String groupId) {
+        return em.createNamedQuery("getGroupAncestors", GroupEntity.class)
+                .setParameter("groupId", groupId)
+                .getResultList();
+    }
+
+    private static List<String> getDescendantIds(EntityManager em, String groupId) {
+        return em.createNamedQuery("getGroupDescendantIds", String.class)
+                .setParameter("groupId", groupId)
+                .getResultList();
+    }
+
+    private static void link(EntityManager em, String groupId, String parentId) {
+        // pairs every ancestor of the parent, including itself, with every descendant of the group, including itself
+        em.createNamedQuery("insertGroupClosureLinks")
+                .setParameter("parentId", parentId)
+                .setParameter("groupId", groupId)
+                .executeUpdate();
+    }
+
+    private static void unlink(EntityManager em, String groupId) {
+        List<String> ancestorIds = em.createNamedQuery("getGroupAncestorIds", String.class)
+                .setParameter("groupId", groupId)
+                .getResultList();
+        if (ancestorIds.isEmpty()) {
+            return;
+        }
+        List<String> descendantIds = getDescendantIds(em, groupId);
+        for (int i = 0; i < descendantIds.size(); i += DELETE_BATCH_SIZE) {
+            em.createNamedQuery("deleteGroupClosureLinks")
+                    .setParameter("ancestorIds", ancestorIds)
+                    .setParameter("descendantIds", descendantIds.subList(i, Math.min(i + DELETE_BATCH_SIZE, descendantIds.size())))
+                    .executeUpdate();
+        }
+    }
+}
@@ -693,6 +693,7 @@ public class JpaRealmProvider implements RealmProvider, ClientProvider, ClientSc
             return false;
         }
         em.createNamedQuery("deleteGroupRoleMappingsByGroup").setParameter("group", groupEntity).executeUpdate();
+        GroupClosureIndex.groupRemoved(em, groupEntity.getId());
 
         em.remove(groupEntity);
         return true;
@@ -715,6 +716,7 @@ public class JpaRealmProvider implements RealmProvider, ClientProvider, ClientSc
         groupEntity.setParentId(toParent == null? GroupEntity.TOP_PARENT_ID : toParent.getId());
         em.persist(groupEntity);
         em.flush();
+        GroupClosureIndex.groupCreated(em, groupEntity);
 
         GroupAdapter group = new GroupAdapter(session, realm, em, groupEntity);
 
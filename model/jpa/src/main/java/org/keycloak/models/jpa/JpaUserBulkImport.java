@@ -0,0 +1,341 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.jpa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.Session;
+import org.keycloak.connections.jpa.PersistenceExceptionConverter;
+import org.keycloak.common.util.ObjectUtil;
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.GroupModel.GroupMemberJoinEvent;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.ModelException;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RoleModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.jpa.entities.CredentialEntity;
+import org.keycloak.models.jpa.entities.FederatedIdentityEntity;
+import org.keycloak.models.jpa.entities.UserAttributeEntity;
+import org.keycloak.models.jpa.entities.UserEntity;
+import org.keycloak.models.jpa.entities.UserGroupMembershipEntity;
+import org.keycloak.models.jpa.entities.UserRequiredActionEntity;
+import org.keycloak.models.jpa.entities.UserRoleMappingEntity;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.representations.idm.CredentialRepresentation;
+import org.keycloak.representations.idm.FederatedIdentityRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+/**
+ * Creates a batch of new users with their related rows without flushing after each user.
+ * <p>
+ * The rows are persisted table by table, so that Hibernate sends the inserts of each table as JDBC batches when the batch is
+ * flushed. The roles, groups and clients referenced by the users are resolved before anything is persisted, as their lookups
+ * might otherwise flush the pending inserts. Once flushed, the new entities are detached, so that the persistence context does not
+ * grow, and get dirty-checked on each flush, with every batch imported in the same transaction.
+ */
+final class JpaUserBulkImport {
+
+    private static final int JDBC_BATCH_SIZE = 100;
+
+    private final KeycloakSession session;
+    private final EntityManager em;
+    private final RealmModel realm;
+    private final Map<String, RoleModel> realmRoles = new HashMap<>();
+    private final Map<String, ClientModel> clients = new HashMap<>();
+    private final Map<String, GroupModel> groups = new HashMap<>();
+    private final List<Object> persisted = new ArrayList<>();
+
+    JpaUserBulkImport(KeycloakSession session, EntityManager em, RealmModel realm) {
+        this.session = session;
+        this.em = em;
+        this.realm = realm;
+    }
+
+    void importUsers(List<UserRepresentation> userReps) {
+        List<List<String>> roleIds = new ArrayList<>(userReps.size());
+        List<List<GroupModel>> userGroups = new ArrayList<>(userReps.size());
+        for (UserRepresentation userRep : userReps) {
+            roleIds.add(resolveRoleIds(userRep));
+            userGroups.add(resolveGroups(userRep));
+        }
+
+        Session hibernateSession = em.unwrap(Session.class);
+        Integer jdbcBatchSize = hibernateSession.getJdbcBatchSize();
+        hibernateSession.setJdbcBatchSize(JDBC_BATCH_SIZE);
+        try {
+            List<UserEntity> users = new ArrayList<>(userReps.size());
+            for (UserRepresentation userRep : userReps) {
+                UserEntity user = toEntity(userRep);
+                persist(user);
+                users.add(user);
+            }
+
+            for (int i = 0; i < userReps.size(); i++) {
+                persistAttributes(users.get(i), userReps.get(i));
+            }
+            for (int i = 0; i < userReps.size(); i++) {
+                persistRequiredActions(users.get(i), userReps.get(i));
+            }
+            for (int i = 0; i < userReps.size(); i++) {
+                persistCredentials(users.get(i), userReps.get(i));
+            }
+            for (int i = 0; i < userReps.size(); i++) {
+                persistFederatedIdentities(users.get(i), userReps.get(i));
+            }
+            for (int i = 0; i < userReps.size(); i++) {
+                for (String roleId : roleIds.get(i)) {
+                    UserRoleMappingEntity mapping = new UserRoleMappingEntity();
+                    mapping.setUser(users.get(i));
+                    mapping.setRoleId(roleId);
+                    persist(mapping);
+                }
+            }
+            for (int i = 0; i < userReps.size(); i++) {
+                for (GroupModel group : userGroups.get(i)) {
+                    UserGroupMembershipEntity membership = new UserGroupMembershipEntity();
+                    membership.setUser(users.get(i));
+                    membership.setGroupId(group.getId());
+                    persist(membership);
+                }
+            }
+
+            em.flush();
+        } catch (PersistenceException e) {
+            throw PersistenceExceptionConverter.convert(e.getCause() != null ? e.getCause() : e);
+        } finally {
+            hibernateSession.setJdbcBatchSize(jdbcBatchSize);
+        }
+        persisted.forEach(em::detach);
+        persisted.clear();
+
+        for (List<GroupModel> joined : userGroups) {
+            joined.forEach(group -> GroupMemberJoinEvent.fire(group, session));
+        }
+    }
+
+    private void persist(Object entity) {
+        em.persist(entity);
+        persisted.add(entity);
+    }
+
+    private UserEntity toEntity(UserRepresentation userRep) {
+        if (userRep.getId() == null) {
+            throw new ModelException("Missing id of the user " + userRep.getUsername());
+        }
+        UserEntity user = new UserEntity();
+        user.setId(userRep.getId());
+        user.setRealmId(realm.getId());
+        user.setUsername(KeycloakModelUtils.toLowerCaseSafe(userRep.getUsername()));
+        user.setCreatedTimestamp(userRep.getCreatedTimestamp());
+        user.setEnabled(userRep.isEnabled() != null && userRep.isEnabled());
+        setEmail(user, userRep.getEmail());
+        if (userRep.isEmailVerified() != null) {
+            user.setEmailVerified(userRep.isEmailVerified());
+        }
+        user.setFirstName(userRep.getFirstName());
+        user.setLastName(userRep.getLastName());
+        setColumnAttributes(user, userRep);
+        user.setFederationLink(userRep.getFederationLink());
+        if (userRep.getNotBefore() != null) {
+            user.setNotBefore(userRep.getNotBefore());
+        }
+        if (userRep.getServiceAccountClientId() != null) {
+            ClientModel client = getClient(userRep.getServiceAccountClientId());
+            if (client == null) {
+                throw new ModelException("Unable to find client specified for service account link. Client: " + userRep.getServiceAccountClientId());
+            }
+            user.setServiceAccountClientLink(client.getId());
+        }
+        return user;
+    }
+
+    /**
+     * As in {@link UserAdapter#setAttribute(String, List)}, the username, email, first and last name given as attributes are stored
+     * in the columns of the user, and take precedence over the fields of the representation.
+     */
+    private void setColumnAttributes(UserEntity user, UserRepresentation userRep) {
+        if (userRep.getAttributes() == null) {
+            return;
+        }
+        for (Map.Entry<String, List<String>> entry : userRep.getAttributes().entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            String value = entry.getValue().isEmpty() ? null : entry.getValue().get(0);
+            switch (entry.getKey()) {
+                case UserModel.FIRST_NAME:
+                    user.setFirstName(value);
+                    break;
+                case UserModel.LAST_NAME:
+                    user.setLastName(value);
+                    break;
+                case UserModel.EMAIL:
+                    setEmail(user, value);
+                    break;
+                case UserModel.USERNAME:
+                    user.setUsername(KeycloakModelUtils.toLowerCaseSafe(value));
+                    break;
+            }
+        }
+    }
+
+    private static boolean isUserColumn(String attribute) {
+        return UserModel.FIRST_NAME.equals(attribute) || UserModel.LAST_NAME.equals(attribute)
+                || UserModel.EMAIL.equals(attribute) || UserModel.USERNAME.equals(attribute);
+    }
+
+    private void setEmail(UserEntity user, String email) {
+        if (ObjectUtil.isBlank(email)) {
+            email = null;
+        }
+        user.setEmail(KeycloakModelUtils.toLowerCaseSafe(email), realm.isDuplicateEmailsAllowed());
+    }
+
+    private void persistAttributes(UserEntity user, UserRepresentation userRep) {
+        if (userRep.getAttributes() == null) {
+            return;
+        }
+        for (Map.Entry<String, List<String>> entry : userRep.getAttributes().entrySet()) {
+            if (entry.getValue() == null || isUserColumn(entry.getKey())) {
+                continue;
+            }
+            for (String value : entry.getValue()) {
+                if (value != null) {
+                    UserAttributeEntity attribute = new UserAttributeEntity();
+                    attribute.setId(KeycloakModelUtils.generateId());
+                    attribute.setName(entry.getKey());
+                    attribute.setValue(value);
+                    attribute.setUser(user);
+                    persist(attribute);
+                    user.getAttributes().add(attribute);
+                }
+            }
+        }
+    }
+
+    private void persistRequiredActions(UserEntity user, UserRepresentation userRep) {
+        if (userRep.getRequiredActions() == null) {
+            return;
+        }
+        userRep.getRequiredActions().stream().filter(Objects::nonNull).distinct().forEach(action -> {
+            UserRequiredActionEntity requiredAction = new UserRequiredActionEntity();
+            requiredAction.setAction(action);
+            requiredAction.setUser(user);
+            persist(requiredAction);
+            user.getRequiredActions().add(requiredAction);
+        });
+    }
+
+    private void persistCredentials(UserEntity user, UserRepresentation userRep) {
+        if (userRep.getCredentials() == null) {
+            return;
+        }
+        int priority = 0;
+        for (CredentialRepresentation cred : userRep.getCredentials()) {
+            priority += JpaUserCredentialStore.PRIORITY_DIFFERENCE;
+            CredentialEntity credential = new CredentialEntity();
+            credential.setId(cred.getId() == null ? KeycloakModelUtils.generateId() : cred.getId());
+            credential.setCreatedDate(cred.getCreatedDate());
+            credential.setUserLabel(cred.getUserLabel());
+            credential.setType(cred.getType());
+            credential.setSecretData(cred.getSecretData());
+            credential.setCredentialData(cred.getCredentialData());
+            credential.setPriority(priority);
+            credential.setUser(user);
+            persist(credential);
+        }
+    }
+
+    private void persistFederatedIdentities(UserEntity user, UserRepresentation userRep) {
+        if (userRep.getFederatedIdentities() == null) {
+            return;
+        }
+        for (FederatedIdentityRepresentation identity : userRep.getFederatedIdentities()) {
+            FederatedIdentityEntity federatedIdentity = new FederatedIdentityEntity();
+            federatedIdentity.setRealmId(realm.getId());
+            federatedIdentity.setIdentityProvider(identity.getIdentityProvider());
+            federatedIdentity.setUserId(identity.getUserId());
+            federatedIdentity.setUserName(KeycloakModelUtils.toLowerCaseSafe(identity.getUserName()));
+            federatedIdentity.setUser(user);
+            persist(federatedIdentity);
+        }
+    }
+
+    private List<String> resolveRoleIds(UserRepresentation userRep) {
+        List<String> roleIds = new ArrayList<>();
+        if (userRep.getRealmRoles() != null) {
+            for (String roleName : userRep.getRealmRoles()) {
+                RoleModel role = realmRoles.computeIfAbsent(roleName.trim(), name -> {
+                    RoleModel realmRole = realm.getRole(name);
+                    return realmRole != null ? realmRole : realm.addRole(name);
+                });
+                addDistinct(roleIds, role.getId());
+            }
+        }
+        if (userRep.getClientRoles() != null) {
+            for (Map.Entry<String, List<String>> entry : userRep.getClientRoles().entrySet()) {
+                ClientModel client = getClient(entry.getKey());
+                if (client == null) {
+                    throw new ModelException("Unable to find client role mappings for client: " + entry.getKey());
+                }
+                for (String roleName : entry.getValue()) {
+                    RoleModel role = client.getRole(roleName.trim());
+                    if (role == null) {
+                        role = client.addRole(roleName.trim());
+                    }
+                    addDistinct(roleIds, role.getId());
+                }
+            }
+        }
+        return roleIds;
+    }
+
+    private List<GroupModel> resolveGroups(UserRepresentation userRep) {
+        List<GroupModel> userGroups = new ArrayList<>();
+        if (userRep.getGroups() != null) {
+            for (String path : userRep.getGroups()) {
+                GroupModel group = groups.computeIfAbsent(path, p -> KeycloakModelUtils.findGroupByPath(session, realm, p));
+                if (group == null) {
+                    throw new ModelException("Unable to find group specified by path: " + path);
+                }
+                if (!userGroups.contains(group)) {
+                    userGroups.add(group);
+                }
+            }
+        }
+        return userGroups;
+    }
+
+    private ClientModel getClient(String clientId) {
+        return clients.computeIfAbsent(clientId, realm::getClientByClientId);
+    }
+
+    private static void addDistinct(List<String> ids, String id) {
+        if (!ids.contains(id)) {
+            ids.add(id);
+        }
+    }
+}
@@ -45,6 +45,7 @@ import org.keycloak.models.jpa.entities.UserConsentEntity;
 import org.keycloak.models.jpa.entities.UserEntity;
 import org.keycloak.models.jpa.entities.UserGroupMembershipEntity;
 import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.representations.idm.UserRepresentation;
 import org.keycloak.storage.StorageId;
 import org.keycloak.storage.UserStorageProvider;
 import org.keycloak.storage.client.ClientStorageProvider;
@@ -62,6 +63,8 @@ import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import jakarta.persistence.criteria.Subquery;
 import org.keycloak.storage.jpa.JpaHashUtils;
+import org.keycloak.storage.user.UserBulkImportProvider;
+import org.keycloak.storage.user.UserSearchPage;
 import org.keycloak.utils.StringUtil;
 
 import java.util.ArrayList;
@@ -74,6 +77,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.keycloak.models.jpa.PaginationUtils.paginateQuery;
@@ -86,7 +90,7 @@ import static org.keycloak.utils.StreamsUtil.closing;
  * @version $Revision: 1 $
  */
 @SuppressWarnings("JpaQueryApiInspection")
-public class JpaUserProvider implements UserProvider, UserCredentialStore {
+public class JpaUserProvider implements UserProvider, UserCredentialStore, UserBulkImportProvider {
 
     private static final String EMAIL = "email";
     private static final String EMAIL_VERIFIED = "emailVerified";
@@ -143,6 +147,11 @@ public class JpaUserProvider implements UserProvider, UserCredentialStore {
         return addUser(realm, KeycloakModelUtils.generateId(), username.toLowerCase(), true, true);
     }
 
+    @Override
+    public void importUsers(RealmModel realm, List<UserRepresentation> users) {
+        new JpaUserBulkImport(session, em, realm).importUsers(users);
+    }
+
     @Override
     public boolean removeUser(RealmModel realm, UserModel user) {
         UserEntity userEntity = em.find(UserEntity.class, user.getId(), LockModeType.PESSIMISTIC_WRITE);
@@ -746,17 +755,54 @@ public class JpaUserProvider implements UserProvider, UserCredentialStore {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public Stream<UserModel> searchForUserStream(RealmModel realm, Map<String, String> attributes, Integer firstResult, Integer maxResults) {
+        Map<String, String> customLongValueSearchAttributes = new HashMap<>();
+        TypedQuery<UserEntity> query = createSearchForUserQuery(realm, attributes, customLongValueSearchAttributes, null);
+
+        UserProvider users = session.users();
+        return closing(paginateQuery(query, firstResult, maxResults).getResultStream())
+                // following check verifies that there are no collisions with hashes
+                .filter(predicateForFilteringUsersByAttributes(customLongValueSearchAttributes, JpaHashUtils::compareSourceValueLowerCase))
+                .map(userEntity -> users.getUserById(realm, userEntity.getId()))
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * The continuation token is the username of the last user of the page, so the following page is selected by the index on
+     * the usernames of the realm rather than by skipping the users of the previous pages.
+     */
+    @Override
+    public UserSearchPage searchForUserPage(RealmModel realm, Map<String, String> attributes, String continuationToken, int maxResults) {
+        Map<String, String> customLongValueSearchAttributes = new HashMap<>();
+        TypedQuery<UserEntity> query = createSearchForUserQuery(realm, attributes, customLongValueSearchAttributes, continuationToken);
+        List<UserEntity> entities = query.setMaxResults(maxResults).getResultList();
+
+        UserProvider users = session.users();
+        List<UserModel> result = entities.stream()
+                // following check verifies that there are no collisions with hashes
+                .filter(predicateForFilteringUsersByAttributes(customLongValueSearchAttributes, JpaHashUtils::compareSourceValueLowerCase))
+                .map(userEntity -> users.getUserById(realm, userEntity.getId()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        // the token is taken from the rows read, as some of them might have been filtered out
+        return new UserSearchPage(result, entities.size() < maxResults ? null : entities.get(entities.size() - 1).getUsername());
+    }
+
+    @SuppressWarnings("unchecked")
+    private TypedQuery<UserEntity> createSearchForUserQuery(RealmModel realm, Map<String, String> attributes, Map<String, String> customLongValueSearchAttributes, String afterUsername) {
         CriteriaBuilder builder = em.getCriteriaBuilder();
         CriteriaQuery<UserEntity> queryBuilder = builder.createQuery(UserEntity.class);
         Root<UserEntity> root = queryBuilder.from(UserEntity.class);
 
-        Map<String, String> customLongValueSearchAttributes = new HashMap<>();
         List<Predicate> predicates = predicates(attributes, root, customLongValueSearchAttributes);
 
         predicates.add(builder.equal(root.get("realmId"), realm.getId()));
 
+        if (afterUsername != null) {
+            predicates.add(builder.greaterThan(root.get(UserModel.USERNAME), afterUsername));
+        }
+
         Set<String> userGroups = (Set<String>) session.getAttribute(UserModel.GROUPS);
 
         if (userGroups != null) {
@@ -765,14 +811,7 @@ public class JpaUserProvider implements UserProvider, UserCredentialStore {
 
         queryBuilder.where(predicates.toArray(Predicate[]::new)).orderBy(builder.asc(root.get(UserModel.USERNAME)));
 
-        TypedQuery<UserEntity> query = em.createQuery(queryBuilder);
-
-        UserProvider users = session.users();
-        return closing(paginateQuery(query, firstResult, maxResults).getResultStream())
-                // following check verifies that there are no collisions with hashes
-                .filter(predicateForFilteringUsersByAttributes(customLongValueSearchAttributes, JpaHashUtils::compareSourceValueLowerCase))
-                .map(userEntity -> users.getUserById(realm, userEntity.getId()))
-                .filter(Objects::nonNull);
+        return em.createQuery(queryBuilder);
     }
 
     @Override
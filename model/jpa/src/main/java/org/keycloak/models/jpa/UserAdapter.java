@@ -435,7 +435,11 @@ public class UserAdapter implements UserModel, JpaModel<UserEntity> {
 
     @Override
     public boolean isMemberOf(GroupModel group) {
-        return RoleUtils.isMember(getGroupsStream(), group);
+        // the closure of the group hierarchy covers the memberships of the subgroups as well
+        return em.createNamedQuery("userMemberOfGroupOrDescendant", Long.class)
+                .setParameter("user", getEntity())
+                .setParameter("groupId", group.getId())
+                .getSingleResult() > 0;
     }
 
     protected TypedQuery<UserGroupMembershipEntity> getUserGroupMappingQuery(GroupModel group) {
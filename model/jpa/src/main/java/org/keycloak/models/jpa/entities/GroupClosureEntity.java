@@ -0,0 +1,160 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.jpa.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.NamedQueries;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Closure of the group hierarchy: one row for each group and each of its ancestors, including the group itself at depth 0.
+ */
+@NamedQueries({
+        @NamedQuery(name="getGroupAncestorIds", query="select c.ancestorId from GroupClosureEntity c where c.descendantId = :groupId and c.depth > 0 order by c.depth"),
+        @NamedQuery(name="getGroupAncestors", query="select g from GroupClosureEntity c, GroupEntity g where c.descendantId = :groupId and c.depth > 0 " +
+                "and g.id = c.ancestorId order by c.depth"),
+        @NamedQuery(name="getGroupDescendantIds", query="select c.descendantId from GroupClosureEntity c where c.ancestorId = :groupId"),
+        @NamedQuery(name="insertGroupClosureLinks", query="insert into GroupClosureEntity (ancestorId, descendantId, depth, realmId) " +
+                "select a.ancestorId, d.descendantId, a.depth + d.depth + 1, d.realmId from GroupClosureEntity a, GroupClosureEntity d " +
+                "where a.descendantId = :parentId and d.ancestorId = :groupId"),
+        @NamedQuery(name="userMemberOfGroupOrDescendant", query="select count(m) from UserGroupMembershipEntity m where m.user = :user and m.groupId in " +
+                "(select c.descendantId from GroupClosureEntity c where c.ancestorId = :groupId)"),
+        @NamedQuery(name="deleteGroupClosureLinks", query="delete from GroupClosureEntity c where c.ancestorId in :ancestorIds and c.descendantId in :descendantIds"),
+        @NamedQuery(name="deleteGroupClosureByGroup", query="delete from GroupClosureEntity c where c.ancestorId = :groupId or c.descendantId = :groupId")
+})
+@Table(name="GROUP_CLOSURE")
+@Entity
+@IdClass(GroupClosureEntity.Key.class)
+public class GroupClosureEntity {
+
+    @Id
+    @Column(name = "ANCESTOR_ID", length = 36)
+    protected String ancestorId;
+
+    @Id
+    @Column(name = "DESCENDANT_ID", length = 36)
+    protected String descendantId;
+
+    @Column(name = "DEPTH")
+    protected int depth;
+
+    @Column(name = "REALM_ID")
+    protected String realmId;
+
+    public GroupClosureEntity() {
+    }
+
+    public GroupClosureEntity(String ancestorId, String descendantId, int depth, String realmId) {
+        this.ancestorId = ancestorId;
+        this.descendantId = descendantId;
+        this.depth = depth;
+        this.realmId = realmId;
+    }
+
+    public String getAncestorId() {
+        return ancestorId;
+    }
+
+    public void setAncestorId(String ancestorId) {
+        this.ancestorId = ancestorId;
+    }
+
+    public String getDescendantId() {
+        return descendantId;
+    }
+
+    public void setDescendantId(String descendantId) {
+        this.descendantId = descendantId;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public String getRealmId() {
+        return realmId;
+    }
+
+    public void setRealmId(String realmId) {
+        this.realmId = realmId;
+    }
+
+    public static class Key implements Serializable {
+
+        protected String ancestorId;
+
+        protected String descendantId;
+
+        public Key() {
+        }
+
+        public Key(String ancestorId, String descendantId) {
+            this.ancestorId = ancestorId;
+            this.descendantId = descendantId;
+        }
+
+        public String getAncestorId() {
+            return ancestorId;
+        }
+
+        public String getDescendantId() {
+            return descendantId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+
+            return Objects.equals(ancestorId, key.ancestorId) && Objects.equals(descendantId, key.descendantId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ancestorId, descendantId);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null) return false;
+        if (!(o instanceof GroupClosureEntity)) return false;
+
+        GroupClosureEntity that = (GroupClosureEntity) o;
+
+        return Objects.equals(ancestorId, that.ancestorId) && Objects.equals(descendantId, that.descendantId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ancestorId, descendantId);
+    }
+}
@@ -20,25 +20,33 @@ package org.keycloak.models.jpa.session;
 import org.jboss.logging.Logger;
 import org.keycloak.common.Profile;
 import org.keycloak.common.util.Time;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.models.Constants;
 import org.keycloak.models.AuthenticatedClientSessionModel;
 import org.keycloak.models.ClientModel;
 import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.ModelException;
 import org.keycloak.models.OfflineUserSessionModel;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.models.UserSessionModel;
 import org.keycloak.models.session.PersistentAuthenticatedClientSessionAdapter;
 import org.keycloak.models.session.PersistentClientSessionModel;
+import org.keycloak.models.session.PersistentSessionDataCodec;
 import org.keycloak.models.session.PersistentUserSessionAdapter;
 import org.keycloak.models.session.PersistentUserSessionModel;
 import org.keycloak.models.session.UserSessionPersisterProvider;
+import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.models.utils.SessionTimeoutHelper;
 import org.keycloak.storage.StorageId;
 
+import org.hibernate.Session;
+
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -46,6 +54,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -62,15 +71,66 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
 
     private final KeycloakSession session;
     private final EntityManager em;
+    private final boolean deferFlush;
+    private final int expirationChunkSize;
+    private final long expirationChunkPauseMillis;
+    private final PersistentSessionCounters counters;
+    private final PersistentSessionDataCodec.Format dataFormat;
+    private final Map<String, Integer> clientExpirationCursors;
+    private PersistentSessionCounters.Changes countersChanges;
 
     public JpaUserSessionPersisterProvider(KeycloakSession session, EntityManager em) {
+        this(session, em, 0, 0, null, PersistentSessionDataCodec.Format.JSON, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @param clientExpirationCursors shared by the providers of the same factory, the last session refresh up to which the client
+     *                                sessions of each realm were removed in a previous run of {@link #removeExpired(RealmModel)}
+     */
+    public JpaUserSessionPersisterProvider(KeycloakSession session, EntityManager em, int expirationChunkSize, long expirationChunkPauseMillis,
+                                           PersistentSessionCounters counters, PersistentSessionDataCodec.Format dataFormat,
+                                           Map<String, Integer> clientExpirationCursors) {
         this.session = session;
         this.em = em;
+        this.expirationChunkSize = expirationChunkSize;
+        this.expirationChunkPauseMillis = expirationChunkPauseMillis;
+        this.counters = counters;
+        this.dataFormat = dataFormat;
+        this.clientExpirationCursors = clientExpirationCursors;
+
+        Integer jdbcBatchSize = session.getAttribute(Constants.STORAGE_JDBC_BATCH_SIZE, Integer.class);
+        if (jdbcBatchSize != null && jdbcBatchSize > 1) {
+            // writes are flushed at the end of the transaction, and Hibernate sends the same statements as one JDBC batch
+            em.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            this.deferFlush = true;
+        } else {
+            this.deferFlush = false;
+        }
+    }
+
+    private void flush() {
+        if (!deferFlush) {
+            em.flush();
+        }
+    }
+
+    private PersistentSessionCounters.Changes getCountersChanges() {
+        if (countersChanges == null) {
+            countersChanges = counters.changes(session);
+        }
+        return countersChanges;
+    }
+
+    private void invalidateCounters(String realmId) {
+        if (counters != null) {
+            getCountersChanges().invalidate(realmId);
+        }
     }
 
     @Override
     public void createUserSession(UserSessionModel userSession, boolean offline) {
         PersistentUserSessionAdapter adapter = new PersistentUserSessionAdapter(userSession);
+        adapter.setDataFormat(dataFormat);
         PersistentUserSessionModel model = adapter.getUpdatedModel();
 
         PersistentUserSessionEntity entity = new PersistentUserSessionEntity();
@@ -84,12 +144,13 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
         entity.setData(model.getData());
         entity.setBrokerSessionId(userSession.getBrokerSessionId());
         em.persist(entity);
-        em.flush();
+        flush();
     }
 
     @Override
     public void createClientSession(AuthenticatedClientSessionModel clientSession, boolean offline) {
         PersistentAuthenticatedClientSessionAdapter adapter = new PersistentAuthenticatedClientSessionAdapter(session, clientSession);
+        adapter.setDataFormat(dataFormat);
         PersistentClientSessionModel model = adapter.getUpdatedModel();
 
         String userSessionId = clientSession.getUserSession().getId();
@@ -127,7 +188,11 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
 
         if (!exists) {
             em.persist(entity);
-            em.flush();
+            flush();
+
+            if (counters != null) {
+                getCountersChanges().increment(clientSession.getRealm().getId(), clientSession.getClient().getId(), offline);
+            }
         }
     }
 
@@ -135,6 +200,14 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
     public void removeUserSession(String userSessionId, boolean offline) {
         String offlineStr = offlineToString(offline);
 
+        if (counters != null) {
+            closing(em.createNamedQuery("findClientSessionsClientIdsByUserSession", Object[].class)
+                    .setParameter("userSessionId", userSessionId)
+                    .setParameter("offline", offlineStr)
+                    .getResultStream())
+                    .forEach(row -> getCountersChanges().decrement((String) row[3], toClientId(row), offline));
+        }
+
         em.createNamedQuery("deleteClientSessionsByUserSession")
                 .setParameter("userSessionId", userSessionId)
                 .setParameter("offline", offlineStr)
@@ -143,7 +216,7 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
         PersistentUserSessionEntity sessionEntity = em.find(PersistentUserSessionEntity.class, new PersistentUserSessionEntity.Key(userSessionId, offlineStr), LockModeType.PESSIMISTIC_WRITE);
         if (sessionEntity != null) {
             em.remove(sessionEntity);
-            em.flush();
+            flush();
         }
     }
 
@@ -165,6 +238,13 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
         if (sessionEntity != null) {
             em.remove(sessionEntity);
 
+            if (counters != null) {
+                PersistentUserSessionEntity userSessionEntity = em.find(PersistentUserSessionEntity.class, new PersistentUserSessionEntity.Key(userSessionId, offlineStr));
+                if (userSessionEntity != null) {
+                    getCountersChanges().decrement(userSessionEntity.getRealmId(), clientUUID, offline);
+                }
+            }
+
             if (offline) {
                 // Remove userSession if it was last clientSession
                 List<PersistentClientSessionEntity> clientSessions = getClientSessionsByUserSession(sessionEntity.getUserSessionId(), offline);
@@ -177,7 +257,7 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
                 }
             }
 
-            em.flush();
+            flush();
         }
     }
 
@@ -194,6 +274,8 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
 
     @Override
     public void onRealmRemoved(RealmModel realm) {
+        invalidateCounters(realm.getId());
+
         int deletedClientSessions = em.createNamedQuery("deleteClientSessionsByRealm")
                 .setParameter("realmId", realm.getId())
                 .executeUpdate();
@@ -205,6 +287,7 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
 
     @Override
     public void onClientRemoved(RealmModel realm, ClientModel client) {
+        invalidateCounters(realm.getId());
         onClientRemoved(client.getId());
     }
 
@@ -227,6 +310,7 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
     }
 
     private void onUserRemoved(RealmModel realm, String userId) {
+        invalidateCounters(realm.getId());
         int num = em.createNamedQuery("deleteClientSessionsByUser").setParameter("userId", userId).executeUpdate();
         num = em.createNamedQuery("deleteUserSessionsByUser").setParameter("userId", userId).executeUpdate();
     }
@@ -273,6 +357,13 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
     }
 
     private void expire(RealmModel realm, int expiredClientOffline, int expiredOffline, boolean offline) {
+        invalidateCounters(realm.getId());
+
+        if (expirationChunkSize > 0) {
+            expireInChunks(realm, expiredClientOffline, expiredOffline, offline);
+            return;
+        }
+
         String offlineStr = offlineToString(offline);
 
         logger.tracef("Trigger removing expired user sessions for realm '%s'", realm.getName());
@@ -292,8 +383,122 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
         logger.debugf("Removed %d expired user sessions and %d expired client sessions in realm '%s'", us, cs, realm.getName());
     }
 
+    /**
+     * Removes the expired sessions in chunks of at most {@link #expirationChunkSize} sessions, each of them in its own transaction,
+     * so the database never needs to lock or log a large part of the sessions tables at once.
+     * The sessions are walked in the order of the index on the last session refresh, which groups them by their expiration time.
+     */
+    private void expireInChunks(RealmModel realm, int expiredClientOffline, int expiredOffline, boolean offline) {
+        String realmId = realm.getId();
+        String offlineStr = offlineToString(offline);
+
+        logger.tracef("Trigger removing expired user sessions for realm '%s' in chunks of %d", realm.getName(), expirationChunkSize);
+
+        int clientSessions = 0;
+        int userSessions = 0;
+
+        // Client sessions might expire sooner than their user sessions, the client sessions of the user sessions which expire
+        // as well are removed together with their user sessions below.
+        // The client sessions of the user sessions below the cutoff of the previous run were removed by that run, so the walk
+        // continues from there instead of from the expiration of the user sessions, which would cover the whole backlog of
+        // user sessions outliving their client sessions on every run. A client session added to such a user session in the
+        // meantime without refreshing it is then only removed together with its user session.
+        String cursorKey = realmId + "/" + offlineStr;
+        Integer cursor = clientExpirationCursors.get(cursorKey);
+        int fromClientExpiration = cursor == null ? expiredOffline : Math.max(expiredOffline, cursor);
+        if (expiredClientOffline > fromClientExpiration) {
+            int[] fromLastSessionRefresh = { fromClientExpiration };
+            String[] fromUserSessionId = { "" };
+            while (true) {
+                int[] removed = { 0, 0 };
+                KeycloakModelUtils.runJobInTransaction(session.getKeycloakSessionFactory(), chunkSession -> {
+                    EntityManager chunkEm = chunkSession.getProvider(JpaConnectionProvider.class).getEntityManager();
+                    List<Object[]> rows = chunkEm.createNamedQuery("findUserSessionIdsByLastSessionRefreshRange", Object[].class)
+                            .setParameter("realmId", realmId)
+                            .setParameter("offline", offlineStr)
+                            .setParameter("toLastSessionRefresh", expiredClientOffline)
+                            .setParameter("fromLastSessionRefresh", fromLastSessionRefresh[0])
+                            .setParameter("fromUserSessionId", fromUserSessionId[0])
+                            .setMaxResults(expirationChunkSize)
+                            .getResultList();
+                    if (rows.isEmpty()) {
+                        return;
+                    }
+                    Object[] last = rows.get(rows.size() - 1);
+                    fromUserSessionId[0] = (String) last[0];
+                    fromLastSessionRefresh[0] = (Integer) last[1];
+                    removed[0] = rows.size();
+                    removed[1] = chunkEm.createNamedQuery("deleteClientSessionsByUserSessions")
+                            .setParameter("userSessionIds", rows.stream().map(row -> (String) row[0]).collect(Collectors.toList()))
+                            .setParameter("offline", offlineStr)
+                            .executeUpdate();
+                });
+                clientSessions += removed[1];
+                if (removed[0] < expirationChunkSize) {
+                    break;
+                }
+                pauseBetweenChunks();
+            }
+            clientExpirationCursors.merge(cursorKey, expiredClientOffline, Math::max);
+        }
+
+        while (true) {
+            int[] removed = { 0, 0, 0 };
+            KeycloakModelUtils.runJobInTransaction(session.getKeycloakSessionFactory(), chunkSession -> {
+                EntityManager chunkEm = chunkSession.getProvider(JpaConnectionProvider.class).getEntityManager();
+                List<String> userSessionIds = chunkEm.createNamedQuery("findExpiredUserSessionIds", String.class)
+                        .setParameter("realmId", realmId)
+                        .setParameter("offline", offlineStr)
+                        .setParameter("lastSessionRefresh", expiredOffline)
+                        .setMaxResults(expirationChunkSize)
+                        .getResultList();
+                if (userSessionIds.isEmpty()) {
+                    return;
+                }
+                removed[0] = userSessionIds.size();
+                removed[1] = chunkEm.createNamedQuery("deleteClientSessionsByUserSessions")
+                        .setParameter("userSessionIds", userSessionIds)
+                        .setParameter("offline", offlineStr)
+                        .executeUpdate();
+                // sessions refreshed in the meantime are not removed
+                removed[2] = chunkEm.createNamedQuery("deleteExpiredUserSessionsByIds")
+                        .setParameter("userSessionIds", userSessionIds)
+                        .setParameter("offline", offlineStr)
+                        .setParameter("lastSessionRefresh", expiredOffline)
+                        .executeUpdate();
+            });
+            clientSessions += removed[1];
+            userSessions += removed[2];
+            // stop if the chunk was not full, or if none of its sessions could be removed to avoid looping over the same sessions
+            if (removed[0] < expirationChunkSize || removed[2] == 0) {
+                break;
+            }
+            pauseBetweenChunks();
+        }
+
+        logger.debugf("Removed %d expired user sessions and %d expired client sessions in realm '%s'", userSessions, clientSessions, realm.getName());
+    }
+
+    private void pauseBetweenChunks() {
+        if (expirationChunkPauseMillis > 0) {
+            try {
+                Thread.sleep(expirationChunkPauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     @Override
     public Map<String, Long> getUserSessionsCountsByClients(RealmModel realm, boolean offline) {
+        if (counters != null) {
+            return counters.getCountsByClients(realm.getId(), offline, countersChanges, () -> loadUserSessionsCountsByClients(realm, offline));
+        }
+        return loadUserSessionsCountsByClients(realm, offline);
+    }
+
+    private Map<String, Long> loadUserSessionsCountsByClients(RealmModel realm, boolean offline) {
 
         String offlineStr = offlineToString(offline);
 
@@ -303,15 +508,20 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
         query.setParameter("realmId", realm.getId());
 
         return closing(query.getResultStream())
-                .collect(Collectors.toMap(row -> {
-                    String clientId = row[0].toString();
-                    if (clientId.equals(PersistentClientSessionEntity.EXTERNAL)) {
-                        final String externalClientId = row[1].toString();
-                        final String clientStorageProvider = row[2].toString();
-                        clientId = new StorageId(clientStorageProvider, externalClientId).getId();
-                    }
-                    return clientId;
-                }, row -> (Long) row[3]));
+                .collect(Collectors.toMap(JpaUserSessionPersisterProvider::toClientId, row -> (Long) row[3]));
+    }
+
+    /**
+     * Returns the client ID from the client ID, external client ID and client storage provider in the first three columns of the row.
+     */
+    private static String toClientId(Object[] row) {
+        String clientId = row[0].toString();
+        if (clientId.equals(PersistentClientSessionEntity.EXTERNAL)) {
+            final String externalClientId = row[1].toString();
+            final String clientStorageProvider = row[2].toString();
+            clientId = new StorageId(clientStorageProvider, externalClientId).getId();
+        }
+        return clientId;
     }
 
     @Override
@@ -350,6 +560,50 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
         }).orElse(null);
     }
 
+    @Override
+    public UserSessionModel loadUserSessionWithLazyClientSessions(RealmModel realm, String userSessionId, boolean offline) {
+
+        String offlineStr = offlineToString(offline);
+
+        TypedQuery<PersistentUserSessionEntity> userSessionQuery = em.createNamedQuery("findUserSession", PersistentUserSessionEntity.class);
+        userSessionQuery.setParameter("realmId", realm.getId());
+        userSessionQuery.setParameter("offline", offlineStr);
+        userSessionQuery.setParameter("userSessionId", userSessionId);
+        userSessionQuery.setMaxResults(1);
+
+        Stream<OfflineUserSessionModel> persistentUserSessions = closing(userSessionQuery.getResultStream().map(this::toAdapter));
+
+        return persistentUserSessions.findAny().map(userSession -> {
+
+            // the data of the client sessions are not selected, they are loaded when the client session is accessed
+            TypedQuery<Object[]> clientSessionQuery = em.createNamedQuery("findClientSessionKeysByUserSession", Object[].class);
+            clientSessionQuery.setParameter("userSessionId", userSessionId);
+            clientSessionQuery.setParameter("offline", offlineStr);
+
+            Set<String> removedClientUUIDs = new HashSet<>();
+
+            closing(clientSessionQuery.getResultStream()).forEach(row -> {
+                String clientId = toClientId(row);
+                ClientModel client = realm.getClientById(clientId);
+                if (client == null) {
+                    // client was removed in the meantime
+                    removedClientUUIDs.add(clientId);
+                    return;
+                }
+
+                PersistentClientSessionEntity.Key key = new PersistentClientSessionEntity.Key(userSessionId, (String) row[0], (String) row[2], (String) row[1], offlineStr);
+                PersistentClientSessionModel model = new LazyPersistentClientSessionModel(key, clientId, (Integer) row[3]);
+                PersistentAuthenticatedClientSessionAdapter adapter = new PersistentAuthenticatedClientSessionAdapter(session, model, realm, client, userSession);
+                adapter.setDataFormat(dataFormat);
+                userSession.getAuthenticatedClientSessions().put(clientId, adapter);
+            });
+
+            removedClientUUIDs.forEach(this::onClientRemoved);
+
+            return userSession;
+        }).orElse(null);
+    }
+
     @Override
     public UserSessionModel loadUserSessionsStreamByBrokerSessionId(RealmModel realm, String brokerSessionId, boolean offline) {
 
@@ -461,6 +715,35 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
                 .orElse(null);
     }
 
+    @Override
+    public Stream<AuthenticatedClientSessionModel> loadClientSessionsStream(RealmModel realm, Collection<ClientModel> clients, UserSessionModel userSession, boolean offline) {
+        List<String> localClientIds = new ArrayList<>();
+        List<ClientModel> externalClients = new ArrayList<>();
+        for (ClientModel client : clients) {
+            if (new StorageId(client.getId()).isLocal()) {
+                localClientIds.add(client.getId());
+            } else {
+                externalClients.add(client);
+            }
+        }
+
+        // the clients from client storage providers are rare, so they are looked up one by one
+        Stream<AuthenticatedClientSessionModel> externalClientSessions = externalClients.stream()
+                .map(client -> loadClientSession(realm, client, userSession, offline))
+                .filter(Objects::nonNull);
+
+        if (localClientIds.isEmpty()) {
+            return externalClientSessions;
+        }
+
+        TypedQuery<PersistentClientSessionEntity> query = em.createNamedQuery("findClientSessionsByUserSessionAndClients", PersistentClientSessionEntity.class);
+        query.setParameter("userSessionId", userSession.getId());
+        query.setParameter("offline", offlineToString(offline));
+        query.setParameter("clientIds", localClientIds);
+
+        return Stream.concat(closing(query.getResultStream()).map(entity -> toAdapter(realm, userSession, entity)), externalClientSessions);
+    }
+
     /**
      *
      * @param query
@@ -619,7 +902,9 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
         };
 
         Map<String, AuthenticatedClientSessionModel> clientSessions = new HashMap<>();
-        return new PersistentUserSessionAdapter(session, model, realm, entity.getUserId(), clientSessions);
+        PersistentUserSessionAdapter adapter = new PersistentUserSessionAdapter(session, model, realm, entity.getUserId(), clientSessions);
+        adapter.setDataFormat(dataFormat);
+        return adapter;
     }
 
     private AuthenticatedClientSessionModel toAdapter(RealmModel realm, UserSessionModel userSession, PersistentClientSessionEntity entity) {
@@ -675,7 +960,76 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
                 entity.setData(data);
             }
         };
-        return new PersistentAuthenticatedClientSessionAdapter(session, model, realm, client, userSession);
+        PersistentAuthenticatedClientSessionAdapter adapter = new PersistentAuthenticatedClientSessionAdapter(session, model, realm, client, userSession);
+        adapter.setDataFormat(dataFormat);
+        return adapter;
+    }
+
+    /**
+     * Client session, which loads its entity only when its data are needed.
+     */
+    private class LazyPersistentClientSessionModel implements PersistentClientSessionModel {
+
+        private final PersistentClientSessionEntity.Key key;
+        private final String clientId;
+        private final int timestamp;
+        private PersistentClientSessionEntity entity;
+
+        LazyPersistentClientSessionModel(PersistentClientSessionEntity.Key key, String clientId, int timestamp) {
+            this.key = key;
+            this.clientId = clientId;
+            this.timestamp = timestamp;
+        }
+
+        private PersistentClientSessionEntity getEntity() {
+            if (entity == null) {
+                entity = em.find(PersistentClientSessionEntity.class, key);
+                if (entity == null) {
+                    throw new ModelException("Client session of client '" + clientId + "' in user session '" + key.getUserSessionId() + "' not found");
+                }
+            }
+            return entity;
+        }
+
+        @Override
+        public String getUserSessionId() {
+            return key.getUserSessionId();
+        }
+
+        @Override
+        public void setUserSessionId(String userSessionId) {
+            getEntity().setUserSessionId(userSessionId);
+        }
+
+        @Override
+        public String getClientId() {
+            return clientId;
+        }
+
+        @Override
+        public void setClientId(String clientId) {
+            throw new IllegalStateException("forbidden");
+        }
+
+        @Override
+        public int getTimestamp() {
+            return entity == null ? timestamp : entity.getTimestamp();
+        }
+
+        @Override
+        public void setTimestamp(int timestamp) {
+            getEntity().setTimestamp(timestamp);
+        }
+
+        @Override
+        public String getData() {
+            return getEntity().getData();
+        }
+
+        @Override
+        public void setData(String data) {
+            getEntity().setData(data);
+        }
     }
 
     @Override
@@ -690,6 +1044,9 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
 
     @Override
     public int getUserSessionsCount(RealmModel realm, ClientModel clientModel, boolean offline) {
+        if (counters != null) {
+            return (int) counters.getCount(realm.getId(), clientModel.getId(), offline, countersChanges, () -> loadUserSessionsCountsByClients(realm, offline));
+        }
 
         String offlineStr = offlineToString(offline);
         Query query;
@@ -712,6 +1069,7 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
 
     @Override
     public void removeUserSessions(RealmModel realm, boolean offline) {
+        invalidateCounters(realm.getId());
         em.createNamedQuery("deleteClientSessionsByRealmSessionType")
                 .setParameter("realmId", realm.getId())
                 .setParameter("offline", offlineToString(offline))
@@ -728,7 +1086,7 @@ public class JpaUserSessionPersisterProvider implements UserSessionPersisterProv
         // NOOP
     }
 
-    private String offlineToString(boolean offline) {
+    static String offlineToString(boolean offline) {
         return offline ? "1" : "0";
     }
 
@@ -17,36 +17,98 @@
 
 package org.keycloak.models.jpa.session;
 
+import org.jboss.logging.Logger;
 import org.keycloak.Config;
 import org.keycloak.connections.jpa.JpaConnectionProvider;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.session.PersistentSessionDataCodec;
 import org.keycloak.models.session.UserSessionPersisterProvider;
 import org.keycloak.models.session.UserSessionPersisterProviderFactory;
+import org.keycloak.models.utils.PostMigrationEvent;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
+import org.keycloak.services.scheduled.ClusterAwareScheduledTaskRunner;
+import org.keycloak.timer.TimerProvider;
 
 import jakarta.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
  */
 public class JpaUserSessionPersisterProviderFactory implements UserSessionPersisterProviderFactory {
 
+    private static final Logger logger = Logger.getLogger(JpaUserSessionPersisterProviderFactory.class);
+
     public static final String ID = "jpa";
 
+    public static final String CONFIG_EXPIRATION_CHUNK_SIZE = "expirationChunkSize";
+    public static final int DEFAULT_EXPIRATION_CHUNK_SIZE = 1000;
+    // the IDs of a chunk are passed as an IN list, which is limited to 1000 items on Oracle
+    public static final int MAX_EXPIRATION_CHUNK_SIZE = 1000;
+    public static final String CONFIG_EXPIRATION_CHUNK_PAUSE = "expirationChunkPause";
+    public static final int DEFAULT_EXPIRATION_CHUNK_PAUSE = 0;
+    public static final String CONFIG_COUNTERS_RECONCILE_INTERVAL = "sessionCountersReconcileInterval";
+    public static final int DEFAULT_COUNTERS_RECONCILE_INTERVAL = 0;
+    public static final String CONFIG_DATA_FORMAT = "sessionDataFormat";
+    public static final String DEFAULT_DATA_FORMAT = "json";
+    public static final String CONFIG_DATA_REENCODE_INTERVAL = "sessionDataReencodeInterval";
+    public static final int DEFAULT_DATA_REENCODE_INTERVAL = 0;
+
+    private int expirationChunkSize;
+    private long expirationChunkPause;
+    private PersistentSessionCounters counters;
+    private PersistentSessionDataCodec.Format dataFormat;
+    private int dataReencodeInterval;
+    private final Map<String, Integer> clientExpirationCursors = new ConcurrentHashMap<>();
+
     @Override
     public UserSessionPersisterProvider create(KeycloakSession session) {
         EntityManager em = session.getProvider(JpaConnectionProvider.class).getEntityManager();
-        return new JpaUserSessionPersisterProvider(session, em);
+        return new JpaUserSessionPersisterProvider(session, em, expirationChunkSize, expirationChunkPause, counters, dataFormat, clientExpirationCursors);
     }
 
     @Override
     public void init(Config.Scope config) {
-
+        expirationChunkSize = config.getInt(CONFIG_EXPIRATION_CHUNK_SIZE, DEFAULT_EXPIRATION_CHUNK_SIZE);
+        if (expirationChunkSize > MAX_EXPIRATION_CHUNK_SIZE) {
+            logger.warnf("The option '%s' is limited to %d, using %d instead of %d", CONFIG_EXPIRATION_CHUNK_SIZE, MAX_EXPIRATION_CHUNK_SIZE,
+                    MAX_EXPIRATION_CHUNK_SIZE, expirationChunkSize);
+            expirationChunkSize = MAX_EXPIRATION_CHUNK_SIZE;
+        }
+        expirationChunkPause = config.getInt(CONFIG_EXPIRATION_CHUNK_PAUSE, DEFAULT_EXPIRATION_CHUNK_PAUSE);
+        int countersReconcileInterval = config.getInt(CONFIG_COUNTERS_RECONCILE_INTERVAL, DEFAULT_COUNTERS_RECONCILE_INTERVAL);
+        counters = countersReconcileInterval > 0 ? new PersistentSessionCounters(TimeUnit.SECONDS.toMillis(countersReconcileInterval)) : null;
+        dataFormat = PersistentSessionDataCodec.Format.of(config.get(CONFIG_DATA_FORMAT, DEFAULT_DATA_FORMAT));
+        dataReencodeInterval = config.getInt(CONFIG_DATA_REENCODE_INTERVAL, DEFAULT_DATA_REENCODE_INTERVAL);
     }
 
     @Override
     public void postInit(KeycloakSessionFactory factory) {
+        if (dataReencodeInterval > 0) {
+            factory.register(event -> {
+                if (event instanceof PostMigrationEvent) {
+                    scheduleDataReencoding(((PostMigrationEvent) event).getFactory());
+                }
+            });
+        }
+    }
 
+    private void scheduleDataReencoding(KeycloakSessionFactory factory) {
+        long interval = TimeUnit.SECONDS.toMillis(dataReencodeInterval);
+        int chunkSize = expirationChunkSize > 0 ? expirationChunkSize : DEFAULT_EXPIRATION_CHUNK_SIZE;
+        // leave a margin before the next run, so that the run does not outlive its cluster-wide lock
+        PersistentSessionDataReencodeTask task = new PersistentSessionDataReencodeTask(dataFormat, chunkSize, interval / 2);
+        try (KeycloakSession session = factory.create()) {
+            TimerProvider timer = session.getProvider(TimerProvider.class);
+            if (timer != null) {
+                timer.schedule(new ClusterAwareScheduledTaskRunner(factory, task, interval), interval);
+            }
+        }
     }
 
     @Override
@@ -63,4 +125,41 @@ public class JpaUserSessionPersisterProviderFactory implements UserSessionPersis
     public int order() {
         return 100;
     }
+
+    @Override
+    public List<ProviderConfigProperty> getConfigMetadata() {
+        return ProviderConfigurationBuilder.create()
+                .property()
+                .name(CONFIG_EXPIRATION_CHUNK_SIZE)
+                .helpText("Maximum number of expired user sessions removed in a single transaction, at most 1000. If zero or negative, all expired sessions of a realm are removed at once.")
+                .type("int")
+                .defaultValue(DEFAULT_EXPIRATION_CHUNK_SIZE)
+                .add()
+                .property()
+                .name(CONFIG_EXPIRATION_CHUNK_PAUSE)
+                .helpText("Pause in milliseconds between the removal of two chunks of expired user sessions.")
+                .type("int")
+                .defaultValue(DEFAULT_EXPIRATION_CHUNK_PAUSE)
+                .add()
+                .property()
+                .name(CONFIG_COUNTERS_RECONCILE_INTERVAL)
+                .helpText("If positive, the counts of sessions per client are maintained in memory and reconciled with the database after this interval in seconds. The counts are then only approximate: between two reconciles, they only reflect the changes done on this node. Each logout and removal of a client session also needs an additional query. If zero or negative, the sessions are counted in the database on each request.")
+                .type("int")
+                .defaultValue(DEFAULT_COUNTERS_RECONCILE_INTERVAL)
+                .add()
+                .property()
+                .name(CONFIG_DATA_FORMAT)
+                .helpText("Format in which the data of the persistent sessions is written. Sessions stored in any of the formats can always be read, but older versions can only read 'json'.")
+                .type("string")
+                .options("json", "binary", "compressed")
+                .defaultValue(DEFAULT_DATA_FORMAT)
+                .add()
+                .property()
+                .name(CONFIG_DATA_REENCODE_INTERVAL)
+                .helpText("Interval in seconds in which the data of the persistent sessions, stored in a different format than the configured one, is rewritten in the background. If zero or negative, the data is rewritten only when the session is updated.")
+                .type("int")
+                .defaultValue(DEFAULT_DATA_REENCODE_INTERVAL)
+                .add()
+                .build();
+    }
 }
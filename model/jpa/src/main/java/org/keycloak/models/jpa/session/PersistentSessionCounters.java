@@ -0,0 +1,169 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.jpa.session;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.keycloak.common.util.Time;
+import org.keycloak.models.AbstractKeycloakTransaction;
+import org.keycloak.models.KeycloakSession;
+
+/**
+ * Counts of the persistent client sessions per realm and client, shared by all the sessions of this node.
+ * <p>
+ * The counts of a realm are loaded with a single aggregate query, and then maintained incrementally from the client sessions
+ * created and removed on this node, so that the counting APIs don't need to query the database on each call. Changes done by
+ * other cluster nodes, and bulk removals which don't know the affected clients, are picked up when the counts are reconciled
+ * with the database, which happens once per reconcile interval, or right away on the next read after a bulk removal in the realm.
+ * The counts are therefore only approximate: they miss the changes of other nodes until the next reconcile, and a change
+ * committed while the counts are being loaded can be counted twice. Maintaining them also costs a query on each logout and
+ * removal of a client session, which is why they are only used when a reconcile interval is configured.
+ */
+class PersistentSessionCounters {
+
+    private final long reconcileIntervalMillis;
+    private final ConcurrentHashMap<RealmKey, RealmCounts> realms = new ConcurrentHashMap<>();
+
+    PersistentSessionCounters(long reconcileIntervalMillis) {
+        this.reconcileIntervalMillis = reconcileIntervalMillis;
+    }
+
+    /**
+     * Returns the counts of the client sessions of the realm by the client ID. The counts are loaded from the given loader,
+     * if they were not yet loaded, or if they were last reconciled longer than the reconcile interval ago.
+     *
+     * @param changes changes of the current transaction, or {@code null} if there are none
+     */
+    Map<String, Long> getCountsByClients(String realmId, boolean offline, Changes changes, Supplier<Map<String, Long>> loader) {
+        RealmKey key = new RealmKey(realmId, offline);
+        if (changes != null && changes.isModified(key)) {
+            // the loader would see the uncommitted changes of the current transaction, which are applied to the counts only on commit
+            return loader.get();
+        }
+        RealmCounts counts = realms.get(key);
+        long now = Time.currentTimeMillis();
+        if (counts == null || now - counts.reconciledAt >= reconcileIntervalMillis || now < counts.reconciledAt) {
+            counts = new RealmCounts(loader.get(), now);
+            realms.put(key, counts);
+        }
+        return counts.snapshot();
+    }
+
+    long getCount(String realmId, String clientId, boolean offline, Changes changes, Supplier<Map<String, Long>> loader) {
+        return getCountsByClients(realmId, offline, changes, loader).getOrDefault(clientId, 0L);
+    }
+
+    /**
+     * Forces the counts of the realm to be reloaded on their next read.
+     */
+    void invalidate(String realmId) {
+        realms.remove(new RealmKey(realmId, true));
+        realms.remove(new RealmKey(realmId, false));
+    }
+
+    /**
+     * Returns the changes of the counts done by the given session. They are applied once the transaction of the session is committed.
+     */
+    Changes changes(KeycloakSession session) {
+        Changes changes = new Changes();
+        session.getTransactionManager().enlistAfterCompletion(changes);
+        return changes;
+    }
+
+    private void apply(RealmKey key, Map<String, Long> deltas) {
+        RealmCounts counts = realms.get(key);
+        if (counts != null) {
+            deltas.forEach(counts::add);
+        }
+    }
+
+    class Changes extends AbstractKeycloakTransaction {
+
+        private final Map<RealmKey, Map<String, Long>> deltas = new HashMap<>();
+        private final Set<String> invalidatedRealms = new HashSet<>();
+
+        void increment(String realmId, String clientId, boolean offline) {
+            add(realmId, clientId, offline, 1);
+        }
+
+        void decrement(String realmId, String clientId, boolean offline) {
+            add(realmId, clientId, offline, -1);
+        }
+
+        void invalidate(String realmId) {
+            invalidatedRealms.add(realmId);
+        }
+
+        private boolean isModified(RealmKey key) {
+            return deltas.containsKey(key) || invalidatedRealms.contains(key.realmId());
+        }
+
+        private void add(String realmId, String clientId, boolean offline, long delta) {
+            deltas.computeIfAbsent(new RealmKey(realmId, offline), k -> new HashMap<>()).merge(clientId, delta, Long::sum);
+        }
+
+        @Override
+        protected void commitImpl() {
+            deltas.forEach((key, clientDeltas) -> {
+                if (!invalidatedRealms.contains(key.realmId())) {
+                    apply(key, clientDeltas);
+                }
+            });
+            invalidatedRealms.forEach(PersistentSessionCounters.this::invalidate);
+        }
+
+        @Override
+        protected void rollbackImpl() {
+        }
+    }
+
+    private record RealmKey(String realmId, boolean offline) {
+    }
+
+    private static class RealmCounts {
+
+        private final ConcurrentHashMap<String, AtomicLong> counts = new ConcurrentHashMap<>();
+        private final long reconciledAt;
+
+        RealmCounts(Map<String, Long> counts, long reconciledAt) {
+            counts.forEach((clientId, count) -> this.counts.put(clientId, new AtomicLong(count)));
+            this.reconciledAt = reconciledAt;
+        }
+
+        void add(String clientId, long delta) {
+            counts.computeIfAbsent(clientId, k -> new AtomicLong()).addAndGet(delta);
+        }
+
+        Map<String, Long> snapshot() {
+            Map<String, Long> snapshot = new HashMap<>();
+            counts.forEach((clientId, count) -> {
+                long value = count.get();
+                if (value > 0) {
+                    snapshot.put(clientId, value);
+                }
+            });
+            return snapshot;
+        }
+    }
+}
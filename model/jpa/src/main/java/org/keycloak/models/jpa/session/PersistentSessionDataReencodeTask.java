@@ -0,0 +1,179 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.jpa.session;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.jboss.logging.Logger;
+import org.keycloak.common.util.Time;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.SingleUseObjectProvider;
+import org.keycloak.models.session.PersistentSessionDataCodec;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.timer.ScheduledTask;
+
+/**
+ * Rewrites the data of the persistent user and client sessions, which were stored in a different format, in the configured format.
+ * <p>
+ * The sessions are walked in chunks ordered by their ID, each chunk in its own transaction. The rows of a chunk are locked while
+ * they are rewritten, so that a concurrent update of the session is not lost. A single run stops after the given time budget.
+ * The position of the walk is kept in the cluster-wide {@link SingleUseObjectProvider}, so the next run continues where the previous
+ * one stopped, whichever node it runs on. Once all the sessions were walked, the walk starts again from the beginning, as nodes with
+ * a different configuration might have written sessions in another format in the meantime.
+ */
+class PersistentSessionDataReencodeTask implements ScheduledTask {
+
+    private static final Logger logger = Logger.getLogger(PersistentSessionDataReencodeTask.class);
+
+    private static final String CURSOR_KEY = "persistent-session-data-reencode";
+    private static final String CURSOR_OFFLINE = "offline";
+    private static final String CURSOR_LAST_SESSION_ID = "lastSessionId";
+    // the walk starts from the beginning if it is not continued for so long
+    private static final long CURSOR_LIFESPAN_SECONDS = TimeUnit.DAYS.toSeconds(7);
+
+    private final PersistentSessionDataCodec.Format format;
+    private final int chunkSize;
+    private final long runBudgetMillis;
+
+    PersistentSessionDataReencodeTask(PersistentSessionDataCodec.Format format, int chunkSize, long runBudgetMillis) {
+        this.format = format;
+        this.chunkSize = chunkSize;
+        this.runBudgetMillis = runBudgetMillis;
+    }
+
+    @Override
+    public synchronized void run(KeycloakSession session) {
+        Cursor cursor = Cursor.load(session);
+
+        long start = Time.currentTimeMillis();
+        int reencoded = 0;
+        boolean walked = false;
+        while (!walked && Time.currentTimeMillis() - start < runBudgetMillis) {
+            reencoded += KeycloakModelUtils.runJobInTransactionWithResult(session.getKeycloakSessionFactory(), chunkSession -> reencodeChunk(chunkSession, cursor));
+            walked = cursor.next();
+            cursor.save(session);
+        }
+
+        logger.debugf("%s re-encoded %d sessions in %d ms", getTaskName(), reencoded, Time.currentTimeMillis() - start);
+        if (walked) {
+            logger.debugf("%s walked all persistent sessions, the next run starts from the beginning", getTaskName());
+        }
+    }
+
+    private int reencodeChunk(KeycloakSession session, Cursor cursor) {
+        EntityManager em = session.getProvider(JpaConnectionProvider.class).getEntityManager();
+        String offlineStr = JpaUserSessionPersisterProvider.offlineToString(cursor.offline);
+
+        List<String> userSessionIds = em.createNamedQuery("findUserSessionIdsOrderedById", String.class)
+                .setParameter("offline", offlineStr)
+                .setParameter("lastSessionId", cursor.lastSessionId)
+                .setMaxResults(chunkSize)
+                .getResultList();
+
+        if (userSessionIds.isEmpty()) {
+            cursor.nextSessionId = null;
+            return 0;
+        }
+
+        int reencoded = 0;
+        // the rows are locked in a separate query, as not all the databases support locking together with limiting the results
+        List<PersistentUserSessionEntity> userSessions = em.createNamedQuery("findUserSessionsByIds", PersistentUserSessionEntity.class)
+                .setParameter("offline", offlineStr)
+                .setParameter("userSessionIds", userSessionIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        for (PersistentUserSessionEntity entity : userSessions) {
+            if (PersistentSessionDataCodec.isEncodedAs(entity.getData(), format)) continue;
+            try {
+                entity.setData(PersistentSessionDataCodec.reencodeUserSessionData(entity.getData(), format));
+                reencoded++;
+            } catch (IOException | RuntimeException e) {
+                logger.warnf(e, "Failed to re-encode data of user session %s", entity.getUserSessionId());
+            }
+        }
+
+        List<PersistentClientSessionEntity> clientSessions = em.createNamedQuery("findClientSessionsOrderedByIdExact", PersistentClientSessionEntity.class)
+                .setParameter("offline", offlineStr)
+                .setParameter("userSessionIds", userSessionIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        for (PersistentClientSessionEntity entity : clientSessions) {
+            if (PersistentSessionDataCodec.isEncodedAs(entity.getData(), format)) continue;
+            try {
+                entity.setData(PersistentSessionDataCodec.reencodeClientSessionData(entity.getData(), format));
+            } catch (IOException | RuntimeException e) {
+                logger.warnf(e, "Failed to re-encode data of client session of user session %s", entity.getUserSessionId());
+            }
+        }
+
+        cursor.nextSessionId = userSessionIds.get(userSessionIds.size() - 1);
+        return reencoded;
+    }
+
+    private static class Cursor {
+
+        // walk the offline sessions first, then the online ones
+        private boolean offline = true;
+        private String lastSessionId = "";
+        // the last session ID of the chunk just processed, or null if there were no more sessions
+        private String nextSessionId;
+
+        static Cursor load(KeycloakSession session) {
+            Cursor cursor = new Cursor();
+            Map<String, String> notes = session.singleUseObjects().get(CURSOR_KEY);
+            if (notes != null) {
+                cursor.offline = Boolean.parseBoolean(notes.get(CURSOR_OFFLINE));
+                cursor.lastSessionId = notes.getOrDefault(CURSOR_LAST_SESSION_ID, "");
+            }
+            return cursor;
+        }
+
+        /**
+         * Moves the cursor behind the chunk just processed.
+         *
+         * @return {@code true} if all the sessions were walked and the cursor is back at the beginning
+         */
+        boolean next() {
+            if (nextSessionId != null) {
+                lastSessionId = nextSessionId;
+                return false;
+            }
+            lastSessionId = "";
+            if (offline) {
+                offline = false;
+                return false;
+            }
+            offline = true;
+            return true;
+        }
+
+        void save(KeycloakSession session) {
+            Map<String, String> notes = new HashMap<>();
+            notes.put(CURSOR_OFFLINE, Boolean.toString(offline));
+            notes.put(CURSOR_LAST_SESSION_ID, lastSessionId);
+            session.singleUseObjects().put(CURSOR_KEY, CURSOR_LIFESPAN_SECONDS, notes);
+        }
+    }
+}
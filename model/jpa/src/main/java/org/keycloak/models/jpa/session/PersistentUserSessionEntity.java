@@ -37,12 +37,24 @@ import java.io.Serializable;
         @NamedQuery(name="deleteUserSessionsByRealmSessionType", query="delete from PersistentUserSessionEntity sess where sess.realmId = :realmId and sess.offline = :offline"),
         @NamedQuery(name="deleteUserSessionsByUser", query="delete from PersistentUserSessionEntity sess where sess.userId = :userId"),
         @NamedQuery(name="deleteExpiredUserSessions", query="delete from PersistentUserSessionEntity sess where sess.realmId = :realmId AND sess.offline = :offline AND sess.lastSessionRefresh < :lastSessionRefresh"),
+        @NamedQuery(name="deleteExpiredUserSessionsByIds", query="delete from PersistentUserSessionEntity sess where sess.offline = :offline AND sess.userSessionId IN (:userSessionIds)" +
+                " AND sess.lastSessionRefresh < :lastSessionRefresh"),
+        @NamedQuery(name="findExpiredUserSessionIds", query="select sess.userSessionId from PersistentUserSessionEntity sess where sess.realmId = :realmId AND sess.offline = :offline" +
+                " AND sess.lastSessionRefresh < :lastSessionRefresh order by sess.lastSessionRefresh"),
+        @NamedQuery(name="findUserSessionIdsByLastSessionRefreshRange", query="select sess.userSessionId, sess.lastSessionRefresh from PersistentUserSessionEntity sess" +
+                " where sess.realmId = :realmId AND sess.offline = :offline AND sess.lastSessionRefresh < :toLastSessionRefresh" +
+                " AND (sess.lastSessionRefresh > :fromLastSessionRefresh OR (sess.lastSessionRefresh = :fromLastSessionRefresh AND sess.userSessionId > :fromUserSessionId))" +
+                " order by sess.lastSessionRefresh, sess.userSessionId"),
         @NamedQuery(name="updateUserSessionLastSessionRefresh", query="update PersistentUserSessionEntity sess set lastSessionRefresh = :lastSessionRefresh where sess.realmId = :realmId" +
                 " AND sess.offline = :offline AND sess.userSessionId IN (:userSessionIds)"),
         @NamedQuery(name="findUserSessionsCount", query="select count(sess) from PersistentUserSessionEntity sess where sess.offline = :offline"),
         @NamedQuery(name="findUserSessionsOrderedById", query="select sess from PersistentUserSessionEntity sess, RealmEntity realm where realm.id = sess.realmId AND sess.offline = :offline" +
                 " AND sess.userSessionId > :lastSessionId" +
                 " order by sess.userSessionId"),
+        @NamedQuery(name="findUserSessionIdsOrderedById", query="select sess.userSessionId from PersistentUserSessionEntity sess where sess.offline = :offline" +
+                " AND sess.userSessionId > :lastSessionId order by sess.userSessionId"),
+        @NamedQuery(name="findUserSessionsByIds", query="select sess from PersistentUserSessionEntity sess where sess.offline = :offline" +
+                " AND sess.userSessionId IN (:userSessionIds)"),
         @NamedQuery(name="findUserSession", query="select sess from PersistentUserSessionEntity sess where sess.offline = :offline" +
                 " AND sess.userSessionId = :userSessionId AND sess.realmId = :realmId"),
         @NamedQuery(name="findUserSessionsByUserId", query="select sess from PersistentUserSessionEntity sess where sess.offline = :offline" +
@@ -58,7 +70,10 @@ import java.io.Serializable;
         @NamedQuery(name="findClientSessionsClientIds", query="SELECT clientSess.clientId, clientSess.externalClientId, clientSess.clientStorageProvider, count(clientSess)" +
                 " FROM PersistentClientSessionEntity clientSess INNER JOIN PersistentUserSessionEntity sess ON clientSess.userSessionId = sess.userSessionId AND sess.offline = clientSess.offline" +
                 " WHERE sess.offline = :offline AND sess.realmId = :realmId " +
-                " GROUP BY clientSess.clientId, clientSess.externalClientId, clientSess.clientStorageProvider")
+                " GROUP BY clientSess.clientId, clientSess.externalClientId, clientSess.clientStorageProvider"),
+        @NamedQuery(name="findClientSessionsClientIdsByUserSession", query="SELECT clientSess.clientId, clientSess.externalClientId, clientSess.clientStorageProvider, sess.realmId" +
+                " FROM PersistentClientSessionEntity clientSess INNER JOIN PersistentUserSessionEntity sess ON clientSess.userSessionId = sess.userSessionId AND sess.offline = clientSess.offline" +
+                " WHERE sess.offline = :offline AND sess.userSessionId = :userSessionId")
 
 })
 @Table(name="OFFLINE_USER_SESSION")
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.events.jpa;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.events.Event;
+import org.keycloak.events.EventType;
+import org.keycloak.util.JsonSerialization;
+
+public class JpaEventWriterTest {
+
+    @Test
+    public void testDropOnOverflow() {
+        JpaEventWriter writer = new JpaEventWriter(new MemoryStorage(), 1, 10, JpaEventWriter.Overflow.DROP, null);
+        writer.enqueue(List.of(event("1"), event("2")));
+        Assert.assertEquals(1, writer.getQueueSize());
+        Assert.assertEquals(1, writer.getDroppedCount());
+    }
+
+    @Test
+    public void testSpillOnOverflow() throws IOException {
+        Path directory = Files.createTempDirectory("events");
+        try {
+            JpaEventWriter writer = new JpaEventWriter(new MemoryStorage(), 1, 10, JpaEventWriter.Overflow.SPILL, directory);
+            writer.enqueue(List.of(event("1"), event("2")));
+            Assert.assertEquals(1, writer.getQueueSize());
+            Assert.assertEquals(1, writer.getSpilledCount());
+            Assert.assertEquals(0, writer.getDroppedCount());
+
+            List<String> lines = Files.readAllLines(directory.resolve("events.spill"), StandardCharsets.UTF_8);
+            Assert.assertEquals(1, lines.size());
+            Event spilled = JsonSerialization.readValue(lines.get(0), Event.class);
+            Assert.assertEquals("2", spilled.getId());
+            Assert.assertEquals(EventType.LOGIN, spilled.getType());
+            Assert.assertEquals("value", spilled.getDetails().get("detail"));
+        } finally {
+            Files.deleteIfExists(directory.resolve("events.spill"));
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testReplayAfterCrash() throws Exception {
+        Path directory = Files.createTempDirectory("events");
+        try {
+            // the writer stopped after writing the first events of the file, before deleting it
+            MemoryStorage storage = new MemoryStorage();
+            storage.insert(List.of(event("1"), event("2")));
+            List<String> lines = new ArrayList<>();
+            for (String id : List.of("1", "2", "3")) {
+                lines.add(JsonSerialization.writeValueAsString(JpaEventStoreProvider.convertEvent(event(id))));
+            }
+            Files.write(directory.resolve("events.draining"), lines, StandardCharsets.UTF_8);
+
+            JpaEventWriter writer = new JpaEventWriter(storage, 10, 10, JpaEventWriter.Overflow.SPILL, directory);
+            writer.start();
+            try {
+                await(() -> !Files.exists(directory.resolve("events.draining")));
+            } finally {
+                writer.stop();
+            }
+
+            Assert.assertEquals(Set.of("1", "2", "3"), storage.ids);
+            Assert.assertEquals(1, writer.getWrittenCount());
+            Assert.assertEquals(0, writer.getDroppedCount());
+        } finally {
+            Files.deleteIfExists(directory.resolve("events.draining"));
+            Files.deleteIfExists(directory.resolve("events.spill"));
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testPoisonEventDroppedAfterAttempts() throws Exception {
+        Path directory = Files.createTempDirectory("events");
+        try {
+            MemoryStorage storage = new MemoryStorage("2");
+            JpaEventWriter writer = new JpaEventWriter(storage, 10, 10, JpaEventWriter.Overflow.SPILL, directory);
+            writer.start();
+            try {
+                writer.enqueue(List.of(event("1"), event("2"), event("3")));
+                await(() -> writer.getDroppedCount() == 1);
+            } finally {
+                writer.stop();
+            }
+
+            Assert.assertEquals(Set.of("1", "3"), storage.ids);
+            Assert.assertEquals(2, writer.getWrittenCount());
+            Assert.assertEquals(JpaEventWriter.MAX_WRITE_ATTEMPTS - 1, writer.getSpilledCount());
+        } finally {
+            Files.deleteIfExists(directory.resolve("events.draining"));
+            Files.deleteIfExists(directory.resolve("events.spill"));
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testPoisonEventDroppedAloneWithoutSpill() throws Exception {
+        MemoryStorage storage = new MemoryStorage("2");
+        JpaEventWriter writer = new JpaEventWriter(storage, 10, 10, JpaEventWriter.Overflow.DROP, null);
+        writer.start();
+        try {
+            writer.enqueue(List.of(event("1"), event("2"), event("3")));
+            await(() -> writer.getWrittenCount() + writer.getDroppedCount() == 3);
+        } finally {
+            writer.stop();
+        }
+
+        Assert.assertEquals(Set.of("1", "3"), storage.ids);
+        Assert.assertEquals(2, writer.getWrittenCount());
+        Assert.assertEquals(1, writer.getDroppedCount());
+    }
+
+    @Test
+    public void testSpilledEventsKeptWhileUnavailable() throws Exception {
+        Path directory = Files.createTempDirectory("events");
+        try {
+            MemoryStorage storage = new MemoryStorage();
+            storage.available = false;
+            JpaEventWriter writer = new JpaEventWriter(storage, 10, 10, JpaEventWriter.Overflow.SPILL, directory);
+            writer.start();
+            try {
+                writer.enqueue(List.of(event("1"), event("2")));
+                await(() -> writer.getSpilledCount() == 2);
+                // retrying while the database is not available does not count as an attempt
+                Thread.sleep(100 * (JpaEventWriter.MAX_WRITE_ATTEMPTS + 1));
+                storage.available = true;
+                await(() -> writer.getWrittenCount() == 2);
+            } finally {
+                writer.stop();
+            }
+
+            Assert.assertEquals(Set.of("1", "2"), storage.ids);
+            Assert.assertEquals(0, writer.getDroppedCount());
+        } finally {
+            Files.deleteIfExists(directory.resolve("events.draining"));
+            Files.deleteIfExists(directory.resolve("events.spill"));
+            Files.delete(directory);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Timed out waiting for the events to be written", System.currentTimeMillis() < timeout);
+            Thread.sleep(50);
+        }
+    }
+
+    private static class MemoryStorage implements JpaEventWriter.Storage {
+
+        private final Set<String> ids = ConcurrentHashMap.newKeySet();
+        private final Set<String> poison;
+        private volatile boolean available = true;
+
+        MemoryStorage(String... poison) {
+            this.poison = Set.of(poison);
+        }
+
+        @Override
+        public synchronized void insert(List<EventEntity> events) {
+            if (!available) {
+                throw new IllegalStateException("Database not available");
+            }
+            for (EventEntity event : events) {
+                if (poison.contains(event.getId()) || ids.contains(event.getId())) {
+                    throw new IllegalStateException("Unable to insert event " + event.getId());
+                }
+            }
+            events.forEach(event -> ids.add(event.getId()));
+        }
+
+        @Override
+        public Set<String> getWrittenIds(List<String> ids) {
+            if (!available) {
+                throw new IllegalStateException("Database not available");
+            }
+            return ids.stream().filter(this.ids::contains).collect(Collectors.toSet());
+        }
+    }
+
+    private static EventEntity event(String id) {
+        EventEntity event = new EventEntity();
+        event.setId(id);
+        event.setTime(1000L);
+        event.setType(EventType.LOGIN.toString());
+        event.setRealmId("realm");
+        event.setDetailsJson("{\"detail\":\"value\"}");
+        return event;
+    }
+}
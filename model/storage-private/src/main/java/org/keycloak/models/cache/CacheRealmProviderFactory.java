@@ -25,4 +25,11 @@ import org.keycloak.provider.ProviderFactory;
  */
 public interface CacheRealmProviderFactory extends ProviderFactory<CacheRealmProvider> {
 
+    /**
+     * Returns {@code true} once the cache finished preloading the realms configured for the warm-up on startup, or if there is
+     * no warm-up configured.
+     */
+    default boolean isWarmUpComplete() {
+        return true;
+    }
 }
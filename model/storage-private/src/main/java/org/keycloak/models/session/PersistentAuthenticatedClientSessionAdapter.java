@@ -24,7 +24,6 @@ import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.ModelException;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserSessionModel;
-import org.keycloak.util.JsonSerialization;
 
 import java.io.IOException;
 import java.util.Collections;
@@ -44,6 +43,7 @@ public class PersistentAuthenticatedClientSessionAdapter implements Authenticate
     private UserSessionModel userSession;
 
     private PersistentClientSessionData data;
+    private PersistentSessionDataCodec.Format dataFormat = PersistentSessionDataCodec.Format.JSON;
 
     public PersistentAuthenticatedClientSessionAdapter(KeycloakSession session, AuthenticatedClientSessionModel clientSession) {
         data = new PersistentClientSessionData();
@@ -112,7 +112,7 @@ public class PersistentAuthenticatedClientSessionAdapter implements Authenticate
     private PersistentClientSessionData getData() {
         if (data == null) {
             try {
-                data = JsonSerialization.readValue(model.getData(), PersistentClientSessionData.class);
+                data = PersistentSessionDataCodec.readClientSessionData(model.getData());
             } catch (IOException ioe) {
                 throw new ModelException("Error restoring session", ioe);
             }
@@ -121,10 +121,17 @@ public class PersistentAuthenticatedClientSessionAdapter implements Authenticate
         return data;
     }
 
+    /**
+     * Sets the format in which the data is written by {@link #getUpdatedModel()}. Defaults to JSON.
+     */
+    public void setDataFormat(PersistentSessionDataCodec.Format dataFormat) {
+        this.dataFormat = dataFormat;
+    }
+
     // Write updated model with latest serialized data
     public PersistentClientSessionModel getUpdatedModel() {
         try {
-            String updatedData = JsonSerialization.writeValueAsString(getData());
+            String updatedData = PersistentSessionDataCodec.writeClientSessionData(getData(), dataFormat);
             this.model.setData(updatedData);
         } catch (IOException ioe) {
             throw new ModelException("Error persisting session", ioe);
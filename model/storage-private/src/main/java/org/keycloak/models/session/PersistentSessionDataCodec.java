@@ -0,0 +1,282 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.keycloak.models.session.PersistentAuthenticatedClientSessionAdapter.PersistentClientSessionData;
+import org.keycloak.models.session.PersistentUserSessionAdapter.PersistentUserSessionData;
+import org.keycloak.util.JsonSerialization;
+
+/**
+ * Encoding of the {@code DATA} column of the persistent user and client sessions.
+ * <p>
+ * Besides the original JSON, the data can be written in a compact binary form (optionally deflated). As the column is textual,
+ * the binary form is stored as Base64 behind a short prefix which identifies the format and its version. Data without a known
+ * prefix is always read as JSON, so the rows written before the format was changed remain readable, and a node configured with
+ * a different format still reads everything written by the others.
+ */
+public class PersistentSessionDataCodec {
+
+    public enum Format {
+        JSON,
+        BINARY,
+        COMPRESSED;
+
+        public static Format of(String value) {
+            if (value == null) {
+                return JSON;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown format '" + value + "' of the persistent session data, allowed values are: "
+                        + Arrays.stream(values()).map(format -> format.name().toLowerCase()).collect(Collectors.joining(", ")));
+            }
+        }
+    }
+
+    private static final String BINARY_PREFIX = "kcb1:";
+    private static final String COMPRESSED_PREFIX = "kcz1:";
+
+    /**
+     * Checks if the data is stored in the given format.
+     */
+    public static boolean isEncodedAs(String data, Format format) {
+        return data != null && formatOf(data) == format;
+    }
+
+    /**
+     * Rewrites the data of a user session, stored in any format, in the given format.
+     */
+    public static String reencodeUserSessionData(String data, Format format) throws IOException {
+        return writeUserSessionData(readUserSessionData(data), format);
+    }
+
+    /**
+     * Rewrites the data of a client session, stored in any format, in the given format.
+     */
+    public static String reencodeClientSessionData(String data, Format format) throws IOException {
+        return writeClientSessionData(readClientSessionData(data), format);
+    }
+
+    static String writeUserSessionData(PersistentUserSessionData data, Format format) throws IOException {
+        if (format == Format.JSON) {
+            return JsonSerialization.writeValueAsString(data);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream output = new DataOutputStream(wrap(bytes, format))) {
+            writeString(output, data.getBrokerSessionId());
+            writeString(output, data.getBrokerUserId());
+            writeString(output, data.getIpAddress());
+            writeString(output, data.getAuthMethod());
+            output.writeBoolean(data.isRememberMe());
+            output.writeInt(data.getStarted());
+            writeMap(output, data.getNotes());
+            writeString(output, data.getState());
+            writeString(output, data.getLoginUsername());
+        }
+        return toText(bytes, format);
+    }
+
+    static PersistentUserSessionData readUserSessionData(String text) throws IOException {
+        Format format = formatOf(text);
+        if (format == Format.JSON) {
+            return JsonSerialization.readValue(text, PersistentUserSessionData.class);
+        }
+        PersistentUserSessionData data = new PersistentUserSessionData();
+        try (DataInputStream input = new DataInputStream(unwrap(text, format))) {
+            data.setBrokerSessionId(readString(input));
+            data.setBrokerUserId(readString(input));
+            data.setIpAddress(readString(input));
+            data.setAuthMethod(readString(input));
+            data.setRememberMe(input.readBoolean());
+            data.setStarted(input.readInt());
+            data.setNotes(readMap(input));
+            data.setState(readString(input));
+            data.setLoginUsername(readString(input));
+        }
+        return data;
+    }
+
+    static String writeClientSessionData(PersistentClientSessionData data, Format format) throws IOException {
+        // the legacy execution status holds arbitrary values, leave it to JSON
+        if (format == Format.JSON || (data.getExecutionStatus() != null && !data.getExecutionStatus().isEmpty())) {
+            return JsonSerialization.writeValueAsString(data);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream output = new DataOutputStream(wrap(bytes, format))) {
+            writeString(output, data.getAuthMethod());
+            writeString(output, data.getRedirectUri());
+            writeMap(output, data.getNotes());
+            writeString(output, data.getAction());
+            writeString(output, data.getCurrentRefreshToken());
+            output.writeInt(data.getCurrentRefreshTokenUseCount());
+            writeMap(output, data.getUserSessionNotes());
+            writeSet(output, data.getRequiredActions());
+            writeSet(output, data.getProtocolMappers());
+            writeSet(output, data.getRoles());
+        }
+        return toText(bytes, format);
+    }
+
+    static PersistentClientSessionData readClientSessionData(String text) throws IOException {
+        Format format = formatOf(text);
+        if (format == Format.JSON) {
+            return JsonSerialization.readValue(text, PersistentClientSessionData.class);
+        }
+        PersistentClientSessionData data = new PersistentClientSessionData();
+        try (DataInputStream input = new DataInputStream(unwrap(text, format))) {
+            data.setAuthMethod(readString(input));
+            data.setRedirectUri(readString(input));
+            data.setNotes(readMap(input));
+            data.setAction(readString(input));
+            data.setCurrentRefreshToken(readString(input));
+            data.setCurrentRefreshTokenUseCount(input.readInt());
+            data.setUserSessionNotes(readMap(input));
+            data.setRequiredActions(readSet(input));
+            data.setProtocolMappers(readSet(input));
+            data.setRoles(readSet(input));
+        }
+        return data;
+    }
+
+    private static Format formatOf(String text) {
+        if (text.startsWith(BINARY_PREFIX)) return Format.BINARY;
+        if (text.startsWith(COMPRESSED_PREFIX)) return Format.COMPRESSED;
+        return Format.JSON;
+    }
+
+    private static OutputStream wrap(OutputStream bytes, Format format) {
+        return format == Format.COMPRESSED ? new DeflaterOutputStream(bytes) : bytes;
+    }
+
+    private static InputStream unwrap(String text, Format format) {
+        String prefix = format == Format.COMPRESSED ? COMPRESSED_PREFIX : BINARY_PREFIX;
+        InputStream bytes = new ByteArrayInputStream(Base64.getDecoder().decode(text.substring(prefix.length())));
+        return format == Format.COMPRESSED ? new InflaterInputStream(bytes) : bytes;
+    }
+
+    private static String toText(ByteArrayOutputStream bytes, Format format) {
+        String prefix = format == Format.COMPRESSED ? COMPRESSED_PREFIX : BINARY_PREFIX;
+        return prefix + Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    // Sizes are written as (size + 1), so that 0 stands for null
+    private static void writeString(DataOutputStream output, String str) throws IOException {
+        if (str == null) {
+            writeSize(output, -1);
+            return;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeSize(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int size = readSize(input);
+        if (size < 0) return null;
+        byte[] bytes = new byte[size];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeMap(DataOutputStream output, Map<String, String> map) throws IOException {
+        if (map == null) {
+            writeSize(output, -1);
+            return;
+        }
+        // Copy the map as it can be updated concurrently
+        Map<String, String> copy = new HashMap<>(map);
+        writeSize(output, copy.size());
+        for (Map.Entry<String, String> entry : copy.entrySet()) {
+            writeString(output, entry.getKey());
+            writeString(output, entry.getValue());
+        }
+    }
+
+    private static Map<String, String> readMap(DataInputStream input) throws IOException {
+        int size = readSize(input);
+        if (size < 0) return null;
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(readString(input), readString(input));
+        }
+        return map;
+    }
+
+    private static void writeSet(DataOutputStream output, Set<String> set) throws IOException {
+        if (set == null) {
+            writeSize(output, -1);
+            return;
+        }
+        Set<String> copy = new HashSet<>(set);
+        writeSize(output, copy.size());
+        for (String str : copy) {
+            writeString(output, str);
+        }
+    }
+
+    private static Set<String> readSet(DataInputStream input) throws IOException {
+        int size = readSize(input);
+        if (size < 0) return null;
+        Set<String> set = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            set.add(readString(input));
+        }
+        return set;
+    }
+
+    // Unsigned variable-length int, 7 bits per byte
+    private static void writeSize(DataOutputStream output, int size) throws IOException {
+        int value = size + 1;
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readSize(DataInputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value - 1;
+            }
+        }
+        throw new IOException("Malformed size in session data");
+    }
+}
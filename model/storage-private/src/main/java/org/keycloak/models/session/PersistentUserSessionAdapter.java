@@ -27,7 +27,6 @@ import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.models.UserSessionModel;
 import org.keycloak.models.light.LightweightUserAdapter;
-import org.keycloak.util.JsonSerialization;
 
 import java.io.IOException;
 import java.util.Collection;
@@ -49,6 +48,7 @@ public class PersistentUserSessionAdapter implements OfflineUserSessionModel {
     private final Map<String, AuthenticatedClientSessionModel> authenticatedClientSessions;
 
     private PersistentUserSessionData data;
+    private PersistentSessionDataCodec.Format dataFormat = PersistentSessionDataCodec.Format.JSON;
 
     public PersistentUserSessionAdapter(UserSessionModel other) {
         this.data = new PersistentUserSessionData();
@@ -156,7 +156,7 @@ public class PersistentUserSessionAdapter implements OfflineUserSessionModel {
     private PersistentUserSessionData getData() {
         if (data == null) {
             try {
-                data = JsonSerialization.readValue(model.getData(), PersistentUserSessionData.class);
+                data = PersistentSessionDataCodec.readUserSessionData(model.getData());
             } catch (IOException ioe) {
                 throw new ModelException("Error restoring session", ioe);
             }
@@ -165,10 +165,17 @@ public class PersistentUserSessionAdapter implements OfflineUserSessionModel {
         return data;
     }
 
+    /**
+     * Sets the format in which the data is written by {@link #getUpdatedModel()}. Defaults to JSON.
+     */
+    public void setDataFormat(PersistentSessionDataCodec.Format dataFormat) {
+        this.dataFormat = dataFormat;
+    }
+
     // Write updated model with latest serialized data
     public PersistentUserSessionModel getUpdatedModel() {
         try {
-            String updatedData = JsonSerialization.writeValueAsString(getData());
+            String updatedData = PersistentSessionDataCodec.writeUserSessionData(getData(), dataFormat);
             this.model.setData(updatedData);
         } catch (IOException ioe) {
             throw new ModelException("Error persisting session", ioe);
@@ -26,6 +26,7 @@ import org.keycloak.provider.Provider;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Stream;
 
 /**
@@ -63,6 +64,21 @@ public interface UserSessionPersisterProvider extends Provider {
      */
     UserSessionModel loadUserSession(RealmModel realm, String userSessionId, boolean offline);
 
+    /**
+     * Loads the user session with the given userSessionId, and only references to its client sessions. The client sessions
+     * in {@link UserSessionModel#getAuthenticatedClientSessions()} are keyed by the client UUID as usual, but their data are
+     * loaded only when first accessed. This is useful when only some of the client sessions are needed, as the individual
+     * client sessions can be loaded with {@link #loadClientSession(RealmModel, ClientModel, UserSessionModel, boolean)}.
+     *
+     * @param realm
+     * @param userSessionId
+     * @param offline
+     * @return
+     */
+    default UserSessionModel loadUserSessionWithLazyClientSessions(RealmModel realm, String userSessionId, boolean offline) {
+        return loadUserSession(realm, userSessionId, offline);
+    }
+
     /**
      * Loads the user sessions for the given {@link UserModel} in the given {@link RealmModel} if present.
      * @param realm
@@ -112,6 +128,22 @@ public interface UserSessionPersisterProvider extends Provider {
      */
     AuthenticatedClientSessionModel loadClientSession(RealmModel realm, ClientModel client, UserSessionModel userSession, boolean offline);
 
+    /**
+     * Loads the client sessions of the given clients from the db by provided user session. The JPA implementation uses
+     * a single query, so this should be preferred over {@link #loadClientSession(RealmModel, ClientModel, UserSessionModel, boolean)}
+     * when more than one client session is needed.
+     * @param realm RealmModel Realm for the associated client sessions.
+     * @param clients Clients used for the creation of the client sessions.
+     * @param userSession UserSessionModel User session for the associated client sessions.
+     * @param offline boolean Flag that indicates the client sessions should be online/offline.
+     * @return Stream of the client sessions found. Never returns {@code null}.
+     */
+    default Stream<AuthenticatedClientSessionModel> loadClientSessionsStream(RealmModel realm, Collection<ClientModel> clients, UserSessionModel userSession, boolean offline) {
+        return clients.stream()
+                .map(client -> loadClientSession(realm, client, userSession, offline))
+                .filter(Objects::nonNull);
+    }
+
     /**
      * Retrieves the count of user sessions for all realms.
      *
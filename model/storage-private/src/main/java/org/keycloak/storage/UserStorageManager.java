@@ -21,7 +21,11 @@ import static org.keycloak.models.utils.KeycloakModelUtils.runJobInTransaction;
 import static org.keycloak.utils.StreamsUtil.distinctByKey;
 import static org.keycloak.utils.StreamsUtil.paginatedStream;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -77,6 +81,7 @@ import org.keycloak.storage.user.UserLookupProvider;
 import org.keycloak.storage.user.UserQueryMethodsProvider;
 import org.keycloak.storage.user.UserQueryProvider;
 import org.keycloak.storage.user.UserRegistrationProvider;
+import org.keycloak.storage.user.UserSearchPage;
 import org.keycloak.userprofile.AttributeMetadata;
 import org.keycloak.userprofile.UserProfileDecorator;
 import org.keycloak.userprofile.UserProfileMetadata;
@@ -92,6 +97,9 @@ public class UserStorageManager extends AbstractStorageManager<UserStorageProvid
 
     private static final Logger logger = Logger.getLogger(UserStorageManager.class);
 
+    // not a valid component id, so it cannot clash with the id of a storage provider
+    private static final String FEDERATED_STORAGE_PAGE_KEY = "#federated";
+
 
     public UserStorageManager(KeycloakSession session) {
         super(session, UserStorageProviderFactory.class, UserStorageProvider.class,
@@ -546,6 +554,76 @@ public class UserStorageManager extends AbstractStorageManager<UserStorageProvid
         return importValidation(realm, results);
     }
 
+    /**
+     * Pages through the local storage first, then through the enabled storage providers and the federated storage, the same sources
+     * as {@link #searchForUserStream(RealmModel, Map, Integer, Integer)}. The continuation token keeps the id of the provider being
+     * paged through along with the continuation token of that provider.
+     */
+    @Override
+    public UserSearchPage searchForUserPage(RealmModel realm, Map<String, String> attributes, String continuationToken, int maxResults) {
+        Map<String, UserQueryMethodsProvider> providers = new LinkedHashMap<>();
+        providers.put("", localStorage());
+        getStorageProviderModels(realm, UserStorageProvider.class)
+                .map(UserStorageProviderModel::new)
+                .filter(UserStorageProviderModel::isEnabled)
+                .sorted(UserStorageProviderModel.comparator)
+                .forEachOrdered(model -> {
+                    UserQueryMethodsProvider provider = getStorageProviderInstance(model, UserQueryMethodsProvider.class);
+                    if (provider != null) {
+                        providers.put(model.getId(), provider);
+                    }
+                });
+        UserFederatedStorageProvider federatedStorageProvider = getFederatedStorage();
+        if (federatedStorageProvider instanceof UserQueryMethodsProvider) {
+            providers.put(FEDERATED_STORAGE_PAGE_KEY, (UserQueryMethodsProvider) federatedStorageProvider);
+        }
+
+        String providerKey = "";
+        String providerToken = null;
+        if (continuationToken != null) {
+            String decoded;
+            try {
+                decoded = new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid continuation token", e);
+            }
+            int separator = decoded.indexOf('\n');
+            if (separator < 0 || !providers.containsKey(decoded.substring(0, separator))) {
+                throw new IllegalArgumentException("Invalid continuation token");
+            }
+            providerKey = decoded.substring(0, separator);
+            providerToken = separator + 1 == decoded.length() ? null : decoded.substring(separator + 1);
+        }
+
+        List<UserModel> users = new ArrayList<>();
+        boolean started = false;
+        for (Map.Entry<String, UserQueryMethodsProvider> provider : providers.entrySet()) {
+            if (!started && !provider.getKey().equals(providerKey)) {
+                continue;
+            }
+            if (started) {
+                providerToken = null;
+            }
+            started = true;
+            if (users.size() == maxResults) {
+                // the page is full, the next page starts with this provider
+                return new UserSearchPage(users, toContinuationToken(provider.getKey(), null));
+            }
+
+            UserSearchPage page = provider.getValue().searchForUserPage(realm, attributes, providerToken, maxResults - users.size());
+            page.getUsers().stream().map(user -> importValidation(realm, user)).filter(Objects::nonNull).forEachOrdered(users::add);
+            if (page.getContinuationToken() != null) {
+                return new UserSearchPage(users, toContinuationToken(provider.getKey(), page.getContinuationToken()));
+            }
+        }
+        return new UserSearchPage(users, null);
+    }
+
+    private static String toContinuationToken(String providerKey, String providerToken) {
+        String token = providerKey + "\n" + (providerToken == null ? "" : providerToken);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
     @Override
     public Stream<UserModel> searchForUserByUserAttributeStream(RealmModel realm, String attrName, String attrValue) {
         Stream<UserModel> results = query((provider, firstResultInQuery, maxResultsInQuery) -> {
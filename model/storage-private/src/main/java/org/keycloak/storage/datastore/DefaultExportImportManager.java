@@ -53,7 +53,9 @@ import org.keycloak.models.RoleModel;
 import org.keycloak.models.ScopeContainerModel;
 import org.keycloak.models.UserConsentModel;
 import org.keycloak.models.UserModel;
+import org.keycloak.models.UserProvider;
 import org.keycloak.models.WebAuthnPolicy;
+import org.keycloak.models.cache.UserCache;
 import org.keycloak.models.utils.ComponentUtil;
 import org.keycloak.models.utils.DefaultAuthenticationFlows;
 import org.keycloak.models.utils.DefaultKeyProviders;
@@ -97,7 +99,9 @@ import org.keycloak.storage.UserStoragePrivateUtil;
 import org.keycloak.storage.UserStorageProvider;
 import org.keycloak.storage.UserStorageProviderModel;
 import org.keycloak.storage.UserStorageUtil;
+import org.keycloak.storage.UsersImportedEvent;
 import org.keycloak.storage.federated.UserFederatedStorageProvider;
+import org.keycloak.storage.user.UserBulkImportProvider;
 import org.keycloak.util.JsonSerialization;
 import org.keycloak.utils.StringUtil;
 import org.keycloak.validation.ValidationUtil;
@@ -133,6 +137,7 @@ import static org.keycloak.models.utils.StripSecretsUtils.stripSecrets;
 public class DefaultExportImportManager implements ExportImportManager {
     private final KeycloakSession session;
     private static final Logger logger = Logger.getLogger(DefaultExportImportManager.class);
+    private static final int USER_IMPORT_BATCH_SIZE = Integer.getInteger("keycloak.import.users-batch-size", 500);
 
     public DefaultExportImportManager(KeycloakSession session) {
         this.session = session;
@@ -419,9 +424,7 @@ public class DefaultExportImportManager implements ExportImportManager {
         // create users and their role mappings and social mappings
 
         if (rep.getUsers() != null) {
-            for (UserRepresentation userRep : rep.getUsers()) {
-                createUser(newRealm, userRep);
-            }
+            createUsers(newRealm, rep.getUsers());
         }
 
         if (rep.getFederatedUsers() != null) {
@@ -928,6 +931,64 @@ public class DefaultExportImportManager implements ExportImportManager {
         return user;
     }
 
+    @Override
+    public void createUsers(RealmModel realm, List<UserRepresentation> userReps) {
+        UserProvider localStorage = UserStoragePrivateUtil.userLocalStorage(session);
+        UserCache userCache = UserStorageUtil.userCache(session);
+
+        for (int from = 0; from < userReps.size(); from += USER_IMPORT_BATCH_SIZE) {
+            List<UserRepresentation> batch = userReps.subList(from, Math.min(from + USER_IMPORT_BATCH_SIZE, userReps.size()));
+            List<UserRepresentation> bulkImport = new ArrayList<>(batch.size());
+            for (UserRepresentation userRep : batch) {
+                if (localStorage instanceof UserBulkImportProvider && prepareBulkImport(userRep)) {
+                    bulkImport.add(userRep);
+                } else {
+                    createUser(realm, userRep);
+                }
+            }
+            if (!bulkImport.isEmpty()) {
+                ((UserBulkImportProvider) localStorage).importUsers(realm, bulkImport);
+            }
+
+            UsersImportedEvent.fire(session, realm, batch.size());
+            logger.debugf("Imported %d users into realm %s", batch.size(), realm.getName());
+        }
+
+        // the users are written to the local storage directly, any user cached in the meantime is stale
+        if (userCache != null && !userReps.isEmpty()) {
+            userCache.evict(realm);
+        }
+    }
+
+    /**
+     * Prepares the user for {@link UserBulkImportProvider#importUsers(RealmModel, List)}, and returns {@code false} if the user needs
+     * to be created one by one: consents are stored through the user provider, plain text passwords have to be hashed and checked
+     * against the password policy, and credentials in the deprecated format have to be converted.
+     */
+    private static boolean prepareBulkImport(UserRepresentation userRep) {
+        if (userRep.getClientConsents() != null && !userRep.getClientConsents().isEmpty()) {
+            return false;
+        }
+        if (userRep.getCredentials() != null) {
+            for (CredentialRepresentation cred : userRep.getCredentials()) {
+                if ((cred.getValue() != null && !cred.getValue().isEmpty()) || cred.getSecretData() == null || cred.getCredentialData() == null) {
+                    return false;
+                }
+            }
+        }
+
+        convertDeprecatedSocialProviders(userRep);
+        if (userRep.getId() == null) {
+            userRep.setId(KeycloakModelUtils.generateId());
+        }
+        if (userRep.getRequiredActions() != null) {
+            userRep.setRequiredActions(userRep.getRequiredActions().stream()
+                    .map(DefaultRequiredActions::getDefaultRequiredActionCaseInsensitively)
+                    .collect(Collectors.toList()));
+        }
+        return true;
+    }
+
     public static void convertDeprecatedSocialProviders(UserRepresentation user) {
         if (user.getSocialLinks() != null && !user.getSocialLinks().isEmpty() && user.getFederatedIdentities() == null) {
 
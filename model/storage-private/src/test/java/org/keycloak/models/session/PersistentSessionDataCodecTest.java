@@ -0,0 +1,128 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.models.session;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Test;
+import org.keycloak.models.session.PersistentAuthenticatedClientSessionAdapter.PersistentClientSessionData;
+import org.keycloak.models.session.PersistentSessionDataCodec.Format;
+import org.keycloak.models.session.PersistentUserSessionAdapter.PersistentUserSessionData;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class PersistentSessionDataCodecTest {
+
+    @Test
+    public void testUserSessionDataRoundTrip() throws Exception {
+        PersistentUserSessionData data = new PersistentUserSessionData();
+        data.setBrokerSessionId("broker-session");
+        data.setIpAddress("127.0.0.1");
+        data.setAuthMethod("openid-connect");
+        data.setRememberMe(true);
+        data.setNotes(map("AUTH_TIME", "1700000000", "note", "žluťoučký kůň"));
+        data.setLoginUsername("john");
+
+        for (Format format : Format.values()) {
+            String text = PersistentSessionDataCodec.writeUserSessionData(data, format);
+            assertThat(PersistentSessionDataCodec.isEncodedAs(text, format), is(true));
+
+            PersistentUserSessionData read = PersistentSessionDataCodec.readUserSessionData(text);
+            assertThat(read.getBrokerSessionId(), equalTo("broker-session"));
+            assertThat(read.getBrokerUserId(), nullValue());
+            assertThat(read.getIpAddress(), equalTo("127.0.0.1"));
+            assertThat(read.getAuthMethod(), equalTo("openid-connect"));
+            assertThat(read.isRememberMe(), is(true));
+            assertThat(read.getNotes(), equalTo(data.getNotes()));
+            assertThat(read.getState(), nullValue());
+            assertThat(read.getLoginUsername(), equalTo("john"));
+        }
+    }
+
+    @Test
+    public void testClientSessionDataRoundTrip() throws Exception {
+        PersistentClientSessionData data = new PersistentClientSessionData();
+        data.setAuthMethod("openid-connect");
+        data.setRedirectUri("https://localhost/callback");
+        data.setNotes(map("scope", "openid", "iss", "https://localhost/realms/test"));
+        data.setCurrentRefreshToken("token-id");
+        data.setCurrentRefreshTokenUseCount(2);
+        data.setRoles(new HashSet<>(Arrays.asList("role-1", "role-2")));
+
+        for (Format format : Format.values()) {
+            PersistentClientSessionData read = PersistentSessionDataCodec.readClientSessionData(PersistentSessionDataCodec.writeClientSessionData(data, format));
+            assertThat(read.getAuthMethod(), equalTo("openid-connect"));
+            assertThat(read.getRedirectUri(), equalTo("https://localhost/callback"));
+            assertThat(read.getNotes(), equalTo(data.getNotes()));
+            assertThat(read.getAction(), nullValue());
+            assertThat(read.getCurrentRefreshToken(), equalTo("token-id"));
+            assertThat(read.getCurrentRefreshTokenUseCount(), is(2));
+            assertThat(read.getRoles(), equalTo(data.getRoles()));
+            assertThat(read.getProtocolMappers(), nullValue());
+        }
+    }
+
+    @Test
+    public void testFormatOf() {
+        assertThat(Format.of(null), is(Format.JSON));
+        assertThat(Format.of(" Compressed "), is(Format.COMPRESSED));
+        try {
+            Format.of("gzip");
+            throw new AssertionError("Unknown format accepted");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("json, binary, compressed"));
+        }
+    }
+
+    @Test
+    public void testExistingJsonIsReadable() throws Exception {
+        String json = "{\"authMethod\":\"openid-connect\",\"rememberMe\":false,\"notes\":{\"AUTH_TIME\":\"1700000000\"},\"started\":0}";
+
+        PersistentUserSessionData read = PersistentSessionDataCodec.readUserSessionData(json);
+        assertThat(read.getAuthMethod(), equalTo("openid-connect"));
+        assertThat(read.getNotes(), equalTo(map("AUTH_TIME", "1700000000")));
+
+        String compressed = PersistentSessionDataCodec.reencodeUserSessionData(json, Format.COMPRESSED);
+        assertThat(PersistentSessionDataCodec.isEncodedAs(compressed, Format.COMPRESSED), is(true));
+        assertThat(PersistentSessionDataCodec.readUserSessionData(compressed).getNotes(), equalTo(read.getNotes()));
+    }
+
+    @Test
+    public void testLegacyExecutionStatusStaysJson() throws Exception {
+        PersistentClientSessionData data = new PersistentClientSessionData();
+        data.setExecutionStatus(new HashMap<>(map("execution", "SUCCESS")));
+
+        String text = PersistentSessionDataCodec.writeClientSessionData(data, Format.BINARY);
+        assertThat(PersistentSessionDataCodec.isEncodedAs(text, Format.JSON), is(true));
+    }
+
+    private static Map<String, String> map(String... keysAndValues) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+}
@@ -260,9 +260,7 @@ public class ImportUtils {
 
     private static void importUsers(KeycloakSession session, RealmProvider model, String realmName, List<UserRepresentation> userReps) {
         RealmModel realm = model.getRealmByName(realmName);
-        for (UserRepresentation user : userReps) {
-            RepresentationToModel.createUser(session, realm, user);
-        }
+        RepresentationToModel.createUsers(session, realm, userReps);
     }
 
     private static void importFederatedUsers(KeycloakSession session, RealmProvider model, String realmName, List<UserRepresentation> userReps) {
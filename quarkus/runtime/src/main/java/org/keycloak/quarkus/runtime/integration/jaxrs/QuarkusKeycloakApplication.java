@@ -17,16 +17,21 @@
 
 package org.keycloak.quarkus.runtime.integration.jaxrs;
 
+import io.micrometer.core.instrument.Metrics;
 import io.quarkus.runtime.ShutdownEvent;
 import io.quarkus.runtime.StartupEvent;
 import io.smallrye.common.annotation.Blocking;
 
 import org.keycloak.Config;
+import org.keycloak.config.MetricsOptions;
 import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.platform.Platform;
 import org.keycloak.quarkus.runtime.integration.QuarkusKeycloakSessionFactory;
+import org.keycloak.quarkus.runtime.configuration.Configuration;
 import org.keycloak.quarkus.runtime.integration.QuarkusPlatform;
+import org.keycloak.quarkus.runtime.services.metrics.CacheStatisticsMetrics;
+import org.keycloak.quarkus.runtime.services.metrics.EventStoreMetrics;
 import org.keycloak.services.ServicesLogger;
 import org.keycloak.services.managers.ApplianceBootstrap;
 import org.keycloak.services.resources.KeycloakApplication;
@@ -47,6 +52,10 @@ public class QuarkusKeycloakApplication extends KeycloakApplication {
         QuarkusPlatform platform = (QuarkusPlatform) Platform.getPlatform();
         platform.started();
         startup();
+        if (Configuration.isTrue(MetricsOptions.METRICS_ENABLED)) {
+            CacheStatisticsMetrics.register(getSessionFactory(), Metrics.globalRegistry);
+            EventStoreMetrics.register(getSessionFactory(), Metrics.globalRegistry);
+        }
         if (!isImportExportMode()) {
             createAdminUser();
         }
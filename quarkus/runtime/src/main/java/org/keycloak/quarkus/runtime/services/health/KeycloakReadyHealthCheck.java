@@ -26,6 +26,10 @@ import jakarta.inject.Inject;
 import org.eclipse.microprofile.health.HealthCheckResponse;
 import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
 import org.eclipse.microprofile.health.Readiness;
+import org.keycloak.models.cache.CacheRealmProvider;
+import org.keycloak.models.cache.CacheRealmProviderFactory;
+import org.keycloak.provider.ProviderFactory;
+import org.keycloak.quarkus.runtime.integration.QuarkusKeycloakSessionFactory;
 
 import java.time.Instant;
 import java.time.ZoneId;
@@ -66,6 +70,9 @@ public class KeycloakReadyHealthCheck implements AsyncHealthCheck {
     @Override
     public Uni<HealthCheckResponse> call() {
         HealthCheckResponseBuilder builder = HealthCheckResponse.named("Keycloak database connections async health check").up();
+        if (isCacheWarmingUp()) {
+            builder.down().withData("Cache warm-up", "in progress");
+        }
         long activeCount = agroalDataSource.getMetrics().activeCount();
         long invalidCount = agroalDataSource.getMetrics().invalidCount();
         if (activeCount < 1 || invalidCount > 0) {
@@ -84,6 +91,15 @@ public class KeycloakReadyHealthCheck implements AsyncHealthCheck {
         }
     }
 
+    /**
+     * Returns {@code true} while the realm cache is still preloading the realms configured for the warm-up, so that the load balancer
+     * only sends traffic to nodes with a warm cache.
+     */
+    boolean isCacheWarmingUp() {
+        ProviderFactory<CacheRealmProvider> cacheFactory = QuarkusKeycloakSessionFactory.getInstance().getProviderFactory(CacheRealmProvider.class);
+        return cacheFactory instanceof CacheRealmProviderFactory && !((CacheRealmProviderFactory) cacheFactory).isWarmUpComplete();
+    }
+
     Instant createInstanceIfNeeded(Instant instant) {
         if (instant == null) {
             return Instant.now();
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.quarkus.runtime.services.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.keycloak.connections.infinispan.InfinispanConnectionProvider;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.cache.CacheRealmProvider;
+import org.keycloak.models.cache.UserCache;
+import org.keycloak.models.cache.authorization.CachedStoreFactoryProvider;
+import org.keycloak.models.cache.infinispan.CacheStatistics;
+import org.keycloak.models.cache.infinispan.InfinispanCacheRealmProviderFactory;
+import org.keycloak.models.cache.infinispan.InfinispanUserCacheProviderFactory;
+import org.keycloak.models.cache.infinispan.authorization.InfinispanCacheStoreFactoryProviderFactory;
+import org.keycloak.provider.ProviderFactory;
+
+/**
+ * Exposes the hits, misses, loads and invalidations of the realm, user and authorization caches per type of the cached entries,
+ * tagged with the name of the cache and the type.
+ */
+public final class CacheStatisticsMetrics {
+
+    private CacheStatisticsMetrics() {
+    }
+
+    public static void register(KeycloakSessionFactory factory, MeterRegistry registry) {
+        ProviderFactory<CacheRealmProvider> realmCache = factory.getProviderFactory(CacheRealmProvider.class);
+        if (realmCache instanceof InfinispanCacheRealmProviderFactory) {
+            register(registry, InfinispanConnectionProvider.REALM_CACHE_NAME, ((InfinispanCacheRealmProviderFactory) realmCache).getStatistics());
+        }
+        ProviderFactory<UserCache> userCache = factory.getProviderFactory(UserCache.class);
+        if (userCache instanceof InfinispanUserCacheProviderFactory) {
+            register(registry, InfinispanConnectionProvider.USER_CACHE_NAME, ((InfinispanUserCacheProviderFactory) userCache).getStatistics());
+        }
+        ProviderFactory<CachedStoreFactoryProvider> authorizationCache = factory.getProviderFactory(CachedStoreFactoryProvider.class);
+        if (authorizationCache instanceof InfinispanCacheStoreFactoryProviderFactory) {
+            register(registry, InfinispanConnectionProvider.AUTHORIZATION_CACHE_NAME, ((InfinispanCacheStoreFactoryProviderFactory) authorizationCache).getStatistics());
+        }
+    }
+
+    private static void register(MeterRegistry registry, String cache, CacheStatistics statistics) {
+        statistics.addListener((type, entityStatistics) -> {
+            Tags tags = Tags.of("cache", cache, "type", type);
+            FunctionCounter.builder("keycloak.cache.hits", entityStatistics, CacheStatistics.EntityTypeStatistics::getHits)
+                    .tags(tags)
+                    .description("Number of lookups served from the cache")
+                    .register(registry);
+            FunctionCounter.builder("keycloak.cache.misses", entityStatistics, CacheStatistics.EntityTypeStatistics::getMisses)
+                    .tags(tags)
+                    .description("Number of lookups not found in the cache")
+                    .register(registry);
+            FunctionTimer.builder("keycloak.cache.loads", entityStatistics, CacheStatistics.EntityTypeStatistics::getLoads,
+                            CacheStatistics.EntityTypeStatistics::getLoadTime, TimeUnit.NANOSECONDS)
+                    .tags(tags)
+                    .description("Entries loaded from the database into the cache")
+                    .register(registry);
+            FunctionCounter.builder("keycloak.cache.invalidations", entityStatistics, CacheStatistics.EntityTypeStatistics::getInvalidations)
+                    .tags(tags)
+                    .description("Number of entries removed from the cache by invalidations")
+                    .register(registry);
+        });
+        statistics.setEnabled(true);
+    }
+}
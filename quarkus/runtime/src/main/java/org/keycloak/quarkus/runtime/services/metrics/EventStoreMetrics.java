@@ -0,0 +1,60 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.quarkus.runtime.services.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.keycloak.events.EventStoreProvider;
+import org.keycloak.events.jpa.JpaEventStoreProviderFactory;
+import org.keycloak.events.jpa.JpaEventWriter;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ProviderFactory;
+
+/**
+ * Exposes the depth of the queue of events waiting to be written, and the numbers of events written, dropped and spilled to disk,
+ * when the events are written asynchronously.
+ */
+public final class EventStoreMetrics {
+
+    private EventStoreMetrics() {
+    }
+
+    public static void register(KeycloakSessionFactory factory, MeterRegistry registry) {
+        ProviderFactory<EventStoreProvider> eventStore = factory.getProviderFactory(EventStoreProvider.class);
+        if (!(eventStore instanceof JpaEventStoreProviderFactory)) {
+            return;
+        }
+        JpaEventWriter writer = ((JpaEventStoreProviderFactory) eventStore).getWriter();
+        if (writer == null) {
+            return;
+        }
+        Gauge.builder("keycloak.events.queue.size", writer, JpaEventWriter::getQueueSize)
+                .description("Number of events waiting to be written to the database")
+                .register(registry);
+        FunctionCounter.builder("keycloak.events.written", writer, JpaEventWriter::getWrittenCount)
+                .description("Number of events written to the database in the background")
+                .register(registry);
+        FunctionCounter.builder("keycloak.events.dropped", writer, JpaEventWriter::getDroppedCount)
+                .description("Number of events dropped as the queue was full or they could not be written")
+                .register(registry);
+        FunctionCounter.builder("keycloak.events.spilled", writer, JpaEventWriter::getSpilledCount)
+                .description("Number of events appended to the spill file as the queue was full or they could not be written")
+                .register(registry);
+    }
+}
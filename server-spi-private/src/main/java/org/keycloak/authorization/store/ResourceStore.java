@@ -19,8 +19,12 @@ package org.keycloak.authorization.store;
 import org.keycloak.authorization.model.Resource;
 import org.keycloak.authorization.model.ResourceServer;
 import org.keycloak.authorization.model.Scope;
+import org.keycloak.common.util.PathMatcher;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -153,6 +157,39 @@ public interface ResourceStore {
      */
     Resource findByName(ResourceServer resourceServer, String name, String ownerId);
 
+    /**
+     * Finds the {@link Resource} owned by the {@link ResourceServer} with the URI best matching the given {@code uri}, taking into
+     * account the URIs with wildcards and path parameters as defined by {@link PathMatcher}.
+     *
+     * @param resourceServer the resource server
+     * @param uri the URI to match
+     * @return the matching resource or {@code null} if no resource matches the given URI
+     */
+    default Resource findByMatchingUri(ResourceServer resourceServer, String uri) {
+        Map<Resource.FilterOption, String[]> search = new EnumMap<>(Resource.FilterOption.class);
+
+        search.put(Resource.FilterOption.URI_NOT_NULL, new String[] {"true"});
+        search.put(Resource.FilterOption.OWNER, new String[] {resourceServer.getClientId()});
+
+        Map<String, Resource> resources = new HashMap<>();
+
+        find(resourceServer, search, -1, -1).forEach(resource -> resource.getUris().forEach(resourceUri -> resources.put(resourceUri, resource)));
+
+        Map.Entry<String, Resource> matches = new PathMatcher<Map.Entry<String, Resource>>() {
+            @Override
+            protected String getPath(Map.Entry<String, Resource> entry) {
+                return entry.getKey();
+            }
+
+            @Override
+            protected Collection<Map.Entry<String, Resource>> getPaths() {
+                return resources.entrySet();
+            }
+        }.matches(uri);
+
+        return matches == null ? null : matches.getValue();
+    }
+
     /**
      * Finds all {@link Resource} associated with the {@link ResourceServer} with the given type.
      *
@@ -20,6 +20,7 @@ package org.keycloak.cluster;
 
 import org.keycloak.provider.Provider;
 
+import java.util.Collection;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 
@@ -80,6 +81,22 @@ public interface ClusterProvider extends Provider {
      */
     void notify(String taskKey, ClusterEvent event, boolean ignoreSender, DCNotify dcNotify);
 
+    /**
+     * Notify registered listeners on all cluster nodes in all datacenters about all the given events. The events are delivered to
+     * the listeners in the same order as in the collection, but implementations may send them as a single message, and may also
+     * delay them shortly to merge them with other events sent under the same taskKey.
+     *
+     * @param taskKey
+     * @param events
+     * @param ignoreSender if true, then sender node itself won't receive the notification
+     * @param dcNotify Specify which DCs to notify. See {@link DCNotify} enum values for more info
+     */
+    default void notify(String taskKey, Collection<? extends ClusterEvent> events, boolean ignoreSender, DCNotify dcNotify) {
+        for (ClusterEvent event : events) {
+            notify(taskKey, event, ignoreSender, dcNotify);
+        }
+    }
+
     enum DCNotify {
         /** Send message to all cluster nodes in all DCs **/
         ALL_DCS,
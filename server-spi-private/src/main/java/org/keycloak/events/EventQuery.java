@@ -104,6 +104,15 @@ public interface EventQuery {
      */
     EventQuery orderByAscTime();
 
+    /**
+     * Search events which follow the given event in the order of ascending time and id, and order the result that way.
+     * It allows to resume reading the events after the last event read, without reading again the events before it.
+     * @param time time of the last event read
+     * @param id id of the last event read, or {@code null} to search the events of the given time as well
+     * @return this object for method chaining
+     */
+    EventQuery afterEvent(long time, String id);
+
     /**
      * Returns requested results that match given criteria as a stream.
      * @return Stream of events. Never returns {@code null}.
@@ -141,6 +141,15 @@ public interface AdminEventQuery {
      */
     AdminEventQuery orderByAscTime();
 
+    /**
+     * Search admin events which follow the given admin event in the order of ascending time and id, and order the result that way.
+     * It allows to resume reading the admin events after the last admin event read, without reading again the admin events before it.
+     * @param time time of the last admin event read
+     * @param id id of the last admin event read, or {@code null} to search the admin events of the given time as well
+     * @return <code>this</code> for method chaining
+     */
+    AdminEventQuery afterEvent(long time, String id);
+
     /**
      * Executes the query and returns the results as a stream.
      * @return Stream of admin events. Never returns {@code null}.
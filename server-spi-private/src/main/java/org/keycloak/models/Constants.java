@@ -137,6 +137,12 @@ public final class Constants {
      */
     public static final String STORAGE_BATCH_SIZE = "org.keycloak.storage.batch_size";
 
+    /**
+     * If set as an attribute in the {@link KeycloakSession}, indicates that the storage should not flush the write operations
+     * one by one, but defer them to the end of the transaction and send them to the database in JDBC batches of the given size.
+     */
+    public static final String STORAGE_JDBC_BATCH_SIZE = "org.keycloak.storage.jdbc_batch_size";
+
     // Client Polices Realm Attributes Keys
     public static final String CLIENT_PROFILES = "client-policies.profiles";
     public static final String CLIENT_POLICIES = "client-policies.policies";
@@ -67,6 +67,8 @@ import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -610,7 +612,10 @@ public final class KeycloakModelUtils {
     public static Collection<String> resolveAttribute(GroupModel group, String name, boolean aggregateAttrs) {
         Set<String> values = group.getAttributeStream(name).collect(Collectors.toSet());
         if ((values.isEmpty() || aggregateAttrs) && group.getParentId() != null) {
-            values.addAll(resolveAttribute(group.getParent(), name, aggregateAttrs));
+            Iterator<GroupModel> ancestors = group.getAncestorsStream().iterator();
+            while ((values.isEmpty() || aggregateAttrs) && ancestors.hasNext()) {
+                ancestors.next().getAttributeStream(name).forEach(values::add);
+            }
         }
         return values;
     }
@@ -816,23 +821,20 @@ public final class KeycloakModelUtils {
         return sb.toString();
     }
 
-    private static void buildGroupPath(StringBuilder sb, String groupName, GroupModel parent, boolean escapeSlashes) {
-        if (parent != null) {
-            buildGroupPath(sb, parent.getName(), parent.getParent(), escapeSlashes);
-        }
-        sb.append(GROUP_PATH_SEPARATOR).append(escapeSlashes? escapeGroupNameForPath(groupName) : groupName);
+    private static String buildGroupPath(GroupModel group, Stream<GroupModel> ancestors) {
+        LinkedList<String> names = new LinkedList<>();
+        names.add(group.getName());
+        ancestors.forEachOrdered(ancestor -> names.addFirst(ancestor.getName()));
+        return buildGroupPath(group.escapeSlashesInGroupPath(), names.toArray(new String[0]));
     }
 
     public static String buildGroupPath(GroupModel group) {
-        StringBuilder sb = new StringBuilder();
-        buildGroupPath(sb, group.getName(), group.getParent(), group.escapeSlashesInGroupPath());
-        return sb.toString();
+        return buildGroupPath(group, group.getAncestorsStream());
     }
 
     public static String buildGroupPath(GroupModel group, GroupModel otherParentGroup) {
-        StringBuilder sb = new StringBuilder();
-        buildGroupPath(sb, group.getName(), otherParentGroup, group.escapeSlashesInGroupPath());
-        return sb.toString();
+        return buildGroupPath(group, otherParentGroup == null ? Stream.empty()
+                : Stream.concat(Stream.of(otherParentGroup), otherParentGroup.getAncestorsStream()));
     }
 
     public static String normalizeGroupPath(final String groupPath) {
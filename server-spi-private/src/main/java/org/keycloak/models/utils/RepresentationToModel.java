@@ -757,6 +757,10 @@ public class RepresentationToModel {
         return session.getProvider(DatastoreProvider.class).getExportImportManager().createUser(newRealm, userRep);
     }
 
+    public static void createUsers(KeycloakSession session, RealmModel newRealm, List<UserRepresentation> userReps) {
+        session.getProvider(DatastoreProvider.class).getExportImportManager().createUsers(newRealm, userReps);
+    }
+
     public static void createGroups(KeycloakSession session, UserRepresentation userRep, RealmModel newRealm, UserModel user) {
         if (userRep.getGroups() != null) {
             for (String path : userRep.getGroups()) {
@@ -26,6 +26,7 @@ import org.keycloak.representations.idm.RealmRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 
 import java.io.InputStream;
+import java.util.List;
 
 /**
  * Manage importing and updating of realms for the store.
@@ -41,6 +42,12 @@ public interface ExportImportManager {
 
     UserModel createUser(RealmModel realm, UserRepresentation userRep);
 
+    /**
+     * Creates the users in batches, writing each batch to the local storage at once when it supports it. A {@link UsersImportedEvent}
+     * is fired for each batch, and the users of the realm are evicted from the user cache once for each batch instead of for each user.
+     */
+    void createUsers(RealmModel realm, List<UserRepresentation> userReps);
+
     void exportRealm(RealmModel realm, ExportOptions options, ExportAdapter callback);
 
     RealmModel importRealm(InputStream requestBody);
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.storage;
+
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.provider.ProviderEvent;
+
+/**
+ * Event fired once for each batch of users created by {@link ExportImportManager#createUsers(RealmModel, java.util.List)}, in place
+ * of an event for each of the users.
+ */
+public class UsersImportedEvent implements ProviderEvent {
+    private final KeycloakSession session;
+    private final RealmModel realm;
+    private final int count;
+
+    public UsersImportedEvent(KeycloakSession session, RealmModel realm, int count) {
+        this.session = session;
+        this.realm = realm;
+        this.count = count;
+    }
+
+    public static void fire(KeycloakSession session, RealmModel realm, int count) {
+        session.getKeycloakSessionFactory().publish(new UsersImportedEvent(session, realm, count));
+    }
+
+    public KeycloakSession getSession() {
+        return session;
+    }
+
+    public RealmModel getRealm() {
+        return realm;
+    }
+
+    /**
+     * Returns the number of users created by the batch.
+     */
+    public int getCount() {
+        return count;
+    }
+}
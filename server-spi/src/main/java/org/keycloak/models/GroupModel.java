@@ -22,6 +22,7 @@ import org.keycloak.provider.ProviderEvent;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Stream;
 
 /**
@@ -197,6 +198,15 @@ public interface GroupModel extends RoleMapperModel {
     GroupModel getParent();
     String getParentId();
 
+    /**
+     * Returns the ancestors of the group as a stream, starting with its parent and ending with its top level group.
+     *
+     * @return Stream of {@link GroupModel}. Never returns {@code null}.
+     */
+    default Stream<GroupModel> getAncestorsStream() {
+        return Stream.iterate(getParent(), Objects::nonNull, GroupModel::getParent);
+    }
+
     /**
      * Returns all sub groups for the parent group as a stream.
      * The stream is sorted by the group name.
@@ -19,6 +19,7 @@ package org.keycloak.models;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.keycloak.models.utils.RoleUtils;
 import org.keycloak.provider.Provider;
 import org.keycloak.storage.role.RoleLookupProvider;
 
@@ -138,4 +139,15 @@ public interface RoleProvider extends Provider, RoleLookupProvider {
      * @param client Client.
      */
     void removeRoles(ClientModel client);
+
+    /**
+     * Returns the given roles together with all the roles they contain, directly or transitively through composite roles.
+     * Providers may serve the result from a precomputed index instead of walking the composite roles.
+     * @param realm Realm of the roles.
+     * @param roles Roles to expand.
+     * @return Set of the expanded roles. Never returns {@code null}.
+     */
+    default Set<RoleModel> expandCompositeRoles(RealmModel realm, Set<RoleModel> roles) {
+        return RoleUtils.expandCompositeRoles(roles);
+    }
 }
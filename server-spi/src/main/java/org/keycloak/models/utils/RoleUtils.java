@@ -19,6 +19,7 @@ package org.keycloak.models.utils;
 
 import org.keycloak.models.ClientModel;
 import org.keycloak.models.GroupModel;
+import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.RoleContainerModel;
 import org.keycloak.models.RoleModel;
@@ -49,14 +50,7 @@ public class RoleUtils {
         Set<GroupModel> groupsSet = groups.collect(Collectors.toSet());
         if (groupsSet.contains(targetGroup)) return true;
 
-        return groupsSet.stream().anyMatch(mapping -> {
-            GroupModel child = mapping;
-            while (child.getParent() != null) {
-                if (child.getParent().equals(targetGroup)) return true;
-                child = child.getParent();
-            }
-            return false;
-        });
+        return groupsSet.stream().anyMatch(mapping -> mapping.getAncestorsStream().anyMatch(targetGroup::equals));
     }
 
     /**
@@ -194,6 +188,28 @@ public class RoleUtils {
         return expandCompositeRoles(roleMappings);
     }
 
+    /**
+     * @param session
+     * @param realm realm of the roles
+     * @param roles
+     * @return new set with composite roles expanded by the role provider of the session, which may use a precomputed index
+     */
+    public static Set<RoleModel> expandCompositeRoles(KeycloakSession session, RealmModel realm, Set<RoleModel> roles) {
+        return session.roles().expandCompositeRoles(realm, roles);
+    }
+
+    /**
+     * @param session
+     * @param realm realm of the user
+     * @param user
+     * @return all user role mappings including all groups of user. Composite roles will be expanded by the role provider of the session
+     */
+    public static Set<RoleModel> getDeepUserRoleMappings(KeycloakSession session, RealmModel realm, UserModel user) {
+        Set<RoleModel> roleMappings = user.getRoleMappingsStream().collect(Collectors.toSet());
+        user.getGroupsStream().forEach(group -> addGroupRoles(group, roleMappings));
+        return expandCompositeRoles(session, realm, roleMappings);
+    }
+
 
     private static void addGroupRoles(GroupModel group, Set<RoleModel> roleMappings) {
         roleMappings.addAll(group.getRoleMappingsStream().collect(Collectors.toSet()));
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.storage.user;
+
+import java.util.List;
+
+import org.keycloak.models.RealmModel;
+import org.keycloak.representations.idm.UserRepresentation;
+
+/**
+ * This is an optional capability interface that is intended to be implemented by any
+ * <code>UserStorageProvider</code> that is able to import many new users at once.
+ */
+public interface UserBulkImportProvider {
+
+    /**
+     * Creates the given users in the realm along with their attributes, required actions, credentials, federated identities, role
+     * mappings and group memberships. The writes of the whole batch are sent to the storage together, so a conflict like a duplicate
+     * username fails the whole batch.
+     * <p>
+     * The users must have an id, and their credentials must be in the stored format, with the secret and credential data set. Realm
+     * and client roles which do not exist yet are created, as when importing a single user.
+     *
+     * @param realm Realm of the users
+     * @param users Users to create
+     */
+    void importUsers(RealmModel realm, List<UserRepresentation> users);
+}
@@ -23,8 +23,10 @@ import org.keycloak.models.RoleModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.utils.StringUtil;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -140,6 +142,30 @@ public interface UserQueryMethodsProvider {
      */
     Stream<UserModel> searchForUserStream(RealmModel realm, Map<String, String> params, Integer firstResult, Integer maxResults);
 
+    /**
+     * Searches for users by parameter page by page, see {@link #searchForUserStream(RealmModel, Map, Integer, Integer)} for the
+     * valid parameters.
+     * <p>
+     * Unlike paging with {@code firstResult}, the following page is requested with the continuation token of the current page,
+     * which allows implementations to resume the search where the previous page ended rather than skipping all the users of the
+     * previous pages. The default implementation falls back to an offset kept in the token.
+     *
+     * @param realm             a reference to the realm.
+     * @param params            a map containing the search parameters.
+     * @param continuationToken the continuation token of the previous page, or {@code null} for the first page.
+     * @param maxResults        maximum number of results to return, must be positive.
+     * @return the page of users matching the search criteria.
+     * @throws IllegalArgumentException if the continuation token is not valid.
+     */
+    default UserSearchPage searchForUserPage(RealmModel realm, Map<String, String> params, String continuationToken, int maxResults) {
+        int firstResult = continuationToken == null ? 0 : Integer.parseInt(continuationToken);
+        if (firstResult < 0) {
+            throw new IllegalArgumentException("Invalid continuation token");
+        }
+        List<UserModel> users = searchForUserStream(realm, params, firstResult, maxResults).collect(Collectors.toList());
+        return new UserSearchPage(users, users.size() < maxResults ? null : String.valueOf(firstResult + users.size()));
+    }
+
     /**
      * Obtains users that belong to a specific group.
      *
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.storage.user;
+
+import java.util.List;
+
+import org.keycloak.models.UserModel;
+
+/**
+ * A page of users returned by {@link UserQueryMethodsProvider#searchForUserPage(org.keycloak.models.RealmModel, java.util.Map, String, int)},
+ * along with the continuation token of the following page.
+ */
+public class UserSearchPage {
+
+    private final List<UserModel> users;
+    private final String continuationToken;
+
+    public UserSearchPage(List<UserModel> users, String continuationToken) {
+        this.users = users;
+        this.continuationToken = continuationToken;
+    }
+
+    public List<UserModel> getUsers() {
+        return users;
+    }
+
+    /**
+     * Returns the opaque token to pass for getting the following page, or {@code null} if there are no more users.
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+}
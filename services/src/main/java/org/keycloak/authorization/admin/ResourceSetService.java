@@ -20,10 +20,8 @@ import static org.keycloak.models.utils.ModelToRepresentation.toRepresentation;
 import static org.keycloak.models.utils.RepresentationToModel.toModel;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -61,7 +59,6 @@ import org.keycloak.authorization.model.Scope;
 import org.keycloak.authorization.store.PolicyStore;
 import org.keycloak.authorization.store.ResourceStore;
 import org.keycloak.authorization.store.StoreFactory;
-import org.keycloak.common.util.PathMatcher;
 import org.keycloak.events.admin.OperationType;
 import org.keycloak.events.admin.ResourceType;
 import org.keycloak.models.ClientModel;
@@ -478,34 +475,10 @@ public class ResourceSetService {
         List<Resource> resources = storeFactory.getResourceStore().find(this.resourceServer, search, firstResult != null ? firstResult : -1, maxResult != null ? maxResult : Constants.DEFAULT_MAX_RESULTS);
 
         if (matchingUri != null && matchingUri && resources.isEmpty()) {
-            Map<Resource.FilterOption, String[]> attributes = new EnumMap<>(Resource.FilterOption.class);
-
-            attributes.put(Resource.FilterOption.URI_NOT_NULL, new String[] {"true"});
-            attributes.put(Resource.FilterOption.OWNER, new String[] {resourceServer.getClientId()});
-
-            List<Resource> serverResources = storeFactory.getResourceStore().find(this.resourceServer, attributes, firstResult != null ? firstResult : -1, maxResult != null ? maxResult : -1);
-
-            PathMatcher<Map.Entry<String, Resource>> pathMatcher = new PathMatcher<Map.Entry<String, Resource>>() {
-                @Override
-                protected String getPath(Map.Entry<String, Resource> entry) {
-                    return entry.getKey();
-                }
-
-                @Override
-                protected Collection<Map.Entry<String, Resource>> getPaths() {
-                    Map<String, Resource> result = new HashMap<>();
-                    serverResources.forEach(resource -> resource.getUris().forEach(uri -> {
-                        result.put(uri, resource);
-                    }));
-
-                    return result.entrySet();
-                }
-            };
-
-            Map.Entry<String, Resource> matches = pathMatcher.matches(uri);
+            Resource matches = storeFactory.getResourceStore().findByMatchingUri(this.resourceServer, uri);
 
             if (matches != null) {
-                resources = Collections.singletonList(matches.getValue());
+                resources = Collections.singletonList(matches);
             }
         }
 
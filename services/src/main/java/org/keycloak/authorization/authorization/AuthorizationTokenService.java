@@ -61,7 +61,6 @@ import org.keycloak.authorization.util.Tokens;
 import org.keycloak.common.ClientConnection;
 import org.keycloak.common.constants.ServiceAccountConstants;
 import org.keycloak.common.util.Base64Url;
-import org.keycloak.common.util.PathMatcher;
 import org.keycloak.events.Details;
 import org.keycloak.events.Errors;
 import org.keycloak.events.EventBuilder;
@@ -902,33 +901,10 @@ public class AuthorizationTokenService {
                 return resources;
             }
 
-            search = new EnumMap<>(Resource.FilterOption.class);
-            search.put(Resource.FilterOption.URI_NOT_NULL, new String[] { "true" });
-            search.put(Resource.FilterOption.OWNER, new String[] { resourceServer.getClientId() });
-
-            List<Resource> serverResources = storeFactory.getResourceStore().find(resourceServer, search, -1, -1);
-
-            PathMatcher<Map.Entry<String, Resource>> pathMatcher = new PathMatcher<Map.Entry<String, Resource>>() {
-                @Override
-                protected String getPath(Map.Entry<String, Resource> entry) {
-                    return entry.getKey();
-                }
-
-                @Override
-                protected Collection<Map.Entry<String, Resource>> getPaths() {
-                    Map<String, Resource> result = new HashMap<>();
-                    serverResources.forEach(resource -> resource.getUris().forEach(uri -> {
-                        result.put(uri, resource);
-                    }));
-
-                    return result.entrySet();
-                }
-            };
-
-            Map.Entry<String, Resource> matches = pathMatcher.matches(uri);
+            Resource matches = storeFactory.getResourceStore().findByMatchingUri(resourceServer, uri);
 
             if (matches != null) {
-                return Collections.singletonList(matches.getValue());
+                return Collections.singletonList(matches);
             }
 
             return null;
@@ -24,6 +24,7 @@ import org.keycloak.services.ErrorResponse;
 import org.keycloak.services.ServicesLogger;
 
 import jakarta.ws.rs.core.Response;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -111,21 +112,35 @@ public abstract class AbstractPartialImport<T> implements PartialImport<T> {
             results.addResult(skipped(modelId, resourceRep));
         }
 
+        List<T> toCreate = new ArrayList<>();
         for (T resourceRep : repList) {
             if (toOverwrite.contains(resourceRep)) continue;
             if (toSkip.contains(resourceRep)) continue;
+            toCreate.add(resourceRep);
+        }
 
+        create(realm, session, toCreate);
+        for (T resourceRep : toCreate) {
+            String modelId = getModelId(realm, session, resourceRep);
+            results.addResult(added(modelId, resourceRep));
+        }
+
+        return results;
+    }
+
+    /**
+     * Creates the resources which do not exist yet. They are created one by one, unless the resource type supports creating many
+     * resources at once.
+     */
+    protected void create(RealmModel realm, KeycloakSession session, List<T> resourceReps) {
+        for (T resourceRep : resourceReps) {
             try {
                 create(realm, session, resourceRep);
-                String modelId = getModelId(realm, session, resourceRep);
-                results.addResult(added(modelId, resourceRep));
             } catch (Exception e) {
                 ServicesLogger.LOGGER.creationError(e, getName(resourceRep));
                 throw e;
             }
         }
-
-        return results;
     }
 
 }
@@ -25,10 +25,12 @@ import org.keycloak.models.utils.RepresentationToModel;
 import org.keycloak.representations.idm.PartialImportRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.keycloak.models.UserManager;
+import org.keycloak.services.ServicesLogger;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * PartialImport handler for users.
@@ -118,4 +120,23 @@ public class UsersPartialImport extends AbstractPartialImport<UserRepresentation
         createdIds.put(getName(user), userModel.getId());
     }
 
+    @Override
+    protected void create(RealmModel realm, KeycloakSession session, List<UserRepresentation> users) {
+        for (UserRepresentation user : users) {
+            if (user.getId() == null) {
+                user.setId(KeycloakModelUtils.generateId());
+            }
+        }
+        try {
+            RepresentationToModel.createUsers(session, realm, users);
+        } catch (Exception e) {
+            // the users are written together, so the one which failed is not known
+            ServicesLogger.LOGGER.creationError(e, users.stream().map(this::getName).collect(Collectors.joining(", ")));
+            throw e;
+        }
+        for (UserRepresentation user : users) {
+            createdIds.put(getName(user), user.getId());
+        }
+    }
+
 }
@@ -107,6 +107,7 @@ import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -615,8 +616,21 @@ public class TokenManager {
 
 
     public static Set<RoleModel> getAccess(UserModel user, ClientModel client, Stream<ClientScopeModel> clientScopes) {
-        Set<RoleModel> roleMappings = RoleUtils.getDeepUserRoleMappings(user);
+        return getAccess(RoleUtils.getDeepUserRoleMappings(user), client, clientScopes, RoleUtils::expandCompositeRoles);
+    }
+
+    /**
+     * Same as {@link #getAccess(UserModel, ClientModel, Stream)}, but the composite roles are expanded by the role provider of the
+     * session, which may serve them from a precomputed index.
+     */
+    public static Set<RoleModel> getAccess(KeycloakSession session, UserModel user, ClientModel client, Stream<ClientScopeModel> clientScopes) {
+        RealmModel realm = client.getRealm();
+        return getAccess(RoleUtils.getDeepUserRoleMappings(session, realm, user), client, clientScopes,
+                roles -> RoleUtils.expandCompositeRoles(session, realm, roles));
+    }
 
+    private static Set<RoleModel> getAccess(Set<RoleModel> roleMappings, ClientModel client, Stream<ClientScopeModel> clientScopes,
+                                            UnaryOperator<Set<RoleModel>> expandCompositeRoles) {
         if (client.isFullScopeAllowed()) {
             if (logger.isTraceEnabled()) {
                 logger.tracef("Using full scope for client %s", client.getClientId());
@@ -641,10 +655,10 @@ public class TokenManager {
             scopeMappings = Stream.concat(scopeMappings, clientScopesMappings);
 
             // 3 - Expand scope mappings
-            scopeMappings = RoleUtils.expandCompositeRolesStream(scopeMappings);
+            Set<RoleModel> expandedScopeMappings = expandCompositeRoles.apply(scopeMappings.collect(Collectors.toSet()));
 
             // Intersection of expanded user roles and expanded scopeMappings
-            roleMappings.retainAll(scopeMappings.collect(Collectors.toSet()));
+            roleMappings.retainAll(expandedScopeMappings);
 
             return roleMappings;
         }
@@ -17,6 +17,7 @@
 package org.keycloak.services.resources.admin;
 
 import static org.keycloak.util.JsonSerialization.readValue;
+import static org.keycloak.utils.MediaType.APPLICATION_NDJSON;
 
 import java.io.InputStream;
 import java.security.cert.X509Certificate;
@@ -25,6 +26,7 @@ import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -66,6 +68,7 @@ import org.keycloak.common.ClientConnection;
 import org.keycloak.common.Profile;
 import org.keycloak.common.VerificationException;
 import org.keycloak.common.util.PemUtils;
+import org.keycloak.common.util.Time;
 import org.keycloak.email.EmailTemplateProvider;
 import org.keycloak.events.EventQuery;
 import org.keycloak.events.EventStoreProvider;
@@ -118,6 +121,7 @@ import org.keycloak.services.resources.admin.permissions.AdminPermissions;
 import org.keycloak.storage.DatastoreProvider;
 import org.keycloak.storage.ExportImportManager;
 import org.keycloak.storage.StoreSyncEvent;
+import org.keycloak.util.JsonSerialization;
 import org.keycloak.utils.ProfileHelper;
 import org.keycloak.utils.ReservedCharValidator;
 
@@ -131,6 +135,8 @@ import org.keycloak.utils.ReservedCharValidator;
 @Extension(name = KeycloakOpenAPI.Profiles.ADMIN, value = "")
 public class RealmAdminResource {
     protected static final Logger logger = Logger.getLogger(RealmAdminResource.class);
+    // events are exported once they are this old, so that the events committed after later events are exported as well
+    private static final long EVENTS_EXPORT_DELAY = 60_000;
     protected final AdminPermissionEvaluator auth;
     protected final RealmModel realm;
     private final AdminEventBuilder adminEvent;
@@ -946,6 +952,118 @@ public class RealmAdminResource {
         return query.getResultStream().map(ModelToRepresentation::toRepresentation);
     }
 
+    /**
+     * Export events
+     *
+     * Streams the events which follow the given event in the order of ascending time and id as newline delimited JSON,
+     * so that an exporter can resume reading the events from the last event it has read.
+     *
+     * Only the events older than a minute are returned: as an event is committed some time after its time is set, a newer
+     * event might be committed first, and the exporter would skip the older one when resuming after the newer one. An event
+     * committed more than a minute after its time, like an event written late while the database was not available, is
+     * still skipped. Whether the events are streamed from the database depends on the JDBC driver honoring the fetch size,
+     * MySQL Connector/J for instance reads the whole result unless useCursorFetch is enabled, so the max parameter should
+     * be used to bound each response.
+     *
+     * @param afterTime Time of the last event read
+     * @param afterId Id of the last event read. If not set, the events of the given time are returned as well
+     * @param types The types of events to return
+     * @param maxResults Maximum results size. If not set, all events are returned
+     * @return
+     */
+    @Path("events/export")
+    @GET
+    @NoCache
+    @Produces(APPLICATION_NDJSON)
+    @Tag(name = KeycloakOpenAPI.Admin.Tags.REALMS_ADMIN)
+    @Operation( summary = "Export events Streams the events which follow the given event in the order of ascending time and id as newline delimited JSON")
+    public Response exportEvents(@Parameter(description = "Time of the last event read") @QueryParam("afterTime") Long afterTime,
+                                 @Parameter(description = "Id of the last event read") @QueryParam("afterId") String afterId,
+                                 @Parameter(description = "The types of events to return") @QueryParam("type") List<String> types,
+                                 @Parameter(description = "Maximum results size") @QueryParam("max") Integer maxResults) {
+        auth.realm().requireViewEvents();
+
+        EventStoreProvider eventStore = session.getProvider(EventStoreProvider.class);
+
+        EventQuery query = eventStore.createQuery().realm(realm.getId())
+                .afterEvent(afterTime == null ? 0 : afterTime, afterId)
+                .toDate(new Date(Time.currentTimeMillis() - EVENTS_EXPORT_DELAY));
+
+        if (types != null && !types.isEmpty()) {
+            EventType[] t = new EventType[types.size()];
+            for (int i = 0; i < t.length; i++) {
+                t[i] = EventType.valueOf(types.get(i));
+            }
+            query.type(t);
+        }
+
+        if (maxResults != null) {
+            query.maxResults(maxResults);
+        }
+
+        return toNdjsonResponse(query.getResultStream().map(ModelToRepresentation::toRepresentation));
+    }
+
+    /**
+     * Export admin events
+     *
+     * Streams the admin events which follow the given admin event in the order of ascending time and id as newline delimited JSON,
+     * so that an exporter can resume reading the admin events from the last admin event it has read.
+     *
+     * As for the events, only the admin events older than a minute are returned.
+     *
+     * @param afterTime Time of the last admin event read
+     * @param afterId Id of the last admin event read. If not set, the admin events of the given time are returned as well
+     * @param operationTypes
+     * @param maxResults Maximum results size. If not set, all admin events are returned
+     * @return
+     */
+    @Path("admin-events/export")
+    @GET
+    @NoCache
+    @Produces(APPLICATION_NDJSON)
+    @Tag(name = KeycloakOpenAPI.Admin.Tags.REALMS_ADMIN)
+    @Operation( summary = "Export admin events Streams the admin events which follow the given admin event in the order of ascending time and id as newline delimited JSON")
+    public Response exportAdminEvents(@Parameter(description = "Time of the last admin event read") @QueryParam("afterTime") Long afterTime,
+                                      @Parameter(description = "Id of the last admin event read") @QueryParam("afterId") String afterId,
+                                      @QueryParam("operationTypes") List<String> operationTypes,
+                                      @Parameter(description = "Maximum results size") @QueryParam("max") Integer maxResults) {
+        auth.realm().requireViewEvents();
+
+        EventStoreProvider eventStore = session.getProvider(EventStoreProvider.class);
+
+        AdminEventQuery query = eventStore.createAdminQuery().realm(realm.getId())
+                .afterEvent(afterTime == null ? 0 : afterTime, afterId)
+                .toTime(new Date(Time.currentTimeMillis() - EVENTS_EXPORT_DELAY));
+
+        if (operationTypes != null && !operationTypes.isEmpty()) {
+            OperationType[] t = new OperationType[operationTypes.size()];
+            for (int i = 0; i < t.length; i++) {
+                t[i] = OperationType.valueOf(operationTypes.get(i));
+            }
+            query.operation(t);
+        }
+
+        if (maxResults != null) {
+            query.maxResults(maxResults);
+        }
+
+        return toNdjsonResponse(query.getResultStream().map(ModelToRepresentation::toRepresentation));
+    }
+
+    private static Response toNdjsonResponse(Stream<?> representations) {
+        StreamingOutput output = os -> {
+            try (representations) {
+                Iterator<?> it = representations.iterator();
+                while (it.hasNext()) {
+                    os.write(JsonSerialization.writeValueAsBytes(it.next()));
+                    os.write('\n');
+                }
+            }
+        };
+        return Response.ok(output, APPLICATION_NDJSON).build();
+    }
+
     /**
      * Delete all events
      *
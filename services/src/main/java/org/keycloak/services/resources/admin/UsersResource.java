@@ -45,6 +45,7 @@ import org.keycloak.services.ErrorResponseException;
 import org.keycloak.services.resources.KeycloakOpenAPI;
 import org.keycloak.services.resources.admin.permissions.AdminPermissionEvaluator;
 import org.keycloak.services.resources.admin.permissions.UserPermissionEvaluator;
+import org.keycloak.storage.user.UserSearchPage;
 import org.keycloak.userprofile.UserProfile;
 import org.keycloak.userprofile.UserProfileProvider;
 import org.keycloak.utils.SearchQueryUtils;
@@ -89,6 +90,7 @@ public class UsersResource {
 
     private static final Logger logger = Logger.getLogger(UsersResource.class);
     private static final String SEARCH_ID_PARAMETER = "id:";
+    private static final String CONTINUATION_TOKEN_HEADER = "X-Continuation-Token";
 
     protected final RealmModel realm;
 
@@ -245,6 +247,10 @@ public class UsersResource {
      * @param briefRepresentation Boolean which defines whether brief representations are returned (default: false)
      * @param exact Boolean which defines whether the params "last", "first", "email" and "username" must match exactly
      * @param searchQuery A query to search for custom attributes, in the format 'key1:value2 key2:value2'
+     * @param continuationToken The continuation token returned in the {@code X-Continuation-Token} header of the previous page, or an
+     *                          empty value for the first page. When set, the pagination offset is ignored and the continuation token
+     *                          of the following page, if any, is returned in the {@code X-Continuation-Token} header. Not supported
+     *                          when searching by id.
      * @return a non-null {@code Stream} of users
      */
     @GET
@@ -266,7 +272,8 @@ public class UsersResource {
             @Parameter(description = "Boolean representing if user is enabled or not") @QueryParam("enabled") Boolean enabled,
             @Parameter(description = "Boolean which defines whether brief representations are returned (default: false)") @QueryParam("briefRepresentation") Boolean briefRepresentation,
             @Parameter(description = "Boolean which defines whether the params \"last\", \"first\", \"email\" and \"username\" must match exactly") @QueryParam("exact") Boolean exact,
-            @Parameter(description = "A query to search for custom attributes, in the format 'key1:value2 key2:value2'") @QueryParam("q") String searchQuery) {
+            @Parameter(description = "A query to search for custom attributes, in the format 'key1:value2 key2:value2'") @QueryParam("q") String searchQuery,
+            @Parameter(description = "The continuation token returned in the X-Continuation-Token header of the previous page, or an empty value for the first page. When set, the pagination offset is ignored. Not supported when searching by id.") @QueryParam("continuationToken") String continuationToken) {
         UserPermissionEvaluator userPermissionEvaluator = auth.users();
 
         userPermissionEvaluator.requireQuery();
@@ -281,6 +288,9 @@ public class UsersResource {
         Stream<UserModel> userModels = Stream.empty();
         if (search != null) {
             if (search.startsWith(SEARCH_ID_PARAMETER)) {
+                if (continuationToken != null) {
+                    throw ErrorResponse.error("Continuation token not supported when searching by id", Response.Status.BAD_REQUEST);
+                }
                 UserModel userModel =
                         session.users().getUserById(realm, search.substring(SEARCH_ID_PARAMETER.length()).trim());
                 if (userModel != null) {
@@ -293,7 +303,7 @@ public class UsersResource {
                     attributes.put(UserModel.ENABLED, enabled.toString());
                 }
                 return searchForUser(attributes, realm, userPermissionEvaluator, briefRepresentation, firstResult,
-                        maxResults, false);
+                        maxResults, continuationToken, false);
             }
         } else if (last != null || first != null || email != null || username != null || emailVerified != null
                 || idpAlias != null || idpUserId != null || enabled != null || exact != null || !searchAttributes.isEmpty()) {
@@ -329,10 +339,10 @@ public class UsersResource {
                     attributes.putAll(searchAttributes);
 
                     return searchForUser(attributes, realm, userPermissionEvaluator, briefRepresentation, firstResult,
-                            maxResults, true);
+                            maxResults, continuationToken, true);
                 } else {
                     return searchForUser(new HashMap<>(), realm, userPermissionEvaluator, briefRepresentation,
-                            firstResult, maxResults, false);
+                            firstResult, maxResults, continuationToken, false);
                 }
 
         return toRepresentation(realm, userPermissionEvaluator, briefRepresentation, userModels);
@@ -442,7 +452,7 @@ public class UsersResource {
         return new UserProfileResource(session, auth, adminEvent);
     }
 
-    private Stream<UserRepresentation> searchForUser(Map<String, String> attributes, RealmModel realm, UserPermissionEvaluator usersEvaluator, Boolean briefRepresentation, Integer firstResult, Integer maxResults, Boolean includeServiceAccounts) {
+    private Stream<UserRepresentation> searchForUser(Map<String, String> attributes, RealmModel realm, UserPermissionEvaluator usersEvaluator, Boolean briefRepresentation, Integer firstResult, Integer maxResults, String continuationToken, Boolean includeServiceAccounts) {
         attributes.put(UserModel.INCLUDE_SERVICE_ACCOUNT, includeServiceAccounts.toString());
 
         if (!auth.users().canView()) {
@@ -453,6 +463,22 @@ public class UsersResource {
             }
         }
 
+        if (continuationToken != null) {
+            if (maxResults <= 0) {
+                throw ErrorResponse.error("Maximum results size must be positive", Response.Status.BAD_REQUEST);
+            }
+            UserSearchPage page;
+            try {
+                page = session.users().searchForUserPage(realm, attributes, continuationToken.isEmpty() ? null : continuationToken, maxResults);
+            } catch (IllegalArgumentException e) {
+                throw ErrorResponse.error("Invalid continuation token", Response.Status.BAD_REQUEST);
+            }
+            if (page.getContinuationToken() != null) {
+                session.getContext().getHttpResponse().setHeader(CONTINUATION_TOKEN_HEADER, page.getContinuationToken());
+            }
+            return toRepresentation(realm, usersEvaluator, briefRepresentation, page.getUsers().stream());
+        }
+
         Stream<UserModel> userModels = session.users().searchForUserStream(realm, attributes, firstResult, maxResults);
         return toRepresentation(realm, usersEvaluator, briefRepresentation, userModels);
     }
@@ -267,7 +267,7 @@ public class DefaultClientSessionContext implements ClientSessionContext {
         }
 
         // Expand (resolve composite roles)
-        clientScopeRoles = RoleUtils.expandCompositeRoles(clientScopeRoles);
+        clientScopeRoles = RoleUtils.expandCompositeRoles(session, clientSession.getRealm(), clientScopeRoles);
 
         // Check if expanded roles of clientScope has any intersection with expanded roles of user. If not, it is not permitted
         clientScopeRoles.retainAll(getUserRoles());
@@ -278,7 +278,7 @@ public class DefaultClientSessionContext implements ClientSessionContext {
     private Set<RoleModel> loadRoles() {
         UserModel user = clientSession.getUserSession().getUser();
         ClientModel client = clientSession.getClient();
-        return TokenManager.getAccess(user, client, getClientScopesStream());
+        return TokenManager.getAccess(session, user, client, getClientScopesStream());
     }
 
 
@@ -303,7 +303,7 @@ public class DefaultClientSessionContext implements ClientSessionContext {
 
     private Set<RoleModel> loadUserRoles() {
         UserModel user = clientSession.getUserSession().getUser();
-        return RoleUtils.getDeepUserRoleMappings(user);
+        return RoleUtils.getDeepUserRoleMappings(session, clientSession.getRealm(), user);
     }
 
 }
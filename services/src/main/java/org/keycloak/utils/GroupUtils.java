@@ -1,6 +1,7 @@
 package org.keycloak.utils;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
@@ -34,8 +35,10 @@ public class GroupUtils {
             populateSubGroupCount(group, currGroup);
             groupIdToGroups.putIfAbsent(currGroup.getId(), currGroup);
 
-            while(currGroup.getParentId() != null) {
-                GroupModel parentModel = session.groups().getGroupById(realm, currGroup.getParentId());
+            // all the parents at once, instead of a lookup per parent
+            Iterator<GroupModel> parents = group.getAncestorsStream().iterator();
+            while(currGroup.getParentId() != null && parents.hasNext()) {
+                GroupModel parentModel = parents.next();
 
                 //TODO GROUPS not sure if this is even necessary but if somehow you can't view the parent we need to remove the child and move on
                 if(!groupEvaluator.canView() && !groupEvaluator.canView(parentModel)) {
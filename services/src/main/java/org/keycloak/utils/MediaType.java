@@ -40,6 +40,8 @@ public class MediaType {
     public static final String APPLICATION_JWT = "application/jwt";
     public static final jakarta.ws.rs.core.MediaType APPLICATION_JWT_TYPE = new jakarta.ws.rs.core.MediaType("application", "jwt");
 
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
     public static final String APPLICATION_XML = jakarta.ws.rs.core.MediaType.APPLICATION_XML;
 
     public static final String TEXT_XML = jakarta.ws.rs.core.MediaType.TEXT_XML;
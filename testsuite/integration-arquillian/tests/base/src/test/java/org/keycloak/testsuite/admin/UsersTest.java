@@ -17,6 +17,12 @@
 
 package org.keycloak.testsuite.admin;
 
+import jakarta.ws.rs.core.HttpHeaders;
+import org.apache.http.Header;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.junit.Before;
 import org.junit.Test;
 import org.keycloak.admin.client.Keycloak;
@@ -34,23 +40,31 @@ import org.keycloak.representations.idm.authorization.ScopePermissionRepresentat
 import org.keycloak.representations.idm.authorization.UserPolicyRepresentation;
 import org.keycloak.testsuite.arquillian.annotation.EnableFeature;
 import org.keycloak.testsuite.util.AdminClientUtil;
+import org.keycloak.util.JsonSerialization;
 
 import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.keycloak.testsuite.util.OAuthClient.AUTH_SERVER_ROOT;
 
 public class UsersTest extends AbstractAdminTest {
 
@@ -68,6 +82,49 @@ public class UsersTest extends AbstractAdminTest {
         return true;
     }
 
+    @Test
+    public void searchUsersWithContinuationToken() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            createUser(REALM_NAME, "paged-user-" + i, "password", "firstName", "lastName", "paged-user-" + i + "@example.com");
+        }
+
+        List<String> usernames = new ArrayList<>();
+        String token = "";
+        try (CloseableHttpClient client = HttpClientBuilder.create().build()) {
+            for (int page = 0; token != null && page < 10; page++) {
+                try (CloseableHttpResponse response = client.execute(getUsersPage(token))) {
+                    assertThat(response.getStatusLine().getStatusCode(), is(200));
+                    UserRepresentation[] users = JsonSerialization.readValue(response.getEntity().getContent(), UserRepresentation[].class);
+                    assertThat(users.length <= 2, is(true));
+                    Arrays.stream(users).map(UserRepresentation::getUsername).forEach(usernames::add);
+                    Header next = response.getFirstHeader("X-Continuation-Token");
+                    token = next == null ? null : next.getValue();
+                }
+            }
+
+            try (CloseableHttpResponse response = client.execute(getUsersPage("not-a-token"))) {
+                assertThat(response.getStatusLine().getStatusCode(), is(400));
+            }
+
+            // the search by id is not paginated
+            HttpGet searchById = getUsersPage("");
+            searchById.setURI(URI.create(searchById.getURI() + "&search=" + URLEncoder.encode("id:" + usernames.get(0), StandardCharsets.UTF_8)));
+            try (CloseableHttpResponse response = client.execute(searchById)) {
+                assertThat(response.getStatusLine().getStatusCode(), is(400));
+            }
+        }
+
+        assertThat(token, nullValue());
+        assertThat(usernames, contains("paged-user-0", "paged-user-1", "paged-user-2", "paged-user-3", "paged-user-4"));
+    }
+
+    private HttpGet getUsersPage(String continuationToken) {
+        HttpGet get = new HttpGet(AUTH_SERVER_ROOT + "/admin/realms/" + REALM_NAME + "/users?max=2&continuationToken="
+                + URLEncoder.encode(continuationToken, StandardCharsets.UTF_8));
+        get.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + adminClient.tokenManager().getAccessTokenString());
+        return get;
+    }
+
     @Test
     public void searchUserWithWildcards() throws Exception {
         createUser(REALM_NAME, "User", "password", "firstName", "lastName", "user@example.com");
@@ -17,12 +17,23 @@
 
 package org.keycloak.testsuite.admin.event;
 
+import jakarta.ws.rs.core.HttpHeaders;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.events.EventType;
 import org.keycloak.representations.idm.EventRepresentation;
+import org.keycloak.util.JsonSerialization;
+import org.keycloak.utils.MediaType;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +43,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.keycloak.testsuite.util.OAuthClient.AUTH_SERVER_ROOT;
 
 /**
  * Test getting and filtering login-related events.
@@ -87,6 +99,57 @@ public class LoginEventsTest extends AbstractEventTest {
         assertEquals("bad", details.get("username"));
     }
 
+    @Test
+    public void exportEventsTest() throws Exception {
+        badLogin();
+        badLogin();
+        badLogin();
+
+        try (CloseableHttpClient client = HttpClientBuilder.create().build()) {
+            // the events are exported once they are a minute old
+            assertEquals(0, exportEvents(client, "").size());
+
+            setTimeOffset(120);
+            try {
+                List<EventRepresentation> events = exportEvents(client, "");
+                assertEquals(3, events.size());
+                for (int i = 1; i < events.size(); i++) {
+                    EventRepresentation previous = events.get(i - 1);
+                    EventRepresentation event = events.get(i);
+                    assertTrue(previous.getTime() < event.getTime()
+                            || (previous.getTime() == event.getTime() && previous.getId().compareTo(event.getId()) < 0));
+                }
+
+                // resuming after the first event returns the next ones
+                EventRepresentation first = events.get(0);
+                List<EventRepresentation> next = exportEvents(client, "?max=1&afterTime=" + first.getTime() + "&afterId=" + first.getId());
+                assertEquals(1, next.size());
+                assertEquals(events.get(1).getId(), next.get(0).getId());
+
+                EventRepresentation last = events.get(2);
+                assertEquals(0, exportEvents(client, "?afterTime=" + last.getTime() + "&afterId=" + last.getId()).size());
+            } finally {
+                resetTimeOffset();
+            }
+        }
+    }
+
+    private List<EventRepresentation> exportEvents(CloseableHttpClient client, String query) throws IOException {
+        HttpGet get = new HttpGet(AUTH_SERVER_ROOT + "/admin/realms/" + realmName() + "/events/export" + query);
+        get.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + adminClient.tokenManager().getAccessTokenString());
+        try (CloseableHttpResponse response = client.execute(get)) {
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals(MediaType.APPLICATION_NDJSON, response.getEntity().getContentType().getValue());
+            List<EventRepresentation> events = new ArrayList<>();
+            for (String line : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isEmpty()) {
+                    events.add(JsonSerialization.readValue(line, EventRepresentation.class));
+                }
+            }
+            return events;
+        }
+    }
+
     @Test
     public void clearEventsTest() {
         assertEquals(0, events().size());
@@ -22,6 +22,7 @@ import org.keycloak.authorization.model.ResourceServer;
 import org.keycloak.models.ClientModel;
 import org.keycloak.models.Constants;
 import org.keycloak.models.GroupModel;
+import org.keycloak.models.IdentityProviderModel;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.RealmProvider;
@@ -111,6 +112,37 @@ public class RealmModelTest extends KeycloakModelTest {
         });
     }
 
+    @Test
+    public void testIdentityProviderUpdatedAfterRead() {
+        withRealm(realmId, (session, realm) -> {
+            IdentityProviderModel idp = new IdentityProviderModel();
+            idp.setAlias("idp");
+            idp.setProviderId("oidc");
+            idp.setDisplayName("before");
+            realm.addIdentityProvider(idp);
+            return null;
+        });
+
+        // the identity providers are cached by the first read
+        withRealm(realmId, (session, realm) -> {
+            assertThat(realm.getIdentityProvidersStream().count(), equalTo(1L));
+            return null;
+        });
+
+        withRealm(realmId, (session, realm) -> {
+            assertThat(realm.getIdentityProvidersStream().count(), equalTo(1L));
+            IdentityProviderModel idp = realm.getIdentityProviderByAlias("idp");
+            idp.setDisplayName("after");
+            realm.updateIdentityProvider(idp);
+            return null;
+        });
+
+        withRealm(realmId, (session, realm) -> {
+            assertThat(realm.getIdentityProviderByAlias("idp").getDisplayName(), equalTo("after"));
+            return null;
+        });
+    }
+
     @Test
     public void testRealmPreRemoveDoesntRemoveEntitiesFromOtherRealms() {
         realm1Id = inComittedTransaction(session -> {
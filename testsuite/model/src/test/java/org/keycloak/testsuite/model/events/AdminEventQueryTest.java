@@ -117,6 +117,38 @@ public class AdminEventQueryTest extends KeycloakModelTest {
         });
     }
 
+    @Test
+    public void testQueryAfterEvent() {
+        withRealm(realmId, (session, realm) -> {
+            EventStoreProvider eventStore = session.getProvider(EventStoreProvider.class);
+            eventStore.onEvent(createClientEvent(realm, OperationType.CREATE, 1L, "b"), false);
+            eventStore.onEvent(createClientEvent(realm, OperationType.DELETE, 2L, "a"), false);
+            eventStore.onEvent(createClientEvent(realm, OperationType.UPDATE, 1L, "c"), false);
+            eventStore.onEvent(createClientEvent(realm, OperationType.ACTION, 1L, "a"), false);
+            return null;
+        });
+
+        withRealm(realmId, (session, realm) -> {
+            EventStoreProvider eventStore = session.getProvider(EventStoreProvider.class);
+
+            // the admin events of the same time are ordered by id
+            assertThat(eventStore.createAdminQuery().realm(realmId).afterEvent(1L, null).getResultStream().map(AdminEvent::getOperationType).collect(Collectors.toList()),
+                    equalTo(List.of(OperationType.ACTION, OperationType.CREATE, OperationType.UPDATE, OperationType.DELETE)));
+            assertThat(eventStore.createAdminQuery().realm(realmId).afterEvent(1L, realmId + "-b").getResultStream().map(AdminEvent::getOperationType).collect(Collectors.toList()),
+                    equalTo(List.of(OperationType.UPDATE, OperationType.DELETE)));
+            assertThat(eventStore.createAdminQuery().realm(realmId).afterEvent(2L, realmId + "-a").getResultStream().count(), is(0L));
+            return null;
+        });
+    }
+
+    private AdminEvent createClientEvent(RealmModel realm, OperationType operation, long time, String id) {
+        AdminEvent event = createClientEvent(realm, operation);
+        event.setTime(time);
+        // the realm id keeps the event ids unique across runs
+        event.setId(realm.getId() + "-" + id);
+        return event;
+    }
+
         @Test
     public void testAdminEventRepresentationLongValue() {
         String longValue = RandomStringUtils.random(30000, true, true);
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.testsuite.model.events;
+
+import org.junit.Test;
+import org.keycloak.common.util.Time;
+import org.keycloak.events.Event;
+import org.keycloak.events.EventStoreProvider;
+import org.keycloak.events.EventStoreSpi;
+import org.keycloak.events.EventType;
+import org.keycloak.events.jpa.JpaEventStoreProviderFactory;
+import org.keycloak.models.Constants;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.testsuite.model.KeycloakModelTest;
+import org.keycloak.testsuite.model.RequireProvider;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+/**
+ * Checks that the expired events are removed in chunks.
+ */
+@RequireProvider(value = EventStoreProvider.class, only = "jpa")
+public class EventExpirationTest extends KeycloakModelTest {
+
+    private static final int CHUNK_SIZE = 2;
+    private static final long CHUNK_PAUSE = 50;
+    private static final String PROPERTY_PREFIX = "keycloak." + EventStoreSpi.NAME + "." + JpaEventStoreProviderFactory.ID + ".";
+
+    private String realmId;
+
+    @Override
+    public void createEnvironment(KeycloakSession s) {
+        RealmModel realm = createRealm(s, "realm");
+        realm.setDefaultRole(s.roles().addRealmRole(realm, Constants.DEFAULT_ROLES_ROLE_PREFIX + "-" + realm.getName()));
+        realm.setEventsExpiration(60);
+        this.realmId = realm.getId();
+    }
+
+    @Override
+    public void cleanEnvironment(KeycloakSession s) {
+        RealmModel realm = s.realms().getRealm(realmId);
+        s.getProvider(EventStoreProvider.class).clear(realm);
+        s.realms().removeRealm(realmId);
+    }
+
+    @Test
+    public void testExpiredEventsRemovedInChunks() {
+        long now = Time.currentTimeMillis();
+        withRealm(realmId, (session, realm) -> {
+            EventStoreProvider eventStore = session.getProvider(EventStoreProvider.class);
+            // five expired events take three chunks
+            for (int i = 0; i < 5; i++) {
+                eventStore.onEvent(createEvent(realm, "expired-" + i, now - 120_000 - i));
+            }
+            eventStore.onEvent(createEvent(realm, "kept-0", now - 1_000));
+            eventStore.onEvent(createEvent(realm, "kept-1", now));
+            return null;
+        });
+
+        // the factory reads the chunk options when it is initialized
+        System.setProperty(PROPERTY_PREFIX + JpaEventStoreProviderFactory.CONFIG_EXPIRATION_CHUNK_SIZE, String.valueOf(CHUNK_SIZE));
+        System.setProperty(PROPERTY_PREFIX + JpaEventStoreProviderFactory.CONFIG_EXPIRATION_CHUNK_PAUSE, String.valueOf(CHUNK_PAUSE));
+        try {
+            reinitializeKeycloakSessionFactory();
+
+            long start = System.currentTimeMillis();
+            inComittedTransaction(session -> {
+                session.getProvider(EventStoreProvider.class).clearExpiredEvents();
+            });
+            // the two full chunks are each followed by a pause
+            assertThat(System.currentTimeMillis() - start, greaterThanOrEqualTo(2 * CHUNK_PAUSE));
+        } finally {
+            System.clearProperty(PROPERTY_PREFIX + JpaEventStoreProviderFactory.CONFIG_EXPIRATION_CHUNK_SIZE);
+            System.clearProperty(PROPERTY_PREFIX + JpaEventStoreProviderFactory.CONFIG_EXPIRATION_CHUNK_PAUSE);
+            reinitializeKeycloakSessionFactory();
+        }
+
+        withRealm(realmId, (session, realm) -> {
+            Set<String> users = session.getProvider(EventStoreProvider.class).createQuery().realm(realmId).getResultStream()
+                    .map(Event::getUserId)
+                    .collect(Collectors.toSet());
+            assertThat(users, equalTo(Set.of("kept-0", "kept-1")));
+            return null;
+        });
+    }
+
+    private static Event createEvent(RealmModel realm, String userId, long time) {
+        Event event = new Event();
+        event.setId(KeycloakModelUtils.generateId());
+        event.setRealmId(realm.getId());
+        event.setType(EventType.LOGIN);
+        event.setUserId(userId);
+        event.setTime(time);
+        return event;
+    }
+}
@@ -138,6 +138,44 @@ public class EventQueryTest extends KeycloakModelTest {
         });
     }
 
+    @Test
+    public void testQueryAfterEvent() {
+        withRealm(realmId, (session, realm) -> {
+            EventStoreProvider eventStore = session.getProvider(EventStoreProvider.class);
+            eventStore.onEvent(createAuthEventForUser(session, realm, "u1", 1L, "b"));
+            eventStore.onEvent(createAuthEventForUser(session, realm, "u2", 2L, "a"));
+            eventStore.onEvent(createAuthEventForUser(session, realm, "u3", 1L, "c"));
+            eventStore.onEvent(createAuthEventForUser(session, realm, "u4", 1L, "a"));
+            return null;
+        });
+
+        withRealm(realmId, (session, realm) -> {
+            EventStoreProvider eventStore = session.getProvider(EventStoreProvider.class);
+
+            // the events of the same time are ordered by id
+            assertThat(eventStore.createQuery().realm(realmId).afterEvent(1L, null).getResultStream().map(Event::getUserId).collect(Collectors.toList()),
+                    equalTo(List.of("u4", "u1", "u3", "u2")));
+            assertThat(eventStore.createQuery().realm(realmId).afterEvent(1L, realmId + "-b").getResultStream().map(Event::getUserId).collect(Collectors.toList()),
+                    equalTo(List.of("u3", "u2")));
+            assertThat(eventStore.createQuery().realm(realmId).afterEvent(1L, realmId + "-c").getResultStream().map(Event::getUserId).collect(Collectors.toList()),
+                    equalTo(List.of("u2")));
+            assertThat(eventStore.createQuery().realm(realmId).afterEvent(2L, realmId + "-a").getResultStream().count(), is(0L));
+
+            // resuming from the last event read returns each event once
+            assertThat(eventStore.createQuery().realm(realmId).afterEvent(1L, realmId + "-a").maxResults(2).getResultStream().map(Event::getId).collect(Collectors.toList()),
+                    equalTo(List.of(realmId + "-b", realmId + "-c")));
+            return null;
+        });
+    }
+
+    private Event createAuthEventForUser(KeycloakSession session, RealmModel realm, String user, long time, String id) {
+        Event event = createAuthEventForUser(session, realm, user);
+        event.setTime(time);
+        // the realm id keeps the event ids unique across runs
+        event.setId(realm.getId() + "-" + id);
+        return event;
+    }
+
     @Test
     public void testEventDetailsLongValue() {
         String v1 = RandomStringUtils.random(1000, true, true);
@@ -21,7 +21,9 @@ import org.junit.Test;
 import org.keycloak.models.Constants;
 import org.keycloak.models.GroupModel;
 import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.ModelException;
 import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
 import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.testsuite.model.KeycloakModelTest;
 
@@ -35,6 +37,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
 
 public class GroupModelTest extends KeycloakModelTest {
 
@@ -102,6 +105,76 @@ public class GroupModelTest extends KeycloakModelTest {
         });
     }
 
+    @Test
+    public void testAncestorsAfterMove() {
+        String[] ids = withRealm(realmId, (session, realm) -> {
+            GroupModel top = session.groups().createGroup(realm, "top");
+            GroupModel middle = session.groups().createGroup(realm, "middle", top);
+            GroupModel bottom = session.groups().createGroup(realm, "bottom", middle);
+            UserModel user = session.users().addUser(realm, "user");
+            user.joinGroup(bottom);
+            return new String[] { top.getId(), middle.getId(), bottom.getId(), user.getId() };
+        });
+
+        withRealm(realmId, (session, realm) -> {
+            GroupModel top = session.groups().getGroupById(realm, ids[0]);
+            GroupModel bottom = session.groups().getGroupById(realm, ids[2]);
+            UserModel user = session.users().getUserById(realm, ids[3]);
+
+            assertThat(bottom.getAncestorsStream().map(GroupModel::getName).collect(Collectors.toList()), contains("middle", "top"));
+            assertThat(KeycloakModelUtils.buildGroupPath(bottom), equalTo("/top/middle/bottom"));
+            assertThat(user.isMemberOf(top), equalTo(true));
+            return null;
+        });
+
+        withRealm(realmId, (session, realm) -> {
+            GroupModel middle = session.groups().getGroupById(realm, ids[1]);
+            session.groups().moveGroup(realm, middle, null);
+            return null;
+        });
+
+        withRealm(realmId, (session, realm) -> {
+            GroupModel top = session.groups().getGroupById(realm, ids[0]);
+            GroupModel middle = session.groups().getGroupById(realm, ids[1]);
+            GroupModel bottom = session.groups().getGroupById(realm, ids[2]);
+            UserModel user = session.users().getUserById(realm, ids[3]);
+
+            assertThat(bottom.getAncestorsStream().map(GroupModel::getName).collect(Collectors.toList()), contains("middle"));
+            assertThat(KeycloakModelUtils.buildGroupPath(bottom), equalTo("/middle/bottom"));
+            assertThat(user.isMemberOf(top), equalTo(false));
+            assertThat(user.isMemberOf(middle), equalTo(true));
+            return null;
+        });
+    }
+
+    @Test
+    public void testMoveToSubgroupRejected() {
+        String[] ids = withRealm(realmId, (session, realm) -> {
+            GroupModel top = session.groups().createGroup(realm, "top");
+            GroupModel bottom = session.groups().createGroup(realm, "bottom", top);
+            return new String[] { top.getId(), bottom.getId() };
+        });
+
+        withRealm(realmId, (session, realm) -> {
+            GroupModel top = session.groups().getGroupById(realm, ids[0]);
+            GroupModel bottom = session.groups().getGroupById(realm, ids[1]);
+            try {
+                session.groups().moveGroup(realm, top, bottom);
+                fail("Moving a group to its subgroup must fail");
+            } catch (ModelException expected) {
+                // expected
+            }
+            session.getTransactionManager().setRollbackOnly();
+            return null;
+        });
+
+        withRealm(realmId, (session, realm) -> {
+            GroupModel bottom = session.groups().getGroupById(realm, ids[1]);
+            assertThat(KeycloakModelUtils.buildGroupPath(bottom), equalTo("/top/bottom"));
+            return null;
+        });
+    }
+
     @Test
     public void testGroupByName() {
         String subGroupId1 = withRealm(realmId, (session, realm) -> {
@@ -22,6 +22,7 @@ import org.junit.Test;
 import org.keycloak.OAuth2Constants;
 import org.keycloak.common.Profile;
 import org.keycloak.common.util.Time;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
 import org.keycloak.models.AuthenticatedClientSessionModel;
 import org.keycloak.models.ClientModel;
 import org.keycloak.models.KeycloakSession;
@@ -32,6 +33,9 @@ import org.keycloak.models.UserModel;
 import org.keycloak.models.UserProvider;
 import org.keycloak.models.UserSessionModel;
 import org.keycloak.models.UserSessionProvider;
+import org.keycloak.models.jpa.session.JpaUserSessionPersisterProvider;
+import org.keycloak.models.jpa.session.JpaUserSessionPersisterProviderFactory;
+import org.keycloak.models.session.PersistentSessionDataCodec;
 import org.keycloak.models.session.UserSessionPersisterProvider;
 import org.keycloak.models.utils.ResetTimeOffsetEvent;
 import org.keycloak.protocol.oidc.OIDCLoginProtocol;
@@ -42,11 +46,14 @@ import org.keycloak.services.managers.RealmManager;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -54,6 +61,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import org.keycloak.models.Constants;
+import jakarta.persistence.EntityManager;
 import org.hamcrest.Matchers;
 import org.keycloak.storage.client.ClientStorageProvider;
 import org.keycloak.storage.client.ClientStorageProviderModel;
@@ -516,6 +524,185 @@ public class UserSessionPersisterProviderTest extends KeycloakModelTest {
         });
     }
 
+    @Test
+    @RequireProvider(value = UserSessionPersisterProvider.class, only = "jpa")
+    public void testExpiredSessionsInChunks() {
+        // the single statements remove the same sessions as the chunks
+        Map<Integer, Integer> expected = expireScenario(session -> new JpaUserSessionPersisterProvider(session, getEntityManager(session)), 1);
+
+        Map<String, Integer> cursors = new ConcurrentHashMap<>();
+        Map<Integer, Integer> chunked = expireScenario(session -> new JpaUserSessionPersisterProvider(session, getEntityManager(session), 3, 0, null,
+                PersistentSessionDataCodec.Format.JSON, cursors), 2);
+
+        assertEquals(expected, chunked);
+        // user sessions expired with their client sessions, user sessions outliving their client sessions, and active sessions
+        assertEquals(Integer.valueOf(0), expected.getOrDefault(-40, 0));
+        assertEquals(Integer.valueOf(0), expected.get(-10));
+        assertEquals(Integer.valueOf(14), expected.get(0));
+        // the next run continues from the cutoff of the previous one
+        assertEquals(1, cursors.size());
+    }
+
+    /**
+     * Creates offline sessions 40 days, 10 days and 0 days idle, removes the expired ones with the given provider and returns the
+     * number of client sessions left per idle days of the remaining user sessions.
+     */
+    private Map<Integer, Integer> expireScenario(Function<KeycloakSession, UserSessionPersisterProvider> persisterFactory, int runs) {
+        int sessionsPerGroup = 7;
+        int now = Time.currentTime();
+        int day = 86400;
+
+        List<String> ids = inComittedTransaction(session -> {
+            RealmModel realm = session.realms().getRealm(realmId);
+            List<String> created = new ArrayList<>();
+            for (int i = 0; i < sessionsPerGroup * 3; i++) {
+                UserSessionModel userSession = session.sessions().createUserSession(null, realm, session.users().getUserByUsername(realm, "user1"), "user1",
+                        "127.0.0.1", "form", true, null, null, UserSessionModel.SessionPersistenceState.PERSISTENT);
+                createClientSession(session, realmId, realm.getClientByClientId("test-app"), userSession, "http://redirect", "state");
+                createClientSession(session, realmId, realm.getClientByClientId("third-party"), userSession, "http://redirect", "state");
+                persistUserSession(session, userSession, true);
+                created.add(userSession.getId());
+            }
+            return created;
+        });
+
+        inComittedTransaction(session -> {
+            RealmModel realm = session.realms().getRealm(realmId);
+            UserSessionPersisterProvider persister = session.getProvider(UserSessionPersisterProvider.class);
+            persister.updateLastSessionRefreshes(realm, now - 40 * day, ids.subList(0, sessionsPerGroup), true);
+            persister.updateLastSessionRefreshes(realm, now - 10 * day, ids.subList(sessionsPerGroup, 2 * sessionsPerGroup), true);
+            persister.updateLastSessionRefreshes(realm, now, ids.subList(2 * sessionsPerGroup, 3 * sessionsPerGroup), true);
+        });
+
+        try {
+            withRealm(realmId, (session, realm) -> {
+                realm.setClientOfflineSessionIdleTimeout(5 * day);
+                return null;
+            });
+            for (int i = 0; i < runs; i++) {
+                inComittedTransaction(session -> {
+                    persisterFactory.apply(session).removeExpired(session.realms().getRealm(realmId));
+                });
+            }
+
+            return inComittedTransaction(session -> {
+                UserSessionPersisterProvider persister = session.getProvider(UserSessionPersisterProvider.class);
+                Map<Integer, Integer> clientSessions = new HashMap<>();
+                persister.loadUserSessionsStream(0, 100, true, "00000000-0000-0000-0000-000000000000")
+                        .filter(userSession -> ids.contains(userSession.getId()))
+                        .forEach(userSession -> clientSessions.merge((userSession.getLastSessionRefresh() - now) / day,
+                                userSession.getAuthenticatedClientSessions().size(), Integer::sum));
+                return clientSessions;
+            });
+        } finally {
+            inComittedTransaction(session -> {
+                RealmModel realm = session.realms().getRealm(realmId);
+                realm.setClientOfflineSessionIdleTimeout(0);
+                UserSessionPersisterProvider persister = session.getProvider(UserSessionPersisterProvider.class);
+                ids.forEach(id -> persister.removeUserSession(id, true));
+                session.sessions().removeUserSessions(realm);
+            });
+        }
+    }
+
+    @Test
+    @RequireProvider(value = UserSessionPersisterProvider.class, only = "jpa")
+    public void testSessionCounters() {
+        String property = "keycloak.userSessionPersister." + JpaUserSessionPersisterProviderFactory.ID + "."
+                + JpaUserSessionPersisterProviderFactory.CONFIG_COUNTERS_RECONCILE_INTERVAL;
+        int reconcileInterval = 3600;
+        int day = 86400;
+        String[] clientIds = inComittedTransaction(session -> {
+            RealmModel realm = session.realms().getRealm(realmId);
+            return new String[] { realm.getClientByClientId("test-app").getId(), realm.getClientByClientId("third-party").getId() };
+        });
+        String testApp = clientIds[0];
+        String thirdParty = clientIds[1];
+        List<String> ids = new ArrayList<>();
+
+        // the factory reads the reconcile interval when it is initialized
+        System.setProperty(property, String.valueOf(reconcileInterval));
+        try {
+            reinitializeKeycloakSessionFactory();
+            assertEquals(Collections.emptyMap(), getOfflineCountsByClients());
+
+            // the counts loaded above are maintained from the created and removed sessions
+            String first = createOfflineSession(ids, "test-app", "third-party");
+            String second = createOfflineSession(ids, "test-app");
+            assertEquals(Map.of(testApp, 2L, thirdParty, 1L), getOfflineCountsByClients());
+
+            inComittedTransaction(session -> {
+                session.getProvider(UserSessionPersisterProvider.class).removeClientSession(first, thirdParty, true);
+            });
+            assertEquals(Map.of(testApp, 2L), getOfflineCountsByClients());
+
+            inComittedTransaction(session -> {
+                session.getProvider(UserSessionPersisterProvider.class).removeUserSession(second, true);
+            });
+            assertEquals(Map.of(testApp, 1L), getOfflineCountsByClients());
+
+            // the expiration doesn't know the affected clients, so the counts are reloaded
+            inComittedTransaction(session -> {
+                RealmModel realm = session.realms().getRealm(realmId);
+                UserSessionPersisterProvider persister = session.getProvider(UserSessionPersisterProvider.class);
+                persister.updateLastSessionRefreshes(realm, Time.currentTime() - 40 * day, Collections.singleton(first), true);
+            });
+            inComittedTransaction(session -> {
+                session.getProvider(UserSessionPersisterProvider.class).removeExpired(session.realms().getRealm(realmId));
+            });
+            assertEquals(Collections.emptyMap(), getOfflineCountsByClients());
+
+            // changes which bypass the counters, as those of other nodes, are only seen once the counts are reconciled
+            String third = createOfflineSession(ids, "test-app");
+            assertEquals(Map.of(testApp, 1L), getOfflineCountsByClients());
+            inComittedTransaction(session -> {
+                getEntityManager(session).createNamedQuery("deleteClientSessionsByUserSession")
+                        .setParameter("userSessionId", third)
+                        .setParameter("offline", "1")
+                        .executeUpdate();
+            });
+            assertEquals(Map.of(testApp, 1L), getOfflineCountsByClients());
+
+            setTimeOffset(reconcileInterval);
+            assertEquals(Collections.emptyMap(), getOfflineCountsByClients());
+        } finally {
+            setTimeOffset(0);
+            System.clearProperty(property);
+            inComittedTransaction(session -> {
+                UserSessionPersisterProvider persister = session.getProvider(UserSessionPersisterProvider.class);
+                ids.forEach(id -> persister.removeUserSession(id, true));
+                session.sessions().removeUserSessions(session.realms().getRealm(realmId));
+            });
+            reinitializeKeycloakSessionFactory();
+        }
+    }
+
+    private String createOfflineSession(List<String> ids, String... clientIds) {
+        String id = inComittedTransaction(session -> {
+            RealmModel realm = session.realms().getRealm(realmId);
+            UserSessionModel userSession = session.sessions().createUserSession(null, realm, session.users().getUserByUsername(realm, "user1"), "user1",
+                    "127.0.0.1", "form", true, null, null, UserSessionModel.SessionPersistenceState.PERSISTENT);
+            for (String clientId : clientIds) {
+                createClientSession(session, realmId, realm.getClientByClientId(clientId), userSession, "http://redirect", "state");
+            }
+            persistUserSession(session, userSession, true);
+            return userSession.getId();
+        });
+        ids.add(id);
+        return id;
+    }
+
+    private Map<String, Long> getOfflineCountsByClients() {
+        return inComittedTransaction(session -> {
+            RealmModel realm = session.realms().getRealm(realmId);
+            return session.getProvider(UserSessionPersisterProvider.class).getUserSessionsCountsByClients(realm, true);
+        });
+    }
+
+    private static EntityManager getEntityManager(KeycloakSession session) {
+        return session.getProvider(JpaConnectionProvider.class).getEntityManager();
+    }
+
     @Test
     @RequireProvider(ClientStorageProvider.class)
     public void testPersistenceWithLoadWithExternalClientStorage() {
@@ -41,6 +41,7 @@ import org.keycloak.models.UserSessionProvider;
 import org.keycloak.models.session.UserSessionPersisterProvider;
 import org.keycloak.models.sessions.infinispan.changes.sessions.PersisterLastSessionRefreshStoreFactory;
 import org.keycloak.models.utils.ResetTimeOffsetEvent;
+import org.keycloak.protocol.oidc.OIDCLoginProtocol;
 import org.keycloak.services.managers.UserSessionManager;
 import org.keycloak.testsuite.model.infinispan.InfinispanTestUtil;
 import org.keycloak.timer.TimerProvider;
@@ -427,6 +428,53 @@ public class UserSessionProviderOfflineModelTest extends KeycloakModelTest {
         });
     }
 
+    @Test
+    public void testOfflineUserSessionRestoredWithLazyClientSessions() {
+        // create online user and client sessions, the first user session has client sessions of both clients
+        UserSessionModel[] origSessions = inComittedTransaction(session -> {
+            return UserSessionPersisterProviderTest.createSessions(session, realmId);
+        });
+
+        String offlineUserSessionId = withRealm(realmId, (session, realm) -> {
+            UserSessionModel userSession = session.sessions().getUserSession(realm, origSessions[0].getId());
+            createOfflineSessionIncludeClientSessions(session, userSession);
+            // the offline user session has the same id as the online one
+            return userSession.getId();
+        });
+
+        withRealm(realmId, (session, realm) -> {
+            // the user session and its client sessions are restored from the persister
+            InfinispanConnectionProvider provider = session.getProvider(InfinispanConnectionProvider.class);
+            provider.getCache(InfinispanConnectionProvider.OFFLINE_USER_SESSION_CACHE_NAME).clear();
+            provider.getCache(InfinispanConnectionProvider.OFFLINE_CLIENT_SESSION_CACHE_NAME).clear();
+            return null;
+        });
+
+        withRealm(realmId, (session, realm) -> {
+            ClientModel testApp = realm.getClientByClientId("test-app");
+            ClientModel thirdParty = realm.getClientByClientId("third-party");
+
+            UserSessionModel offlineUserSession = session.sessions().getOfflineUserSession(realm, offlineUserSessionId);
+            Assert.assertNotNull(offlineUserSession);
+
+            // only the client sessions of the requested clients are loaded
+            UserSessionPersisterProvider persister = session.getProvider(UserSessionPersisterProvider.class);
+            List<AuthenticatedClientSessionModel> loaded = persister.loadClientSessionsStream(realm, Collections.singletonList(thirdParty), offlineUserSession, true)
+                    .collect(Collectors.toList());
+            assertThat(loaded, Matchers.hasSize(1));
+            Assert.assertEquals(thirdParty.getId(), loaded.get(0).getClient().getId());
+
+            // all the client sessions are loaded at once, with their data
+            Map<String, AuthenticatedClientSessionModel> clientSessions = offlineUserSession.getAuthenticatedClientSessions();
+            assertThat(clientSessions.keySet(), Matchers.containsInAnyOrder(testApp.getId(), thirdParty.getId()));
+            clientSessions.values().forEach(clientSession -> {
+                Assert.assertEquals("http://redirect", clientSession.getRedirectUri());
+                Assert.assertEquals("state", clientSession.getNote(OIDCLoginProtocol.STATE_PARAM));
+            });
+            return null;
+        });
+    }
+
     @Test
     public void testLoadingOfflineClientSessionWhenCreatedBeforeSessionTime() {
         // setup idle timeout for the realm
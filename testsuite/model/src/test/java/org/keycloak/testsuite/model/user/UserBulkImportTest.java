@@ -0,0 +1,176 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.keycloak.testsuite.model.user;
+
+import org.junit.Test;
+import org.keycloak.credential.CredentialModel;
+import org.keycloak.models.Constants;
+import org.keycloak.models.FederatedIdentityModel;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.ModelDuplicateException;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RealmProvider;
+import org.keycloak.models.RoleModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.UserProvider;
+import org.keycloak.models.utils.RepresentationToModel;
+import org.keycloak.representations.idm.CredentialRepresentation;
+import org.keycloak.representations.idm.FederatedIdentityRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.keycloak.testsuite.model.KeycloakModelTest;
+import org.keycloak.testsuite.model.RequireProvider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * Checks that the users created in a batch are stored as the users created one by one.
+ */
+@RequireProvider(value = UserProvider.class, only = "jpa")
+@RequireProvider(RealmProvider.class)
+public class UserBulkImportTest extends KeycloakModelTest {
+
+    private String realmId;
+
+    @Override
+    public void createEnvironment(KeycloakSession s) {
+        RealmModel realm = createRealm(s, "realm");
+        realm.setDefaultRole(s.roles().addRealmRole(realm, Constants.DEFAULT_ROLES_ROLE_PREFIX + "-" + realm.getName()));
+        s.roles().addRealmRole(realm, "role1");
+        s.groups().createGroup(realm, "group1");
+        this.realmId = realm.getId();
+    }
+
+    @Override
+    public void cleanEnvironment(KeycloakSession s) {
+        s.realms().removeRealm(realmId);
+    }
+
+    @Test
+    public void testBulkImportMatchesSingleImport() {
+        withRealm(realmId, (session, realm) -> {
+            RepresentationToModel.createUsers(session, realm, Collections.singletonList(createRepresentation("bulk")));
+            RepresentationToModel.createUser(session, realm, createRepresentation("single"));
+            return null;
+        });
+
+        withRealm(realmId, (session, realm) -> {
+            UserModel bulk = session.users().getUserByUsername(realm, "bulk");
+            UserModel single = session.users().getUserByUsername(realm, "single");
+
+            assertThat(bulk.getEmail(), equalTo("bulk@example.org"));
+            assertThat(bulk.getEmail(), equalTo(single.getEmail().replace("single", "bulk")));
+            // the first name given as attribute takes precedence
+            assertThat(bulk.getFirstName(), equalTo("Attribute"));
+            assertThat(bulk.getFirstName(), equalTo(single.getFirstName()));
+            assertThat(bulk.getLastName(), equalTo(single.getLastName()));
+            assertThat(bulk.isEnabled(), equalTo(single.isEnabled()));
+            assertThat(bulk.isEmailVerified(), equalTo(single.isEmailVerified()));
+            assertThat(bulk.getCreatedTimestamp(), equalTo(single.getCreatedTimestamp()));
+
+            assertThat(customAttributes(bulk), equalTo(customAttributes(single)));
+            assertThat(customAttributes(bulk), not(hasKey(UserModel.FIRST_NAME)));
+            assertThat(bulk.getRequiredActionsStream().collect(Collectors.toList()),
+                    containsInAnyOrder(single.getRequiredActionsStream().toArray()));
+
+            List<CredentialModel> bulkCredentials = bulk.credentialManager().getStoredCredentialsStream().collect(Collectors.toList());
+            List<CredentialModel> singleCredentials = single.credentialManager().getStoredCredentialsStream().collect(Collectors.toList());
+            assertThat(bulkCredentials, hasSize(1));
+            assertThat(singleCredentials, hasSize(1));
+            assertThat(bulkCredentials.get(0).getType(), equalTo(singleCredentials.get(0).getType()));
+            assertThat(bulkCredentials.get(0).getSecretData(), equalTo(singleCredentials.get(0).getSecretData()));
+            assertThat(bulkCredentials.get(0).getCredentialData(), equalTo(singleCredentials.get(0).getCredentialData()));
+            assertThat(bulkCredentials.get(0).getPriority(), equalTo(singleCredentials.get(0).getPriority()));
+
+            assertThat(session.users().getFederatedIdentitiesStream(realm, bulk).map(FederatedIdentityModel::getIdentityProvider).collect(Collectors.toList()),
+                    containsInAnyOrder(session.users().getFederatedIdentitiesStream(realm, single).map(FederatedIdentityModel::getIdentityProvider).toArray()));
+            assertThat(bulk.getRoleMappingsStream().map(RoleModel::getName).collect(Collectors.toList()),
+                    containsInAnyOrder(single.getRoleMappingsStream().map(RoleModel::getName).toArray()));
+            assertThat(bulk.getGroupsStream().map(GroupModel::getName).collect(Collectors.toList()),
+                    containsInAnyOrder(single.getGroupsStream().map(GroupModel::getName).toArray()));
+            return null;
+        });
+    }
+
+    @Test
+    public void testBulkImportDuplicateUsername() {
+        withRealm(realmId, (session, realm) -> session.users().addUser(realm, "existing"));
+
+        assertThrows(ModelDuplicateException.class, () -> withRealm(realmId, (session, realm) -> {
+            RepresentationToModel.createUsers(session, realm, List.of(createRepresentation("other"), createRepresentation("existing")));
+            return null;
+        }));
+
+        withRealm(realmId, (session, realm) -> {
+            // the whole batch failed
+            assertThat(session.users().getUserByUsername(realm, "other"), nullValue());
+            return null;
+        });
+    }
+
+    private static Map<String, List<String>> customAttributes(UserModel user) {
+        Map<String, List<String>> attributes = new HashMap<>(user.getAttributes());
+        attributes.remove(UserModel.USERNAME);
+        attributes.remove(UserModel.EMAIL);
+        attributes.remove(UserModel.FIRST_NAME);
+        attributes.remove(UserModel.LAST_NAME);
+        return attributes;
+    }
+
+    private static UserRepresentation createRepresentation(String username) {
+        UserRepresentation user = new UserRepresentation();
+        user.setUsername(username);
+        user.setEmail(username.toUpperCase() + "@example.org");
+        user.setEmailVerified(true);
+        user.setEnabled(true);
+        user.setCreatedTimestamp(1700000000000L);
+        user.setFirstName("Representation");
+        user.setLastName("Last");
+        user.setAttributes(Map.of(UserModel.FIRST_NAME, List.of("Attribute"), "color", List.of("red", "blue")));
+        user.setRequiredActions(List.of("update_password"));
+        user.setRealmRoles(List.of("role1"));
+        user.setGroups(List.of("/group1"));
+
+        CredentialRepresentation credential = new CredentialRepresentation();
+        credential.setType(CredentialRepresentation.PASSWORD);
+        credential.setCreatedDate(1700000000000L);
+        credential.setSecretData("{\"value\":\"hash\",\"salt\":\"c2FsdA==\"}");
+        credential.setCredentialData("{\"hashIterations\":27500,\"algorithm\":\"pbkdf2-sha256\"}");
+        user.setCredentials(List.of(credential));
+
+        FederatedIdentityRepresentation identity = new FederatedIdentityRepresentation();
+        identity.setIdentityProvider("idp");
+        identity.setUserId(username + "-id");
+        identity.setUserName(username);
+        user.setFederatedIdentities(List.of(identity));
+        return user;
+    }
+}
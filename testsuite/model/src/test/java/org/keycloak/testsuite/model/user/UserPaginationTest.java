@@ -11,14 +11,17 @@ import org.keycloak.models.UserModel;
 import org.keycloak.models.UserProvider;
 import org.keycloak.storage.UserStorageProvider;
 import org.keycloak.storage.UserStorageProviderModel;
+import org.keycloak.storage.user.UserSearchPage;
 import org.keycloak.testsuite.federation.UserPropertyFileStorage;
 import org.keycloak.testsuite.federation.UserPropertyFileStorage.UserPropertyFileStorageCall;
 import org.keycloak.testsuite.federation.UserPropertyFileStorageFactory;
 import org.keycloak.testsuite.model.KeycloakModelTest;
 
 import org.keycloak.testsuite.model.RequireProvider;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -26,6 +29,9 @@ import java.util.stream.Collectors;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeThat;
 
 /**
@@ -136,6 +142,43 @@ public class UserPaginationTest extends KeycloakModelTest {
         );
     }
 
+    @Test
+    public void testContinuationTokenRoundTrip() {
+        List<String> usernames = new ArrayList<>();
+        String token = null;
+        int pages = 0;
+        do {
+            String currentToken = token;
+            token = withRealm(realmId, (session, realm) -> {
+                UserSearchPage page = session.users().searchForUserPage(realm, Map.of(UserModel.SEARCH, ""), currentToken, 3);
+                assertThat(page.getUsers().size(), lessThanOrEqualTo(3));
+                page.getUsers().stream().map(UserModel::getUsername).forEach(usernames::add);
+                return page.getContinuationToken();
+            });
+            pages++;
+        } while (token != null && pages < 10);
+
+        // the users of both providers, each once
+        assertThat(token, nullValue());
+        assertThat(usernames, hasSize(8));
+        assertThat(new HashSet<>(usernames), hasSize(8));
+
+        UserPropertyFileStorage.storageCalls.clear();
+    }
+
+    @Test
+    public void testInvalidContinuationToken() {
+        withRealm(realmId, (session, realm) -> {
+            try {
+                session.users().searchForUserPage(realm, Map.of(UserModel.SEARCH, ""), "not-a-token", 3);
+                fail("Invalid continuation token must be rejected");
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+            return null;
+        });
+    }
+
     private void expectedStorageCalls(final List<UserPropertyFileStorageCall> roCalls, final List<UserPropertyFileStorageCall> rwCalls) {
         assertThat(UserPropertyFileStorage.storageCalls.get(userFederationId1), hasSize(roCalls.size()));
 